@@ -65,6 +65,17 @@ public class BackgroundThreadHandler {
     }
   }
 
+  /**
+   * Quits the background thread once its pending messages are handled, without waiting for it.
+   * Unlike {@link #stopBackgroundThread()}, it can be called from the background thread itself.
+   */
+  public void quitBackgroundThread() {
+    Log.d(TAG, "Quitting thread " + threadName);
+    handlerThread.quitSafely();
+    handlerThread = null;
+    handler = null;
+  }
+
   /**
    * Returns {@link Handler} using the background thread.
    */
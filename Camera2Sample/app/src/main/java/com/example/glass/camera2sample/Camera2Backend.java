@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.TotalCaptureResult;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.Range;
+import android.view.Surface;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link CameraBackend} implementation using the Camera2 API.
+ */
+public class Camera2Backend implements CameraBackend {
+
+  private static final String TAG = Camera2Backend.class.getSimpleName();
+
+  /**
+   * Camera system service manager for connecting to the {@link CameraDevice}
+   */
+  private final CameraManager cameraManager;
+
+  /**
+   * Creates {@link Camera2Backend} object using {@link Context}.
+   */
+  public Camera2Backend(Context context) {
+    cameraManager = (CameraManager) Objects.requireNonNull(context, "Context must not be null")
+        .getSystemService(Context.CAMERA_SERVICE);
+  }
+
+  @Nullable
+  @Override
+  public String getCameraId() throws CameraAccessException {
+    for (String cameraId : cameraManager.getCameraIdList()) {
+      if (getStreamConfigurationMap(cameraId) != null) {
+        return cameraId;
+      }
+      Log.d(TAG, "Stream configuration map is null");
+    }
+    return null;
+  }
+
+  @Override
+  public PictureOutput createPictureOutput(String cameraId) throws CameraAccessException {
+    return new ImageReaderProvider(Objects.requireNonNull(getStreamConfigurationMap(cameraId),
+        "Stream configuration map must not be null"));
+  }
+
+  @Override
+  public Recorder createVideoRecorder() {
+    return new VideoRecorder();
+  }
+
+  @SuppressLint("MissingPermission")
+  @Override
+  public void openCamera(String cameraId, final DeviceCallback callback, @Nullable Handler handler)
+      throws CameraAccessException {
+    final Range<Integer>[] fpsRanges = cameraManager.getCameraCharacteristics(cameraId)
+        .get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+    cameraManager.openCamera(cameraId, new CameraDevice.StateCallback() {
+      @Override
+      public void onOpened(@NonNull CameraDevice cameraDevice) {
+        callback.onOpened(new Camera2Device(cameraDevice, fpsRanges));
+      }
+
+      @Override
+      public void onDisconnected(@NonNull CameraDevice cameraDevice) {
+        callback.onDisconnected(new Camera2Device(cameraDevice, fpsRanges));
+      }
+
+      @Override
+      public void onError(@NonNull CameraDevice cameraDevice, int error) {
+        callback.onError(new Camera2Device(cameraDevice, fpsRanges), error);
+      }
+    }, handler);
+  }
+
+  /**
+   * Returns the supported range with the lowest upper bound not lower than the targetFrameRate.
+   * Ranges whose lower bound is not lower than the targetFrameRate are preferred, so the auto
+   * exposure can't drop below it in low light. Falls back to the lowest minimum frame rate only if
+   * there is no such range. Throws {@link IllegalArgumentException} if the target frame rate is not
+   * positive or if there is no range reaching it.
+   */
+  static Range<Integer> selectFpsRange(@Nullable Range<Integer>[] fpsRanges,
+      int targetFrameRate) {
+    if (targetFrameRate <= 0) {
+      throw new IllegalArgumentException("Target frame rate must be positive: " + targetFrameRate);
+    }
+    if (fpsRanges == null) {
+      throw new IllegalArgumentException("Camera doesn't report its frame rate ranges");
+    }
+    Range<Integer> selectedRange = null;
+    for (Range<Integer> range : fpsRanges) {
+      if (range.getUpper() < targetFrameRate) {
+        continue;
+      }
+      if (selectedRange == null || isBetterFpsRange(range, selectedRange, targetFrameRate)) {
+        selectedRange = range;
+      }
+    }
+    if (selectedRange == null) {
+      throw new IllegalArgumentException(
+          "No frame rate range supports " + targetFrameRate + " fps");
+    }
+    return selectedRange;
+  }
+
+  /**
+   * Returns true if the range sustains the targetFrameRate and the other one doesn't, or if both of
+   * them do or don't and the range has the lower upper bound, or the lower minimum frame rate for
+   * the same upper bound.
+   */
+  private static boolean isBetterFpsRange(Range<Integer> range, Range<Integer> otherRange,
+      int targetFrameRate) {
+    final boolean sustainsTarget = range.getLower() >= targetFrameRate;
+    if (sustainsTarget != (otherRange.getLower() >= targetFrameRate)) {
+      return sustainsTarget;
+    }
+    if (!range.getUpper().equals(otherRange.getUpper())) {
+      return range.getUpper() < otherRange.getUpper();
+    }
+    return range.getLower() < otherRange.getLower();
+  }
+
+  @Nullable
+  private StreamConfigurationMap getStreamConfigurationMap(String cameraId)
+      throws CameraAccessException {
+    return cameraManager.getCameraCharacteristics(cameraId)
+        .get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+  }
+
+  /**
+   * {@link Device} wrapping the {@link CameraDevice}.
+   */
+  private static class Camera2Device implements Device {
+
+    private final CameraDevice cameraDevice;
+    private final CaptureRequestProvider captureRequestProvider;
+    @Nullable
+    private final Range<Integer>[] fpsRanges;
+
+    Camera2Device(CameraDevice cameraDevice, @Nullable Range<Integer>[] fpsRanges) {
+      this.cameraDevice = cameraDevice;
+      this.fpsRanges = fpsRanges;
+      captureRequestProvider = new CaptureRequestProvider(cameraDevice);
+    }
+
+    @Override
+    public void createCaptureSession(List<Surface> surfaces, final SessionCallback callback,
+        @Nullable Handler handler) throws CameraAccessException {
+      cameraDevice.createCaptureSession(surfaces, new CameraCaptureSession.StateCallback() {
+        @Override
+        public void onConfigured(@NonNull CameraCaptureSession session) {
+          callback.onConfigured(new Camera2Session(session, captureRequestProvider, fpsRanges));
+        }
+
+        @Override
+        public void onConfigureFailed(@NonNull CameraCaptureSession session) {
+          callback.onConfigureFailed();
+        }
+      }, handler);
+    }
+
+    @Override
+    public void close() {
+      cameraDevice.close();
+    }
+  }
+
+  /**
+   * {@link Session} wrapping the {@link CameraCaptureSession}.
+   */
+  private static class Camera2Session implements Session {
+
+    private final CameraCaptureSession cameraCaptureSession;
+    private final CaptureRequestProvider captureRequestProvider;
+    @Nullable
+    private final Range<Integer>[] fpsRanges;
+
+    Camera2Session(CameraCaptureSession cameraCaptureSession,
+        CaptureRequestProvider captureRequestProvider, @Nullable Range<Integer>[] fpsRanges) {
+      this.cameraCaptureSession = cameraCaptureSession;
+      this.captureRequestProvider = captureRequestProvider;
+      this.fpsRanges = fpsRanges;
+    }
+
+    @Override
+    public void setRepeatingRequest(int templateType, List<Surface> surfaces)
+        throws CameraAccessException {
+      cameraCaptureSession.setRepeatingRequest(
+          captureRequestProvider.getCaptureRequest(templateType, surfaces), null, null);
+    }
+
+    @Override
+    public void setRepeatingRequest(int templateType, List<Surface> surfaces,
+        int targetFrameRate) throws CameraAccessException {
+      final Range<Integer> fpsRange = selectFpsRange(fpsRanges, targetFrameRate);
+      Log.d(TAG, "Selected frame rate range " + fpsRange + " for " + targetFrameRate + " fps");
+      cameraCaptureSession.setRepeatingRequest(
+          captureRequestProvider.getCaptureRequest(templateType, surfaces, fpsRange), null, null);
+    }
+
+    @Override
+    public void capture(int templateType, List<Surface> surfaces, final CaptureCallback callback)
+        throws CameraAccessException {
+      cameraCaptureSession.capture(captureRequestProvider.getCaptureRequest(templateType, surfaces),
+          new CameraCaptureSession.CaptureCallback() {
+            @Override
+            public void onCaptureCompleted(@NonNull CameraCaptureSession session,
+                @NonNull CaptureRequest request, @NonNull TotalCaptureResult result) {
+              callback.onCaptureCompleted();
+            }
+          }, null);
+    }
+
+    @Override
+    public void stopRepeating() throws CameraAccessException {
+      cameraCaptureSession.stopRepeating();
+    }
+
+    @Override
+    public void abortCaptures() throws CameraAccessException {
+      cameraCaptureSession.abortCaptures();
+    }
+
+    @Override
+    public void close() {
+      cameraCaptureSession.close();
+    }
+  }
+}
@@ -16,33 +16,32 @@
 
 package com.example.glass.camera2sample;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.Intent;
 import android.hardware.camera2.CameraAccessException;
-import android.hardware.camera2.CameraCaptureSession;
-import android.hardware.camera2.CameraCaptureSession.CaptureCallback;
-import android.hardware.camera2.CameraCaptureSession.StateCallback;
-import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
-import android.hardware.camera2.CameraManager;
-import android.hardware.camera2.CaptureRequest;
-import android.hardware.camera2.TotalCaptureResult;
-import android.hardware.camera2.params.StreamConfigurationMap;
-import android.media.ImageReader;
-import android.media.ImageReader.OnImageAvailableListener;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.Surface;
 import android.widget.Toast;
+import com.example.glass.camera2sample.CameraBackend.CaptureCallback;
+import com.example.glass.camera2sample.CameraBackend.Device;
+import com.example.glass.camera2sample.CameraBackend.DeviceCallback;
+import com.example.glass.camera2sample.CameraBackend.OnPictureAvailableListener;
+import com.example.glass.camera2sample.CameraBackend.PictureOutput;
+import com.example.glass.camera2sample.CameraBackend.Recorder;
+import com.example.glass.camera2sample.CameraBackend.Session;
+import com.example.glass.camera2sample.CameraBackend.SessionCallback;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class responsible for handling the camera actions. Its main responsibilities are:
@@ -51,8 +50,12 @@ import java.util.concurrent.TimeUnit;
  *   <li>starting and stopping the background thread for camera and image reader</li>
  *   <li>taking picture using {@link CameraCaptureSessionController}</li>
  * </ul>
+ * Camera is driven by the non-blocking state machine described by the {@link CameraState}. Requests
+ * which can't be handled in the current state are queued or coalesced and executed once the camera
+ * gets to the state handling them. Public methods may be called from any thread. The {@link
+ * CameraActionHandlerCallback} is always called on the main thread.
  */
-public class CameraActionHandler implements OnImageAvailableListener {
+public class CameraActionHandler implements OnPictureAvailableListener {
 
   private static final String TAG = CameraActionHandler.class.getSimpleName();
 
@@ -61,18 +64,13 @@ public class CameraActionHandler implements OnImageAvailableListener {
    */
   private static final String BACKGROUND_THREAD_NAME = "CameraBackgroundThread";
 
-  /**
-   * Timeout for camera to open.
-   */
-  private static final int CAMERA_LOCK_TIMEOUT_MS = 2500;
-
   /**
    * Context this handler is currently associated with.
    */
   private final Context context;
 
   /**
-   * Provides {@link CameraCaptureSession} for the camera preview and to take pictures.
+   * Provides {@link Session} for the camera preview and to take pictures.
    */
   private final CameraCaptureSessionController cameraCaptureSessionController;
 
@@ -82,34 +80,63 @@ public class CameraActionHandler implements OnImageAvailableListener {
   private final BackgroundThreadHandler backgroundThreadHandler;
 
   /**
-   * Camera system service manager for connecting to the {@link CameraDevice}
+   * {@link CameraBackend} for connecting to the camera {@link Device}.
    */
-  private final CameraManager cameraManager;
+  private final CameraBackend cameraBackend;
 
   /**
-   * Callback for the {@link CameraActionHandler}.
+   * {@link Handler} for the main thread, delivering the callbacks and the toasts.
+   */
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  /**
+   * Callback for the {@link CameraActionHandler}, posting each call to the main thread.
    */
   private final CameraActionHandlerCallback cameraActionHandlerCallback;
 
   /**
-   * ID of the current {@link CameraDevice}.
+   * ID of the current camera {@link Device}.
    */
   private String cameraId;
 
   /**
-   * A reference to the opened {@link CameraDevice}.
+   * A reference to the opened camera {@link Device}.
+   */
+  private Device cameraDevice;
+
+  /**
+   * A {@link PictureOutput} receiving the still pictures.
+   */
+  private PictureOutput pictureOutput;
+
+  /**
+   * Requests waiting for the camera to get to the state handling them.
+   */
+  private final Deque<CameraRequest> pendingRequests = new ArrayDeque<>();
+
+  /**
+   * Current state of the camera. Guarded by this object's lock.
    */
-  private CameraDevice cameraDevice;
+  private CameraState cameraState = CameraState.CLOSED;
 
   /**
-   * An {@link ImageReaderProvider} that provides the {@link ImageReader}.
+   * Flag indicating the background thread should be stopped once the opening camera is closed. The
+   * thread delivers the camera {@link Device} callbacks, so it outlives the close request until the
+   * device opened after it is closed.
    */
-  private ImageReaderProvider imageReaderProvider;
+  private boolean isBackgroundThreadStopPending = false;
 
   /**
-   * A {@link Semaphore} to prevent the app from exiting before closing the camera.
+   * Flag indicating if the camera should be open. Open and close requests made while the camera is
+   * opening are coalesced into this flag and applied once the camera opens.
    */
-  private Semaphore cameraOpenCloseLock = new Semaphore(1);
+  private boolean isCameraOpenRequested = false;
+
+  /**
+   * Incremented each time a new session is requested or the camera is closed. Callbacks carrying an
+   * older generation come from the abandoned sessions and are ignored.
+   */
+  private int sessionGeneration = 0;
 
   /**
    * Surface for camera preview.
@@ -124,17 +151,18 @@ public class CameraActionHandler implements OnImageAvailableListener {
   /**
    * Provides functionality of video recording.
    */
-  private VideoRecorder videoRecorder;
+  private Recorder videoRecorder;
 
   /**
-   * Creates {@link CameraCaptureSession} for a given parameters.
+   * Time-lapse configuration of the next recordings or null to record at the full frame rate.
    */
-  private CameraCaptureSessionFactory cameraCaptureSessionFactory;
+  @Nullable
+  private TimeLapseConfig timeLapseConfig;
 
   /**
-   * Flag indicating if video capture session is preparing.
+   * Creates {@link Session} for a given parameters.
    */
-  private boolean isVideoCaptureSessionPreparing = false;
+  private CameraCaptureSessionFactory cameraCaptureSessionFactory;
 
   /**
    * Flag indicating the camera app has been opened in video mode via intent.
@@ -146,32 +174,50 @@ public class CameraActionHandler implements OnImageAvailableListener {
   private boolean isCameraOpenedInVideoModeViaIntent = false;
 
   /**
-   * {@link CameraDevice.StateCallback} is called when {@link CameraDevice} changes its state.
+   * {@link DeviceCallback} is called when camera {@link Device} changes its state.
    */
-  private final CameraDevice.StateCallback stateCallback = new CameraDevice.StateCallback() {
+  private final DeviceCallback deviceCallback = new DeviceCallback() {
 
     @Override
-    public void onOpened(@NonNull CameraDevice cameraDevice) {
+    public void onOpened(@NonNull Device cameraDevice) {
       Log.d(TAG, "Camera device opened");
-      CameraActionHandler.this.cameraDevice = cameraDevice;
-      cameraCaptureSessionController.setCameraDevice(cameraDevice);
-      cameraCaptureSessionFactory = new CameraCaptureSessionFactory(cameraDevice);
-      createCameraPreviewSession();
+      synchronized (CameraActionHandler.this) {
+        CameraActionHandler.this.cameraDevice = cameraDevice;
+        if (cameraState != CameraState.OPENING || !isCameraOpenRequested
+            || isBackgroundThreadStopPending) {
+          Log.d(TAG, "Camera has been closed while opening");
+          releaseCamera();
+          return;
+        }
+        cameraCaptureSessionFactory = new CameraCaptureSessionFactory(cameraDevice);
+        createCameraPreviewSession();
+      }
     }
 
     @Override
-    public void onDisconnected(@NonNull CameraDevice cameraDevice) {
+    public void onDisconnected(@NonNull Device cameraDevice) {
       Log.d(TAG, "Camera device disconnected");
-      CameraActionHandler.this.cameraDevice = cameraDevice;
-      closeCamera();
+      synchronized (CameraActionHandler.this) {
+        CameraActionHandler.this.cameraDevice = cameraDevice;
+        isCameraOpenRequested = false;
+        releaseCamera();
+      }
     }
 
     @Override
-    public void onError(@NonNull CameraDevice cameraDevice, int error) {
+    public void onError(@NonNull Device cameraDevice, int error) {
       Log.d(TAG, "Camera device error");
-      CameraActionHandler.this.cameraDevice = cameraDevice;
-      closeCamera();
-      Toast.makeText(context, "Camera opening error", Toast.LENGTH_SHORT).show();
+      synchronized (CameraActionHandler.this) {
+        CameraActionHandler.this.cameraDevice = cameraDevice;
+        isCameraOpenRequested = false;
+        releaseCamera();
+      }
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          Toast.makeText(context, "Camera opening error", Toast.LENGTH_SHORT).show();
+        }
+      });
     }
   };
 
@@ -180,95 +226,102 @@ public class CameraActionHandler implements OnImageAvailableListener {
    */
   public CameraActionHandler(Context context,
       CameraActionHandlerCallback cameraActionHandlerCallback) {
+    this(context, cameraActionHandlerCallback, new Camera2Backend(context));
+  }
+
+  /**
+   * Creates {@link CameraActionHandler} object using {@link Context} and the given {@link
+   * CameraBackend}.
+   */
+  public CameraActionHandler(Context context,
+      CameraActionHandlerCallback cameraActionHandlerCallback, CameraBackend cameraBackend) {
     this.context = context;
-    this.cameraActionHandlerCallback = cameraActionHandlerCallback;
+    this.cameraActionHandlerCallback = new MainThreadCallback(cameraActionHandlerCallback);
+    this.cameraBackend = cameraBackend;
     backgroundThreadHandler = new BackgroundThreadHandler(BACKGROUND_THREAD_NAME);
-    cameraManager = (CameraManager) Objects.requireNonNull(context, "Context must not be null")
-        .getSystemService(Context.CAMERA_SERVICE);
     cameraCaptureSessionController = new CameraCaptureSessionController();
   }
 
   /**
-   * Opens camera for a given parameters. Waits {@link CameraActionHandler#CAMERA_LOCK_TIMEOUT_MS}
-   * milliseconds for the camera to open. Throws {@link RuntimeException} if this time is exceeded.
+   * Opens camera for a given parameters. Returns immediately, the camera is opened asynchronously.
+   * Request is coalesced if the camera is already open or opening.
    */
-  @SuppressLint("MissingPermission")
-  public void openCamera() {
+  public synchronized void openCamera() {
     Log.d(TAG, "Opening camera");
-    setUpImageReader();
+    isCameraOpenRequested = true;
+    if (cameraState != CameraState.CLOSED) {
+      Log.d(TAG, "Camera is already in the " + cameraState + " state");
+      return;
+    }
+    setUpPictureOutput();
+    if (pictureOutput == null) {
+      return;
+    }
     try {
-      if (!cameraOpenCloseLock.tryAcquire(CAMERA_LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
-        throw new RuntimeException("Time out waiting to lock camera opening.");
-      }
-      cameraManager
-          .openCamera(cameraId, stateCallback, backgroundThreadHandler.getHandler());
+      setCameraState(CameraState.OPENING);
+      cameraBackend.openCamera(cameraId, deviceCallback, backgroundThreadHandler.getHandler());
     } catch (CameraAccessException e) {
       Log.e(TAG, "Opening camera failed", e);
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Interrupted while trying to lock camera opening.", e);
+      releaseCamera();
     }
   }
 
   /**
-   * Closes {@link CameraDevice}, {@link CameraCaptureSession} and {@link ImageReader}.
+   * Closes camera {@link Device}, {@link Session} and {@link PictureOutput}. Never blocks. If the
+   * camera is opening, it is closed as soon as it opens. Pending requests are cancelled.
    */
-  public void closeCamera() {
+  public synchronized void closeCamera() {
     Log.d(TAG, "Start closing camera");
-    try {
-      cameraOpenCloseLock.acquire();
-      cameraCaptureSessionController.closeSession();
-      if (videoRecorder != null && videoRecorder.isRecording()) {
-        stopRecording();
-        videoRecorder.releaseMediaRecorder();
-      }
-      if (cameraDevice != null) {
-        Log.d(TAG, "Closing camera device");
-        cameraDevice.close();
-        cameraDevice = null;
-      }
-      if (imageReaderProvider != null) {
-        Log.d(TAG, "Closing image reader");
-        imageReaderProvider.closeImageReader();
-      }
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Interrupted while trying to lock camera closing.", e);
-    } finally {
-      cameraOpenCloseLock.release();
+    isCameraOpenRequested = false;
+    clearPendingRequests();
+    if (cameraState == CameraState.OPENING) {
+      Log.d(TAG, "Camera is opening, it will be closed once opened");
+      return;
     }
+    releaseCamera();
   }
 
   /**
-   * Starts background {@link android.os.HandlerThread}.
+   * Starts background {@link android.os.HandlerThread}. Reuses the thread whose stop is still
+   * pending.
    */
-  public void startBackgroundThread() {
+  public synchronized void startBackgroundThread() {
+    if (isBackgroundThreadStopPending) {
+      Log.d(TAG, "Background thread is still running, reusing it");
+      isBackgroundThreadStopPending = false;
+      return;
+    }
     backgroundThreadHandler.startBackgroundThread();
   }
 
   /**
-   * Stops background {@link android.os.HandlerThread}.
+   * Stops background {@link android.os.HandlerThread}. Never blocks on the opening camera. If the
+   * camera is opening, the thread is stopped as soon as the camera opens and gets closed.
    */
   public void stopBackgroundThread() {
+    synchronized (this) {
+      if (cameraState == CameraState.OPENING) {
+        Log.d(TAG, "Camera is opening, background thread will be stopped once it is closed");
+        isBackgroundThreadStopPending = true;
+        return;
+      }
+    }
     backgroundThreadHandler.stopBackgroundThread();
   }
 
   /**
    * Performs action on {@link GlassGestureDetector.Gesture#TAP} gesture.
    */
-  public void performTapAction() {
+  public synchronized void performTapAction() {
     switch (cameraMode) {
       case PICTURE:
-        takePicture();
+        requestTakePicture();
         break;
       case VIDEO:
-        if (isVideoCaptureSessionPreparing) {
-          return;
-        }
-        isVideoCaptureSessionPreparing = true;
-        if (videoRecorder.isRecording()) {
-          stopRecording();
-          createCameraPreviewSession();
+        if (isRecording()) {
+          requestStopRecording();
         } else {
-          startRecording();
+          requestStartRecording();
         }
         break;
     }
@@ -278,7 +331,7 @@ public class CameraActionHandler implements OnImageAvailableListener {
    * Performs action on {@link GlassGestureDetector.Gesture#SWIPE_FORWARD}
    * gesture.
    */
-  public void performSwipeForwardAction() {
+  public synchronized void performSwipeForwardAction() {
     Log.d(TAG, "Performing swipe forward action");
     switchCameraMode(CameraMode.VIDEO);
   }
@@ -287,7 +340,7 @@ public class CameraActionHandler implements OnImageAvailableListener {
    * Performs action on {@link GlassGestureDetector.Gesture#SWIPE_BACKWARD}
    * gesture.
    */
-  public void performSwipeBackwardAction() {
+  public synchronized void performSwipeBackwardAction() {
     Log.d(TAG, "Performing swipe backward action");
     switchCameraMode(CameraMode.PICTURE);
   }
@@ -308,22 +361,21 @@ public class CameraActionHandler implements OnImageAvailableListener {
    * </li>
    * </ol>
    */
-  public void performCameraButtonPress() {
+  public synchronized void performCameraButtonPress() {
     if (isCameraOpenedInVideoModeViaIntent) {
       isCameraOpenedInVideoModeViaIntent = false;
       return;
     }
     switch (cameraMode) {
       case PICTURE:
-        takePicture();
+        requestTakePicture();
         break;
       case VIDEO:
-        if (videoRecorder.isRecording()) {
-          stopRecording();
-          createCameraPreviewSession();
+        if (isRecording()) {
+          requestStopRecording();
         } else {
           switchCameraMode(CameraMode.PICTURE);
-          takePicture();
+          requestTakePicture();
         }
         break;
     }
@@ -346,27 +398,84 @@ public class CameraActionHandler implements OnImageAvailableListener {
    * </li>
    * </ol>
    */
-  public void performCameraButtonLongPress() {
+  public synchronized void performCameraButtonLongPress() {
     switch (cameraMode) {
       case PICTURE:
         switchCameraMode(CameraMode.VIDEO);
-        startRecording();
+        requestStartRecording();
         break;
       case VIDEO:
-        if (videoRecorder.isRecording()) {
-          stopRecording();
-          createCameraPreviewSession();
+        if (isRecording()) {
+          requestStopRecording();
         } else {
-          startRecording();
+          requestStartRecording();
         }
         break;
     }
   }
 
+  /**
+   * Takes picture, switching {@link CameraMode} to the {@link CameraMode#PICTURE} first if needed.
+   * Returns FALSE if the picture can't be taken because video is recording or the camera is
+   * closed. TRUE otherwise.
+   */
+  public synchronized boolean performTakePicture() {
+    switchCameraMode(CameraMode.PICTURE);
+    if (cameraMode != CameraMode.PICTURE) {
+      Log.d(TAG, "Video is recording, picture won't be taken");
+      return false;
+    }
+    return requestTakePicture();
+  }
+
+  /**
+   * Starts video recording, switching {@link CameraMode} to the {@link CameraMode#VIDEO} first if
+   * needed. Returns FALSE if video is already recording or the camera is closed. TRUE otherwise.
+   */
+  public synchronized boolean performStartRecording() {
+    switchCameraMode(CameraMode.VIDEO);
+    if (isRecording()) {
+      Log.d(TAG, "Video is already recording");
+      return false;
+    }
+    return requestStartRecording();
+  }
+
+  /**
+   * Stops video recording and gets back to the preview. Returns FALSE if video is not recording.
+   * TRUE otherwise.
+   */
+  public synchronized boolean performStopRecording() {
+    if (!isRecording()) {
+      Log.d(TAG, "Video is not recording");
+      return false;
+    }
+    requestStopRecording();
+    return true;
+  }
+
+  /**
+   * Returns TRUE if video is recording, its session is configuring or the recording start is
+   * pending. FALSE otherwise.
+   */
+  public synchronized boolean isRecording() {
+    return cameraState == CameraState.RECORDING
+        || cameraState == CameraState.CONFIGURING_RECORDING
+        || pendingRequests.contains(CameraRequest.START_RECORDING);
+  }
+
+  /**
+   * Sets time-lapse configuration used by the next recordings. Null disables the time-lapse
+   * recording.
+   */
+  public synchronized void setTimeLapseConfig(@Nullable TimeLapseConfig timeLapseConfig) {
+    this.timeLapseConfig = timeLapseConfig;
+  }
+
   /**
    * Sets preview surface.
    */
-  public void setPreviewSurface(Surface previewSurface) {
+  public synchronized void setPreviewSurface(Surface previewSurface) {
     this.previewSurface = previewSurface;
   }
 
@@ -374,7 +483,7 @@ public class CameraActionHandler implements OnImageAvailableListener {
    * Handles given {@link Intent} and sets appropriate {@link CameraMode} depends on the intent
    * action.
    */
-  public void handleIntent(Intent intent) {
+  public synchronized void handleIntent(Intent intent) {
     final String intentAction = intent.getAction();
     if (intentAction != null) {
       switch (intentAction) {
@@ -417,7 +526,7 @@ public class CameraActionHandler implements OnImageAvailableListener {
     }
     switch (newMode) {
       case PICTURE:
-        if (!videoRecorder.isRecording()) {
+        if (!isRecording()) {
           cameraMode = CameraMode.PICTURE;
           videoRecorder = null;
           cameraActionHandlerCallback.onCameraModeChanged(cameraMode);
@@ -425,25 +534,171 @@ public class CameraActionHandler implements OnImageAvailableListener {
         break;
       case VIDEO:
         cameraMode = CameraMode.VIDEO;
-        videoRecorder = new VideoRecorder();
+        videoRecorder = cameraBackend.createVideoRecorder();
         cameraActionHandlerCallback.onCameraModeChanged(cameraMode);
         break;
     }
   }
 
+  /**
+   * Takes picture if the preview is running. Queues the request if the camera is getting to the
+   * preview. Returns FALSE if the request is dropped in the current state. TRUE otherwise.
+   */
+  private boolean requestTakePicture() {
+    switch (cameraState) {
+      case PREVIEW:
+        if (pendingRequests.isEmpty()) {
+          takePicture();
+          return true;
+        }
+        // Fall through, keeping the order of the requests
+      case OPENING:
+      case CONFIGURING_PREVIEW:
+      case CAPTURING:
+        Log.d(TAG, "Picture request queued in the " + cameraState + " state");
+        pendingRequests.add(CameraRequest.TAKE_PICTURE);
+        return true;
+      default:
+        Log.d(TAG, "Picture can't be taken in the " + cameraState + " state");
+        return false;
+    }
+  }
+
+  /**
+   * Starts recording if the preview is running. Queues the request if the camera is getting to the
+   * preview. Coalesces the request if the recording is already starting. Returns FALSE if the
+   * request is dropped in the current state. TRUE otherwise.
+   */
+  private boolean requestStartRecording() {
+    switch (cameraState) {
+      case PREVIEW:
+        if (pendingRequests.isEmpty()) {
+          startRecording();
+          return true;
+        }
+        // Fall through, keeping the order of the requests
+      case OPENING:
+      case CONFIGURING_PREVIEW:
+      case CAPTURING:
+        if (pendingRequests.peekLast() == CameraRequest.START_RECORDING) {
+          Log.d(TAG, "Recording start is already pending");
+          return true;
+        }
+        Log.d(TAG, "Recording start queued in the " + cameraState + " state");
+        pendingRequests.add(CameraRequest.START_RECORDING);
+        return true;
+      default:
+        Log.d(TAG, "Recording can't be started in the " + cameraState + " state");
+        return false;
+    }
+  }
+
+  /**
+   * Stops recording and gets back to the preview. Queues the request if the recording session is
+   * configuring. Cancels the pending recording start instead, if there is one.
+   */
+  private void requestStopRecording() {
+    if (pendingRequests.peekLast() == CameraRequest.START_RECORDING) {
+      Log.d(TAG, "Pending recording start cancelled");
+      cancelRequest(pendingRequests.removeLast());
+      return;
+    }
+    switch (cameraState) {
+      case RECORDING:
+        stopRecording();
+        createCameraPreviewSession();
+        break;
+      case CONFIGURING_RECORDING:
+        if (!pendingRequests.contains(CameraRequest.STOP_RECORDING)) {
+          Log.d(TAG, "Recording stop queued in the " + cameraState + " state");
+          pendingRequests.add(CameraRequest.STOP_RECORDING);
+        }
+        break;
+      default:
+        Log.d(TAG, "Recording can't be stopped in the " + cameraState + " state");
+    }
+  }
+
+  /**
+   * Executes the first pending request if it can be handled in the current state. Requests which
+   * are no longer valid in the current state are dropped.
+   */
+  private void executePendingRequest() {
+    while (!pendingRequests.isEmpty()) {
+      final CameraRequest request = pendingRequests.remove();
+      switch (request) {
+        case TAKE_PICTURE:
+          if (cameraState == CameraState.PREVIEW) {
+            takePicture();
+            return;
+          }
+          break;
+        case START_RECORDING:
+          if (cameraState == CameraState.PREVIEW) {
+            startRecording();
+            return;
+          }
+          break;
+        case STOP_RECORDING:
+          if (cameraState == CameraState.RECORDING) {
+            stopRecording();
+            createCameraPreviewSession();
+            return;
+          }
+          break;
+      }
+      Log.d(TAG, "Request " + request + " dropped in the " + cameraState + " state");
+      cancelRequest(request);
+    }
+  }
+
+  /**
+   * Cancels all of the pending requests.
+   */
+  private void clearPendingRequests() {
+    while (!pendingRequests.isEmpty()) {
+      cancelRequest(pendingRequests.remove());
+    }
+  }
+
+  /**
+   * Notifies {@link CameraActionHandlerCallback} that the request won't be executed.
+   */
+  private void cancelRequest(CameraRequest request) {
+    switch (request) {
+      case TAKE_PICTURE:
+        cameraActionHandlerCallback.onTakingPictureCancelled();
+        break;
+      case START_RECORDING:
+        cameraActionHandlerCallback.onVideoRecordingCancelled();
+        break;
+      case STOP_RECORDING:
+        // Recording is no longer running, so there is nothing to stop.
+        break;
+    }
+  }
+
   /**
    * Takes picture and gets back to the preview after this.
    */
   private void takePicture() {
     Log.d(TAG, "Taking picture");
+    setCameraState(CameraState.CAPTURING);
+    final int generation = sessionGeneration;
     cameraActionHandlerCallback.onTakingPictureStarted();
-    cameraCaptureSessionController.captureStillPicture(
-        Objects.requireNonNull(imageReaderProvider.getImageReader(), "ImageReader must not be null")
-            .getSurface(), new CaptureCallback() {
+    cameraCaptureSessionController.captureStillPicture(pictureOutput.getSurface(),
+        new CaptureCallback() {
           @Override
-          public void onCaptureCompleted(@NonNull CameraCaptureSession session,
-              @NonNull CaptureRequest request, @NonNull TotalCaptureResult result) {
-            startPreview();
+          public void onCaptureCompleted() {
+            synchronized (CameraActionHandler.this) {
+              if (generation != sessionGeneration) {
+                Log.d(TAG, "Capture completed in the abandoned session");
+                return;
+              }
+              startPreview();
+              setCameraState(CameraState.PREVIEW);
+              executePendingRequest();
+            }
           }
         });
   }
@@ -459,14 +714,18 @@ public class CameraActionHandler implements OnImageAvailableListener {
   }
 
   /**
-   * Closes preview session and using {@link VideoRecorder} prepares to the record and starts
+   * Closes preview session and using {@link Recorder} prepares to the record and starts
    * recording video.
    */
   private void startRecording() {
     Log.d(TAG, "Starting recording");
     cameraActionHandlerCallback.onVideoRecordingStarted();
     closePreviewSession();
+    setCameraState(CameraState.CONFIGURING_RECORDING);
+    final int generation = ++sessionGeneration;
     // Set up Surface for the MediaRecorder
+    final TimeLapseConfig recordingTimeLapseConfig = timeLapseConfig;
+    videoRecorder.setTimeLapseConfig(recordingTimeLapseConfig);
     videoRecorder.initRecorder();
     videoRecorder.prepareRecorder();
     Surface recorderSurface = videoRecorder.getSurface();
@@ -476,26 +735,55 @@ public class CameraActionHandler implements OnImageAvailableListener {
     surfaces.add(recorderSurface);
 
     cameraCaptureSessionFactory
-        .createCaptureSession(surfaces, new StateCallback() {
+        .createCaptureSession(surfaces, new SessionCallback() {
           @Override
-          public void onConfigured(@NonNull CameraCaptureSession session) {
-            Log.d(TAG, "TEMPLATE_RECORD capture session configured");
-            cameraCaptureSessionController.setSession(session);
-            cameraCaptureSessionController
-                .createPreviewSession(CameraDevice.TEMPLATE_RECORD, surfaces);
-            videoRecorder.startRecording();
-            isVideoCaptureSessionPreparing = false;
+          public void onConfigured(@NonNull Session session) {
+            synchronized (CameraActionHandler.this) {
+              if (generation != sessionGeneration) {
+                Log.d(TAG, "Abandoned TEMPLATE_RECORD capture session configured");
+                session.close();
+                return;
+              }
+              Log.d(TAG, "TEMPLATE_RECORD capture session configured");
+              cameraCaptureSessionController.setSession(session);
+              if (recordingTimeLapseConfig == null) {
+                cameraCaptureSessionController
+                    .createPreviewSession(CameraDevice.TEMPLATE_RECORD, surfaces);
+              } else {
+                cameraCaptureSessionController
+                    .createPreviewSession(CameraDevice.TEMPLATE_RECORD, surfaces,
+                        recordingTimeLapseConfig.getCameraFrameRate());
+              }
+              if (!videoRecorder.startRecording()) {
+                Log.e(TAG, "Video recorder start failed");
+                stopRecording();
+                cameraActionHandlerCallback.onVideoRecordingCancelled();
+                createCameraPreviewSession();
+                return;
+              }
+              setCameraState(CameraState.RECORDING);
+              cameraActionHandlerCallback.onVideoRecorderStarted();
+              executePendingRequest();
+            }
           }
 
           @Override
-          public void onConfigureFailed(@NonNull CameraCaptureSession session) {
-            Log.e(TAG, "TEMPLATE_RECORD capture session configuration failed");
+          public void onConfigureFailed() {
+            synchronized (CameraActionHandler.this) {
+              if (generation != sessionGeneration) {
+                return;
+              }
+              Log.e(TAG, "TEMPLATE_RECORD capture session configuration failed");
+              stopRecording();
+              cameraActionHandlerCallback.onVideoRecordingCancelled();
+              createCameraPreviewSession();
+            }
           }
         });
   }
 
   /**
-   * Using {@link VideoRecorder} stops recording video, refreshes file indexing after saving
+   * Using {@link Recorder} stops recording video, refreshes file indexing after saving
    * recorded video.
    */
   private void stopRecording() {
@@ -515,58 +803,221 @@ public class CameraActionHandler implements OnImageAvailableListener {
 
   /**
    * Added functionality of recording and storing videos to the Camera2Sample application Creates a
-   * new {@link CameraCaptureSession} for camera preview.
+   * new {@link Session} for camera preview.
    */
   private void createCameraPreviewSession() {
     Log.d(TAG, "Creating camera preview session");
-    final List<Surface> surfaces = Arrays.asList(previewSurface,
-        Objects.requireNonNull(imageReaderProvider.getImageReader(), "ImageReader must not be null")
-            .getSurface());
-    cameraCaptureSessionFactory.createCaptureSession(surfaces, new StateCallback() {
+    setCameraState(CameraState.CONFIGURING_PREVIEW);
+    final int generation = ++sessionGeneration;
+    final List<Surface> surfaces = Arrays.asList(previewSurface, pictureOutput.getSurface());
+    cameraCaptureSessionFactory.createCaptureSession(surfaces, new SessionCallback() {
       @Override
-      public void onConfigured(@NonNull CameraCaptureSession session) {
-        Log.d(TAG, "Preview session configured");
-        cameraCaptureSessionController.setSession(session);
-        startPreview();
-        cameraOpenCloseLock.release();
-        isVideoCaptureSessionPreparing = false;
+      public void onConfigured(@NonNull Session session) {
+        synchronized (CameraActionHandler.this) {
+          if (generation != sessionGeneration) {
+            Log.d(TAG, "Abandoned preview session configured");
+            session.close();
+            return;
+          }
+          Log.d(TAG, "Preview session configured");
+          cameraCaptureSessionController.setSession(session);
+          startPreview();
+          setCameraState(CameraState.PREVIEW);
+          cameraActionHandlerCallback.onPreviewStarted();
+          executePendingRequest();
+        }
       }
 
       @Override
-      public void onConfigureFailed(@NonNull CameraCaptureSession session) {
-        Log.e(TAG, "Preview session configuration failed");
+      public void onConfigureFailed() {
+        synchronized (CameraActionHandler.this) {
+          if (generation != sessionGeneration) {
+            return;
+          }
+          Log.e(TAG, "Preview session configuration failed");
+          isCameraOpenRequested = false;
+          releaseCamera();
+        }
       }
     });
   }
 
+  /**
+   * Closes all of the camera resources immediately and moves to the {@link CameraState#CLOSED}
+   * state. Callbacks of the abandoned sessions are ignored from now on.
+   */
+  private void releaseCamera() {
+    final boolean wasClosed = cameraState == CameraState.CLOSED;
+    sessionGeneration++;
+    clearPendingRequests();
+    cameraCaptureSessionController.closeSession();
+    if (cameraState == CameraState.RECORDING
+        || cameraState == CameraState.CONFIGURING_RECORDING) {
+      stopRecording();
+      videoRecorder.releaseMediaRecorder();
+    }
+    if (cameraDevice != null) {
+      Log.d(TAG, "Closing camera device");
+      cameraDevice.close();
+      cameraDevice = null;
+    }
+    if (pictureOutput != null) {
+      Log.d(TAG, "Closing picture output");
+      pictureOutput.close();
+      pictureOutput = null;
+    }
+    setCameraState(CameraState.CLOSED);
+    if (!wasClosed) {
+      cameraActionHandlerCallback.onCameraClosed();
+    }
+    if (isBackgroundThreadStopPending) {
+      isBackgroundThreadStopPending = false;
+      backgroundThreadHandler.quitBackgroundThread();
+    }
+  }
+
+  private void setCameraState(CameraState newState) {
+    Log.d(TAG, "Camera state " + cameraState + " -> " + newState);
+    cameraState = newState;
+  }
+
   /**
    * Sets up member variables related to camera.
    */
-  private void setUpImageReader() {
-    Log.d(TAG, "Setting up image reader");
+  private void setUpPictureOutput() {
+    Log.d(TAG, "Setting up picture output");
     try {
-      for (String cameraId : cameraManager.getCameraIdList()) {
-        final StreamConfigurationMap map = cameraManager.getCameraCharacteristics(cameraId)
-            .get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
-        if (map == null) {
-          Log.d(TAG, "Stream configuration map is null");
-          continue;
-        }
-
-        imageReaderProvider = new ImageReaderProvider(map);
-        imageReaderProvider.setOnImageAvailableListener(this, backgroundThreadHandler.getHandler());
-        this.cameraId = cameraId;
+      cameraId = cameraBackend.getCameraId();
+      if (cameraId == null) {
+        Log.d(TAG, "No camera supporting still pictures found");
         return;
       }
+      pictureOutput = cameraBackend.createPictureOutput(cameraId);
+      pictureOutput.setOnPictureAvailableListener(this, backgroundThreadHandler.getHandler());
     } catch (CameraAccessException | NullPointerException e) {
-      Log.e(TAG, "Setting up image reader failed", e);
+      Log.e(TAG, "Setting up picture output failed", e);
     }
   }
 
   @Override
-  public void onImageAvailable(ImageReader reader) {
-    Log.d(TAG, "Image is available");
-    FileManager.saveImage(context, reader);
+  public void onPictureAvailable(PictureOutput pictureOutput) {
+    Log.d(TAG, "Picture is available");
+    pictureOutput.savePicture(context);
+    cameraActionHandlerCallback.onPictureSaved();
+  }
+
+  /**
+   * {@link CameraActionHandlerCallback} posting each call to the main thread, in the order of the
+   * calls. The camera state machine calls it from the camera background thread, while the callbacks
+   * animate the views.
+   */
+  private class MainThreadCallback implements CameraActionHandlerCallback {
+
+    private final CameraActionHandlerCallback callback;
+
+    MainThreadCallback(CameraActionHandlerCallback callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public void onTakingPictureStarted() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onTakingPictureStarted();
+        }
+      });
+    }
+
+    @Override
+    public void onTakingPictureCancelled() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onTakingPictureCancelled();
+        }
+      });
+    }
+
+    @Override
+    public void onPictureSaved() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onPictureSaved();
+        }
+      });
+    }
+
+    @Override
+    public void onVideoRecordingStarted() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onVideoRecordingStarted();
+        }
+      });
+    }
+
+    @Override
+    public void onVideoRecorderStarted() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onVideoRecorderStarted();
+        }
+      });
+    }
+
+    @Override
+    public void onVideoRecordingCancelled() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onVideoRecordingCancelled();
+        }
+      });
+    }
+
+    @Override
+    public void onVideoRecordingStopped() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onVideoRecordingStopped();
+        }
+      });
+    }
+
+    @Override
+    public void onCameraModeChanged(final CameraMode newCameraMode) {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onCameraModeChanged(newCameraMode);
+        }
+      });
+    }
+
+    @Override
+    public void onPreviewStarted() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onPreviewStarted();
+        }
+      });
+    }
+
+    @Override
+    public void onCameraClosed() {
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          callback.onCameraClosed();
+        }
+      });
+    }
   }
 
   /**
@@ -577,16 +1028,53 @@ public class CameraActionHandler implements OnImageAvailableListener {
   }
 
   /**
-   * Callback for the camera action.
+   * States of the camera. Transitions:
+   * <pre>
+   * CLOSED -> OPENING -> CONFIGURING_PREVIEW -> PREVIEW
+   * PREVIEW -> CAPTURING -> PREVIEW
+   * PREVIEW -> CONFIGURING_RECORDING -> RECORDING -> CONFIGURING_PREVIEW
+   * any state -> CLOSED
+   * </pre>
+   */
+  private enum CameraState {
+    CLOSED, OPENING, CONFIGURING_PREVIEW, PREVIEW, CAPTURING, CONFIGURING_RECORDING, RECORDING
+  }
+
+  /**
+   * Requests which can be queued until the camera gets to the state handling them.
+   */
+  private enum CameraRequest {
+    TAKE_PICTURE, START_RECORDING, STOP_RECORDING
+  }
+
+  /**
+   * Callback for the camera action. {@link #onVideoRecordingStarted()} is called as soon as the
+   * recording session starts configuring, {@link #onVideoRecorderStarted()} once the recorder is
+   * actually recording. Requests which won't be executed are reported by {@link
+   * #onTakingPictureCancelled()} and {@link #onVideoRecordingCancelled()}. {@link
+   * #onCameraClosed()} is called whenever the camera is released, including after an error. All of
+   * the methods are called on the main thread.
    */
   interface CameraActionHandlerCallback {
 
     void onTakingPictureStarted();
 
+    void onTakingPictureCancelled();
+
+    void onPictureSaved();
+
     void onVideoRecordingStarted();
 
+    void onVideoRecorderStarted();
+
+    void onVideoRecordingCancelled();
+
     void onVideoRecordingStopped();
 
     void onCameraModeChanged(CameraMode newCameraMode);
+
+    void onPreviewStarted();
+
+    void onCameraClosed();
   }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import android.content.Context;
+import android.hardware.camera2.CameraAccessException;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Surface;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Abstraction over the camera hardware used by the {@link CameraActionHandler}. It covers the
+ * parts of the {@link android.hardware.camera2.CameraManager}, {@link
+ * android.hardware.camera2.CameraDevice} and {@link android.hardware.camera2.CameraCaptureSession}
+ * used by this sample, so the camera flows can be exercised without the hardware.
+ * {@link Camera2Backend} is the implementation used by the application.
+ */
+public interface CameraBackend {
+
+  /**
+   * Returns ID of the camera which should be used or null if there is no such camera.
+   */
+  @Nullable
+  String getCameraId() throws CameraAccessException;
+
+  /**
+   * Creates {@link PictureOutput} for the still pictures taken by the camera with the given ID.
+   */
+  PictureOutput createPictureOutput(String cameraId) throws CameraAccessException;
+
+  /**
+   * Creates {@link Recorder} for the video recording.
+   */
+  Recorder createVideoRecorder();
+
+  /**
+   * Opens the camera with the given ID. Result is returned in the {@link DeviceCallback}.
+   */
+  void openCamera(String cameraId, DeviceCallback callback, @Nullable Handler handler)
+      throws CameraAccessException;
+
+  /**
+   * Opened camera device.
+   */
+  interface Device {
+
+    /**
+     * Creates capture session on the given surfaces. Returns created {@link Session} in the
+     * {@link SessionCallback}.
+     */
+    void createCaptureSession(List<Surface> surfaces, SessionCallback callback,
+        @Nullable Handler handler) throws CameraAccessException;
+
+    /**
+     * Closes the device.
+     */
+    void close();
+  }
+
+  /**
+   * Capture session configured on the {@link Device}.
+   */
+  interface Session {
+
+    /**
+     * Starts repeating request built with the templateType, targeting the given surfaces.
+     */
+    void setRepeatingRequest(int templateType, List<Surface> surfaces)
+        throws CameraAccessException;
+
+    /**
+     * Starts repeating request built with the templateType, targeting the given surfaces. Camera
+     * runs at the lowest supported frame rate not lower than the targetFrameRate. Throws {@link
+     * IllegalArgumentException} if the camera doesn't support such frame rate.
+     */
+    void setRepeatingRequest(int templateType, List<Surface> surfaces, int targetFrameRate)
+        throws CameraAccessException;
+
+    /**
+     * Captures single request built with the templateType, targeting the given surfaces.
+     */
+    void capture(int templateType, List<Surface> surfaces, CaptureCallback callback)
+        throws CameraAccessException;
+
+    /**
+     * Stops repeating request.
+     */
+    void stopRepeating() throws CameraAccessException;
+
+    /**
+     * Discards all of the pending captures.
+     */
+    void abortCaptures() throws CameraAccessException;
+
+    /**
+     * Closes the session.
+     */
+    void close();
+  }
+
+  /**
+   * Output receiving still pictures from the camera.
+   */
+  interface PictureOutput {
+
+    /**
+     * Returns surface which should be used as a target for the still picture capture.
+     */
+    Surface getSurface();
+
+    /**
+     * Sets {@link OnPictureAvailableListener} called on the given {@link Handler}.
+     */
+    void setOnPictureAvailableListener(OnPictureAvailableListener listener,
+        @Nullable Handler handler);
+
+    /**
+     * Stores the available picture.
+     */
+    void savePicture(Context context);
+
+    /**
+     * Closes the output.
+     */
+    void close();
+  }
+
+  /**
+   * Recorder encoding the frames rendered into its surface into a video file.
+   */
+  interface Recorder {
+
+    /**
+     * Sets time-lapse configuration used by the next {@link #initRecorder()} call. Null disables
+     * the time-lapse recording.
+     */
+    void setTimeLapseConfig(@Nullable TimeLapseConfig timeLapseConfig);
+
+    /**
+     * Sets output file for the next recording and initializes the recorder.
+     */
+    void initRecorder();
+
+    /**
+     * Prepares the recorder, creating its surface.
+     */
+    void prepareRecorder();
+
+    /**
+     * Returns TRUE if the recorder is in the middle of recording. FALSE otherwise.
+     */
+    boolean isRecording();
+
+    /**
+     * Starts recording. Returns TRUE if the recorder is recording. FALSE if it failed to start.
+     */
+    boolean startRecording();
+
+    /**
+     * Stops recording and resets the recorder for the next recording.
+     */
+    void stopRecording();
+
+    /**
+     * Returns the last recorded file.
+     */
+    File getLastRecordedFile();
+
+    /**
+     * Releases the recorder.
+     */
+    void releaseMediaRecorder();
+
+    /**
+     * Returns surface which should be used as a target for the recorded frames.
+     */
+    Surface getSurface();
+  }
+
+  /**
+   * Callback for the {@link Device} state changes.
+   */
+  interface DeviceCallback {
+
+    void onOpened(@NonNull Device device);
+
+    void onDisconnected(@NonNull Device device);
+
+    void onError(@NonNull Device device, int error);
+  }
+
+  /**
+   * Callback for the {@link Session} configuration.
+   */
+  interface SessionCallback {
+
+    void onConfigured(@NonNull Session session);
+
+    void onConfigureFailed();
+  }
+
+  /**
+   * Callback for the completed capture.
+   */
+  interface CaptureCallback {
+
+    void onCaptureCompleted();
+  }
+
+  /**
+   * Listener called when the new picture is available in the {@link PictureOutput}.
+   */
+  interface OnPictureAvailableListener {
+
+    void onPictureAvailable(PictureOutput pictureOutput);
+  }
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import android.Manifest.permission;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.graphics.SurfaceTexture;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
+import android.util.Log;
+import android.view.Surface;
+import com.example.glass.camera2sample.CameraActionHandler.CameraActionHandlerCallback;
+import com.example.glass.camera2sample.CameraActionHandler.CameraMode;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Headless service taking pictures and recording videos without any UI. Commands are accepted
+ * through the {@link LocalBinder} or as intents with the {@link CaptureCommand#getAction()} action,
+ * for example:
+ * <pre>
+ * adb shell am start-foreground-service -a com.example.glass.camera2sample.action.TAKE_PICTURE
+ * </pre>
+ * Time-lapse recording is started by adding the {@link #EXTRA_CAPTURE_INTERVAL_MS} and {@link
+ * #EXTRA_OUTPUT_FRAME_RATE} extras to the {@link CaptureCommand#START_RECORDING} intent.
+ * Commands are queued and executed back-to-back using {@link CameraActionHandler}. Latency of each
+ * command is reported to the registered {@link CaptureListener}.
+ */
+public class CameraCaptureService extends Service implements CameraActionHandlerCallback {
+
+  private static final String TAG = CameraCaptureService.class.getSimpleName();
+
+  /**
+   * Long extra of the {@link CaptureCommand#START_RECORDING} intent with the time-lapse capture
+   * interval.
+   */
+  public static final String EXTRA_CAPTURE_INTERVAL_MS =
+      "com.example.glass.camera2sample.extra.CAPTURE_INTERVAL_MS";
+
+  /**
+   * Integer extra of the {@link CaptureCommand#START_RECORDING} intent with the time-lapse output
+   * frame rate.
+   */
+  public static final String EXTRA_OUTPUT_FRAME_RATE =
+      "com.example.glass.camera2sample.extra.OUTPUT_FRAME_RATE";
+
+  /**
+   * Output frame rate used when the {@link #EXTRA_OUTPUT_FRAME_RATE} extra is missing.
+   */
+  private static final int DEFAULT_OUTPUT_FRAME_RATE = 30;
+
+  /**
+   * Id of the foreground service notification. This value doesn't have any special meaning.
+   */
+  private static final int NOTIFICATION_ID = 106;
+
+  /**
+   * Id of the notification channel for the foreground service notification.
+   */
+  private static final String NOTIFICATION_CHANNEL_ID = "camera_capture_service";
+
+  /**
+   * Size of the offscreen preview buffer.
+   */
+  private static final int PREVIEW_WIDTH_PX = 640;
+  private static final int PREVIEW_HEIGHT_PX = 360;
+
+  /**
+   * Time after which a running command is treated as failed and the next command is executed.
+   */
+  private static final long COMMAND_TIMEOUT_MS = 10000;
+
+  /**
+   * Binder returned to the clients bound to this service.
+   */
+  private final IBinder binder = new LocalBinder();
+
+  /**
+   * {@link Handler} for the main thread. All of the queue operations are performed on this thread.
+   */
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  /**
+   * Commands waiting for the execution.
+   */
+  private final Queue<PendingCommand> pendingCommands = new ArrayDeque<>();
+
+  /**
+   * Marks the running command as failed if it doesn't complete in time.
+   */
+  private final Runnable commandTimeoutRunnable = new Runnable() {
+    @Override
+    public void run() {
+      if (runningCommand != null) {
+        Log.w(TAG, "Command " + runningCommand.command + " timed out");
+        runningCommand = null;
+        executeNextCommand();
+      }
+    }
+  };
+
+  /**
+   * {@link CameraActionHandler} for the camera.
+   */
+  private CameraActionHandler cameraActionHandler;
+
+  /**
+   * Offscreen texture receiving the camera preview frames.
+   */
+  private SurfaceTexture previewSurfaceTexture;
+
+  /**
+   * Surface for the offscreen camera preview.
+   */
+  private Surface previewSurface;
+
+  /**
+   * Command which is currently executed.
+   */
+  @Nullable
+  private PendingCommand runningCommand;
+
+  /**
+   * Listener notified about the completed commands.
+   */
+  @Nullable
+  private CaptureListener captureListener;
+
+  /**
+   * Flag indicating if the camera preview is running and commands can be executed. Cleared once the
+   * camera is released.
+   */
+  private boolean isCameraReady = false;
+
+  @Override
+  public void onCreate() {
+    super.onCreate();
+    startForeground(NOTIFICATION_ID, createNotification());
+    if (ContextCompat.checkSelfPermission(this, permission.CAMERA)
+        != PackageManager.PERMISSION_GRANTED) {
+      Log.e(TAG, "Camera permission is not granted, stopping the service");
+      stopSelf();
+      return;
+    }
+    previewSurfaceTexture = new SurfaceTexture(false);
+    previewSurfaceTexture.setDefaultBufferSize(PREVIEW_WIDTH_PX, PREVIEW_HEIGHT_PX);
+    previewSurface = new Surface(previewSurfaceTexture);
+
+    cameraActionHandler = new CameraActionHandler(this, this);
+    cameraActionHandler.startBackgroundThread();
+    cameraActionHandler.setPreviewSurface(previewSurface);
+    cameraActionHandler.openCamera();
+  }
+
+  @Override
+  public int onStartCommand(Intent intent, int flags, int startId) {
+    final CaptureCommand command = CaptureCommand
+        .fromAction(intent == null ? null : intent.getAction());
+    if (command != null) {
+      enqueueCommand(command, getTimeLapseConfig(intent));
+    } else {
+      Log.d(TAG, "Unknown command, ignoring");
+    }
+    return START_NOT_STICKY;
+  }
+
+  @Nullable
+  @Override
+  public IBinder onBind(Intent intent) {
+    return binder;
+  }
+
+  @Override
+  public void onDestroy() {
+    mainHandler.removeCallbacksAndMessages(null);
+    pendingCommands.clear();
+    if (cameraActionHandler != null) {
+      cameraActionHandler.closeCamera();
+      cameraActionHandler.stopBackgroundThread();
+    }
+    if (previewSurface != null) {
+      previewSurface.release();
+      previewSurfaceTexture.release();
+    }
+    super.onDestroy();
+  }
+
+  /**
+   * Adds {@link CaptureCommand} to the queue. Command is executed after all of the previously
+   * queued commands complete. This method can be called from any thread.
+   */
+  public void enqueueCommand(CaptureCommand command) {
+    enqueueCommand(command, null);
+  }
+
+  /**
+   * Adds {@link CaptureCommand} to the queue. {@link CaptureCommand#START_RECORDING} records
+   * time-lapse video if the timeLapseConfig is not null. This method can be called from any thread.
+   */
+  public void enqueueCommand(final CaptureCommand command,
+      @Nullable final TimeLapseConfig timeLapseConfig) {
+    final long enqueueTimeMs = SystemClock.elapsedRealtime();
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        Log.d(TAG, "Command " + command + " queued");
+        pendingCommands.add(new PendingCommand(command, timeLapseConfig, enqueueTimeMs));
+        executeNextCommand();
+      }
+    });
+  }
+
+  /**
+   * Sets {@link CaptureListener} notified about the completed commands.
+   */
+  public void setCaptureListener(@Nullable CaptureListener captureListener) {
+    this.captureListener = captureListener;
+  }
+
+  @Override
+  public void onTakingPictureStarted() {
+    Log.d(TAG, "Taking picture started");
+  }
+
+  @Override
+  public void onTakingPictureCancelled() {
+    failCommandOnMainThread(CaptureCommand.TAKE_PICTURE);
+  }
+
+  @Override
+  public void onPictureSaved() {
+    completeCommandOnMainThread(CaptureCommand.TAKE_PICTURE);
+  }
+
+  @Override
+  public void onVideoRecordingStarted() {
+    Log.d(TAG, "Video recording session configuring");
+  }
+
+  @Override
+  public void onVideoRecorderStarted() {
+    completeCommandOnMainThread(CaptureCommand.START_RECORDING);
+  }
+
+  @Override
+  public void onVideoRecordingCancelled() {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        // Stop which cancelled the pending recording start completes right away, the preview has
+        // never been stopped.
+        if (!completeCommand(CaptureCommand.STOP_RECORDING)) {
+          failCommand(CaptureCommand.START_RECORDING);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onVideoRecordingStopped() {
+    Log.d(TAG, "Video recording stopped");
+  }
+
+  @Override
+  public void onCameraModeChanged(CameraMode newCameraMode) {
+    Log.d(TAG, "Camera mode changed to " + newCameraMode.name());
+  }
+
+  @Override
+  public void onPreviewStarted() {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        isCameraReady = true;
+        // Recording is stopped once the camera gets back to the preview.
+        if (!completeCommand(CaptureCommand.STOP_RECORDING)) {
+          executeNextCommand();
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onCameraClosed() {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        isCameraReady = false;
+        // The running command won't complete without the camera.
+        if (runningCommand != null) {
+          failCommand(runningCommand.command);
+        }
+      }
+    });
+  }
+
+  /**
+   * Executes the first pending command if the camera is ready and no other command is running.
+   */
+  private void executeNextCommand() {
+    if (!isCameraReady || runningCommand != null || pendingCommands.isEmpty()) {
+      return;
+    }
+    final PendingCommand pendingCommand = pendingCommands.remove();
+    pendingCommand.startTimeMs = SystemClock.elapsedRealtime();
+    runningCommand = pendingCommand;
+    Log.d(TAG, "Executing command " + pendingCommand.command);
+
+    final boolean isStarted;
+    switch (pendingCommand.command) {
+      case TAKE_PICTURE:
+        isStarted = cameraActionHandler.performTakePicture();
+        break;
+      case START_RECORDING:
+        cameraActionHandler.setTimeLapseConfig(pendingCommand.timeLapseConfig);
+        isStarted = cameraActionHandler.performStartRecording();
+        break;
+      case STOP_RECORDING:
+        isStarted = cameraActionHandler.performStopRecording();
+        break;
+      default:
+        isStarted = false;
+    }
+    if (isStarted) {
+      mainHandler.postDelayed(commandTimeoutRunnable, COMMAND_TIMEOUT_MS);
+    } else {
+      Log.d(TAG, "Command " + pendingCommand.command + " skipped in the current camera state");
+      completeCommand(pendingCommand.command);
+    }
+  }
+
+  /**
+   * Posts completion of the given command to the main thread.
+   */
+  private void completeCommandOnMainThread(final CaptureCommand command) {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        completeCommand(command);
+      }
+    });
+  }
+
+  /**
+   * Posts failure of the given command to the main thread.
+   */
+  private void failCommandOnMainThread(final CaptureCommand command) {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        failCommand(command);
+      }
+    });
+  }
+
+  /**
+   * Fails the running command if it matches the given one and executes the next command without
+   * waiting for the {@link #COMMAND_TIMEOUT_MS}.
+   */
+  private void failCommand(CaptureCommand command) {
+    if (runningCommand == null || runningCommand.command != command) {
+      return;
+    }
+    mainHandler.removeCallbacks(commandTimeoutRunnable);
+    Log.w(TAG, "Command " + command + " failed");
+    runningCommand = null;
+    if (captureListener != null) {
+      captureListener.onCommandFailed(command);
+    }
+    executeNextCommand();
+  }
+
+  /**
+   * Completes the running command if it matches the given one, reports its latency and executes
+   * the next command. Returns TRUE if the running command has been completed. FALSE otherwise.
+   */
+  private boolean completeCommand(CaptureCommand command) {
+    if (runningCommand == null || runningCommand.command != command) {
+      return false;
+    }
+    mainHandler.removeCallbacks(commandTimeoutRunnable);
+    final long nowMs = SystemClock.elapsedRealtime();
+    final long queueTimeMs = runningCommand.startTimeMs - runningCommand.enqueueTimeMs;
+    final long executionTimeMs = nowMs - runningCommand.startTimeMs;
+    Log.d(TAG, "Command " + command + " completed, queued for " + queueTimeMs
+        + " ms, executed in " + executionTimeMs + " ms");
+    runningCommand = null;
+    if (captureListener != null) {
+      captureListener.onCommandCompleted(command, queueTimeMs, executionTimeMs);
+    }
+    executeNextCommand();
+    return true;
+  }
+
+  /**
+   * Returns {@link TimeLapseConfig} read from the intent extras or null if the intent doesn't
+   * request time-lapse recording.
+   */
+  @Nullable
+  private static TimeLapseConfig getTimeLapseConfig(Intent intent) {
+    if (!intent.hasExtra(EXTRA_CAPTURE_INTERVAL_MS)) {
+      return null;
+    }
+    try {
+      return new TimeLapseConfig(intent.getLongExtra(EXTRA_CAPTURE_INTERVAL_MS, 0),
+          intent.getIntExtra(EXTRA_OUTPUT_FRAME_RATE, DEFAULT_OUTPUT_FRAME_RATE));
+    } catch (IllegalArgumentException e) {
+      Log.e(TAG, "Invalid time-lapse configuration, recording at the full frame rate", e);
+      return null;
+    }
+  }
+
+  private Notification createNotification() {
+    final NotificationManager notificationManager = getSystemService(NotificationManager.class);
+    notificationManager.createNotificationChannel(new NotificationChannel(NOTIFICATION_CHANNEL_ID,
+        getString(R.string.capture_service_channel_name), NotificationManager.IMPORTANCE_LOW));
+    return new Notification.Builder(this, NOTIFICATION_CHANNEL_ID)
+        .setSmallIcon(R.drawable.ic_camera_white)
+        .setContentTitle(getString(R.string.capture_service_notification_title))
+        .build();
+  }
+
+  /**
+   * Command waiting in the queue together with its timing.
+   */
+  private static class PendingCommand {
+
+    private final CaptureCommand command;
+    @Nullable
+    private final TimeLapseConfig timeLapseConfig;
+    private final long enqueueTimeMs;
+    private long startTimeMs;
+
+    PendingCommand(CaptureCommand command, @Nullable TimeLapseConfig timeLapseConfig,
+        long enqueueTimeMs) {
+      this.command = command;
+      this.timeLapseConfig = timeLapseConfig;
+      this.enqueueTimeMs = enqueueTimeMs;
+    }
+  }
+
+  /**
+   * Binder giving the bound clients access to this service.
+   */
+  public class LocalBinder extends Binder {
+
+    public CameraCaptureService getService() {
+      return CameraCaptureService.this;
+    }
+  }
+
+  /**
+   * Listener for the completed and failed {@link CaptureCommand}s. Called on the main thread.
+   */
+  public interface CaptureListener {
+
+    /**
+     * Called when the command completes. Reports time spent by the command in the queue and time
+     * of its execution.
+     */
+    void onCommandCompleted(CaptureCommand command, long queueTimeMs, long executionTimeMs);
+
+    /**
+     * Called when the command can't be executed, for example because the camera has been closed
+     * or the recording session failed.
+     */
+    void onCommandFailed(CaptureCommand command);
+  }
+}
@@ -17,33 +17,27 @@
 package com.example.glass.camera2sample;
 
 import android.hardware.camera2.CameraAccessException;
-import android.hardware.camera2.CameraCaptureSession;
-import android.hardware.camera2.CameraCaptureSession.CaptureCallback;
 import android.hardware.camera2.CameraDevice;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.Surface;
+import com.example.glass.camera2sample.CameraBackend.CaptureCallback;
+import com.example.glass.camera2sample.CameraBackend.Session;
 import java.util.Collections;
 import java.util.List;
 
 /**
- * Helper class providing and managing the {@link CameraCaptureSession}.
+ * Helper class providing and managing the {@link Session}.
  */
 public class CameraCaptureSessionController {
 
   private static final String TAG = CameraCaptureSessionController.class.getSimpleName();
 
   /**
-   * A {@link CameraCaptureSession } for the camera preview and to take pictures.
+   * A {@link Session} for the camera preview and to take pictures.
    */
   @Nullable
-  private CameraCaptureSession cameraCaptureSession;
-
-  /**
-   * Provides {@link android.hardware.camera2.CaptureRequest} for the {@link CameraCaptureSession}.
-   */
-  @Nullable
-  private CaptureRequestProvider captureRequestProvider;
+  private Session cameraCaptureSession;
 
   /**
    * Creates preview session using template type and {@link List<Surface>} on which preview should
@@ -52,11 +46,30 @@ public class CameraCaptureSessionController {
   public void createPreviewSession(int templateType, List<Surface> surfaces) {
     Log.d(TAG, "Creating session for the template: " + templateType);
     try {
-      if (cameraCaptureSession != null && captureRequestProvider != null) {
-        cameraCaptureSession
-            .setRepeatingRequest(captureRequestProvider.getCaptureRequest(templateType, surfaces),
-                null, null);
+      if (cameraCaptureSession != null) {
+        cameraCaptureSession.setRepeatingRequest(templateType, surfaces);
+      }
+    } catch (CameraAccessException e) {
+      Log.e(TAG, "Creating session failed", e);
+    }
+  }
+
+  /**
+   * Creates preview session using template type and {@link List<Surface>} on which preview should
+   * be shown. Camera runs at the lowest supported frame rate not lower than the targetFrameRate,
+   * or at the default frame rate if there is no such frame rate.
+   */
+  public void createPreviewSession(int templateType, List<Surface> surfaces,
+      int targetFrameRate) {
+    Log.d(TAG, "Creating session for the template: " + templateType + " at " + targetFrameRate
+        + " fps");
+    try {
+      if (cameraCaptureSession != null) {
+        cameraCaptureSession.setRepeatingRequest(templateType, surfaces, targetFrameRate);
       }
+    } catch (IllegalArgumentException e) {
+      Log.e(TAG, "Frame rate not supported, using the default one", e);
+      createPreviewSession(templateType, surfaces);
     } catch (CameraAccessException e) {
       Log.e(TAG, "Creating session failed", e);
     }
@@ -71,30 +84,25 @@ public class CameraCaptureSessionController {
       Log.i(TAG, "Session is null, picture won't be taken.");
       return;
     }
-    if (captureRequestProvider == null) {
-      Log.i(TAG, "RequestProvider is null, picture won't be taken.");
-      return;
-    }
     try {
       cameraCaptureSession.stopRepeating();
       cameraCaptureSession.abortCaptures();
-      cameraCaptureSession
-          .capture(captureRequestProvider.getCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE,
-              Collections.singletonList(surface)), captureCallback, null);
+      cameraCaptureSession.capture(CameraDevice.TEMPLATE_STILL_CAPTURE,
+          Collections.singletonList(surface), captureCallback);
     } catch (CameraAccessException e) {
       Log.e(TAG, "Capturing picture failed", e);
     }
   }
 
   /**
-   * Sets {@link CameraCaptureSession}.
+   * Sets {@link Session}.
    */
-  public void setSession(CameraCaptureSession cameraCaptureSession) {
+  public void setSession(Session cameraCaptureSession) {
     this.cameraCaptureSession = cameraCaptureSession;
   }
 
   /**
-   * Closes {@link CameraCaptureSession}.
+   * Closes {@link Session}.
    */
   public void closeSession() {
     Log.d(TAG, "Closing session");
@@ -105,11 +113,4 @@ public class CameraCaptureSessionController {
     }
     Log.d(TAG, "Camera capture session is null");
   }
-
-  /**
-   * Sets {@link CameraDevice} for the {@link CaptureRequestProvider}.
-   */
-  public void setCameraDevice(CameraDevice cameraDevice) {
-    captureRequestProvider = new CaptureRequestProvider(cameraDevice);
-  }
 }
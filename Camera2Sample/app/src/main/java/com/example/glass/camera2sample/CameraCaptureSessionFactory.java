@@ -17,10 +17,10 @@
 package com.example.glass.camera2sample;
 
 import android.hardware.camera2.CameraAccessException;
-import android.hardware.camera2.CameraCaptureSession.StateCallback;
-import android.hardware.camera2.CameraDevice;
 import android.util.Log;
 import android.view.Surface;
+import com.example.glass.camera2sample.CameraBackend.Device;
+import com.example.glass.camera2sample.CameraBackend.SessionCallback;
 import java.util.List;
 
 /**
@@ -31,25 +31,26 @@ public class CameraCaptureSessionFactory {
   private static final String TAG = CameraCaptureSessionFactory.class.getSimpleName();
 
   /**
-   * {@link CameraDevice} used for creating the capture session.
+   * {@link Device} used for creating the capture session.
    */
-  private final CameraDevice cameraDevice;
+  private final Device cameraDevice;
 
   /**
-   * Creates {@link CameraCaptureSessionFactory} using {@link CameraDevice} object.
+   * Creates {@link CameraCaptureSessionFactory} using {@link Device} object.
    */
-  public CameraCaptureSessionFactory(CameraDevice cameraDevice) {
+  public CameraCaptureSessionFactory(Device cameraDevice) {
     this.cameraDevice = cameraDevice;
   }
 
   /**
    * Creates camera capture session on the given {@link List<Surface>} of surfaces. Returns created
-   * {@link android.hardware.camera2.CameraCaptureSession} in stateCallback.
+   * {@link CameraBackend.Session} in sessionCallback.
    */
-  public void createCaptureSession(List<Surface> surfaceList, final StateCallback stateCallback) {
+  public void createCaptureSession(List<Surface> surfaceList,
+      final SessionCallback sessionCallback) {
     Log.d(TAG, "Creating capture session");
     try {
-      cameraDevice.createCaptureSession(surfaceList, stateCallback, null);
+      cameraDevice.createCaptureSession(surfaceList, sessionCallback, null);
     } catch (CameraAccessException e) {
       Log.e(TAG, "Creating capture session failed", e);
     }
@@ -246,12 +246,32 @@ public class CameraFragment extends Fragment
     AnimationManager.animateShutter(getContext(), shutterImageView);
   }
 
+  @Override
+  public void onTakingPictureCancelled() {
+    Log.d(TAG, "Taking picture cancelled");
+  }
+
+  @Override
+  public void onPictureSaved() {
+    Log.d(TAG, "Picture saved");
+  }
+
   @Override
   public void onVideoRecordingStarted() {
     Log.d(TAG, "Video recording started");
     AnimationManager.changeImageByAlpha(videoImageView, R.drawable.ic_videocam_red);
   }
 
+  @Override
+  public void onVideoRecorderStarted() {
+    Log.d(TAG, "Video recorder started");
+  }
+
+  @Override
+  public void onVideoRecordingCancelled() {
+    Log.d(TAG, "Video recording cancelled");
+  }
+
   @Override
   public void onVideoRecordingStopped() {
     Log.d(TAG, "Video recording stopped");
@@ -273,6 +293,16 @@ public class CameraFragment extends Fragment
     }
   }
 
+  @Override
+  public void onPreviewStarted() {
+    Log.d(TAG, "Preview started");
+  }
+
+  @Override
+  public void onCameraClosed() {
+    Log.d(TAG, "Camera closed");
+  }
+
   private Surface getSurface(SurfaceTexture surfaceTexture) {
     final DisplayMetrics displayMetrics = new DisplayMetrics();
     Objects.requireNonNull(getActivity(), "Activity must not be null").getWindowManager()
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Commands accepted by the {@link CameraCaptureService}. Each command is bound to the intent action
+ * which triggers it.
+ */
+public enum CaptureCommand {
+  TAKE_PICTURE("com.example.glass.camera2sample.action.TAKE_PICTURE"),
+  START_RECORDING("com.example.glass.camera2sample.action.START_RECORDING"),
+  STOP_RECORDING("com.example.glass.camera2sample.action.STOP_RECORDING");
+
+  /**
+   * Intent action triggering this command.
+   */
+  private final String action;
+
+  CaptureCommand(String action) {
+    this.action = action;
+  }
+
+  /**
+   * Returns intent action triggering this command.
+   */
+  public String getAction() {
+    return action;
+  }
+
+  /**
+   * Returns {@link CaptureCommand} for the given intent action or null if there is no such command.
+   */
+  @Nullable
+  public static CaptureCommand fromAction(@Nullable String action) {
+    for (CaptureCommand command : values()) {
+      if (command.action.equals(action)) {
+        return command;
+      }
+    }
+    return null;
+  }
+}
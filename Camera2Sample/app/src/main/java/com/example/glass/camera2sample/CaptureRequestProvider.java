@@ -19,7 +19,9 @@ package com.example.glass.camera2sample;
 import android.hardware.camera2.CameraAccessException;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CaptureRequest;
+import android.support.annotation.Nullable;
 import android.util.Log;
+import android.util.Range;
 import android.view.Surface;
 import java.util.List;
 
@@ -47,6 +49,15 @@ public class CaptureRequestProvider {
    * List<Surface>}.
    */
   public CaptureRequest getCaptureRequest(int templateType, List<Surface> surfaces) {
+    return getCaptureRequest(templateType, surfaces, null);
+  }
+
+  /**
+   * Returns {@link CaptureRequest} built with the templateType. Adds targets as {@link
+   * List<Surface>}. Limits the auto-exposure frame rate to the given fpsRange, if it is not null.
+   */
+  public CaptureRequest getCaptureRequest(int templateType, List<Surface> surfaces,
+      @Nullable Range<Integer> fpsRange) {
     Log.d(TAG, "Creating capture request for the template type: " + templateType);
     try {
       final CaptureRequest.Builder cameraRequestBuilder = cameraDevice
@@ -54,6 +65,9 @@ public class CaptureRequestProvider {
       for (Surface surface : surfaces) {
         cameraRequestBuilder.addTarget(surface);
       }
+      if (fpsRange != null) {
+        cameraRequestBuilder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fpsRange);
+      }
       return cameraRequestBuilder.build();
     } catch (CameraAccessException e) {
       Log.e(TAG, "Creating capture request failed", e);
@@ -16,6 +16,7 @@
 
 package com.example.glass.camera2sample;
 
+import android.content.Context;
 import android.graphics.ImageFormat;
 import android.hardware.camera2.params.StreamConfigurationMap;
 import android.media.ImageReader;
@@ -24,14 +25,18 @@ import android.os.Handler;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import android.util.Size;
+import android.view.Surface;
+import com.example.glass.camera2sample.CameraBackend.OnPictureAvailableListener;
+import com.example.glass.camera2sample.CameraBackend.PictureOutput;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Objects;
 
 /**
  * Helper class for the {@link ImageReader}.
  */
-public class ImageReaderProvider {
+public class ImageReaderProvider implements PictureOutput {
 
   private static final String TAG = ImageReaderProvider.class.getSimpleName();
 
@@ -71,6 +76,22 @@ public class ImageReaderProvider {
     return imageReader;
   }
 
+  @Override
+  public Surface getSurface() {
+    return Objects.requireNonNull(imageReader, "ImageReader must not be null").getSurface();
+  }
+
+  @Override
+  public void savePicture(Context context) {
+    FileManager.saveImage(context,
+        Objects.requireNonNull(imageReader, "ImageReader must not be null"));
+  }
+
+  @Override
+  public void close() {
+    closeImageReader();
+  }
+
   /**
    * Closes {@link ImageReader}.
    */
@@ -85,12 +106,18 @@ public class ImageReaderProvider {
   }
 
   /**
-   * Sets {@link OnImageAvailableListener} on the {@link ImageReader} object.
+   * Sets {@link OnPictureAvailableListener} on the {@link ImageReader} object.
    */
-  public void setOnImageAvailableListener(OnImageAvailableListener onImageAvailableListener,
-      Handler handler) {
+  @Override
+  public void setOnPictureAvailableListener(
+      final OnPictureAvailableListener onPictureAvailableListener, @Nullable Handler handler) {
     if (imageReader != null) {
-      imageReader.setOnImageAvailableListener(onImageAvailableListener, handler);
+      imageReader.setOnImageAvailableListener(new OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+          onPictureAvailableListener.onPictureAvailable(ImageReaderProvider.this);
+        }
+      }, handler);
     }
   }
 
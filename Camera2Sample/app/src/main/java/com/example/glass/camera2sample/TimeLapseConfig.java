@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+/**
+ * Configuration of the time-lapse recording. One frame is recorded every capture interval and the
+ * recorded frames are played back at the output frame rate, so the video plays at normal speed
+ * while storage and encoding cost drop by the ratio of the camera frame rate to the capture rate.
+ */
+public class TimeLapseConfig {
+
+  /**
+   * Capture interval between the recorded frames.
+   */
+  private final long captureIntervalMs;
+
+  /**
+   * Frame rate of the recorded video.
+   */
+  private final int outputFrameRate;
+
+  /**
+   * Creates {@link TimeLapseConfig} recording one frame every captureIntervalMs milliseconds,
+   * played back at outputFrameRate frames per second. Throws {@link IllegalArgumentException} if
+   * any of the values is not positive or if the capture rate is higher than the output frame rate,
+   * which would slow the video down instead of speeding it up.
+   */
+  public TimeLapseConfig(long captureIntervalMs, int outputFrameRate) {
+    if (captureIntervalMs <= 0) {
+      throw new IllegalArgumentException("Capture interval must be positive: " + captureIntervalMs);
+    }
+    if (outputFrameRate <= 0) {
+      throw new IllegalArgumentException("Output frame rate must be positive: " + outputFrameRate);
+    }
+    if (captureIntervalMs * outputFrameRate < 1000) {
+      throw new IllegalArgumentException("Capture rate of one frame every " + captureIntervalMs
+          + " ms exceeds the output frame rate: " + outputFrameRate);
+    }
+    this.captureIntervalMs = captureIntervalMs;
+    this.outputFrameRate = outputFrameRate;
+  }
+
+  /**
+   * Returns capture interval between the recorded frames.
+   */
+  public long getCaptureIntervalMs() {
+    return captureIntervalMs;
+  }
+
+  /**
+   * Returns frame rate of the recorded video.
+   */
+  public int getOutputFrameRate() {
+    return outputFrameRate;
+  }
+
+  /**
+   * Returns number of frames captured per second.
+   */
+  public double getCaptureRate() {
+    return 1000.0 / captureIntervalMs;
+  }
+
+  /**
+   * Returns the lowest camera frame rate which still delivers frames fast enough for the capture
+   * rate.
+   */
+  public int getCameraFrameRate() {
+    return (int) Math.ceil(getCaptureRate());
+  }
+
+  @Override
+  public String toString() {
+    return "TimeLapseConfig{captureIntervalMs=" + captureIntervalMs + ", outputFrameRate="
+        + outputFrameRate + "}";
+  }
+}
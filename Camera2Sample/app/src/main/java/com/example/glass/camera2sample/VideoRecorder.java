@@ -20,15 +20,17 @@ import android.media.CamcorderProfile;
 import android.media.MediaRecorder;
 import android.media.MediaRecorder.AudioSource;
 import android.media.MediaRecorder.VideoSource;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.Surface;
+import com.example.glass.camera2sample.CameraBackend.Recorder;
 import java.io.File;
 import java.io.IOException;
 
 /**
  * Provides functionality of recording video using {@link MediaRecorder}.
  */
-public class VideoRecorder {
+public class VideoRecorder implements Recorder {
 
   private static final String TAG = VideoRecorder.class.getSimpleName();
 
@@ -37,22 +39,50 @@ public class VideoRecorder {
   private File outputFile;
   private Surface surface;
 
+  /**
+   * Time-lapse configuration of the next recording or null to record at the full frame rate.
+   */
+  @Nullable
+  private TimeLapseConfig timeLapseConfig;
+
+  /**
+   * Sets time-lapse configuration used by the next {@link #initRecorder()} call. Null disables the
+   * time-lapse recording.
+   */
+  @Override
+  public void setTimeLapseConfig(@Nullable TimeLapseConfig timeLapseConfig) {
+    this.timeLapseConfig = timeLapseConfig;
+  }
+
   /**
    * Sets output file for the video recording and initializes {@link MediaRecorder}.
    */
+  @Override
   public void initRecorder() {
     Log.d(TAG, "Initializing video recorder");
     outputFile = FileManager.getOutputVideoFile();
     recorder = new MediaRecorder();
-    recorder.setAudioSource(AudioSource.CAMCORDER);
-    recorder.setVideoSource(VideoSource.SURFACE);
-    recorder.setProfile(CamcorderProfile.get(CamcorderProfile.QUALITY_720P));
+    if (timeLapseConfig == null) {
+      recorder.setAudioSource(AudioSource.CAMCORDER);
+      recorder.setVideoSource(VideoSource.SURFACE);
+      recorder.setProfile(CamcorderProfile.get(CamcorderProfile.QUALITY_720P));
+    } else {
+      Log.d(TAG, "Recording time-lapse " + timeLapseConfig);
+      // Time-lapse video has no audio. The recorder drops frames arriving faster than the capture
+      // rate, so only the selected frames reach the encoder.
+      recorder.setVideoSource(VideoSource.SURFACE);
+      final CamcorderProfile profile = getTimeLapseProfile();
+      profile.videoFrameRate = timeLapseConfig.getOutputFrameRate();
+      recorder.setProfile(profile);
+      recorder.setCaptureRate(timeLapseConfig.getCaptureRate());
+    }
     recorder.setOutputFile(outputFile.getPath());
   }
 
   /**
    * Prepares {@link MediaRecorder} and sets the surface to recording.
    */
+  @Override
   public void prepareRecorder() {
     Log.d(TAG, "Preparing video recorder");
     try {
@@ -66,21 +96,30 @@ public class VideoRecorder {
   /**
    * Returns TRUE if {@link MediaRecorder} is in the middle of recording. FALSE otherwise.
    */
+  @Override
   public boolean isRecording() {
     return isRecording;
   }
 
   /**
-   * Starts {@link MediaRecorder} and sets {@link VideoRecorder#isRecording} to true.
+   * Starts {@link MediaRecorder} and sets {@link VideoRecorder#isRecording} to true. Returns TRUE
+   * if the recorder is recording. FALSE if it failed to start.
    */
-  public void startRecording() {
-    if (!isRecording) {
-      Log.d(TAG, "Start recording");
+  @Override
+  public boolean startRecording() {
+    if (isRecording) {
+      Log.d(TAG, "Recording is already started");
+      return true;
+    }
+    Log.d(TAG, "Start recording");
+    try {
       recorder.start();
-      isRecording = true;
-      return;
+    } catch (IllegalStateException e) {
+      Log.e(TAG, "Recording start failed", e);
+      return false;
     }
-    Log.d(TAG, "Recording is already started");
+    isRecording = true;
+    return true;
   }
 
   /**
@@ -88,6 +127,7 @@ public class VideoRecorder {
    * MediaRecorder} to prepare it for the next recording. Deletes output file if {@link Exception}
    * occurs.
    */
+  @Override
   public void stopRecording() {
     try {
       if (isRecording) {
@@ -109,6 +149,7 @@ public class VideoRecorder {
   /**
    * Returns last recorded {@link File} object.
    */
+  @Override
   public File getLastRecordedFile() {
     return outputFile;
   }
@@ -116,6 +157,7 @@ public class VideoRecorder {
   /**
    * Releases {@link MediaRecorder}.
    */
+  @Override
   public void releaseMediaRecorder() {
     if (recorder != null) {
       Log.d(TAG, "Releasing media recorder");
@@ -128,7 +170,15 @@ public class VideoRecorder {
   /**
    * Returns recording surface.
    */
+  @Override
   public Surface getSurface() {
     return surface;
   }
+
+  private static CamcorderProfile getTimeLapseProfile() {
+    if (CamcorderProfile.hasProfile(CamcorderProfile.QUALITY_TIME_LAPSE_720P)) {
+      return CamcorderProfile.get(CamcorderProfile.QUALITY_TIME_LAPSE_720P);
+    }
+    return CamcorderProfile.get(CamcorderProfile.QUALITY_TIME_LAPSE_HIGH);
+  }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import static org.junit.Assert.assertEquals;
+
+import android.util.Range;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Checks selection of the camera frame rate range by the {@link Camera2Backend}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class Camera2BackendTest {
+
+  @SuppressWarnings("unchecked")
+  private static final Range<Integer>[] FPS_RANGES = new Range[]{
+      Range.create(15, 30), Range.create(30, 30), Range.create(5, 15), Range.create(15, 15),
+      Range.create(7, 60)};
+
+  @Test
+  public void selectFpsRange_picksLowestSufficientUpperBound() {
+    assertEquals(Range.create(5, 15), Camera2Backend.selectFpsRange(FPS_RANGES, 4));
+    assertEquals(Range.create(15, 15), Camera2Backend.selectFpsRange(FPS_RANGES, 15));
+  }
+
+  @Test
+  public void selectFpsRange_prefersLowerBoundNotBelowTarget() {
+    assertEquals(Range.create(15, 15), Camera2Backend.selectFpsRange(FPS_RANGES, 10));
+    assertEquals(Range.create(30, 30), Camera2Backend.selectFpsRange(FPS_RANGES, 16));
+  }
+
+  @Test
+  public void selectFpsRange_fallsBackToLowerMinimumForTheSameUpperBound() {
+    @SuppressWarnings("unchecked")
+    final Range<Integer>[] fpsRanges = new Range[]{Range.create(15, 30), Range.create(10, 30)};
+    assertEquals(Range.create(10, 30), Camera2Backend.selectFpsRange(fpsRanges, 20));
+  }
+
+  @Test
+  public void selectFpsRange_usesHighestRangeForHighFrameRates() {
+    assertEquals(Range.create(7, 60), Camera2Backend.selectFpsRange(FPS_RANGES, 31));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void selectFpsRange_rejectsUnsupportedFrameRate() {
+    Camera2Backend.selectFpsRange(FPS_RANGES, 61);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void selectFpsRange_rejectsNonPositiveFrameRate() {
+    Camera2Backend.selectFpsRange(FPS_RANGES, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void selectFpsRange_rejectsMissingRanges() {
+    Camera2Backend.selectFpsRange(null, 15);
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+import com.example.glass.camera2sample.CameraFlowTest.CallbackRecorder;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Measures the camera flows of the {@link CameraActionHandler} running on the {@link
+ * SimulatedCameraBackend}. Each flow is repeated {@link #ITERATIONS} times and its timings are
+ * logged next to the simulated hardware latency. Time spent above that latency is the overhead of
+ * the sample code. Ignored by default, as wall-clock timings depend on the machine.
+ */
+@Ignore("Benchmark, run manually")
+@RunWith(RobolectricTestRunner.class)
+public class CameraFlowBenchmarkTest {
+
+  private static final String TAG = CameraFlowBenchmarkTest.class.getSimpleName();
+  private static final int ITERATIONS = 20;
+  private static final long EVENT_TIMEOUT_MS = 5000;
+
+  private final SimulatedCameraBackend.Latencies latencies =
+      new SimulatedCameraBackend.Latencies();
+  private final CallbackRecorder callbackRecorder = new CallbackRecorder();
+  private SimulatedCameraBackend cameraBackend;
+  private CameraActionHandler cameraActionHandler;
+
+  @Before
+  public void setUp() {
+    cameraBackend = new SimulatedCameraBackend(latencies);
+    cameraActionHandler = new CameraActionHandler(RuntimeEnvironment.application,
+        callbackRecorder, cameraBackend);
+    cameraActionHandler.startBackgroundThread();
+  }
+
+  @After
+  public void tearDown() {
+    cameraActionHandler.stopBackgroundThread();
+    cameraBackend.shutdown();
+  }
+
+  @Test
+  public void openToPreview() throws InterruptedException {
+    final long[] timingsMs = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      final long startNs = System.nanoTime();
+      cameraActionHandler.openCamera();
+      await(callbackRecorder.previewStarted);
+      timingsMs[i] = elapsedMs(startNs);
+      cameraActionHandler.closeCamera();
+    }
+    report("open -> preview", timingsMs, latencies.openMs + latencies.configureSessionMs);
+  }
+
+  @Test
+  public void captureTurnaround() throws InterruptedException {
+    openCamera();
+    final long[] timingsMs = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      final long startNs = System.nanoTime();
+      assertTrue(cameraActionHandler.performTakePicture());
+      await(callbackRecorder.pictureSaved);
+      timingsMs[i] = elapsedMs(startNs);
+    }
+    cameraActionHandler.closeCamera();
+    report("capture -> saved", timingsMs, latencies.captureMs + latencies.savePictureMs);
+    assertEquals(ITERATIONS, cameraBackend.savedPictures.get());
+  }
+
+  @Test
+  public void modeSwitch() throws InterruptedException {
+    openCamera();
+    final long[] startTimingsMs = new long[ITERATIONS];
+    final long[] stopTimingsMs = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      long startNs = System.nanoTime();
+      assertTrue(cameraActionHandler.performStartRecording());
+      await(callbackRecorder.recorderStarted);
+      startTimingsMs[i] = elapsedMs(startNs);
+
+      startNs = System.nanoTime();
+      assertTrue(cameraActionHandler.performStopRecording());
+      await(callbackRecorder.previewStarted);
+      stopTimingsMs[i] = elapsedMs(startNs);
+
+      assertTrue(cameraActionHandler.performTakePicture());
+      await(callbackRecorder.pictureSaved);
+    }
+    cameraActionHandler.closeCamera();
+    report("picture -> recording", startTimingsMs,
+        latencies.prepareRecorderMs + latencies.configureSessionMs);
+    report("recording -> preview", stopTimingsMs,
+        latencies.stopRecorderMs + latencies.configureSessionMs);
+    assertEquals(ITERATIONS, cameraBackend.recordedVideos.get());
+  }
+
+  @Test
+  public void resumeCycle() throws InterruptedException {
+    openCamera();
+    final long[] timingsMs = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      final long startNs = System.nanoTime();
+      cameraActionHandler.closeCamera();
+      cameraActionHandler.openCamera();
+      await(callbackRecorder.previewStarted);
+      timingsMs[i] = elapsedMs(startNs);
+    }
+    cameraActionHandler.closeCamera();
+    report("pause -> resume -> preview", timingsMs,
+        latencies.openMs + latencies.configureSessionMs);
+  }
+
+  private void openCamera() throws InterruptedException {
+    cameraActionHandler.openCamera();
+    await(callbackRecorder.previewStarted);
+  }
+
+  private static void await(Semaphore event) throws InterruptedException {
+    assertTrue("Timed out waiting for the camera event",
+        CameraFlowTest.tryAcquire(event, 1, EVENT_TIMEOUT_MS));
+  }
+
+  private static long elapsedMs(long startNs) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+  }
+
+  /**
+   * Logs the minimum, median and maximum of the given timings together with the simulated hardware
+   * latency of the flow.
+   */
+  private static void report(String flow, long[] timingsMs, long simulatedLatencyMs) {
+    Arrays.sort(timingsMs);
+    final long medianMs = timingsMs[timingsMs.length / 2];
+    Log.d(TAG, String.format(Locale.US, "%s: min %d ms, median %d ms, max %d ms, "
+            + "simulated hardware %d ms, overhead %d ms", flow, timingsMs[0], medianMs,
+        timingsMs[timingsMs.length - 1], simulatedLatencyMs, medianMs - simulatedLatencyMs));
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Looper;
+import com.example.glass.camera2sample.CameraActionHandler.CameraActionHandlerCallback;
+import com.example.glass.camera2sample.CameraActionHandler.CameraMode;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Runs the camera flows of the {@link CameraActionHandler} on the {@link SimulatedCameraBackend}.
+ * Each flow is repeated {@link #ITERATIONS} times and checked for the delivered callbacks and the
+ * released camera resources. Callbacks are posted to the main looper, which runs on the test thread
+ * while the test waits for them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CameraFlowTest {
+
+  private static final int ITERATIONS = 5;
+  private static final long EVENT_TIMEOUT_MS = 5000;
+  private static final long POLL_INTERVAL_MS = 10;
+
+  private final CallbackRecorder callbackRecorder = new CallbackRecorder();
+  private SimulatedCameraBackend cameraBackend;
+  private CameraActionHandler cameraActionHandler;
+
+  @Before
+  public void setUp() {
+    cameraBackend = new SimulatedCameraBackend(new SimulatedCameraBackend.Latencies());
+    cameraActionHandler = new CameraActionHandler(RuntimeEnvironment.application,
+        callbackRecorder, cameraBackend);
+    cameraActionHandler.startBackgroundThread();
+  }
+
+  @After
+  public void tearDown() {
+    cameraActionHandler.stopBackgroundThread();
+    cameraBackend.shutdown();
+  }
+
+  @Test
+  public void openToPreview() throws InterruptedException {
+    for (int i = 0; i < ITERATIONS; i++) {
+      cameraActionHandler.openCamera();
+      await(callbackRecorder.previewStarted);
+      cameraActionHandler.closeCamera();
+    }
+    awaitIdle();
+    assertEquals(ITERATIONS, cameraBackend.openedDevices.get());
+    assertEquals(ITERATIONS, cameraBackend.closedDevices.get());
+  }
+
+  @Test
+  public void captureTurnaround() throws InterruptedException {
+    openCamera();
+    for (int i = 0; i < ITERATIONS; i++) {
+      assertTrue(cameraActionHandler.performTakePicture());
+      await(callbackRecorder.pictureSaved);
+    }
+    cameraActionHandler.closeCamera();
+    assertEquals(ITERATIONS, cameraBackend.savedPictures.get());
+    assertEquals(0, callbackRecorder.picturesCancelled.availablePermits());
+  }
+
+  @Test
+  public void modeSwitch() throws InterruptedException {
+    openCamera();
+    for (int i = 0; i < ITERATIONS; i++) {
+      assertTrue(cameraActionHandler.performStartRecording());
+      await(callbackRecorder.recorderStarted);
+      assertEquals(1, cameraBackend.recordingStarted.availablePermits());
+      cameraBackend.recordingStarted.drainPermits();
+
+      assertTrue(cameraActionHandler.performStopRecording());
+      await(callbackRecorder.previewStarted);
+      assertFalse(cameraActionHandler.isRecording());
+
+      assertTrue(cameraActionHandler.performTakePicture());
+      await(callbackRecorder.pictureSaved);
+    }
+    cameraActionHandler.closeCamera();
+    assertEquals(ITERATIONS, cameraBackend.recordedVideos.get());
+    assertEquals(ITERATIONS, cameraBackend.savedPictures.get());
+  }
+
+  @Test
+  public void stopBeforeRecordingStart_cancelsStart() throws InterruptedException {
+    cameraActionHandler.openCamera();
+    assertTrue(cameraActionHandler.performStartRecording());
+    assertTrue(cameraActionHandler.performStopRecording());
+
+    await(callbackRecorder.recordingCancelled);
+    await(callbackRecorder.previewStarted);
+    cameraActionHandler.closeCamera();
+    awaitIdle();
+    assertEquals(0, callbackRecorder.recorderStarted.availablePermits());
+    assertEquals(0, cameraBackend.recordedVideos.get());
+  }
+
+  @Test
+  public void closeBeforePreview_cancelsPendingPicture() throws InterruptedException {
+    cameraActionHandler.openCamera();
+    assertTrue(cameraActionHandler.performTakePicture());
+    cameraActionHandler.closeCamera();
+
+    await(callbackRecorder.picturesCancelled);
+    awaitIdle();
+    assertEquals(0, cameraBackend.savedPictures.get());
+    assertEquals(cameraBackend.openedDevices.get(), cameraBackend.closedDevices.get());
+  }
+
+  @Test
+  public void closedCamera_rejectsRequests() throws InterruptedException {
+    openCamera();
+    cameraActionHandler.closeCamera();
+    await(callbackRecorder.cameraClosed);
+
+    assertFalse(cameraActionHandler.performTakePicture());
+    assertFalse(cameraActionHandler.performStartRecording());
+    awaitIdle();
+    assertEquals(0, cameraBackend.savedPictures.get());
+    assertEquals(0, cameraBackend.recordedVideos.get());
+  }
+
+  @Test
+  public void queuedRequests_callBackOnMainLooper() throws InterruptedException {
+    cameraActionHandler.openCamera();
+    assertTrue(cameraActionHandler.performTakePicture());
+    await(callbackRecorder.pictureSaved);
+    assertTrue(cameraActionHandler.performStartRecording());
+    await(callbackRecorder.recorderStarted);
+    assertTrue(cameraActionHandler.performStopRecording());
+    await(callbackRecorder.previewStarted);
+    assertTrue(cameraActionHandler.performTakePicture());
+    cameraActionHandler.closeCamera();
+    await(callbackRecorder.cameraClosed);
+    awaitIdle();
+
+    assertTrue(callbackRecorder.callbacks.get() > 0);
+    assertEquals(0, callbackRecorder.callbacksOffMainLooper.get());
+  }
+
+  @Test
+  public void resumeCycle() throws InterruptedException {
+    openCamera();
+    for (int i = 0; i < ITERATIONS; i++) {
+      cameraActionHandler.closeCamera();
+      cameraActionHandler.openCamera();
+      await(callbackRecorder.previewStarted);
+    }
+    cameraActionHandler.closeCamera();
+    awaitIdle();
+    assertEquals(cameraBackend.openedDevices.get(), cameraBackend.closedDevices.get());
+  }
+
+  private void openCamera() throws InterruptedException {
+    cameraActionHandler.openCamera();
+    await(callbackRecorder.previewStarted);
+  }
+
+  /**
+   * Waits until the simulated camera is idle and runs the callbacks it posted to the main looper.
+   */
+  private void awaitIdle() throws InterruptedException {
+    cameraBackend.awaitIdle();
+    ShadowLooper.runUiThreadTasks();
+  }
+
+  private static void await(Semaphore event) throws InterruptedException {
+    assertTrue("Timed out waiting for the camera event",
+        tryAcquire(event, 1, EVENT_TIMEOUT_MS));
+  }
+
+  /**
+   * Acquires the given number of permits of the event, running the callbacks posted to the main
+   * looper while waiting. Returns FALSE if the permits are not available in time.
+   */
+  static boolean tryAcquire(Semaphore event, int permits, long timeoutMs)
+      throws InterruptedException {
+    final long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    do {
+      ShadowLooper.runUiThreadTasks();
+      if (event.tryAcquire(permits, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    } while (System.nanoTime() < deadlineNs);
+    return false;
+  }
+
+  /**
+   * Releases a permit on the corresponding semaphore for each of the awaited callbacks. Counts the
+   * callbacks and the ones delivered off the main looper.
+   */
+  static class CallbackRecorder implements CameraActionHandlerCallback {
+
+    final Semaphore previewStarted = new Semaphore(0);
+    final Semaphore pictureSaved = new Semaphore(0);
+    final Semaphore picturesCancelled = new Semaphore(0);
+    final Semaphore recorderStarted = new Semaphore(0);
+    final Semaphore recordingCancelled = new Semaphore(0);
+    final Semaphore cameraClosed = new Semaphore(0);
+    final AtomicInteger callbacks = new AtomicInteger();
+    final AtomicInteger callbacksOffMainLooper = new AtomicInteger();
+
+    private void record() {
+      callbacks.incrementAndGet();
+      if (Looper.myLooper() != Looper.getMainLooper()) {
+        callbacksOffMainLooper.incrementAndGet();
+      }
+    }
+
+    @Override
+    public void onTakingPictureStarted() {
+      record();
+    }
+
+    @Override
+    public void onTakingPictureCancelled() {
+      record();
+      picturesCancelled.release();
+    }
+
+    @Override
+    public void onPictureSaved() {
+      record();
+      pictureSaved.release();
+    }
+
+    @Override
+    public void onVideoRecordingStarted() {
+      record();
+    }
+
+    @Override
+    public void onVideoRecorderStarted() {
+      record();
+      recorderStarted.release();
+    }
+
+    @Override
+    public void onVideoRecordingCancelled() {
+      record();
+      recordingCancelled.release();
+    }
+
+    @Override
+    public void onVideoRecordingStopped() {
+      record();
+    }
+
+    @Override
+    public void onCameraModeChanged(CameraMode newCameraMode) {
+      record();
+    }
+
+    @Override
+    public void onPreviewStarted() {
+      record();
+      previewStarted.release();
+    }
+
+    @Override
+    public void onCameraClosed() {
+      record();
+      cameraClosed.release();
+    }
+  }
+}
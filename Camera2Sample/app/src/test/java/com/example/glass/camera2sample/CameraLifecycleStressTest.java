@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.glass.camera2sample.CameraActionHandler.CameraActionHandlerCallback;
+import com.example.glass.camera2sample.CameraActionHandler.CameraMode;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Cycles lifecycle events and user actions on the {@link CameraActionHandler} while the {@link
+ * SimulatedCameraBackend} delivers its callbacks concurrently. Checks that no camera device is
+ * leaked and that the camera ends up in a consistent state.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CameraLifecycleStressTest {
+
+  private static final int CYCLES = 5000;
+  private static final long RANDOM_SEED = 42;
+  private static final long EVENT_TIMEOUT_MS = 5000;
+
+  private final Semaphore previewStarted = new Semaphore(0);
+  private final Semaphore pictureSaved = new Semaphore(0);
+  private SimulatedCameraBackend cameraBackend;
+  private CameraActionHandler cameraActionHandler;
+
+  @Before
+  public void setUp() {
+    cameraBackend = new SimulatedCameraBackend(SimulatedCameraBackend.Latencies.uniform(0));
+    cameraActionHandler = new CameraActionHandler(RuntimeEnvironment.application,
+        new CameraActionHandlerCallback() {
+          @Override
+          public void onTakingPictureStarted() {
+          }
+
+          @Override
+          public void onTakingPictureCancelled() {
+          }
+
+          @Override
+          public void onPictureSaved() {
+            pictureSaved.release();
+          }
+
+          @Override
+          public void onVideoRecordingStarted() {
+          }
+
+          @Override
+          public void onVideoRecorderStarted() {
+          }
+
+          @Override
+          public void onVideoRecordingCancelled() {
+          }
+
+          @Override
+          public void onVideoRecordingStopped() {
+          }
+
+          @Override
+          public void onCameraModeChanged(CameraMode newCameraMode) {
+          }
+
+          @Override
+          public void onPreviewStarted() {
+            previewStarted.release();
+          }
+
+          @Override
+          public void onCameraClosed() {
+          }
+        }, cameraBackend);
+    cameraActionHandler.startBackgroundThread();
+  }
+
+  @After
+  public void tearDown() {
+    cameraActionHandler.stopBackgroundThread();
+    cameraBackend.shutdown();
+  }
+
+  @Test
+  public void rapidLifecycleCycles_closeEveryDevice() throws InterruptedException {
+    final Random random = new Random(RANDOM_SEED);
+    for (int i = 0; i < CYCLES; i++) {
+      cameraActionHandler.openCamera();
+      performRandomAction(random.nextInt(4));
+      cameraActionHandler.closeCamera();
+      if (random.nextBoolean()) {
+        // Gives the camera a chance to get further than opening.
+        Thread.yield();
+      }
+    }
+    cameraBackend.awaitIdle();
+
+    assertEquals(cameraBackend.openedDevices.get(), cameraBackend.closedDevices.get());
+    assertFalse(cameraActionHandler.isRecording());
+  }
+
+  @Test
+  public void stopBackgroundThreadWhileOpening_closesDeviceOnceOpened()
+      throws InterruptedException {
+    cameraActionHandler.openCamera();
+    cameraActionHandler.closeCamera();
+    cameraActionHandler.stopBackgroundThread();
+    cameraBackend.awaitIdle();
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(1, cameraBackend.openedDevices.get());
+    assertEquals(1, cameraBackend.closedDevices.get());
+    assertEquals(0, previewStarted.availablePermits());
+    cameraActionHandler.startBackgroundThread();
+  }
+
+  @Test
+  public void rapidLifecycleCycles_leaveCameraUsable() throws InterruptedException {
+    for (int i = 0; i < CYCLES; i++) {
+      cameraActionHandler.openCamera();
+      cameraActionHandler.closeCamera();
+    }
+    cameraBackend.awaitIdle();
+    ShadowLooper.runUiThreadTasks();
+    previewStarted.drainPermits();
+
+    cameraActionHandler.openCamera();
+    assertTrue(CameraFlowTest.tryAcquire(previewStarted, 1, EVENT_TIMEOUT_MS));
+    assertTrue(cameraActionHandler.performTakePicture());
+    assertTrue(CameraFlowTest.tryAcquire(pictureSaved, 1, EVENT_TIMEOUT_MS));
+    cameraActionHandler.closeCamera();
+    cameraBackend.awaitIdle();
+    assertEquals(cameraBackend.openedDevices.get(), cameraBackend.closedDevices.get());
+  }
+
+  @Test
+  public void requestsBeforePreview_areQueued() throws InterruptedException {
+    cameraActionHandler.openCamera();
+    assertTrue(cameraActionHandler.performTakePicture());
+    assertTrue(cameraActionHandler.performTakePicture());
+
+    assertTrue(CameraFlowTest.tryAcquire(pictureSaved, 2, EVENT_TIMEOUT_MS));
+    cameraActionHandler.closeCamera();
+  }
+
+  private void performRandomAction(int action) {
+    switch (action) {
+      case 0:
+        cameraActionHandler.performTakePicture();
+        break;
+      case 1:
+        cameraActionHandler.performStartRecording();
+        break;
+      case 2:
+        cameraActionHandler.performStopRecording();
+        break;
+      default:
+        break;
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import android.content.Context;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Surface;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link CameraBackend} simulating the camera hardware with configurable latencies. All of the
+ * callbacks are delivered on a single simulated camera thread, after the configured delay. Given
+ * {@link Handler}s are ignored. Surfaces are not rendered into, so they may be null.
+ */
+class SimulatedCameraBackend implements CameraBackend {
+
+  private static final String CAMERA_ID = "0";
+
+  private final ScheduledThreadPoolExecutor cameraExecutor = new ScheduledThreadPoolExecutor(1);
+  private final Latencies latencies;
+
+  /**
+   * Last created picture output, receiving pictures from the simulated captures.
+   */
+  private SimulatedPictureOutput pictureOutput;
+
+  final AtomicInteger openedDevices = new AtomicInteger();
+  final AtomicInteger closedDevices = new AtomicInteger();
+  final AtomicInteger configuredSessions = new AtomicInteger();
+  final AtomicInteger closedSessions = new AtomicInteger();
+  final AtomicInteger savedPictures = new AtomicInteger();
+  final AtomicInteger recordedVideos = new AtomicInteger();
+  final Semaphore recordingStarted = new Semaphore(0);
+
+  SimulatedCameraBackend(Latencies latencies) {
+    this.latencies = latencies;
+  }
+
+  @Nullable
+  @Override
+  public String getCameraId() {
+    return CAMERA_ID;
+  }
+
+  @Override
+  public PictureOutput createPictureOutput(String cameraId) {
+    pictureOutput = new SimulatedPictureOutput();
+    return pictureOutput;
+  }
+
+  @Override
+  public Recorder createVideoRecorder() {
+    return new SimulatedVideoRecorder();
+  }
+
+  @Override
+  public void openCamera(String cameraId, final DeviceCallback callback,
+      @Nullable Handler handler) {
+    cameraExecutor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        openedDevices.incrementAndGet();
+        callback.onOpened(new SimulatedDevice());
+      }
+    }, latencies.openMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Waits until all of the scheduled camera callbacks are delivered.
+   */
+  void awaitIdle() throws InterruptedException {
+    do {
+      try {
+        cameraExecutor.submit(new Runnable() {
+          @Override
+          public void run() {
+          }
+        }).get();
+      } catch (ExecutionException e) {
+        throw new AssertionError(e);
+      }
+    } while (!cameraExecutor.getQueue().isEmpty());
+  }
+
+  /**
+   * Stops the simulated camera thread.
+   */
+  void shutdown() {
+    cameraExecutor.shutdownNow();
+  }
+
+  private static void sleep(long durationMs) {
+    try {
+      Thread.sleep(durationMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Latencies of the simulated camera operations.
+   */
+  static class Latencies {
+
+    long openMs = 120;
+    long configureSessionMs = 60;
+    long captureMs = 90;
+    long savePictureMs = 40;
+    long prepareRecorderMs = 50;
+    long stopRecorderMs = 30;
+
+    /**
+     * Returns latencies with all of the values set to the given duration.
+     */
+    static Latencies uniform(long durationMs) {
+      final Latencies latencies = new Latencies();
+      latencies.openMs = durationMs;
+      latencies.configureSessionMs = durationMs;
+      latencies.captureMs = durationMs;
+      latencies.savePictureMs = durationMs;
+      latencies.prepareRecorderMs = durationMs;
+      latencies.stopRecorderMs = durationMs;
+      return latencies;
+    }
+  }
+
+  private class SimulatedDevice implements Device {
+
+    @Override
+    public void createCaptureSession(List<Surface> surfaces, final SessionCallback callback,
+        @Nullable Handler handler) {
+      cameraExecutor.schedule(new Runnable() {
+        @Override
+        public void run() {
+          configuredSessions.incrementAndGet();
+          callback.onConfigured(new SimulatedSession());
+        }
+      }, latencies.configureSessionMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+      closedDevices.incrementAndGet();
+    }
+  }
+
+  private class SimulatedSession implements Session {
+
+    @Override
+    public void setRepeatingRequest(int templateType, List<Surface> surfaces) {
+    }
+
+    @Override
+    public void setRepeatingRequest(int templateType, List<Surface> surfaces,
+        int targetFrameRate) {
+    }
+
+    @Override
+    public void capture(int templateType, List<Surface> surfaces,
+        final CaptureCallback callback) {
+      cameraExecutor.schedule(new Runnable() {
+        @Override
+        public void run() {
+          callback.onCaptureCompleted();
+          pictureOutput.deliverPicture();
+        }
+      }, latencies.captureMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stopRepeating() {
+    }
+
+    @Override
+    public void abortCaptures() {
+    }
+
+    @Override
+    public void close() {
+      closedSessions.incrementAndGet();
+    }
+  }
+
+  private class SimulatedPictureOutput implements PictureOutput {
+
+    private OnPictureAvailableListener listener;
+
+    @Override
+    public Surface getSurface() {
+      return null;
+    }
+
+    @Override
+    public void setOnPictureAvailableListener(OnPictureAvailableListener listener,
+        @Nullable Handler handler) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void savePicture(Context context) {
+      sleep(latencies.savePictureMs);
+      savedPictures.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+      listener = null;
+    }
+
+    void deliverPicture() {
+      if (listener != null) {
+        listener.onPictureAvailable(this);
+      }
+    }
+  }
+
+  private class SimulatedVideoRecorder implements Recorder {
+
+    private boolean isRecording = false;
+
+    @Override
+    public void setTimeLapseConfig(@Nullable TimeLapseConfig timeLapseConfig) {
+    }
+
+    @Override
+    public void initRecorder() {
+    }
+
+    @Override
+    public void prepareRecorder() {
+      sleep(latencies.prepareRecorderMs);
+    }
+
+    @Override
+    public boolean isRecording() {
+      return isRecording;
+    }
+
+    @Override
+    public boolean startRecording() {
+      isRecording = true;
+      recordingStarted.release();
+      return true;
+    }
+
+    @Override
+    public void stopRecording() {
+      if (isRecording) {
+        sleep(latencies.stopRecorderMs);
+        recordedVideos.incrementAndGet();
+      }
+      isRecording = false;
+    }
+
+    @Override
+    public File getLastRecordedFile() {
+      return new File("simulated.mp4");
+    }
+
+    @Override
+    public void releaseMediaRecorder() {
+    }
+
+    @Override
+    public Surface getSurface() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.camera2sample;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks validation and the derived frame rates of the {@link TimeLapseConfig}.
+ */
+public class TimeLapseConfigTest {
+
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void captureRates_areDerivedFromTheInterval() {
+    final TimeLapseConfig config = new TimeLapseConfig(250, 30);
+
+    assertEquals(250, config.getCaptureIntervalMs());
+    assertEquals(30, config.getOutputFrameRate());
+    assertEquals(4.0, config.getCaptureRate(), DELTA);
+    assertEquals(4, config.getCameraFrameRate());
+  }
+
+  @Test
+  public void cameraFrameRate_isRoundedUp() {
+    assertEquals(2, new TimeLapseConfig(700, 30).getCameraFrameRate());
+    assertEquals(1, new TimeLapseConfig(5000, 30).getCameraFrameRate());
+  }
+
+  @Test
+  public void captureRateEqualToOutputFrameRate_isAccepted() {
+    assertEquals(30, new TimeLapseConfig(34, 30).getCameraFrameRate());
+    assertEquals(1, new TimeLapseConfig(1000, 1).getCameraFrameRate());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void captureRateAboveOutputFrameRate_isRejected() {
+    new TimeLapseConfig(10, 30);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zeroCaptureInterval_isRejected() {
+    new TimeLapseConfig(0, 30);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeCaptureInterval_isRejected() {
+    new TimeLapseConfig(-1000, 30);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zeroOutputFrameRate_isRejected() {
+    new TimeLapseConfig(1000, 0);
+  }
+}
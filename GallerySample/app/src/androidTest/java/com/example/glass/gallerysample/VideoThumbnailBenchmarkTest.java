@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeNotNull;
+
+import android.Manifest.permission;
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ThumbnailUtils;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.provider.MediaStore.Video.Thumbnails;
+import android.provider.MediaStore.Video.VideoColumns;
+import android.support.annotation.Nullable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.GrantPermissionRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the {@link VideoThumbnailExtractor} with the legacy media store thumbnails for all of
+ * the videos in the directory given by the {@link #DIRECTORY_ARGUMENT} instrumentation argument.
+ * Logs the average and maximum extraction time and the peak heap usage of both of the paths. The
+ * path which runs first alternates from video to video, so neither of them always reads the file
+ * cold. Skipped if the directory is not given.
+ */
+@RunWith(AndroidJUnit4.class)
+public class VideoThumbnailBenchmarkTest {
+
+  /**
+   * Instrumentation argument with the directory of the benchmarked videos.
+   */
+  private static final String DIRECTORY_ARGUMENT = "video_thumbnail_benchmark_dir";
+
+  private static final String TAG = VideoThumbnailBenchmarkTest.class.getSimpleName();
+  private static final int THUMBNAIL_WIDTH_PX = 400;
+  private static final int THUMBNAIL_HEIGHT_PX = 400;
+
+  @Rule
+  public final GrantPermissionRule permissionRule = GrantPermissionRule
+      .grant(permission.READ_EXTERNAL_STORAGE);
+
+  private final ContentResolver contentResolver = InstrumentationRegistry.getTargetContext()
+      .getContentResolver();
+  private final VideoThumbnailExtractor videoThumbnailExtractor =
+      new VideoThumbnailExtractor(THUMBNAIL_WIDTH_PX, THUMBNAIL_HEIGHT_PX);
+
+  @Test
+  public void compareThumbnailPaths() {
+    final String directory = InstrumentationRegistry.getArguments().getString(DIRECTORY_ARGUMENT);
+    assumeNotNull(directory);
+    final List<Long> ids = new ArrayList<>();
+    final List<String> paths = new ArrayList<>();
+    queryVideos(directory, ids, paths);
+    assertFalse("No videos found in " + directory, ids.isEmpty());
+    Log.d(TAG, "Benchmarking thumbnails of " + ids.size() + " videos in " + directory);
+
+    final Result legacyResult = new Result("legacy MINI_KIND");
+    final Result scaledFrameResult = new Result("scaled frame");
+    for (int i = 0; i < ids.size(); i++) {
+      if (i % 2 == 0) {
+        measureLegacyThumbnail(ids.get(i), legacyResult);
+        measureScaledFrameThumbnail(paths.get(i), scaledFrameResult);
+      } else {
+        measureScaledFrameThumbnail(paths.get(i), scaledFrameResult);
+        measureLegacyThumbnail(ids.get(i), legacyResult);
+      }
+    }
+    legacyResult.log();
+    scaledFrameResult.log();
+  }
+
+  private void measureLegacyThumbnail(long id, Result result) {
+    final long startTime = SystemClock.elapsedRealtime();
+    final Bitmap thumbnail = extractLegacyThumbnail(id);
+    result.add(SystemClock.elapsedRealtime() - startTime, thumbnail);
+  }
+
+  private void measureScaledFrameThumbnail(String path, Result result) {
+    final long startTime = SystemClock.elapsedRealtime();
+    final Bitmap thumbnail = videoThumbnailExtractor.extractThumbnail(path);
+    result.add(SystemClock.elapsedRealtime() - startTime, thumbnail);
+  }
+
+  /**
+   * Returns thumbnail of the video with the given media store id created from the
+   * {@link Thumbnails#MINI_KIND} thumbnail of the media store, as the app did before the
+   * {@link VideoThumbnailExtractor}.
+   */
+  @Nullable
+  private Bitmap extractLegacyThumbnail(long id) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = 1;
+    final Bitmap bitmap = MediaStore.Video.Thumbnails
+        .getThumbnail(contentResolver, id, Thumbnails.MINI_KIND, options);
+    if (bitmap == null) {
+      return null;
+    }
+    return ThumbnailUtils.extractThumbnail(bitmap, THUMBNAIL_WIDTH_PX, THUMBNAIL_HEIGHT_PX,
+        ThumbnailUtils.OPTIONS_RECYCLE_INPUT);
+  }
+
+  private void queryVideos(String directory, List<Long> ids, List<String> paths) {
+    final String[] projection = {VideoColumns._ID, VideoColumns.DATA};
+    try (Cursor cursor = contentResolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
+        projection, VideoColumns.DATA + " LIKE ?", new String[]{directory + "%"}, null)) {
+      if (cursor == null) {
+        return;
+      }
+      while (cursor.moveToNext()) {
+        ids.add(cursor.getLong(0));
+        paths.add(cursor.getString(1));
+      }
+    }
+  }
+
+  /**
+   * Extraction times and the peak heap usage of a single path.
+   */
+  private static class Result {
+
+    private final String name;
+    private int count;
+    private int failedCount;
+    private long totalTimeMs;
+    private long maxTimeMs;
+    private long peakHeapBytes;
+
+    Result(String name) {
+      this.name = name;
+    }
+
+    void add(long timeMs, @Nullable Bitmap thumbnail) {
+      final Runtime runtime = Runtime.getRuntime();
+      peakHeapBytes = Math.max(peakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+      count++;
+      totalTimeMs += timeMs;
+      maxTimeMs = Math.max(maxTimeMs, timeMs);
+      if (thumbnail == null) {
+        failedCount++;
+      } else {
+        thumbnail.recycle();
+      }
+    }
+
+    void log() {
+      Log.d(TAG, name + ": " + count + " videos, failed: " + failedCount + ", average: "
+          + totalTimeMs / Math.max(1, count) + " ms, max: " + maxTimeMs + " ms, total: "
+          + totalTimeMs + " ms, peak heap: " + peakHeapBytes / 1024 + " kB");
+    }
+  }
+}
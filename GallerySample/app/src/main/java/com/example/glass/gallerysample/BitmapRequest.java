@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import java.util.concurrent.Future;
+
+/**
+ * Handle of the single asynchronous bitmap load. Loaded bitmap is delivered to the
+ * {@link OnBitmapLoadedListener} unless the request has been cancelled.
+ */
+public class BitmapRequest {
+
+  private final Handler deliveryHandler;
+  private final OnBitmapLoadedListener listener;
+  private volatile boolean cancelled;
+  private volatile Future<?> future;
+
+  /**
+   * Creates {@link BitmapRequest} delivering the loaded bitmap to the given listener on the thread
+   * of the given {@link Handler}.
+   */
+  BitmapRequest(Handler deliveryHandler, OnBitmapLoadedListener listener) {
+    this.deliveryHandler = deliveryHandler;
+    this.listener = listener;
+  }
+
+  /**
+   * Cancels the load. Listener is not notified after this call, even if the bitmap has been
+   * already loaded.
+   */
+  public void cancel() {
+    cancelled = true;
+    final Future<?> future = this.future;
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  void setFuture(Future<?> future) {
+    this.future = future;
+    if (cancelled) {
+      future.cancel(false);
+    }
+  }
+
+  /**
+   * Posts the loaded bitmap to the listener, unless the request is cancelled before it is
+   * delivered.
+   */
+  void deliver(final Bitmap bitmap) {
+    deliveryHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (!cancelled) {
+          listener.onBitmapLoaded(bitmap);
+        }
+      }
+    });
+  }
+
+  /**
+   * Listener notified when the bitmap has been loaded.
+   */
+  public interface OnBitmapLoadedListener {
+
+    void onBitmapLoaded(Bitmap bitmap);
+  }
+}
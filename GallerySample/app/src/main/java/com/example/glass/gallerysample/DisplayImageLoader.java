@@ -0,0 +1,296 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.LruCache;
+import com.example.glass.gallerysample.BitmapRequest.OnBitmapLoadedListener;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes gallery images and the first frames of the videos for the full screen display on a
+ * background thread. Images are subsampled to the display size, so a 12 MP photo takes about as
+ * much memory as the screen itself. Decoded images are kept in the byte bounded LRU cache shared by
+ * the whole app, so returning to the recently shown image is instant. Zoomed in images are decoded
+ * from the visible region only, which can be moved around the image.
+ */
+public class DisplayImageLoader {
+
+  private static final String TAG = DisplayImageLoader.class.getSimpleName();
+  private static final int POOL_SIZE = 2;
+  private static final int MAX_CACHE_SIZE_BYTES = 16 * 1024 * 1024;
+
+  private static DisplayImageLoader instance;
+
+  private final int displayWidth;
+  private final int displayHeight;
+  private final ExecutorService executorService = Executors.newFixedThreadPool(POOL_SIZE);
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final LruCache<String, Bitmap> cache =
+      new LruCache<String, Bitmap>(MAX_CACHE_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+          return value.getByteCount();
+        }
+      };
+
+  /**
+   * Region decoder of the last zoomed in image, reused while the zoom changes.
+   */
+  private BitmapRegionDecoder regionDecoder;
+  private String regionDecoderPath;
+
+  /**
+   * Returns the {@link DisplayImageLoader} shared by the whole app.
+   */
+  public static synchronized DisplayImageLoader getInstance(Context context) {
+    if (instance == null) {
+      instance = new DisplayImageLoader(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  private DisplayImageLoader(Context context) {
+    final DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
+    displayWidth = displayMetrics.widthPixels;
+    displayHeight = displayMetrics.heightPixels;
+  }
+
+  /**
+   * Returns the decoded image if it is in the cache or null otherwise.
+   */
+  @Nullable
+  public Bitmap getCachedImage(String path, long dateModified) {
+    return cache.get(getKey(path, dateModified));
+  }
+
+  /**
+   * Returns the number of bytes taken by a decoded bitmap filling the whole display.
+   */
+  public int getDisplayBitmapByteCount() {
+    return displayWidth * displayHeight * 4;
+  }
+
+  /**
+   * Decodes the image, or the first frame of the video, fitting the display and passes it to the
+   * given listener on the main thread. Returned {@link BitmapRequest} can be used to cancel the
+   * load.
+   */
+  public BitmapRequest loadImage(GalleryItem.Type type, String path, long dateModified,
+      OnBitmapLoadedListener listener) {
+    final BitmapRequest request = new BitmapRequest(mainHandler, listener);
+    request.setFuture(submit(type, path, dateModified, request));
+    return request;
+  }
+
+  /**
+   * Decodes the image, or the first frame of the video, into the cache. Returns {@link Future},
+   * which can be used to cancel the prefetch.
+   */
+  public Future<?> prefetchImage(GalleryItem.Type type, String path, long dateModified) {
+    return submit(type, path, dateModified, null);
+  }
+
+  /**
+   * Decodes the region of the image, which is the given zoom times smaller than the whole image,
+   * fitting it to the display. The region is centered at the given point, expressed as fractions of
+   * the image width and height, and kept inside the image. Passes it to the given listener on the
+   * main thread.
+   */
+  public BitmapRequest loadZoomedImage(final String path, final float zoom, final float centerX,
+      final float centerY, OnBitmapLoadedListener listener) {
+    final BitmapRequest request = new BitmapRequest(mainHandler, listener);
+    request.setFuture(executorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        final Bitmap bitmap = decodeRegion(path, zoom, centerX, centerY);
+        if (bitmap != null) {
+          request.deliver(bitmap);
+        }
+      }
+    }));
+    return request;
+  }
+
+  private Future<?> submit(final GalleryItem.Type type, final String path, long dateModified,
+      @Nullable final BitmapRequest request) {
+    final String key = getKey(path, dateModified);
+    return executorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+          bitmap = type == GalleryItem.Type.VIDEO ? decodeVideoFrame(path) : decodeImage(path);
+          if (bitmap == null) {
+            return;
+          }
+          cache.put(key, bitmap);
+        }
+        if (request != null) {
+          request.deliver(bitmap);
+        }
+      }
+    });
+  }
+
+  @Nullable
+  private Bitmap decodeVideoFrame(String path) {
+    final long startTime = SystemClock.elapsedRealtime();
+    final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+    try {
+      retriever.setDataSource(path);
+      final Bitmap frame = retriever.getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+      if (frame == null) {
+        Log.w(TAG, "Can't extract first frame of " + path);
+        return null;
+      }
+      final Bitmap bitmap = scaleToFit(frame);
+      Log.d(TAG, "First frame of " + path + " extracted in "
+          + (SystemClock.elapsedRealtime() - startTime) + " ms");
+      return bitmap;
+    } catch (RuntimeException e) {
+      Log.e(TAG, "Can't read video " + path, e);
+      return null;
+    } finally {
+      retriever.release();
+    }
+  }
+
+  @Nullable
+  private Bitmap decodeImage(String path) {
+    final long startTime = SystemClock.elapsedRealtime();
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(path, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      Log.w(TAG, "Can't read image bounds " + path);
+      return null;
+    }
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+        displayWidth, displayHeight);
+    final Bitmap decoded = BitmapFactory.decodeFile(path, options);
+    if (decoded == null) {
+      Log.w(TAG, "Can't decode image " + path);
+      return null;
+    }
+    final Bitmap bitmap = scaleToFit(decoded);
+    Log.d(TAG, "Image " + path + " decoded to " + bitmap.getWidth() + "x" + bitmap.getHeight()
+        + " in " + (SystemClock.elapsedRealtime() - startTime) + " ms");
+    return bitmap;
+  }
+
+  /**
+   * Recycles the region decoder of the last zoomed in image. It is created again by the next
+   * {@link #loadZoomedImage} call.
+   */
+  public synchronized void release() {
+    if (regionDecoder != null) {
+      regionDecoder.recycle();
+      regionDecoder = null;
+      regionDecoderPath = null;
+    }
+  }
+
+  @Nullable
+  private synchronized Bitmap decodeRegion(String path, float zoom, float centerX, float centerY) {
+    try {
+      if (regionDecoder == null || !path.equals(regionDecoderPath)) {
+        release();
+        regionDecoder = BitmapRegionDecoder.newInstance(path, false);
+        regionDecoderPath = path;
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Can't create region decoder for " + path, e);
+      return null;
+    }
+
+    final Rect region = calculateRegion(regionDecoder.getWidth(), regionDecoder.getHeight(), zoom,
+        centerX, centerY);
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = calculateInSampleSize(region.width(), region.height(), displayWidth,
+        displayHeight);
+    final Bitmap decoded = regionDecoder.decodeRegion(region, options);
+    return decoded != null ? scaleToFit(decoded) : null;
+  }
+
+  /**
+   * Returns the region of the image with the given size, which is the given zoom times smaller than
+   * the whole image. The region is centered at the given point, expressed as fractions of the image
+   * width and height, and moved inside the image if it would cross its edges.
+   */
+  static Rect calculateRegion(int width, int height, float zoom, float centerX, float centerY) {
+    final int regionWidth = Math.max(1, Math.min(width, Math.round(width / zoom)));
+    final int regionHeight = Math.max(1, Math.min(height, Math.round(height / zoom)));
+    final int left = clamp(Math.round(centerX * width - regionWidth / 2f), width - regionWidth);
+    final int top = clamp(Math.round(centerY * height - regionHeight / 2f), height - regionHeight);
+    return new Rect(left, top, left + regionWidth, top + regionHeight);
+  }
+
+  /**
+   * Returns the largest power of two sample size, which keeps the decoded image not smaller than
+   * the image fitted to the display.
+   */
+  static int calculateInSampleSize(int width, int height, int displayWidth, int displayHeight) {
+    final float fitScale = Math.min((float) displayWidth / width, (float) displayHeight / height);
+    int inSampleSize = 1;
+    while (inSampleSize * 2 * fitScale <= 1) {
+      inSampleSize *= 2;
+    }
+    return inSampleSize;
+  }
+
+  /**
+   * Scales the bitmap down to fit the display, if it is bigger.
+   */
+  private Bitmap scaleToFit(Bitmap bitmap) {
+    final float fitScale = Math.min((float) displayWidth / bitmap.getWidth(),
+        (float) displayHeight / bitmap.getHeight());
+    if (fitScale >= 1) {
+      return bitmap;
+    }
+    final Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+        Math.max(1, Math.round(bitmap.getWidth() * fitScale)),
+        Math.max(1, Math.round(bitmap.getHeight() * fitScale)), true);
+    if (scaled != bitmap) {
+      bitmap.recycle();
+    }
+    return scaled;
+  }
+
+  private static int clamp(int value, int max) {
+    return Math.max(0, Math.min(max, value));
+  }
+
+  private static String getKey(String path, long dateModified) {
+    return path + "_" + dateModified;
+  }
+}
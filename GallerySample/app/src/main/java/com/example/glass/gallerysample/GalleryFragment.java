@@ -16,9 +16,13 @@
 
 package com.example.glass.gallerysample;
 
+import static android.app.Activity.RESULT_OK;
+
 import android.content.Context;
+import android.content.Intent;
 import android.database.ContentObserver;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.HandlerThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -26,13 +30,25 @@ import android.support.v4.app.Fragment;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+import com.example.glass.gallerysample.GalleryItemsDeleter.OnDeleteProgressListener;
+import com.example.glass.gallerysample.GalleryItemsProvider.OnTimelineDatesListener;
+import com.example.glass.gallerysample.GalleryItemsProvider.PageRequest;
+import com.example.glass.gallerysample.GalleryUpdateBatcher.UpdateListener;
+import com.example.glass.gallerysample.GalleryViewHelper.OnCurrentItemChangedListener;
+import com.example.glass.gallerysample.MediaStoreObserver.OnMediaStoreChangedListener;
 import com.example.glass.gallerysample.databinding.GalleryLayoutBinding;
+import com.example.glass.gallerysample.menu.MenuActivity;
 import com.example.glass.ui.GlassGestureDetector.Gesture;
 import com.example.glass.ui.GlassGestureDetector.OnGestureListener;
+import java.util.List;
 
 /**
  * Shows horizontal scrolling list of the stored photos and videos or information about the empty
- * gallery.
+ * gallery. Items selected with the tap and hold gesture can be deleted together, and swiping down
+ * while they are being deleted cancels the rest of the deletion. Two finger swipes jump to the
+ * previous and the next day found in the {@link GalleryTimeline}.
  */
 public class GalleryFragment extends Fragment implements OnGestureListener, GalleryItemsListener {
 
@@ -41,11 +57,43 @@ public class GalleryFragment extends Fragment implements OnGestureListener, Gall
    */
   private static final String BACKGROUND_HANDLER_THREAD_NAME = "gallery_background_thread";
 
+  /**
+   * Request code for starting the {@link MenuActivity} for the selected items.
+   */
+  private static final int SELECTION_MENU_REQUEST_CODE = 206;
+
   /**
    * Gallery model containing all available {@link GalleryItem}s.
    */
   private final GalleryModel galleryModel = new GalleryModel();
 
+  /**
+   * Dates added of all of the gallery items, not only the ones in the model window.
+   */
+  private final GalleryTimeline galleryTimeline = new GalleryTimeline();
+
+  /**
+   * Updates the {@link GalleryTimeline} with the loaded dates on the background thread.
+   */
+  private final OnTimelineDatesListener onTimelineDatesListener = new OnTimelineDatesListener() {
+    @Override
+    public void onTimelineDatesFound(long afterId, long[] dates, long maxId) {
+      if (afterId == 0) {
+        galleryTimeline.setDates(dates);
+      } else {
+        for (long date : dates) {
+          galleryTimeline.add(date);
+        }
+      }
+      timelineMaxId = maxId;
+    }
+
+    @Override
+    public int getKnownItemCount() {
+      return galleryTimeline.size();
+    }
+  };
+
   /**
    * Background handler thread for the {@link ContentObserver}.
    */
@@ -53,8 +101,25 @@ public class GalleryFragment extends Fragment implements OnGestureListener, Gall
 
   private GalleryViewHelper galleryViewHelper;
   private GalleryItemsProvider galleryItemsProvider;
+  private ThumbnailLoader thumbnailLoader;
+  private GalleryUpdateBatcher galleryUpdateBatcher;
+  private GalleryPager galleryPager;
+  private GalleryItemsDeleter galleryItemsDeleter;
+  private TextView deleteProgressTextView;
+  private MediaStoreObserver mediaStoreObserver;
   private OnGalleryItemSelectedListener onGalleryItemSelectedListener;
 
+  /**
+   * Position of the item reached by the navigation in the {@link GalleryItemFragment}, which is
+   * scrolled to when the gallery view is restored, or -1 if there was no navigation.
+   */
+  private int navigatedPosition = -1;
+
+  /**
+   * Greatest id of the items in the {@link GalleryTimeline}. Accessed on the background thread.
+   */
+  private long timelineMaxId;
+
   @Nullable
   @Override
   public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -68,16 +133,66 @@ public class GalleryFragment extends Fragment implements OnGestureListener, Gall
   @Override
   public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
     super.onViewCreated(view, savedInstanceState);
-    galleryViewHelper = new GalleryViewHelper(view, galleryModel.getItems());
+    deleteProgressTextView = view.findViewById(R.id.deleteProgressTextView);
+    galleryViewHelper = new GalleryViewHelper(view, galleryModel.getItems(), thumbnailLoader);
+    galleryViewHelper.setOnCurrentItemChangedListener(new OnCurrentItemChangedListener() {
+      @Override
+      public void onCurrentItemChanged(int position) {
+        galleryPager.onPositionChanged(position);
+      }
+    });
+  }
+
+  @Override
+  public void onViewStateRestored(@Nullable Bundle savedInstanceState) {
+    super.onViewStateRestored(savedInstanceState);
+    if (navigatedPosition >= 0) {
+      galleryViewHelper.scrollToPosition(navigatedPosition);
+      navigatedPosition = -1;
+    }
   }
 
   @Override
   public void onAttach(Context context) {
     super.onAttach(context);
     handlerThread.start();
-    galleryModel.clearItems();
+    thumbnailLoader = new ThumbnailLoader(context);
+    galleryUpdateBatcher = new GalleryUpdateBatcher(galleryModel, new UpdateListener() {
+      @Override
+      public void onItemRangeInserted(int positionStart, int itemCount) {
+        if (galleryViewHelper != null) {
+          galleryViewHelper.notifyItemRangeInserted(positionStart, itemCount);
+        }
+      }
+
+      @Override
+      public void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (galleryViewHelper != null) {
+          galleryViewHelper.notifyItemRangeRemoved(positionStart, itemCount);
+        }
+      }
+
+      @Override
+      public void onItemRangeChanged(int positionStart, int itemCount) {
+        if (galleryViewHelper != null) {
+          galleryViewHelper.notifyItemRangeChanged(positionStart, itemCount);
+        }
+      }
+    });
     galleryItemsProvider = new GalleryItemsProvider(context, handlerThread, this);
-    galleryItemsProvider.loadGalleryItems();
+    galleryPager = new GalleryPager(galleryItemsProvider, galleryUpdateBatcher);
+    galleryPager.loadFirstPage();
+    galleryItemsProvider.loadTimelineDates(0, onTimelineDatesListener);
+    galleryItemsDeleter = new GalleryItemsDeleter(context, GalleryItemsDeleter.DEFAULT_BATCH_SIZE);
+    mediaStoreObserver = new MediaStoreObserver(new Handler(handlerThread.getLooper()),
+        new OnMediaStoreChangedListener() {
+          @Override
+          public void onMediaStoreChanged() {
+            galleryPager.syncChanges();
+            galleryItemsProvider.loadTimelineDates(timelineMaxId, onTimelineDatesListener);
+          }
+        });
+    mediaStoreObserver.register(context);
   }
 
   @Override
@@ -88,7 +203,11 @@ public class GalleryFragment extends Fragment implements OnGestureListener, Gall
 
   @Override
   public void onDetach() {
+    mediaStoreObserver.unregister(requireContext());
     super.onDetach();
+    galleryUpdateBatcher.cancelPendingUpdates();
+    thumbnailLoader.release();
+    galleryItemsDeleter.release();
     handlerThread.quit();
   }
 
@@ -96,14 +215,36 @@ public class GalleryFragment extends Fragment implements OnGestureListener, Gall
   public boolean onGesture(Gesture glassGesture) {
     switch (glassGesture) {
       case TAP:
-        if (galleryModel.isGalleryEmpty()) {
+        if (galleryViewHelper.hasSelection()) {
+          final Intent intent = new Intent(getContext(), MenuActivity.class);
+          intent.putExtra(MenuActivity.EXTRA_MENU_KEY, R.menu.selection_menu);
+          startActivityForResult(intent, SELECTION_MENU_REQUEST_CODE);
+          return true;
+        }
+        final GallerySnapshot snapshot = galleryModel.getSnapshot();
+        final int currentGalleryItemIndex = galleryViewHelper.getCurrentGalleryItemIndex();
+        if (currentGalleryItemIndex >= snapshot.size()) {
           return false;
         }
-        final GalleryItem currentGalleryItem = galleryModel.getItems()
-            .get(galleryViewHelper.getCurrentGalleryItemIndex());
+        final GalleryItem currentGalleryItem = snapshot.get(currentGalleryItemIndex);
         onGalleryItemSelectedListener.onGalleryItemSelected(currentGalleryItem);
         return true;
+      case TWO_FINGER_SWIPE_FORWARD:
+        return jumpToDay(true);
+      case TWO_FINGER_SWIPE_BACKWARD:
+        return jumpToDay(false);
+      case TAP_AND_HOLD:
+        galleryViewHelper.toggleCurrentItemSelection();
+        return true;
       case SWIPE_DOWN:
+        if (galleryViewHelper.hasSelection()) {
+          galleryViewHelper.clearSelection();
+          return true;
+        }
+        if (deleteProgressTextView.getVisibility() == View.VISIBLE) {
+          galleryItemsDeleter.cancel();
+          return true;
+        }
         requireActivity().finish();
         return true;
       default:
@@ -112,19 +253,42 @@ public class GalleryFragment extends Fragment implements OnGestureListener, Gall
   }
 
   @Override
-  public void onItemFound(GalleryItem galleryItem) {
-    galleryModel.addItem(galleryItem);
-    notifyDataSetChanged();
+  public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+    super.onActivityResult(requestCode, resultCode, data);
+    if (requestCode == SELECTION_MENU_REQUEST_CODE && resultCode == RESULT_OK && data != null
+        && data.getIntExtra(MenuActivity.EXTRA_MENU_ITEM_ID_KEY,
+        MenuActivity.EXTRA_MENU_ITEM_DEFAULT_VALUE) == R.id.delete) {
+      final List<GalleryItem> selectedItems = galleryViewHelper.getSelectedItems();
+      galleryViewHelper.clearSelection();
+      deleteGalleryItems(selectedItems);
+    }
+  }
+
+  @Override
+  public void onItemsFound(PageRequest pageRequest, List<GalleryItem> galleryItems) {
+    galleryPager.onPageLoaded(pageRequest, galleryItems);
   }
 
   @Override
-  public void onEmptyList() {
-    galleryModel.clearItems();
-    if (galleryViewHelper != null) {
-      notifyDataSetChanged();
+  public void onItemsChanged(List<GalleryItem> addedItems, List<GalleryItem> changedItems,
+      List<GalleryItem> deletedItems) {
+    galleryPager.onItemsChanged(addedItems, changedItems, deletedItems);
+    for (GalleryItem deletedItem : deletedItems) {
+      galleryTimeline.remove(deletedItem.getDateAdded());
     }
   }
 
+  @Override
+  public void onEmptyList() {
+    galleryPager.onEmptyList();
+    galleryUpdateBatcher.clearItems();
+  }
+
+  @Override
+  public void onPageLoadFailed(PageRequest pageRequest) {
+    galleryPager.onPageLoadFailed(pageRequest);
+  }
+
   /**
    * Sets the {@link OnGalleryItemSelectedListener} listener for this fragment.
    */
@@ -133,22 +297,98 @@ public class GalleryFragment extends Fragment implements OnGestureListener, Gall
   }
 
   /**
-   * Removes deleted GalleryItem object from the model and notifies view helper about this.
+   * Removes the given {@link GalleryItem}s from the model and the timeline at once and deletes them
+   * from the media store in the background. Items which couldn't be deleted are put back. The
+   * timeline is updated before the media store, so the sync triggered by the deletion finds the
+   * timeline up to date.
    */
-  public void onGalleryItemDeleted(GalleryItem galleryItem) {
-    galleryModel.getItems().remove(galleryItem);
-    notifyDataSetChanged();
-  }
+  public void deleteGalleryItems(List<GalleryItem> galleryItems) {
+    if (galleryItems.isEmpty()) {
+      return;
+    }
+    for (GalleryItem galleryItem : galleryItems) {
+      galleryPager.onItemDeleted(galleryItem);
+      galleryTimeline.remove(galleryItem.getDateAdded());
+    }
+    galleryItemsDeleter.delete(galleryItems, new OnDeleteProgressListener() {
+      @Override
+      public void onDeleteProgress(int deletedCount, int processedCount, int totalCount) {
+        if (isAdded() && deleteProgressTextView != null && totalCount > 1) {
+          deleteProgressTextView.setVisibility(View.VISIBLE);
+          deleteProgressTextView
+              .setText(getString(R.string.delete_progress, deletedCount, totalCount));
+        }
+      }
 
-  private void notifyDataSetChanged() {
-    if (isAdded()) {
-      requireActivity().runOnUiThread((new Runnable() {
-        @Override
-        public void run() {
-          galleryViewHelper.notifyDataSetChanged();
+      @Override
+      public void onDeleteFinished(List<GalleryItem> deletedItems,
+          List<GalleryItem> failedItems) {
+        if (deleteProgressTextView != null) {
+          deleteProgressTextView.setVisibility(View.GONE);
+        }
+        for (GalleryItem failedItem : failedItems) {
+          galleryTimeline.add(failedItem.getDateAdded());
+        }
+        if (failedItems.isEmpty() || !isAdded()) {
+          return;
         }
-      }));
+        galleryPager.onItemsRestored(failedItems);
+        Toast.makeText(requireContext(), getString(R.string.delete_failed, failedItems.size()),
+            Toast.LENGTH_SHORT).show();
+      }
+    });
+  }
+
+  /**
+   * Returns the item at the given offset from the given one in the currently published snapshot,
+   * or null if there is no such item.
+   */
+  @Nullable
+  public GalleryItem getAdjacentGalleryItem(GalleryItem galleryItem, int offset) {
+    final GallerySnapshot snapshot = galleryModel.getSnapshot();
+    final int index = snapshot.indexOf(galleryItem);
+    if (index < 0) {
+      return null;
+    }
+    final int adjacentIndex = index + offset;
+    if (adjacentIndex < 0 || adjacentIndex >= snapshot.size()) {
+      return null;
+    }
+    return snapshot.get(adjacentIndex);
+  }
+
+  /**
+   * Remembers the position of the item shown on the full screen, so the gallery is scrolled to it
+   * when restored. Loads more pages when the item gets close to the end of the loaded ones.
+   */
+  public void onGalleryItemShown(GalleryItem galleryItem) {
+    final int index = galleryModel.getSnapshot().indexOf(galleryItem);
+    if (index < 0) {
+      return;
+    }
+    navigatedPosition = index;
+    galleryPager.onPositionChanged(index);
+  }
+
+  /**
+   * Shows the newest item of the closest older day, or the closest newer day, with any items.
+   * Returns false if there is no such day.
+   */
+  private boolean jumpToDay(boolean older) {
+    final GallerySnapshot snapshot = galleryModel.getSnapshot();
+    final int currentGalleryItemIndex = galleryViewHelper.getCurrentGalleryItemIndex();
+    if (currentGalleryItemIndex >= snapshot.size()) {
+      return false;
+    }
+    final long currentDate = snapshot.get(currentGalleryItemIndex).getDateAdded();
+    final long targetDate = older ? galleryTimeline.findPreviousDay(currentDate)
+        : galleryTimeline.findNextDay(currentDate);
+    if (targetDate < 0) {
+      return false;
     }
+    galleryPager.jumpTo(GalleryTimeline.getNextDayStart(targetDate));
+    galleryViewHelper.scrollToPosition(0);
+    return true;
   }
 
   /**
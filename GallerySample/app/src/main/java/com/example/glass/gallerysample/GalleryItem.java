@@ -16,10 +16,9 @@
 
 package com.example.glass.gallerysample;
 
-import android.graphics.drawable.Drawable;
-
 /**
- * Model for the Gallery item.
+ * Model for the Gallery item. Holds only the metadata, thumbnails are loaded on demand by the
+ * {@link ThumbnailLoader}.
  */
 public class GalleryItem {
 
@@ -37,20 +36,49 @@ public class GalleryItem {
     }
   }
 
+  private long id;
+  private long dateAdded;
+  private long dateModified;
   private String name;
   private String path;
   private Type type;
-  private Drawable bitmap;
 
   /**
-   * Creates {@link GalleryItem} object from the {@link String} name, {@link String} path, {@link
-   * Type} type and {@link Drawable} bitmap.
+   * Creates {@link GalleryItem} object from the media store id, date added, date modified,
+   * {@link String} name, {@link String} path and {@link Type} type.
    */
-  public GalleryItem(String name, String path, Type type, Drawable bitmap) {
+  public GalleryItem(long id, long dateAdded, long dateModified, String name, String path,
+      Type type) {
+    this.id = id;
+    this.dateAdded = dateAdded;
+    this.dateModified = dateModified;
     this.name = name;
     this.path = path;
     this.type = type;
-    this.bitmap = bitmap;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public long getDateAdded() {
+    return dateAdded;
+  }
+
+  public void setDateAdded(long dateAdded) {
+    this.dateAdded = dateAdded;
+  }
+
+  public long getDateModified() {
+    return dateModified;
+  }
+
+  public void setDateModified(long dateModified) {
+    this.dateModified = dateModified;
   }
 
   public String getName() {
@@ -76,12 +104,4 @@ public class GalleryItem {
   public void setType(Type type) {
     this.type = type;
   }
-
-  public Drawable getBitmap() {
-    return bitmap;
-  }
-
-  public void setBitmap(Drawable bitmap) {
-    this.bitmap = bitmap;
-  }
 }
@@ -19,26 +19,32 @@ package com.example.glass.gallerysample;
 import static android.app.Activity.RESULT_OK;
 
 import android.content.Intent;
-import android.graphics.drawable.Drawable;
-import android.media.MediaPlayer;
-import android.media.MediaPlayer.OnCompletionListener;
-import android.net.Uri;
+import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.view.LayoutInflater;
+import android.view.TextureView;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
-import android.widget.VideoView;
+import com.example.glass.gallerysample.BitmapRequest.OnBitmapLoadedListener;
+import com.example.glass.gallerysample.VideoPlaybackEngine.PlaybackListener;
 import com.example.glass.gallerysample.menu.MenuActivity;
 import com.example.glass.ui.GlassGestureDetector.Gesture;
 import com.example.glass.ui.GlassGestureDetector.OnGestureListener;
-import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Displays selected gallery item on the full screen.
+ * Displays selected gallery item on the full screen. Images are decoded asynchronously by the
+ * {@link DisplayImageLoader} and can be zoomed in with the two finger swipes forward and backward.
+ * Zoomed in images are panned with the swipes forward and backward and the two finger swipes up and
+ * down. Otherwise swiping forward and backward shows the next and previous items in place, while
+ * the {@link GalleryItemPrefetcher} prepares their neighbours. Videos are played by the {@link
+ * VideoPlaybackEngine}, which is kept for all of the videos shown by this fragment.
  */
 public class GalleryItemFragment extends Fragment implements OnGestureListener {
 
@@ -47,16 +53,40 @@ public class GalleryItemFragment extends Fragment implements OnGestureListener {
    */
   public static final int MENU_REQUEST_CODE = 205;
 
+  /**
+   * Number of the items on each side of the shown item, which are prefetched.
+   */
+  private static final int PREFETCH_DISTANCE = 1;
+
+  private static final String ID_KEY = "id";
+  private static final String DATE_ADDED_KEY = "date_added";
   private static final String NAME_KEY = "name";
   private static final String PATH_KEY = "path";
   private static final String TYPE_KEY = "type";
+  private static final String DATE_MODIFIED_KEY = "date_modified";
+  private static final float MAX_ZOOM = 8;
+  private static final float ZOOM_STEP = 2;
 
+  /**
+   * Part of the visible region, by which the zoomed in image is moved with a single swipe.
+   */
+  private static final float PAN_STEP = 0.5f;
+
+  private FrameLayout containerLayout;
+  private View pictureLayout;
+  private View videoLayout;
   private ImageView imageView;
   private ImageView playButtonVideoImageView;
-  private VideoView videoView;
-  private String filePath;
-  private GalleryItem.Type galleryItemType;
+  private ImageView videoPosterImageView;
+  private VideoPlaybackEngine videoPlaybackEngine;
+  private float zoom = 1;
+  private float centerX = 0.5f;
+  private float centerY = 0.5f;
+  private BitmapRequest imageRequest;
+  private GalleryItem galleryItem;
+  private GalleryItemPrefetcher galleryItemPrefetcher;
   private OnGalleryItemDeletedListener onGalleryItemDeletedListener;
+  private OnGalleryItemNavigationListener onGalleryItemNavigationListener;
 
   /**
    * Creates new instance of the {@link GalleryItemFragment}, passing selected {@link GalleryItem}
@@ -64,64 +94,61 @@ public class GalleryItemFragment extends Fragment implements OnGestureListener {
    */
   public static GalleryItemFragment newInstance(GalleryItem galleryItem) {
     final GalleryItemFragment galleryItemFragment = new GalleryItemFragment();
-    galleryItemFragment.setArguments(GalleryItemFragment
-        .createArguments(galleryItem.getName(), galleryItem.getPath(),
-            galleryItem.getType().ordinal()));
+    galleryItemFragment.setArguments(GalleryItemFragment.createArguments(galleryItem));
     return galleryItemFragment;
   }
 
   /**
-   * Returns {@link Bundle} with passed item name, path and type.
+   * Returns {@link Bundle} with all properties of the passed {@link GalleryItem}.
    */
-  private static Bundle createArguments(String name, String path, int type) {
+  private static Bundle createArguments(GalleryItem galleryItem) {
     final Bundle bundle = new Bundle();
-    bundle.putString(NAME_KEY, name);
-    bundle.putString(PATH_KEY, path);
-    bundle.putInt(TYPE_KEY, type);
+    bundle.putLong(ID_KEY, galleryItem.getId());
+    bundle.putLong(DATE_ADDED_KEY, galleryItem.getDateAdded());
+    bundle.putLong(DATE_MODIFIED_KEY, galleryItem.getDateModified());
+    bundle.putString(NAME_KEY, galleryItem.getName());
+    bundle.putString(PATH_KEY, galleryItem.getPath());
+    bundle.putInt(TYPE_KEY, galleryItem.getType().ordinal());
     return bundle;
   }
 
   @Override
   public void onCreate(@Nullable Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
-    galleryItemType = GalleryItem.Type.fromId(getArguments().getInt(TYPE_KEY));
+    final Bundle arguments = getArguments();
+    galleryItem = new GalleryItem(arguments.getLong(ID_KEY), arguments.getLong(DATE_ADDED_KEY),
+        arguments.getLong(DATE_MODIFIED_KEY), arguments.getString(NAME_KEY),
+        arguments.getString(PATH_KEY), GalleryItem.Type.fromId(arguments.getInt(TYPE_KEY)));
+    galleryItemPrefetcher = new GalleryItemPrefetcher(requireContext(),
+        GalleryItemPrefetcher.DEFAULT_BUDGET_BYTES);
   }
 
   @Nullable
   @Override
   public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
       @Nullable Bundle savedInstanceState) {
-    switch (galleryItemType) {
-      case VIDEO:
-        return inflater.inflate(R.layout.gallery_item_video, container, false);
-      default:
-        return inflater.inflate(R.layout.gallery_item_picture, container, false);
-    }
+    containerLayout = new FrameLayout(inflater.getContext());
+    return containerLayout;
   }
 
   @Override
   public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
     super.onViewCreated(view, savedInstanceState);
-    switch (galleryItemType) {
-      case VIDEO:
-        playButtonVideoImageView = view.findViewById(R.id.playButtonVideoImageView);
-        filePath = getArguments().getString(PATH_KEY);
-        videoView = view.findViewById(R.id.videoView);
-        videoView.setVideoURI(Uri.fromFile(new File(filePath)));
-        videoView.start();
-        videoView.setOnCompletionListener(new OnCompletionListener() {
-          @Override
-          public void onCompletion(MediaPlayer mp) {
-            playButtonVideoImageView.setVisibility(View.VISIBLE);
-          }
-        });
-        break;
-      default:
-        imageView = view.findViewById(R.id.galleryItemImageView);
-        filePath = getArguments().getString(PATH_KEY);
-        final Drawable drawable = Drawable.createFromPath(filePath);
-        imageView.setImageDrawable(drawable);
+    showGalleryItem();
+  }
+
+  @Override
+  public void onDestroyView() {
+    super.onDestroyView();
+    cancelImageRequest();
+    DisplayImageLoader.getInstance(requireContext()).release();
+    galleryItemPrefetcher.cancel();
+    if (videoPlaybackEngine != null) {
+      videoPlaybackEngine.release();
+      videoPlaybackEngine = null;
     }
+    pictureLayout = null;
+    videoLayout = null;
   }
 
   @Override
@@ -130,11 +157,20 @@ public class GalleryItemFragment extends Fragment implements OnGestureListener {
     ((BaseActivity) requireActivity()).setOnGestureListener(this);
   }
 
+  @Override
+  public void onPause() {
+    super.onPause();
+    if (videoPlaybackEngine != null && galleryItem.getType() == GalleryItem.Type.VIDEO) {
+      videoPlaybackEngine.stop();
+      playButtonVideoImageView.setVisibility(View.VISIBLE);
+    }
+  }
+
   @Override
   public boolean onGesture(Gesture glassGesture) {
     switch (glassGesture) {
       case TAP:
-        switch (GalleryItem.Type.fromId(getArguments().getInt(TYPE_KEY))) {
+        switch (galleryItem.getType()) {
           case IMAGE:
             startActivityForResult(getMenuIntent(R.menu.photo_menu), MENU_REQUEST_CODE);
             break;
@@ -145,6 +181,18 @@ public class GalleryItemFragment extends Fragment implements OnGestureListener {
       case SWIPE_DOWN:
         ((BaseActivity) requireActivity()).popBackStack();
         return true;
+      case SWIPE_FORWARD:
+        return zoom > 1 ? pan(1, 0) : navigate(1);
+      case SWIPE_BACKWARD:
+        return zoom > 1 ? pan(-1, 0) : navigate(-1);
+      case TWO_FINGER_SWIPE_FORWARD:
+        return setZoom(zoom * ZOOM_STEP);
+      case TWO_FINGER_SWIPE_BACKWARD:
+        return setZoom(zoom / ZOOM_STEP);
+      case TWO_FINGER_SWIPE_UP:
+        return pan(0, -1);
+      case TWO_FINGER_SWIPE_DOWN:
+        return pan(0, 1);
       default:
         return false;
     }
@@ -159,11 +207,10 @@ public class GalleryItemFragment extends Fragment implements OnGestureListener {
       switch (id) {
         case R.id.play_video:
           playButtonVideoImageView.setVisibility(View.GONE);
-          videoView.start();
+          videoPlaybackEngine.replay();
           break;
         case R.id.delete:
-          GalleryItemsProvider.deleteGalleryItem(getContext(), filePath);
-          onGalleryItemDeletedListener.onGalleryItemDeleted(filePath);
+          onGalleryItemDeletedListener.onGalleryItemDeleted(galleryItem);
           break;
       }
     }
@@ -176,6 +223,229 @@ public class GalleryItemFragment extends Fragment implements OnGestureListener {
     this.onGalleryItemDeletedListener = listener;
   }
 
+  /**
+   * Sets the {@link OnGalleryItemNavigationListener} listener for this fragment.
+   */
+  public void setOnGalleryItemNavigationListener(OnGalleryItemNavigationListener listener) {
+    this.onGalleryItemNavigationListener = listener;
+  }
+
+  /**
+   * Replaces the shown item with the one at the given offset from it, if there is any.
+   */
+  private boolean navigate(int offset) {
+    if (onGalleryItemNavigationListener == null) {
+      return false;
+    }
+    final GalleryItem adjacentGalleryItem = onGalleryItemNavigationListener
+        .getAdjacentGalleryItem(galleryItem, offset);
+    if (adjacentGalleryItem == null) {
+      return false;
+    }
+    if (videoPlaybackEngine != null) {
+      videoPlaybackEngine.stop();
+    }
+    cancelImageRequest();
+    galleryItem = adjacentGalleryItem;
+    getArguments().putAll(createArguments(galleryItem));
+    zoom = 1;
+    centerX = 0.5f;
+    centerY = 0.5f;
+    showGalleryItem();
+    onGalleryItemNavigationListener.onGalleryItemShown(galleryItem);
+    return true;
+  }
+
+  /**
+   * Shows the layout for the type of the current item, shows the item and prefetches its
+   * neighbours. Layouts are inflated once and kept for the following items.
+   */
+  private void showGalleryItem() {
+    switch (galleryItem.getType()) {
+      case VIDEO:
+        showLayout(getVideoLayout(), pictureLayout);
+        showVideo();
+        break;
+      default:
+        showLayout(getPictureLayout(), videoLayout);
+        showImage();
+    }
+    prefetchNeighbours();
+  }
+
+  private void showLayout(View shownLayout, @Nullable View hiddenLayout) {
+    shownLayout.setVisibility(View.VISIBLE);
+    if (hiddenLayout != null) {
+      hiddenLayout.setVisibility(View.GONE);
+    }
+  }
+
+  private View getPictureLayout() {
+    if (pictureLayout == null) {
+      pictureLayout = LayoutInflater.from(containerLayout.getContext())
+          .inflate(R.layout.gallery_item_picture, containerLayout, false);
+      containerLayout.addView(pictureLayout);
+      imageView = pictureLayout.findViewById(R.id.galleryItemImageView);
+    }
+    return pictureLayout;
+  }
+
+  /**
+   * Returns the video layout, inflating it and creating the {@link VideoPlaybackEngine} for it
+   * when called for the first time.
+   */
+  private View getVideoLayout() {
+    if (videoLayout == null) {
+      videoLayout = LayoutInflater.from(containerLayout.getContext())
+          .inflate(R.layout.gallery_item_video, containerLayout, false);
+      videoLayout.setVisibility(View.GONE);
+      containerLayout.addView(videoLayout);
+      playButtonVideoImageView = videoLayout.findViewById(R.id.playButtonVideoImageView);
+      videoPosterImageView = videoLayout.findViewById(R.id.videoPosterImageView);
+      final TextureView videoTextureView = videoLayout.findViewById(R.id.videoTextureView);
+      videoPlaybackEngine = new VideoPlaybackEngine(videoTextureView, new PlaybackListener() {
+        @Override
+        public void onPlaybackStarted(long startupLatencyMs) {
+          videoPosterImageView.setVisibility(View.GONE);
+        }
+
+        @Override
+        public void onPlaybackCompleted() {
+          playButtonVideoImageView.setVisibility(View.VISIBLE);
+        }
+      });
+    }
+    return videoLayout;
+  }
+
+  /**
+   * Shows the first frame of the video until the playback renders its own, and starts the
+   * playback.
+   */
+  private void showVideo() {
+    playButtonVideoImageView.setVisibility(View.GONE);
+    videoPosterImageView.setImageDrawable(null);
+    videoPosterImageView.setVisibility(View.VISIBLE);
+    showBitmap(videoPosterImageView);
+    videoPlaybackEngine.play(galleryItem.getPath());
+  }
+
+  private boolean setZoom(float newZoom) {
+    if (galleryItem.getType() != GalleryItem.Type.IMAGE) {
+      return false;
+    }
+    newZoom = Math.max(1, Math.min(MAX_ZOOM, newZoom));
+    if (newZoom == zoom) {
+      return false;
+    }
+    zoom = newZoom;
+    centerX = clampCenter(centerX);
+    centerY = clampCenter(centerY);
+    showImage();
+    return true;
+  }
+
+  /**
+   * Moves the visible region of the zoomed in image by the {@link #PAN_STEP} in the given
+   * directions. Returns false if the image is not zoomed in or the region is already at the edge.
+   */
+  private boolean pan(int directionX, int directionY) {
+    if (galleryItem.getType() != GalleryItem.Type.IMAGE || zoom <= 1) {
+      return false;
+    }
+    final float newCenterX = clampCenter(centerX + directionX * PAN_STEP / zoom);
+    final float newCenterY = clampCenter(centerY + directionY * PAN_STEP / zoom);
+    if (newCenterX == centerX && newCenterY == centerY) {
+      return false;
+    }
+    centerX = newCenterX;
+    centerY = newCenterY;
+    showImage();
+    return true;
+  }
+
+  /**
+   * Returns the given center of the visible region, moved so that the region at the current zoom
+   * stays inside the image.
+   */
+  private float clampCenter(float center) {
+    final float halfRegion = 0.5f / zoom;
+    return Math.max(halfRegion, Math.min(1 - halfRegion, center));
+  }
+
+  /**
+   * Shows the whole image from the cache if possible, or decodes the image or its zoomed in region
+   * asynchronously.
+   */
+  private void showImage() {
+    cancelImageRequest();
+    if (zoom > 1) {
+      imageRequest = DisplayImageLoader.getInstance(requireContext())
+          .loadZoomedImage(galleryItem.getPath(), zoom, centerX, centerY,
+              getImageLoadedListener(imageView));
+      return;
+    }
+    showBitmap(imageView);
+  }
+
+  /**
+   * Shows the display sized bitmap of the current item from the cache if possible, or decodes it
+   * asynchronously.
+   */
+  private void showBitmap(ImageView targetImageView) {
+    final DisplayImageLoader displayImageLoader = DisplayImageLoader.getInstance(requireContext());
+    final Bitmap cachedImage = displayImageLoader
+        .getCachedImage(galleryItem.getPath(), galleryItem.getDateModified());
+    if (cachedImage != null) {
+      targetImageView.setImageBitmap(cachedImage);
+    } else {
+      imageRequest = displayImageLoader.loadImage(galleryItem.getType(), galleryItem.getPath(),
+          galleryItem.getDateModified(), getImageLoadedListener(targetImageView));
+    }
+  }
+
+  private OnBitmapLoadedListener getImageLoadedListener(final ImageView targetImageView) {
+    return new OnBitmapLoadedListener() {
+      @Override
+      public void onBitmapLoaded(Bitmap bitmap) {
+        imageRequest = null;
+        targetImageView.setImageBitmap(bitmap);
+      }
+    };
+  }
+
+  /**
+   * Prefetches the items closest to the current one, starting with the next and previous ones.
+   */
+  private void prefetchNeighbours() {
+    if (onGalleryItemNavigationListener == null) {
+      return;
+    }
+    final List<GalleryItem> neighbours = new ArrayList<>();
+    for (int distance = 1; distance <= PREFETCH_DISTANCE; distance++) {
+      for (int offset : new int[]{distance, -distance}) {
+        final GalleryItem neighbour = onGalleryItemNavigationListener
+            .getAdjacentGalleryItem(galleryItem, offset);
+        if (neighbour == null) {
+          continue;
+        }
+        neighbours.add(neighbour);
+        if (offset == 1 && neighbour.getType() == GalleryItem.Type.VIDEO) {
+          getVideoLayout();
+          videoPlaybackEngine.prepareNext(neighbour.getPath());
+        }
+      }
+    }
+    galleryItemPrefetcher.prefetch(neighbours);
+  }
+
+  private void cancelImageRequest() {
+    if (imageRequest != null) {
+      imageRequest.cancel();
+      imageRequest = null;
+    }
+  }
+
   private Intent getMenuIntent(int menu) {
     final Intent intent = new Intent(getContext(), MenuActivity.class);
     intent.putExtra(MenuActivity.EXTRA_MENU_KEY, menu);
@@ -187,6 +457,24 @@ public class GalleryItemFragment extends Fragment implements OnGestureListener {
    */
   interface OnGalleryItemDeletedListener {
 
-    void onGalleryItemDeleted(String filePath);
+    void onGalleryItemDeleted(GalleryItem galleryItem);
+  }
+
+  /**
+   * Interface to ask parent for the items next to the shown {@link GalleryItem}.
+   */
+  interface OnGalleryItemNavigationListener {
+
+    /**
+     * Returns the item at the given offset from the given one in the gallery, or null if there is
+     * no such item.
+     */
+    @Nullable
+    GalleryItem getAdjacentGalleryItem(GalleryItem galleryItem, int offset);
+
+    /**
+     * Called when the given item has been shown by the navigation.
+     */
+    void onGalleryItemShown(GalleryItem galleryItem);
   }
 }
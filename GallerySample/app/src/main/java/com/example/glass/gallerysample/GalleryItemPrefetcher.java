@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.content.Context;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Prefetches the neighbours of the {@link GalleryItem} shown on the full screen, so next and
+ * previous navigation shows content without waiting for the decoder. Images are decoded and videos
+ * have their first frame extracted into the {@link DisplayImageLoader} cache. The number of the
+ * prefetched items is bounded by the memory budget.
+ */
+public class GalleryItemPrefetcher {
+
+  /**
+   * Default memory budget for the prefetched bitmaps.
+   */
+  public static final int DEFAULT_BUDGET_BYTES = 4 * 1024 * 1024;
+
+  private static final String TAG = GalleryItemPrefetcher.class.getSimpleName();
+
+  private final DisplayImageLoader displayImageLoader;
+  private final int maxItems;
+  private final List<Future<?>> prefetchFutures = new ArrayList<>();
+
+  /**
+   * Creates {@link GalleryItemPrefetcher} keeping at most as many prefetched bitmaps as fit in the
+   * given budget.
+   */
+  public GalleryItemPrefetcher(Context context, int budgetBytes) {
+    displayImageLoader = DisplayImageLoader.getInstance(context);
+    maxItems = budgetBytes / displayImageLoader.getDisplayBitmapByteCount();
+  }
+
+  /**
+   * Returns the maximum number of the items prefetched at once.
+   */
+  public int getMaxItems() {
+    return maxItems;
+  }
+
+  /**
+   * Cancels the previous prefetches and prefetches the given items, which are expected in the
+   * order of priority. Items over the memory budget are skipped.
+   */
+  public void prefetch(List<GalleryItem> galleryItems) {
+    cancel();
+    final int count = Math.min(maxItems, galleryItems.size());
+    for (int i = 0; i < count; i++) {
+      final GalleryItem galleryItem = galleryItems.get(i);
+      if (displayImageLoader.getCachedImage(galleryItem.getPath(), galleryItem.getDateModified())
+          != null) {
+        continue;
+      }
+      prefetchFutures.add(displayImageLoader.prefetchImage(galleryItem.getType(),
+          galleryItem.getPath(), galleryItem.getDateModified()));
+    }
+    Log.d(TAG, "Prefetching " + prefetchFutures.size() + " of " + galleryItems.size() + " items");
+  }
+
+  /**
+   * Cancels prefetches, which haven't finished yet.
+   */
+  public void cancel() {
+    for (Future<?> future : prefetchFutures) {
+      future.cancel(false);
+    }
+    prefetchFutures.clear();
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes {@link GalleryItem}s from the media store by their ids, in batches of
+ * {@link ContentProviderOperation}s applied on a background thread. Progress is reported on the
+ * main thread after each batch, together with the items which couldn't be deleted, so the caller
+ * can restore them. Deletions can be cancelled between the batches.
+ */
+public class GalleryItemsDeleter {
+
+  /**
+   * Default number of the items deleted with a single {@link ContentResolver#applyBatch} call.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 50;
+
+  private static final String TAG = GalleryItemsDeleter.class.getSimpleName();
+  private static final String VOLUME_NAME = "external";
+
+  private final ContentResolver contentResolver;
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final int batchSize;
+
+  /**
+   * Incremented by {@link #cancel()}. Deletions requested before the current value are cancelled.
+   */
+  private final AtomicInteger cancelGeneration = new AtomicInteger();
+
+  /**
+   * Creates {@link GalleryItemsDeleter} deleting the items in batches of the given size.
+   */
+  public GalleryItemsDeleter(Context context, int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.contentResolver = context.getContentResolver();
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Deletes the given items on the background thread. Deletions requested one after another are
+   * executed in order.
+   */
+  public void delete(List<GalleryItem> galleryItems, final OnDeleteProgressListener listener) {
+    final List<GalleryItem> items = new ArrayList<>(galleryItems);
+    final int generation = cancelGeneration.get();
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        deleteItems(items, generation, listener);
+      }
+    });
+  }
+
+  /**
+   * Cancels the deletions requested so far. The batch being deleted is completed, while the items
+   * which haven't been processed yet are reported as failed, so the caller restores them.
+   */
+  public void cancel() {
+    cancelGeneration.incrementAndGet();
+  }
+
+  /**
+   * Stops accepting new deletions. Deletions already requested are completed.
+   */
+  public void release() {
+    executorService.shutdown();
+  }
+
+  private void deleteItems(List<GalleryItem> galleryItems, int generation,
+      final OnDeleteProgressListener listener) {
+    final long startTime = SystemClock.elapsedRealtime();
+    final int totalCount = galleryItems.size();
+    final List<GalleryItem> deletedItems = new ArrayList<>(totalCount);
+    final List<GalleryItem> failedItems = new ArrayList<>();
+    for (int start = 0; start < totalCount; start += batchSize) {
+      if (cancelGeneration.get() != generation) {
+        Log.d(TAG, "Deletion cancelled after " + start + " of " + totalCount + " items");
+        failedItems.addAll(galleryItems.subList(start, totalCount));
+        break;
+      }
+      final List<GalleryItem> batch = galleryItems
+          .subList(start, Math.min(totalCount, start + batchSize));
+      deleteBatch(batch, deletedItems, failedItems);
+      final int processedCount = deletedItems.size() + failedItems.size();
+      final int deletedCount = deletedItems.size();
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          listener.onDeleteProgress(deletedCount, processedCount, totalCount);
+        }
+      });
+    }
+    Log.d(TAG, "Deleted " + deletedItems.size() + " of " + totalCount + " items in "
+        + (SystemClock.elapsedRealtime() - startTime) + " ms");
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        listener.onDeleteFinished(deletedItems, failedItems);
+      }
+    });
+  }
+
+  /**
+   * Deletes the given batch of the items, sorting them to the deleted and failed ones. The item is
+   * failed if its row hasn't been deleted, or the whole batch if it has thrown an exception.
+   */
+  private void deleteBatch(List<GalleryItem> batch, List<GalleryItem> deletedItems,
+      List<GalleryItem> failedItems) {
+    final Uri contentUri = MediaStore.Files.getContentUri(VOLUME_NAME);
+    final ArrayList<ContentProviderOperation> operations = new ArrayList<>(batch.size());
+    for (GalleryItem galleryItem : batch) {
+      operations.add(ContentProviderOperation
+          .newDelete(ContentUris.withAppendedId(contentUri, galleryItem.getId()))
+          .build());
+    }
+    try {
+      final ContentProviderResult[] results = contentResolver
+          .applyBatch(MediaStore.AUTHORITY, operations);
+      for (int i = 0; i < batch.size(); i++) {
+        final Integer count = i < results.length ? results[i].count : null;
+        if (count != null && count > 0) {
+          deletedItems.add(batch.get(i));
+        } else {
+          failedItems.add(batch.get(i));
+        }
+      }
+    } catch (RemoteException | OperationApplicationException | RuntimeException e) {
+      Log.e(TAG, "Deleting batch of " + batch.size() + " items failed", e);
+      failedItems.addAll(batch);
+    }
+  }
+
+  /**
+   * Listener notified on the main thread about the progress of the deletion.
+   */
+  public interface OnDeleteProgressListener {
+
+    /**
+     * Called after each batch with the number of the deleted items, the number of the items
+     * processed so far and the number of all of the items requested to delete.
+     */
+    void onDeleteProgress(int deletedCount, int processedCount, int totalCount);
+
+    /**
+     * Called once all of the items are processed, with the items which have been deleted and the
+     * ones which couldn't be deleted or were cancelled, and should be restored.
+     */
+    void onDeleteFinished(List<GalleryItem> deletedItems, List<GalleryItem> failedItems);
+  }
+}
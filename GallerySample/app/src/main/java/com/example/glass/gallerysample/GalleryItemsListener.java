@@ -16,12 +16,20 @@
 
 package com.example.glass.gallerysample;
 
+import com.example.glass.gallerysample.GalleryItemsProvider.PageRequest;
+import java.util.List;
+
 /**
  * Provides method to notify about the gallery items changes.
  */
 public interface GalleryItemsListener {
 
-  void onItemFound(GalleryItem galleryItem);
+  void onItemsFound(PageRequest pageRequest, List<GalleryItem> galleryItems);
+
+  void onItemsChanged(List<GalleryItem> addedItems, List<GalleryItem> changedItems,
+      List<GalleryItem> deletedItems);
 
   void onEmptyList();
+
+  void onPageLoadFailed(PageRequest pageRequest);
 }
@@ -16,40 +16,73 @@
 
 package com.example.glass.gallerysample;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.database.Cursor;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
-import android.media.MediaScannerConnection;
-import android.media.ThumbnailUtils;
-import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.provider.MediaStore;
 import android.provider.MediaStore.Files.FileColumns;
 import android.provider.MediaStore.Images.Media;
-import android.provider.MediaStore.Video.Thumbnails;
-import android.support.v4.content.CursorLoader;
+import android.support.annotation.Nullable;
 import android.util.Log;
+import android.util.LongSparseArray;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Provides {@link GalleryItem}s and calls methods from {@link GalleryItemsListener} depends on the
- * actual gallery items list state.
+ * actual gallery items list state. Items are loaded in pages requested by the {@link GalleryPager}
+ * and only their metadata is read, thumbnails are loaded on demand by the {@link ThumbnailLoader}.
+ * Pages are anchored at the item next to them rather than at an offset, so they stay contiguous
+ * while the media store changes.
  */
 public class GalleryItemsProvider {
 
   private static final String TAG = GalleryItemsProvider.class.getSimpleName();
   private static final String VOLUME_NAME = "external";
   private static final String SORT_ORDER = " DESC";
-  private static final int THUMBNAIL_WIDTH_PX = 400;
-  private static final int THUMBNAIL_HEIGHT_PX = 400;
+  private static final String REVERSED_SORT_ORDER = " ASC";
+
+  /**
+   * Limit of the queries reading all of the matching rows.
+   */
+  private static final int NO_LIMIT = 0;
+
+  /**
+   * Projection column of the queries counting the matching rows.
+   */
+  private static final String COUNT_COLUMN = "count(*)";
+
+  /**
+   * First Android version, R, whose media store honours the {@link ContentResolver#QUERY_ARG_LIMIT}
+   * argument. The earlier ones map only the SQL arguments of the query.
+   */
+  private static final int QUERY_ARG_LIMIT_SDK_VERSION = 30;
+
+  /**
+   * Selection of the images and videos.
+   */
+  private static final String MEDIA_TYPE_SELECTION = "(" + FileColumns.MEDIA_TYPE + "="
+      + FileColumns.MEDIA_TYPE_IMAGE
+      + " OR "
+      + FileColumns.MEDIA_TYPE + "="
+      + FileColumns.MEDIA_TYPE_VIDEO + ")";
 
   private final Context context;
   private final GalleryItemsListener galleryItemsListener;
   private final Handler handler;
 
+  /**
+   * Greatest modification date of the shown items read by the last change sync. Items modified
+   * since then have the same or a greater modification date. Used only on the handler thread.
+   */
+  private long lastSyncDateModified;
+
   GalleryItemsProvider(Context context, HandlerThread backgroundHandlerThread,
       GalleryItemsListener galleryItemsListener) {
     this.context = context;
@@ -58,99 +91,405 @@ public class GalleryItemsProvider {
   }
 
   /**
-   * Loads gallery items and calls {@link GalleryItemsListener#onItemFound(GalleryItem)} if specific
-   * gallery item has been found or {@link GalleryItemsListener#onEmptyList()} if none of the items
-   * have been found.
+   * Loads metadata of the page of gallery items described by the given {@link PageRequest}. Calls
+   * {@link GalleryItemsListener#onItemsFound(PageRequest, List)} with the found items, newest
+   * first, or {@link GalleryItemsListener#onEmptyList()} if the gallery is empty. Calls {@link
+   * GalleryItemsListener#onPageLoadFailed(PageRequest)} if the query has failed.
    */
-  public void loadGalleryItems() {
+  public void loadGalleryItems(final PageRequest pageRequest) {
     handler.post(new Runnable() {
       @Override
       public void run() {
-        String[] projection = {
-            FileColumns._ID,
-            FileColumns.DATA,
-            FileColumns.MEDIA_TYPE,
-            FileColumns.MIME_TYPE,
-            FileColumns.TITLE
-        };
-
-        // Obtains content URI for the external drive.
-        Uri queryUri = MediaStore.Files.getContentUri(VOLUME_NAME);
-
-        // Creates selection for the images and videos.
-        String selection = FileColumns.MEDIA_TYPE + "="
-            + FileColumns.MEDIA_TYPE_IMAGE
-            + " OR "
-            + FileColumns.MEDIA_TYPE + "="
-            + FileColumns.MEDIA_TYPE_VIDEO;
-
-        CursorLoader cursorLoader = new CursorLoader(
-            context,
-            queryUri,
-            projection,
-            selection,
-            null,
-            FileColumns.DATE_ADDED + SORT_ORDER);
-
-        Cursor cursor = cursorLoader.loadInBackground();
-
-        if (cursor != null) {
-          if (cursor.getCount() == 0) {
-            galleryItemsListener.onEmptyList();
-            cursor.close();
+        final GalleryItem anchorItem = pageRequest.getAnchorItem();
+        final List<GalleryItem> galleryItems;
+        if (anchorItem == null) {
+          galleryItems = queryGalleryItems(MEDIA_TYPE_SELECTION, null, getSortOrder(SORT_ORDER),
+              pageRequest.getLimit());
+        } else {
+          galleryItems = queryAdjacentGalleryItems(anchorItem, pageRequest.isNewer(),
+              pageRequest.getLimit());
+        }
+        if (galleryItems == null) {
+          Log.w(TAG, "Gallery items query failed");
+          galleryItemsListener.onPageLoadFailed(pageRequest);
+          return;
+        }
+
+        if (galleryItems.isEmpty() && anchorItem == null) {
+          galleryItemsListener.onEmptyList();
+        } else {
+          galleryItemsListener.onItemsFound(pageRequest, galleryItems);
+        }
+      }
+    });
+  }
+
+  /**
+   * Loads the changes of the media store relevant to the shown items. Reads items newer than the
+   * given newest item, if it is not null, and only the shown items modified since the last sync.
+   * Deleted items are looked for only if the number of the items in the range of the shown ones has
+   * changed. Calls {@link GalleryItemsListener#onItemsChanged(List, List, List)} if anything has
+   * changed.
+   */
+  public void loadChanges(@Nullable final GalleryItem newestItem,
+      final List<GalleryItem> shownItems, final int limit) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        List<GalleryItem> addedItems = Collections.emptyList();
+        if (newestItem != null) {
+          addedItems = queryAdjacentGalleryItems(newestItem, true, limit);
+          if (addedItems == null) {
             return;
           }
+        }
+
+        final List<GalleryItem> changedItems = new ArrayList<>();
+        final List<GalleryItem> deletedItems = new ArrayList<>();
+        if (!shownItems.isEmpty() && (!findChangedItems(shownItems, changedItems)
+            || !findDeletedItems(shownItems, deletedItems))) {
+          return;
+        }
 
-          // Iterate over the cursor to notify listener about the found gallery item.
-          while (cursor.moveToNext()) {
-            final int columnIndexId = cursor.getColumnIndex(FileColumns._ID);
-            final int columnIndexName = cursor.getColumnIndex(FileColumns.TITLE);
-            final int columnIndexPath = cursor.getColumnIndex(Media.DATA);
-            final int columnIndexType = cursor.getColumnIndex(FileColumns.MEDIA_TYPE);
-            final long id = cursor.getLong(columnIndexId);
-            final String name = cursor.getString(columnIndexName);
-            final String path = cursor.getString(columnIndexPath);
-            final String type = cursor.getString(columnIndexType);
-
-            if (Integer.parseInt(type) == FileColumns.MEDIA_TYPE_IMAGE) {
-              // Creates thumbnail from the bitmap.
-              final Drawable drawable = new BitmapDrawable(context.getResources(), ThumbnailUtils
-                  .extractThumbnail(BitmapFactory.decodeFile(path), THUMBNAIL_WIDTH_PX,
-                      THUMBNAIL_HEIGHT_PX));
-              galleryItemsListener
-                  .onItemFound(new GalleryItem(name, path, GalleryItem.Type.IMAGE, drawable));
-            } else if (Integer.parseInt(type) == FileColumns.MEDIA_TYPE_VIDEO) {
-              // Creates thumbnail from the first frame of the video.
-              BitmapFactory.Options options = new BitmapFactory.Options();
-              options.inSampleSize = 1;
-              Bitmap bitmap = MediaStore.Video.Thumbnails
-                  .getThumbnail(context.getContentResolver(), id, Thumbnails.MINI_KIND, options);
-              final Drawable drawable = new BitmapDrawable(context.getResources(),
-                  ThumbnailUtils.extractThumbnail(bitmap, THUMBNAIL_WIDTH_PX, THUMBNAIL_HEIGHT_PX));
-              galleryItemsListener
-                  .onItemFound(new GalleryItem(name, path, GalleryItem.Type.VIDEO, drawable));
-            }
+        if (!addedItems.isEmpty() || !changedItems.isEmpty() || !deletedItems.isEmpty()) {
+          Log.d(TAG, "Gallery changed, added: " + addedItems.size() + ", changed: "
+              + changedItems.size() + ", deleted: " + deletedItems.size());
+          galleryItemsListener.onItemsChanged(addedItems, changedItems, deletedItems);
+        }
+      }
+    });
+  }
+
+  /**
+   * Loads only the dates added of the items with ids greater than the given one, in the ascending
+   * order, and passes them to the given listener on the background thread. Ids of the new media are
+   * greater than all of the previous ones, so passing the greatest loaded id reads only the new
+   * items. If the number of the items up to the given id differs from the
+   * {@link OnTimelineDatesListener#getKnownItemCount()}, some of them have been deleted, and the
+   * dates of all of the items are loaded again instead.
+   */
+  public void loadTimelineDates(final long afterId, final OnTimelineDatesListener listener) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        long fromId = afterId;
+        if (afterId > 0) {
+          final int count = countItemsUpTo(afterId);
+          if (count < 0) {
+            return;
+          }
+          if (count != listener.getKnownItemCount()) {
+            Log.d(TAG, "Timeline items deleted, reloading all of the dates");
+            fromId = 0;
           }
-          cursor.close();
         }
+        final String[] projection = {FileColumns._ID, FileColumns.DATE_ADDED};
+        final Cursor cursor = query(projection,
+            MEDIA_TYPE_SELECTION + " AND " + FileColumns._ID + " > ?",
+            new String[]{String.valueOf(fromId)},
+            FileColumns.DATE_ADDED + REVERSED_SORT_ORDER, NO_LIMIT);
+        if (cursor == null) {
+          return;
+        }
+        final int columnIndexId = cursor.getColumnIndex(FileColumns._ID);
+        final int columnIndexDateAdded = cursor.getColumnIndex(FileColumns.DATE_ADDED);
+        final long[] dates = new long[cursor.getCount()];
+        long maxId = fromId;
+        for (int i = 0; cursor.moveToNext(); i++) {
+          dates[i] = cursor.getLong(columnIndexDateAdded);
+          maxId = Math.max(maxId, cursor.getLong(columnIndexId));
+        }
+        cursor.close();
+        listener.onTimelineDatesFound(fromId, dates, maxId);
       }
     });
   }
 
   /**
-   * Removes gallery item using given path.
+   * Returns the number of the items with ids not greater than the given one or -1 if the query
+   * fails.
+   */
+  private int countItemsUpTo(long id) {
+    return countItems(MEDIA_TYPE_SELECTION + " AND " + FileColumns._ID + " <= ?",
+        new String[]{String.valueOf(id)});
+  }
+
+  /**
+   * Returns the number of the items matching the given selection or -1 if the query fails. The
+   * items are counted by the media store, so only a single row is read.
+   */
+  private int countItems(String selection, String[] selectionArgs) {
+    final String[] projection = {COUNT_COLUMN};
+    final Cursor cursor = query(projection, selection, selectionArgs, null, NO_LIMIT);
+    if (cursor == null) {
+      return -1;
+    }
+    final int count = cursor.moveToFirst() ? cursor.getInt(0) : -1;
+    cursor.close();
+    return count;
+  }
+
+  /**
+   * Returns at most the given number of the items adjacent to the given anchor item, newest first.
+   * Items newer than the anchor item are read in ascending order, so the closest ones are returned.
+   */
+  @Nullable
+  private List<GalleryItem> queryAdjacentGalleryItems(GalleryItem anchorItem, boolean isNewer,
+      int limit) {
+    final String comparison = isNewer ? " > " : " < ";
+    final String selection = MEDIA_TYPE_SELECTION + " AND ("
+        + FileColumns.DATE_ADDED + comparison + "? OR ("
+        + FileColumns.DATE_ADDED + " = ? AND " + FileColumns._ID + comparison + "?))";
+    final String dateAdded = String.valueOf(anchorItem.getDateAdded());
+    final String[] selectionArgs = {dateAdded, dateAdded, String.valueOf(anchorItem.getId())};
+    final List<GalleryItem> galleryItems = queryGalleryItems(selection, selectionArgs,
+        getSortOrder(isNewer ? REVERSED_SORT_ORDER : SORT_ORDER), limit);
+    if (galleryItems != null && isNewer) {
+      Collections.reverse(galleryItems);
+    }
+    return galleryItems;
+  }
+
+  /**
+   * Reads the items in the range of the given items, newest first, modified since the last sync.
+   * Adds the ones which modification date differs from the given item with the same id to the
+   * changed items. Returns false if the query has failed.
+   */
+  private boolean findChangedItems(List<GalleryItem> galleryItems,
+      List<GalleryItem> changedItems) {
+    final String[] rangeSelectionArgs = getRangeSelectionArgs(galleryItems);
+    final String[] selectionArgs = Arrays.copyOf(rangeSelectionArgs,
+        rangeSelectionArgs.length + 1);
+    selectionArgs[rangeSelectionArgs.length] = String.valueOf(lastSyncDateModified);
+    final List<GalleryItem> modifiedItems = queryGalleryItems(getRangeSelection() + " AND "
+        + FileColumns.DATE_MODIFIED + " >= ?", selectionArgs, null, NO_LIMIT);
+    if (modifiedItems == null) {
+      return false;
+    }
+    if (modifiedItems.isEmpty()) {
+      return true;
+    }
+
+    final LongSparseArray<GalleryItem> galleryItemsById = new LongSparseArray<>(
+        galleryItems.size());
+    for (GalleryItem galleryItem : galleryItems) {
+      galleryItemsById.put(galleryItem.getId(), galleryItem);
+    }
+    long maxDateModified = lastSyncDateModified;
+    for (GalleryItem modifiedItem : modifiedItems) {
+      maxDateModified = Math.max(maxDateModified, modifiedItem.getDateModified());
+      final GalleryItem galleryItem = galleryItemsById.get(modifiedItem.getId());
+      if (galleryItem != null && galleryItem.getDateModified() != modifiedItem.getDateModified()) {
+        changedItems.add(modifiedItem);
+      }
+    }
+    lastSyncDateModified = maxDateModified;
+    return true;
+  }
+
+  /**
+   * Counts the items in the range of the given items, newest first. The media store doesn't keep
+   * the deleted rows, so only if the count differs, ids in the range are compared with the given
+   * items and the missing ones are added to the deleted items. Returns false if the query has
+   * failed.
+   */
+  private boolean findDeletedItems(List<GalleryItem> galleryItems,
+      List<GalleryItem> deletedItems) {
+    final String[] selectionArgs = getRangeSelectionArgs(galleryItems);
+    final int count = countItems(getRangeSelection(), selectionArgs);
+    if (count < 0) {
+      return false;
+    }
+    if (count == galleryItems.size()) {
+      return true;
+    }
+    final String[] projection = {FileColumns._ID};
+    final Cursor cursor = query(projection, getRangeSelection(), selectionArgs, null, NO_LIMIT);
+    if (cursor == null) {
+      return false;
+    }
+    final LongSparseArray<GalleryItem> galleryItemsById = new LongSparseArray<>(
+        galleryItems.size());
+    for (GalleryItem galleryItem : galleryItems) {
+      galleryItemsById.put(galleryItem.getId(), galleryItem);
+    }
+    final int columnIndexId = cursor.getColumnIndex(FileColumns._ID);
+    while (cursor.moveToNext()) {
+      galleryItemsById.remove(cursor.getLong(columnIndexId));
+    }
+    cursor.close();
+    for (int i = 0; i < galleryItemsById.size(); i++) {
+      deletedItems.add(galleryItemsById.valueAt(i));
+    }
+    return true;
+  }
+
+  /**
+   * Returns the selection of the images and videos between the newest and the oldest of the given
+   * items, inclusive. Arguments are returned by the {@link #getRangeSelectionArgs(List)}.
+   */
+  private static String getRangeSelection() {
+    return MEDIA_TYPE_SELECTION
+        + " AND (" + FileColumns.DATE_ADDED + " < ? OR (" + FileColumns.DATE_ADDED + " = ? AND "
+        + FileColumns._ID + " <= ?))"
+        + " AND (" + FileColumns.DATE_ADDED + " > ? OR (" + FileColumns.DATE_ADDED + " = ? AND "
+        + FileColumns._ID + " >= ?))";
+  }
+
+  /**
+   * Returns the arguments of the {@link #getRangeSelection()} for the given items, newest first.
+   */
+  private static String[] getRangeSelectionArgs(List<GalleryItem> galleryItems) {
+    final GalleryItem newestItem = galleryItems.get(0);
+    final GalleryItem oldestItem = galleryItems.get(galleryItems.size() - 1);
+    final String newestDateAdded = String.valueOf(newestItem.getDateAdded());
+    final String oldestDateAdded = String.valueOf(oldestItem.getDateAdded());
+    return new String[]{newestDateAdded, newestDateAdded, String.valueOf(newestItem.getId()),
+        oldestDateAdded, oldestDateAdded, String.valueOf(oldestItem.getId())};
+  }
+
+  /**
+   * Returns at most the given number of the items matching the given selection or null if the
+   * query has failed.
+   */
+  @Nullable
+  private List<GalleryItem> queryGalleryItems(String selection, @Nullable String[] selectionArgs,
+      @Nullable String sortOrder, int limit) {
+    String[] projection = {
+        FileColumns._ID,
+        FileColumns.DATE_ADDED,
+        FileColumns.DATE_MODIFIED,
+        FileColumns.DATA,
+        FileColumns.MEDIA_TYPE,
+        FileColumns.MIME_TYPE,
+        FileColumns.TITLE
+    };
+
+    Cursor cursor = query(projection, selection, selectionArgs, sortOrder, limit);
+    if (cursor == null) {
+      return null;
+    }
+
+    // Reads only the metadata, thumbnails are loaded when the items are shown.
+    final int columnIndexId = cursor.getColumnIndex(FileColumns._ID);
+    final int columnIndexDateAdded = cursor.getColumnIndex(FileColumns.DATE_ADDED);
+    final int columnIndexDateModified = cursor.getColumnIndex(FileColumns.DATE_MODIFIED);
+    final int columnIndexName = cursor.getColumnIndex(FileColumns.TITLE);
+    final int columnIndexPath = cursor.getColumnIndex(Media.DATA);
+    final int columnIndexType = cursor.getColumnIndex(FileColumns.MEDIA_TYPE);
+    final List<GalleryItem> galleryItems = new ArrayList<>();
+    // Guards against the providers which ignore the limit and return all of the matching rows.
+    while ((limit == NO_LIMIT || galleryItems.size() < limit) && cursor.moveToNext()) {
+      final long id = cursor.getLong(columnIndexId);
+      final long dateAdded = cursor.getLong(columnIndexDateAdded);
+      final long dateModified = cursor.getLong(columnIndexDateModified);
+      final String name = cursor.getString(columnIndexName);
+      final String path = cursor.getString(columnIndexPath);
+      final int type = cursor.getInt(columnIndexType);
+
+      if (type == FileColumns.MEDIA_TYPE_IMAGE) {
+        galleryItems.add(new GalleryItem(id, dateAdded, dateModified, name, path,
+            GalleryItem.Type.IMAGE));
+      } else if (type == FileColumns.MEDIA_TYPE_VIDEO) {
+        galleryItems.add(new GalleryItem(id, dateAdded, dateModified, name, path,
+            GalleryItem.Type.VIDEO));
+      }
+    }
+    cursor.close();
+    return galleryItems;
+  }
+
+  /**
+   * Queries the external media store files with the given arguments. Returns at most the given
+   * number of the rows, unless it is {@link #NO_LIMIT}, or null if the query has failed. Before
+   * Android R the limit is appended to the sort order, as the media store ignores the {@link
+   * ContentResolver#QUERY_ARG_LIMIT} argument there.
+   */
+  @Nullable
+  private Cursor query(String[] projection, String selection, @Nullable String[] selectionArgs,
+      @Nullable String sortOrder, int limit) {
+    final boolean isQueryArgLimitSupported = Build.VERSION.SDK_INT >= QUERY_ARG_LIMIT_SDK_VERSION;
+    final Bundle queryArgs = new Bundle();
+    queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+    queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+    final String limitedSortOrder = limit != NO_LIMIT && !isQueryArgLimitSupported
+        ? (sortOrder != null ? sortOrder : FileColumns._ID) + " LIMIT " + limit
+        : sortOrder;
+    if (limitedSortOrder != null) {
+      queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, limitedSortOrder);
+    }
+    if (limit != NO_LIMIT && isQueryArgLimitSupported) {
+      queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+    }
+    final Cursor cursor = context.getContentResolver()
+        .query(MediaStore.Files.getContentUri(VOLUME_NAME), projection, queryArgs, null);
+    if (cursor != null && limit != NO_LIMIT && isQueryArgLimitSupported
+        && !isLimitHonored(cursor)) {
+      Log.w(TAG, "Media store ignored the query limit, reading stops at " + limit + " rows");
+    }
+    return cursor;
+  }
+
+  /**
+   * Returns true if the {@link ContentResolver#EXTRA_HONORED_ARGS} of the given cursor include the
+   * {@link ContentResolver#QUERY_ARG_LIMIT}.
    */
-  public static void deleteGalleryItem(final Context context, String path) {
-    try {
-      MediaScannerConnection.scanFile(context, new String[]{path},
-          null, new MediaScannerConnection.OnScanCompletedListener() {
-            public void onScanCompleted(String path, Uri uri) {
-              context.getContentResolver()
-                  .delete(uri, null, null);
-            }
-          });
-    } catch (Exception e) {
-      Log.e(TAG, "Deleting gallery item failed", e);
+  private static boolean isLimitHonored(Cursor cursor) {
+    final String[] honoredArgs = cursor.getExtras()
+        .getStringArray(ContentResolver.EXTRA_HONORED_ARGS);
+    return honoredArgs != null
+        && Arrays.asList(honoredArgs).contains(ContentResolver.QUERY_ARG_LIMIT);
+  }
+
+  private static String getSortOrder(String direction) {
+    return FileColumns.DATE_ADDED + direction + ", " + FileColumns._ID + direction;
+  }
+
+  /**
+   * Listener notified on the background thread about the loaded dates added of the gallery items.
+   */
+  interface OnTimelineDatesListener {
+
+    /**
+     * Called with the dates added of the items with ids greater than the given one, in the
+     * ascending order, and the greatest id of all of the loaded items. The given id is 0 if the
+     * dates of all of the items have been loaded.
+     */
+    void onTimelineDatesFound(long afterId, long[] dates, long maxId);
+
+    /**
+     * Returns the number of the items loaded so far, without the ones known to be deleted.
+     */
+    int getKnownItemCount();
+  }
+
+  /**
+   * Page of the gallery items adjacent to the anchor item, or the first page if there is no anchor
+   * item.
+   */
+  static class PageRequest {
+
+    private final GalleryItem anchorItem;
+    private final boolean isNewer;
+    private final int limit;
+
+    PageRequest(@Nullable GalleryItem anchorItem, boolean isNewer, int limit) {
+      this.anchorItem = anchorItem;
+      this.isNewer = isNewer;
+      this.limit = limit;
+    }
+
+    @Nullable
+    GalleryItem getAnchorItem() {
+      return anchorItem;
+    }
+
+    boolean isNewer() {
+      return isNewer;
+    }
+
+    int getLimit() {
+      return limit;
     }
   }
 }
@@ -2,15 +2,32 @@ package com.example.glass.gallerysample;
 
 import android.databinding.BaseObservable;
 import android.databinding.Bindable;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
- * Model for the gallery extending the {@link BaseObservable} to provide data binding.
+ * Model for the gallery extending the {@link BaseObservable} to provide data binding. Holds the
+ * {@link GallerySnapshot} published on the main thread by the {@link GalleryUpdateBatcher}, which
+ * is the only writer of the model.
  */
 public class GalleryModel extends BaseObservable {
 
-  private List<GalleryItem> galleryItems = new ArrayList<>();
+  private volatile GallerySnapshot snapshot = GallerySnapshot.EMPTY;
+
+  /**
+   * Live view of the items of the currently published snapshot.
+   */
+  private final List<GalleryItem> galleryItems = new AbstractList<GalleryItem>() {
+    @Override
+    public GalleryItem get(int index) {
+      return snapshot.get(index);
+    }
+
+    @Override
+    public int size() {
+      return snapshot.size();
+    }
+  };
 
   /**
    * Value returned by this method is bound with the {@link android.widget.TextView} informing about
@@ -18,29 +35,32 @@ public class GalleryModel extends BaseObservable {
    */
   @Bindable
   public boolean isGalleryEmpty() {
-    return galleryItems.isEmpty();
+    return snapshot.isEmpty();
   }
 
   /**
-   * Returns {@link List} of all available {@link GalleryItem} objects.
+   * Returns unmodifiable {@link List} of all available {@link GalleryItem} objects, which always
+   * reflects the currently published snapshot.
    */
   public List<GalleryItem> getItems() {
     return galleryItems;
   }
 
   /**
-   * Adds found {@link GalleryItem} to the gallery items list.
+   * Returns the currently published {@link GallerySnapshot}. May be called from any thread.
    */
-  public void addItem(GalleryItem galleryItem) {
-    galleryItems.add(galleryItem);
-    notifyPropertyChanged(BR.galleryEmpty);
+  public GallerySnapshot getSnapshot() {
+    return snapshot;
   }
 
   /**
-   * Clears the list of {@link GalleryItem} objects.
+   * Publishes the given {@link GallerySnapshot}. Must be called on the main thread.
    */
-  public void clearItems() {
-    galleryItems.clear();
-    notifyPropertyChanged(BR.galleryEmpty);
+  public void publishSnapshot(GallerySnapshot snapshot) {
+    final boolean wasEmpty = this.snapshot.isEmpty();
+    this.snapshot = snapshot;
+    if (wasEmpty != snapshot.isEmpty()) {
+      notifyPropertyChanged(BR.galleryEmpty);
+    }
   }
 }
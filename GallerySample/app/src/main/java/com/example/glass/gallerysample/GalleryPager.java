@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.util.Log;
+import com.example.glass.gallerysample.GalleryItemsProvider.PageRequest;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps a window of the gallery items pages in the {@link GalleryModel}. Pages are loaded when the
+ * current position approaches either end of the window and the farthest page is dropped when the
+ * window grows over its maximum size, so memory use does not depend on the gallery size. Changes of
+ * the media store are applied to the window incrementally. The window is the latest snapshot of
+ * the {@link GalleryUpdateBatcher}, which writes the model.
+ */
+public class GalleryPager {
+
+  private static final String TAG = GalleryPager.class.getSimpleName();
+
+  /**
+   * Default number of the items in a page.
+   */
+  static final int DEFAULT_PAGE_SIZE = 100;
+
+  /**
+   * Default distance from the window end, in items, at which the next page is requested.
+   */
+  static final int DEFAULT_PREFETCH_DISTANCE = 30;
+
+  /**
+   * Default maximum number of the pages kept in the window.
+   */
+  static final int DEFAULT_MAX_PAGES = 3;
+
+  private final GalleryItemsProvider galleryItemsProvider;
+  private final GalleryUpdateBatcher galleryUpdateBatcher;
+  private final int pageSize;
+  private final int prefetchDistance;
+  private final int maxWindowSize;
+
+  private int currentPosition;
+  private boolean isStartReached;
+  private boolean isEndReached;
+  private PageRequest pendingPageRequest;
+  private boolean isSyncDeferred;
+
+  /**
+   * Creates {@link GalleryPager} with the default page size, prefetch distance and maximum number
+   * of the pages.
+   */
+  GalleryPager(GalleryItemsProvider galleryItemsProvider,
+      GalleryUpdateBatcher galleryUpdateBatcher) {
+    this(galleryItemsProvider, galleryUpdateBatcher, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE,
+        DEFAULT_MAX_PAGES);
+  }
+
+  /**
+   * Creates {@link GalleryPager} with the given page size, prefetch distance and maximum number of
+   * the pages kept in the window.
+   */
+  GalleryPager(GalleryItemsProvider galleryItemsProvider,
+      GalleryUpdateBatcher galleryUpdateBatcher, int pageSize, int prefetchDistance,
+      int maxPages) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    if (prefetchDistance < 0 || prefetchDistance >= pageSize) {
+      throw new IllegalArgumentException("Prefetch distance must be smaller than the page size");
+    }
+    if (maxPages < 2) {
+      throw new IllegalArgumentException("At least two pages must be kept");
+    }
+    this.galleryItemsProvider = galleryItemsProvider;
+    this.galleryUpdateBatcher = galleryUpdateBatcher;
+    this.pageSize = pageSize;
+    this.prefetchDistance = prefetchDistance;
+    this.maxWindowSize = pageSize * maxPages;
+  }
+
+  /**
+   * Drops the current window and loads the first page of the gallery.
+   */
+  public synchronized void loadFirstPage() {
+    galleryUpdateBatcher.clearItems();
+    currentPosition = 0;
+    isStartReached = true;
+    isEndReached = false;
+    requestPage(new PageRequest(null, false, pageSize));
+  }
+
+  /**
+   * Drops the current window and loads the page of the items added before the given time, newest
+   * first. Pages of the newer items are loaded when the position approaches the window start.
+   */
+  public synchronized void jumpTo(long time) {
+    galleryUpdateBatcher.clearItems();
+    currentPosition = 0;
+    isStartReached = false;
+    isEndReached = false;
+    // Anchor placed right after all of the items added before the given time.
+    final GalleryItem anchorItem = new GalleryItem(0, time, 0, null, null,
+        GalleryItem.Type.IMAGE);
+    requestPage(new PageRequest(anchorItem, false, pageSize));
+  }
+
+  /**
+   * Requests the next or the previous page if the given position in the window is close to its
+   * end.
+   */
+  public synchronized void onPositionChanged(int position) {
+    currentPosition = position;
+    final GallerySnapshot window = galleryUpdateBatcher.getLatestSnapshot();
+    if (pendingPageRequest != null || window.isEmpty()) {
+      return;
+    }
+    if (!isEndReached && position >= window.size() - prefetchDistance) {
+      requestPage(new PageRequest(window.get(window.size() - 1), false, pageSize));
+    } else if (!isStartReached && position < prefetchDistance) {
+      requestPage(new PageRequest(window.get(0), true, pageSize));
+    }
+  }
+
+  /**
+   * Adds the loaded page to the window and drops the farthest page if the window is too big.
+   * Pages which have not been requested by this pager any more are ignored.
+   */
+  public synchronized void onPageLoaded(PageRequest pageRequest, List<GalleryItem> galleryItems) {
+    if (pageRequest != pendingPageRequest) {
+      Log.d(TAG, "Ignoring stale page");
+      return;
+    }
+    pendingPageRequest = null;
+
+    if (pageRequest.isNewer()) {
+      isStartReached = galleryItems.size() < pageRequest.getLimit();
+      insertAtStart(galleryItems);
+    } else {
+      isEndReached = galleryItems.size() < pageRequest.getLimit();
+      appendAtEnd(galleryItems);
+    }
+    if (isSyncDeferred) {
+      isSyncDeferred = false;
+      syncChanges();
+    }
+    onPositionChanged(currentPosition);
+  }
+
+  /**
+   * Marks the gallery as empty.
+   */
+  public synchronized void onEmptyList() {
+    pendingPageRequest = null;
+    isSyncDeferred = false;
+    isStartReached = true;
+    isEndReached = true;
+  }
+
+  /**
+   * Drops the failed page request, so the page is requested again on the next position change or
+   * media store sync.
+   */
+  public synchronized void onPageLoadFailed(PageRequest pageRequest) {
+    if (pageRequest == pendingPageRequest) {
+      pendingPageRequest = null;
+    }
+  }
+
+  /**
+   * Requests changes of the media store relevant to the window. Items added to the media store are
+   * read only if the window shows the newest items. If the first page of the window is still being
+   * loaded, for example after a jump, the changes are requested once it is loaded.
+   */
+  public synchronized void syncChanges() {
+    final GallerySnapshot window = galleryUpdateBatcher.getLatestSnapshot();
+    if (window.isEmpty() && pendingPageRequest != null) {
+      // Reloading the first page would replace the pending one, e.g. the page of a jump.
+      isSyncDeferred = true;
+      return;
+    }
+    if (window.isEmpty()) {
+      loadFirstPage();
+      return;
+    }
+    galleryItemsProvider.loadChanges(isStartReached ? window.get(0) : null, window.asList(),
+        pageSize);
+  }
+
+  /**
+   * Applies the changes of the media store to the window.
+   */
+  public synchronized void onItemsChanged(List<GalleryItem> addedItems,
+      List<GalleryItem> changedItems, List<GalleryItem> deletedItems) {
+    for (GalleryItem deletedItem : deletedItems) {
+      galleryUpdateBatcher.removeItem(deletedItem);
+    }
+    for (GalleryItem changedItem : changedItems) {
+      galleryUpdateBatcher.replaceItem(changedItem);
+    }
+    final GallerySnapshot window = galleryUpdateBatcher.getLatestSnapshot();
+    if (!addedItems.isEmpty() && isStartReached && !window.isEmpty()
+        && GallerySnapshot.NEWEST_FIRST.compare(addedItems.get(addedItems.size() - 1),
+        window.get(0)) < 0) {
+      isStartReached = addedItems.size() < pageSize;
+      insertAtStart(addedItems);
+    }
+  }
+
+  /**
+   * Removes the deleted {@link GalleryItem} from the window.
+   */
+  public synchronized void onItemDeleted(GalleryItem galleryItem) {
+    galleryUpdateBatcher.removeItem(galleryItem);
+  }
+
+  /**
+   * Puts the restored {@link GalleryItem}s, which failed to be deleted, back to the window at their
+   * ordered positions. Items outside of the window are left to be loaded with the pages.
+   */
+  public synchronized void onItemsRestored(List<GalleryItem> galleryItems) {
+    for (GalleryItem galleryItem : galleryItems) {
+      final GallerySnapshot window = galleryUpdateBatcher.getLatestSnapshot();
+      final int searchResult = Collections
+          .binarySearch(window.asList(), galleryItem, GallerySnapshot.NEWEST_FIRST);
+      if (searchResult >= 0) {
+        continue;
+      }
+      final int position = -searchResult - 1;
+      final boolean isInWindow = (position > 0 || isStartReached)
+          && (position < window.size() || isEndReached);
+      if (isInWindow) {
+        galleryUpdateBatcher.insertItems(position, Collections.singletonList(galleryItem));
+        if (position <= currentPosition) {
+          currentPosition++;
+        }
+      }
+    }
+  }
+
+  private void appendAtEnd(List<GalleryItem> galleryItems) {
+    galleryUpdateBatcher.addItems(galleryItems);
+
+    final int excess = galleryUpdateBatcher.getLatestSnapshot().size() - maxWindowSize;
+    if (excess > 0) {
+      galleryUpdateBatcher.removeItems(0, excess);
+      currentPosition = Math.max(0, currentPosition - excess);
+      isStartReached = false;
+    }
+  }
+
+  private void insertAtStart(List<GalleryItem> galleryItems) {
+    galleryUpdateBatcher.insertItems(0, galleryItems);
+    currentPosition += galleryItems.size();
+
+    final int windowSize = galleryUpdateBatcher.getLatestSnapshot().size();
+    final int excess = windowSize - maxWindowSize;
+    if (excess > 0) {
+      galleryUpdateBatcher.removeItems(windowSize - excess, excess);
+      isEndReached = false;
+    }
+  }
+
+  private void requestPage(PageRequest pageRequest) {
+    pendingPageRequest = pageRequest;
+    galleryItemsProvider.loadGalleryItems(pageRequest);
+  }
+}
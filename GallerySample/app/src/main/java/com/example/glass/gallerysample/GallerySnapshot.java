@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of the {@link GalleryItem}s ordered from the newest one. Items can be looked up by
+ * their position or by the binary search of the order key. Changes produce new snapshots, so a
+ * snapshot can be read from any thread.
+ */
+public final class GallerySnapshot {
+
+  /**
+   * Snapshot without any items.
+   */
+  public static final GallerySnapshot EMPTY = new GallerySnapshot(new GalleryItem[0]);
+
+  /**
+   * Orders the items by the date added and the id, newest first.
+   */
+  static final Comparator<GalleryItem> NEWEST_FIRST = new Comparator<GalleryItem>() {
+    @Override
+    public int compare(GalleryItem first, GalleryItem second) {
+      final int dateAddedComparison = Long.compare(second.getDateAdded(), first.getDateAdded());
+      return dateAddedComparison != 0
+          ? dateAddedComparison : Long.compare(second.getId(), first.getId());
+    }
+  };
+
+  private final GalleryItem[] items;
+  private final List<GalleryItem> itemsList = new ItemsList();
+
+  private GallerySnapshot(GalleryItem[] items) {
+    this.items = items;
+  }
+
+  /**
+   * Returns the number of the items.
+   */
+  public int size() {
+    return items.length;
+  }
+
+  public boolean isEmpty() {
+    return items.length == 0;
+  }
+
+  /**
+   * Returns the item at the given position.
+   */
+  public GalleryItem get(int position) {
+    return items[position];
+  }
+
+  /**
+   * Returns unmodifiable {@link List} view of the items. The view supports the random access, so
+   * {@link java.util.Collections#binarySearch} on it takes O(log n).
+   */
+  public List<GalleryItem> asList() {
+    return itemsList;
+  }
+
+  /**
+   * Returns position of the item with the same id as the given {@link GalleryItem} or -1 if there
+   * is no such item. Uses the binary search, falling back to the linear scan of the ids if the
+   * order key of the given item has changed.
+   */
+  public int indexOf(GalleryItem galleryItem) {
+    final int position = Arrays.binarySearch(items, galleryItem, NEWEST_FIRST);
+    if (position >= 0) {
+      return position;
+    }
+    for (int i = 0; i < items.length; i++) {
+      if (items[i].getId() == galleryItem.getId()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a snapshot with the given items inserted at the given position.
+   */
+  public GallerySnapshot insert(int position, List<GalleryItem> galleryItems) {
+    final GalleryItem[] newItems = new GalleryItem[items.length + galleryItems.size()];
+    System.arraycopy(items, 0, newItems, 0, position);
+    for (int i = 0; i < galleryItems.size(); i++) {
+      newItems[position + i] = galleryItems.get(i);
+    }
+    System.arraycopy(items, position, newItems, position + galleryItems.size(),
+        items.length - position);
+    return new GallerySnapshot(newItems);
+  }
+
+  /**
+   * Returns a snapshot without the given number of the items starting from the given position.
+   */
+  public GallerySnapshot remove(int positionStart, int itemCount) {
+    final GalleryItem[] newItems = new GalleryItem[items.length - itemCount];
+    System.arraycopy(items, 0, newItems, 0, positionStart);
+    System.arraycopy(items, positionStart + itemCount, newItems, positionStart,
+        items.length - positionStart - itemCount);
+    return new GallerySnapshot(newItems);
+  }
+
+  /**
+   * Returns a snapshot with the item at the given position replaced.
+   */
+  public GallerySnapshot replace(int position, GalleryItem galleryItem) {
+    final GalleryItem[] newItems = items.clone();
+    newItems[position] = galleryItem;
+    return new GallerySnapshot(newItems);
+  }
+
+  /**
+   * Read-only view of the items array.
+   */
+  private class ItemsList extends AbstractList<GalleryItem> implements RandomAccess {
+
+    @Override
+    public GalleryItem get(int index) {
+      return items[index];
+    }
+
+    @Override
+    public int size() {
+      return items.length;
+    }
+  }
+}
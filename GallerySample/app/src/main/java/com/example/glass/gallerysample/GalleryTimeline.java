@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Index of the dates added of all of the gallery items, grouped by day and by capture session. A
+ * session is a run of items with no gap longer than {@link #SESSION_GAP_SECONDS} between them.
+ * Dates and session starts are kept in sorted primitive arrays, so day and session lookups are
+ * binary searches. Items are added and removed in place, updating only the session boundaries next
+ * to them, so new media never causes a re-sort. All of the times are in seconds, as the
+ * {@link GalleryItem#getDateAdded()}.
+ */
+public class GalleryTimeline {
+
+  /**
+   * Longest gap between two items of the same capture session.
+   */
+  public static final long SESSION_GAP_SECONDS = 30 * 60;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long[] dates = new long[INITIAL_CAPACITY];
+  private int size;
+  private long[] sessionStarts = new long[INITIAL_CAPACITY];
+  private int sessionCount;
+
+  /**
+   * Replaces the index with the given dates added, which must be sorted in the ascending order.
+   */
+  public synchronized void setDates(long[] sortedDates) {
+    dates = Arrays.copyOf(sortedDates, Math.max(INITIAL_CAPACITY, sortedDates.length));
+    size = sortedDates.length;
+    sessionStarts = new long[INITIAL_CAPACITY];
+    sessionCount = 0;
+    for (int i = 0; i < size; i++) {
+      if (isSessionStart(i)) {
+        sessionStarts = insert(sessionStarts, sessionCount, sessionCount, dates[i]);
+        sessionCount++;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of the indexed items.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of the capture sessions.
+   */
+  public synchronized int getSessionCount() {
+    return sessionCount;
+  }
+
+  /**
+   * Adds the date of a new item. New items are usually the newest ones, which makes it an append.
+   */
+  public synchronized void add(long dateAdded) {
+    final int index = upperBound(dates, size, dateAdded);
+    dates = insert(dates, size, index, dateAdded);
+    size++;
+    final boolean hasPrevious = index > 0;
+    final boolean hasNext = index + 1 < size;
+    if ((hasPrevious && dates[index - 1] == dateAdded)
+        || (hasNext && dates[index + 1] == dateAdded)) {
+      // Joins a run of the same dates, no session boundary moves.
+      return;
+    }
+    if (hasNext) {
+      removeSessionStart(dates[index + 1]);
+    }
+    updateSessionStart(index);
+    if (hasNext) {
+      updateSessionStart(index + 1);
+    }
+  }
+
+  /**
+   * Removes the date of a deleted item. Returns false if there is no such date.
+   */
+  public synchronized boolean remove(long dateAdded) {
+    final int index = lowerBound(dates, size, dateAdded);
+    if (index >= size || dates[index] != dateAdded) {
+      return false;
+    }
+    final boolean isDuplicated = index + 1 < size && dates[index + 1] == dateAdded;
+    System.arraycopy(dates, index + 1, dates, index, size - index - 1);
+    size--;
+    if (isDuplicated) {
+      return true;
+    }
+    removeSessionStart(dateAdded);
+    if (index < size) {
+      removeSessionStart(dates[index]);
+      updateSessionStart(index);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of the items added after the given time, which is the position of the first
+   * item added at or before it in the gallery sorted from the newest item.
+   */
+  public synchronized int countNewerThan(long time) {
+    return size - upperBound(dates, size, time);
+  }
+
+  /**
+   * Returns the date of the newest item added before the given time or -1 if there is no such
+   * item.
+   */
+  public synchronized long findNewestBefore(long time) {
+    final int index = lowerBound(dates, size, time) - 1;
+    return index >= 0 ? dates[index] : -1;
+  }
+
+  /**
+   * Returns the date of the oldest item added at or after the given time or -1 if there is no
+   * such item.
+   */
+  public synchronized long findOldestFrom(long time) {
+    final int index = lowerBound(dates, size, time);
+    return index < size ? dates[index] : -1;
+  }
+
+  /**
+   * Returns the start of the capture session of the item added at the given time, or -1 if the
+   * time is before all of the items.
+   */
+  public synchronized long getSessionStart(long dateAdded) {
+    final int index = upperBound(sessionStarts, sessionCount, dateAdded) - 1;
+    return index >= 0 ? sessionStarts[index] : -1;
+  }
+
+  /**
+   * Returns the date of the newest item of the previous day with any items before the day of the
+   * given time, or -1 if there is no such day.
+   */
+  public long findPreviousDay(long time) {
+    return findNewestBefore(getDayStart(time));
+  }
+
+  /**
+   * Returns the date of the oldest item of the next day with any items after the day of the given
+   * time, or -1 if there is no such day.
+   */
+  public long findNextDay(long time) {
+    return findOldestFrom(getNextDayStart(time));
+  }
+
+  /**
+   * Returns the date of the newest item of the previous session before the session of the item
+   * added at the given time, or -1 if there is no such session.
+   */
+  public long findPreviousSession(long dateAdded) {
+    final long sessionStart = getSessionStart(dateAdded);
+    return sessionStart < 0 ? -1 : findNewestBefore(sessionStart);
+  }
+
+  /**
+   * Returns the start of the local day of the given time.
+   */
+  public static long getDayStart(long time) {
+    final Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time * 1000);
+    calendar.set(Calendar.HOUR_OF_DAY, 0);
+    calendar.set(Calendar.MINUTE, 0);
+    calendar.set(Calendar.SECOND, 0);
+    calendar.set(Calendar.MILLISECOND, 0);
+    return calendar.getTimeInMillis() / 1000;
+  }
+
+  /**
+   * Returns the start of the local day following the day of the given time.
+   */
+  public static long getNextDayStart(long time) {
+    final Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(getDayStart(time) * 1000);
+    calendar.add(Calendar.DAY_OF_MONTH, 1);
+    return calendar.getTimeInMillis() / 1000;
+  }
+
+  private boolean isSessionStart(int index) {
+    return index == 0 || dates[index] - dates[index - 1] > SESSION_GAP_SECONDS;
+  }
+
+  /**
+   * Adds the session start of the item at the given index if it starts a session.
+   */
+  private void updateSessionStart(int index) {
+    if (isSessionStart(index)) {
+      final int position = lowerBound(sessionStarts, sessionCount, dates[index]);
+      sessionStarts = insert(sessionStarts, sessionCount, position, dates[index]);
+      sessionCount++;
+    }
+  }
+
+  private void removeSessionStart(long date) {
+    final int position = lowerBound(sessionStarts, sessionCount, date);
+    if (position < sessionCount && sessionStarts[position] == date) {
+      System.arraycopy(sessionStarts, position + 1, sessionStarts, position,
+          sessionCount - position - 1);
+      sessionCount--;
+    }
+  }
+
+  /**
+   * Inserts the value at the given index of the array holding the given number of the values,
+   * growing the array if it is full. Returns the array holding the values.
+   */
+  private static long[] insert(long[] array, int count, int index, long value) {
+    if (count == array.length) {
+      array = Arrays.copyOf(array, array.length * 2);
+    }
+    System.arraycopy(array, index, array, index + 1, count - index);
+    array[index] = value;
+    return array;
+  }
+
+  /**
+   * Returns the index of the first value not smaller than the given one.
+   */
+  private static int lowerBound(long[] array, int count, long value) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (array[middle] < value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first value greater than the given one.
+   */
+  private static int upperBound(long[] array, int count, long value) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (array[middle] <= value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Single writer of the {@link GalleryModel}. Changes may be requested from any thread and are
+ * applied at once to the latest {@link GallerySnapshot}, which is what the writers read. Resulting
+ * snapshots are published to the model on the main thread in chunks aligned with the display
+ * frames, in the requested order, so a large gallery load never blocks the main thread for longer
+ * than a frame.
+ */
+public class GalleryUpdateBatcher {
+
+  private static final String TAG = GalleryUpdateBatcher.class.getSimpleName();
+
+  /**
+   * Default maximum number of the items applied to the model in a single frame.
+   */
+  static final int DEFAULT_MAX_ITEMS_PER_FRAME = 500;
+
+  private final GalleryModel galleryModel;
+  private final UpdateListener updateListener;
+  private final int maxItemsPerFrame;
+  private final Choreographer choreographer;
+  private final Deque<Update> pendingUpdates = new ArrayDeque<>();
+  private final FrameCallback frameCallback = new FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      applyPendingUpdates();
+    }
+  };
+  private GallerySnapshot latestSnapshot;
+  private boolean isFrameCallbackPosted;
+  private long mainThreadTimeNanos;
+  private long maxFrameTimeNanos;
+  private int appliedFrames;
+
+  /**
+   * Creates {@link GalleryUpdateBatcher} applying at most {@link #DEFAULT_MAX_ITEMS_PER_FRAME}
+   * items per frame. Must be called on the main thread.
+   */
+  GalleryUpdateBatcher(GalleryModel galleryModel, UpdateListener updateListener) {
+    this(galleryModel, updateListener, DEFAULT_MAX_ITEMS_PER_FRAME);
+  }
+
+  /**
+   * Creates {@link GalleryUpdateBatcher} applying at most the given number of items per frame. Must
+   * be called on the main thread.
+   */
+  GalleryUpdateBatcher(GalleryModel galleryModel, UpdateListener updateListener,
+      int maxItemsPerFrame) {
+    if (maxItemsPerFrame <= 0) {
+      throw new IllegalArgumentException("Max items per frame must be positive");
+    }
+    this.galleryModel = galleryModel;
+    this.updateListener = updateListener;
+    this.maxItemsPerFrame = maxItemsPerFrame;
+    this.choreographer = Choreographer.getInstance();
+    this.latestSnapshot = galleryModel.getSnapshot();
+  }
+
+  /**
+   * Returns the snapshot with all of the requested changes applied, including the ones not
+   * published to the model yet.
+   */
+  public synchronized GallerySnapshot getLatestSnapshot() {
+    return latestSnapshot;
+  }
+
+  /**
+   * Appends the given {@link GalleryItem}s to the model on the next frames.
+   */
+  public synchronized void addItems(List<GalleryItem> galleryItems) {
+    for (int start = 0; start < galleryItems.size(); start += maxItemsPerFrame) {
+      final int end = Math.min(galleryItems.size(), start + maxItemsPerFrame);
+      insert(latestSnapshot.size(), galleryItems.subList(start, end));
+    }
+  }
+
+  /**
+   * Inserts the given {@link GalleryItem}s to the model at the given position.
+   */
+  public synchronized void insertItems(int position, List<GalleryItem> galleryItems) {
+    if (!galleryItems.isEmpty()) {
+      insert(position, galleryItems);
+    }
+  }
+
+  /**
+   * Removes the given number of the items starting from the given position.
+   */
+  public synchronized void removeItems(int positionStart, int itemCount) {
+    if (itemCount > 0) {
+      enqueue(new Update(latestSnapshot.remove(positionStart, itemCount), Update.REMOVED,
+          positionStart, itemCount));
+    }
+  }
+
+  /**
+   * Removes the item with the same id as the given {@link GalleryItem}. Returns false if there is
+   * no such item.
+   */
+  public synchronized boolean removeItem(GalleryItem galleryItem) {
+    final int position = latestSnapshot.indexOf(galleryItem);
+    if (position < 0) {
+      return false;
+    }
+    removeItems(position, 1);
+    return true;
+  }
+
+  /**
+   * Replaces the item with the same id as the given updated {@link GalleryItem}. Returns false if
+   * there is no such item. The date added and the id don't change on modification, so the item is
+   * found by the binary search of its order key.
+   */
+  public synchronized boolean replaceItem(GalleryItem updatedGalleryItem) {
+    final int position = Collections
+        .binarySearch(latestSnapshot.asList(), updatedGalleryItem, GallerySnapshot.NEWEST_FIRST);
+    if (position < 0) {
+      return false;
+    }
+    enqueue(new Update(latestSnapshot.replace(position, updatedGalleryItem), Update.CHANGED,
+        position, 1));
+    return true;
+  }
+
+  /**
+   * Removes all of the items, dropping the changes not published yet.
+   */
+  public synchronized void clearItems() {
+    cancelPendingUpdates();
+    latestSnapshot = GallerySnapshot.EMPTY;
+    enqueue(new Update(latestSnapshot, Update.CLEARED, 0, 0));
+  }
+
+  /**
+   * Drops the changes which have not been published yet. The latest snapshot goes back to the
+   * published one.
+   */
+  public synchronized void cancelPendingUpdates() {
+    pendingUpdates.clear();
+    latestSnapshot = galleryModel.getSnapshot();
+    if (isFrameCallbackPosted) {
+      isFrameCallbackPosted = false;
+      choreographer.removeFrameCallback(frameCallback);
+    }
+  }
+
+  /**
+   * Returns true if all of the requested changes have been published to the model.
+   */
+  public synchronized boolean isIdle() {
+    return pendingUpdates.isEmpty();
+  }
+
+  /**
+   * Returns the total main thread time spent on applying the items, in nanoseconds.
+   */
+  public synchronized long getMainThreadTimeNanos() {
+    return mainThreadTimeNanos;
+  }
+
+  /**
+   * Returns the longest main thread time spent on applying the items in a single frame, in
+   * nanoseconds.
+   */
+  public synchronized long getMaxFrameTimeNanos() {
+    return maxFrameTimeNanos;
+  }
+
+  /**
+   * Returns the number of frames in which the items have been applied.
+   */
+  public synchronized int getAppliedFrameCount() {
+    return appliedFrames;
+  }
+
+  private void insert(int position, List<GalleryItem> galleryItems) {
+    enqueue(new Update(latestSnapshot.insert(position, galleryItems), Update.INSERTED, position,
+        galleryItems.size()));
+  }
+
+  private void enqueue(Update update) {
+    latestSnapshot = update.snapshot;
+    pendingUpdates.add(update);
+    if (!isFrameCallbackPosted) {
+      isFrameCallbackPosted = true;
+      choreographer.postFrameCallback(frameCallback);
+    }
+  }
+
+  private void applyPendingUpdates() {
+    final long startTime = System.nanoTime();
+    final List<Update> updates = new ArrayList<>();
+    synchronized (this) {
+      isFrameCallbackPosted = false;
+      int itemCount = 0;
+      while (!pendingUpdates.isEmpty() && (updates.isEmpty()
+          || itemCount + pendingUpdates.peek().itemCount <= maxItemsPerFrame)) {
+        final Update update = pendingUpdates.poll();
+        itemCount += update.itemCount;
+        updates.add(update);
+      }
+      if (!pendingUpdates.isEmpty()) {
+        isFrameCallbackPosted = true;
+        choreographer.postFrameCallback(frameCallback);
+      }
+    }
+    if (updates.isEmpty()) {
+      return;
+    }
+
+    for (Update update : updates) {
+      apply(update);
+    }
+
+    final long frameTimeNanos = System.nanoTime() - startTime;
+    synchronized (this) {
+      mainThreadTimeNanos += frameTimeNanos;
+      maxFrameTimeNanos = Math.max(maxFrameTimeNanos, frameTimeNanos);
+      appliedFrames++;
+      if (pendingUpdates.isEmpty()) {
+        Log.d(TAG, "Gallery updates applied in " + appliedFrames + " frames, main thread time: "
+            + mainThreadTimeNanos / 1000 + " us, longest frame: " + maxFrameTimeNanos / 1000
+            + " us");
+      }
+    }
+  }
+
+  private void apply(Update update) {
+    final int publishedSize = galleryModel.getSnapshot().size();
+    galleryModel.publishSnapshot(update.snapshot);
+    switch (update.type) {
+      case Update.INSERTED:
+        updateListener.onItemRangeInserted(update.positionStart, update.itemCount);
+        break;
+      case Update.REMOVED:
+        updateListener.onItemRangeRemoved(update.positionStart, update.itemCount);
+        break;
+      case Update.CHANGED:
+        updateListener.onItemRangeChanged(update.positionStart, update.itemCount);
+        break;
+      case Update.CLEARED:
+        if (publishedSize > 0) {
+          updateListener.onItemRangeRemoved(0, publishedSize);
+        }
+        break;
+      default:
+        Log.w(TAG, "Unknown update type " + update.type);
+    }
+  }
+
+  /**
+   * Snapshot resulting from a single change and the description of the change.
+   */
+  private static class Update {
+
+    private static final int INSERTED = 0;
+    private static final int REMOVED = 1;
+    private static final int CHANGED = 2;
+    private static final int CLEARED = 3;
+
+    private final GallerySnapshot snapshot;
+    private final int type;
+    private final int positionStart;
+    private final int itemCount;
+
+    private Update(GallerySnapshot snapshot, int type, int positionStart, int itemCount) {
+      this.snapshot = snapshot;
+      this.type = type;
+      this.positionStart = positionStart;
+      this.itemCount = itemCount;
+    }
+  }
+
+  /**
+   * Listener notified on the main thread about the changes published to the model.
+   */
+  public interface UpdateListener {
+
+    void onItemRangeInserted(int positionStart, int itemCount);
+
+    void onItemRangeRemoved(int positionStart, int itemCount);
+
+    void onItemRangeChanged(int positionStart, int itemCount);
+  }
+}
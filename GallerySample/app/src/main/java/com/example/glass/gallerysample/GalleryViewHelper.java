@@ -34,15 +34,17 @@ public class GalleryViewHelper {
   private final LinearLayoutManager layoutManager;
   private final RecyclerViewAdapter recyclerViewAdapter;
   private int currentGalleryItemIndex;
+  private OnCurrentItemChangedListener onCurrentItemChangedListener;
 
   /**
-   * Creates {@link GalleryViewHelper} object using {@link List<GalleryItem>}. Sets horizontal
-   * {@link RecyclerView} with {@link LinearSnapHelper} to show the gallery items list on the
-   * screen.
+   * Creates {@link GalleryViewHelper} object using {@link List<GalleryItem>} and
+   * {@link ThumbnailLoader}. Sets horizontal {@link RecyclerView} with {@link LinearSnapHelper} to
+   * show the gallery items list on the screen.
    */
-  public GalleryViewHelper(View view, List<GalleryItem> galleryItems) {
+  public GalleryViewHelper(View view, List<GalleryItem> galleryItems,
+      ThumbnailLoader thumbnailLoader) {
     final RecyclerView recyclerView = view.findViewById(R.id.recyclerView);
-    recyclerViewAdapter = new RecyclerViewAdapter(galleryItems);
+    recyclerViewAdapter = new RecyclerViewAdapter(galleryItems, thumbnailLoader);
     recyclerView.setAdapter(recyclerViewAdapter);
 
     layoutManager = new LinearLayoutManager(view.getContext(),
@@ -60,7 +62,11 @@ public class GalleryViewHelper {
         if (foundView == null) {
           return;
         }
-        currentGalleryItemIndex = layoutManager.getPosition(foundView);
+        final int position = layoutManager.getPosition(foundView);
+        if (position != currentGalleryItemIndex) {
+          recyclerViewAdapter.prefetchAround(position);
+          setCurrentGalleryItemIndex(position);
+        }
       }
     });
     recyclerView.addItemDecoration(new GalleryItemDecoration(view.getResources()));
@@ -73,11 +79,123 @@ public class GalleryViewHelper {
     return currentGalleryItemIndex;
   }
 
+  /**
+   * Scrolls the list to the given position and makes it the current gallery item index.
+   */
+  public void scrollToPosition(int position) {
+    currentGalleryItemIndex = position;
+    layoutManager.scrollToPosition(position);
+    recyclerViewAdapter.prefetchAround(position);
+  }
+
+  /**
+   * Selects the current gallery item or deselects it if it is already selected.
+   */
+  public void toggleCurrentItemSelection() {
+    if (currentGalleryItemIndex < recyclerViewAdapter.getItemCount()) {
+      recyclerViewAdapter.toggleSelection(currentGalleryItemIndex);
+    }
+  }
+
+  /**
+   * Returns true if any gallery item is selected.
+   */
+  public boolean hasSelection() {
+    return recyclerViewAdapter.hasSelection();
+  }
+
+  /**
+   * Returns the selected gallery items in the list order.
+   */
+  public List<GalleryItem> getSelectedItems() {
+    return recyclerViewAdapter.getSelectedItems();
+  }
+
+  /**
+   * Deselects all of the gallery items.
+   */
+  public void clearSelection() {
+    recyclerViewAdapter.clearSelection();
+  }
+
+  /**
+   * Sets the listener notified when the current gallery item index changes.
+   */
+  public void setOnCurrentItemChangedListener(OnCurrentItemChangedListener listener) {
+    this.onCurrentItemChangedListener = listener;
+  }
+
+  /**
+   * Sets the number of the items on each side of the current item, which thumbnails are prefetched.
+   */
+  public void setPrefetchDistance(int prefetchDistance) {
+    recyclerViewAdapter.setPrefetchDistance(prefetchDistance);
+  }
+
+  /**
+   * Notifies the {@link RecyclerViewAdapter} about the items inserted to the list. The current
+   * gallery item index is shifted if the items are inserted before it, so it still points to the
+   * same item. Prefetches thumbnails around the current gallery item if they are close to the
+   * inserted range.
+   */
+  public void notifyItemRangeInserted(int positionStart, int itemCount) {
+    recyclerViewAdapter.notifyItemRangeInserted(positionStart, itemCount);
+    final int previousItemCount = recyclerViewAdapter.getItemCount() - itemCount;
+    if (positionStart <= currentGalleryItemIndex && currentGalleryItemIndex < previousItemCount) {
+      setCurrentGalleryItemIndex(currentGalleryItemIndex + itemCount);
+    }
+    if (positionStart <= currentGalleryItemIndex + recyclerViewAdapter.getPrefetchDistance()) {
+      recyclerViewAdapter.prefetchAround(currentGalleryItemIndex);
+    }
+  }
+
+  /**
+   * Notifies the {@link RecyclerViewAdapter} about the items removed from the list. The current
+   * gallery item index is shifted if the items are removed before it. If the current gallery item
+   * is removed, the item which took its place becomes the current one.
+   */
+  public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+    recyclerViewAdapter.notifyItemRangeRemoved(positionStart, itemCount);
+    if (positionStart + itemCount <= currentGalleryItemIndex) {
+      setCurrentGalleryItemIndex(currentGalleryItemIndex - itemCount);
+    } else if (positionStart <= currentGalleryItemIndex) {
+      setCurrentGalleryItemIndex(
+          Math.max(0, Math.min(positionStart, recyclerViewAdapter.getItemCount() - 1)));
+    }
+    recyclerViewAdapter.prefetchAround(currentGalleryItemIndex);
+  }
+
+  /**
+   * Notifies the {@link RecyclerViewAdapter} about the items changed in the list.
+   */
+  public void notifyItemRangeChanged(int positionStart, int itemCount) {
+    recyclerViewAdapter.notifyItemRangeChanged(positionStart, itemCount);
+  }
+
   /**
    * Calls the {@link RecyclerViewAdapter#notifyDataSetChanged()} on the {@link
-   * RecyclerViewAdapter}.
+   * RecyclerViewAdapter} and prefetches thumbnails around the current gallery item.
    */
   public void notifyDataSetChanged() {
     recyclerViewAdapter.notifyDataSetChanged();
+    recyclerViewAdapter.prefetchAround(currentGalleryItemIndex);
+  }
+
+  private void setCurrentGalleryItemIndex(int position) {
+    if (position == currentGalleryItemIndex) {
+      return;
+    }
+    currentGalleryItemIndex = position;
+    if (onCurrentItemChangedListener != null) {
+      onCurrentItemChangedListener.onCurrentItemChanged(currentGalleryItemIndex);
+    }
+  }
+
+  /**
+   * Listener notified when the current gallery item index changes.
+   */
+  interface OnCurrentItemChangedListener {
+
+    void onCurrentItemChanged(int position);
   }
 }
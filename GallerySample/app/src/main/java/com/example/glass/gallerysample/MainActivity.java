@@ -20,17 +20,20 @@ import android.Manifest.permission;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.content.ContextCompat;
 import com.example.glass.gallerysample.GalleryFragment.OnGalleryItemSelectedListener;
 import com.example.glass.gallerysample.GalleryItemFragment.OnGalleryItemDeletedListener;
+import com.example.glass.gallerysample.GalleryItemFragment.OnGalleryItemNavigationListener;
+import java.util.Collections;
 
 /**
  * Main activity of the application. It checks for necessary permissions and adds {@link
  * GalleryFragment} to the container.
  */
 public class MainActivity extends BaseActivity implements OnGalleryItemSelectedListener,
-    OnGalleryItemDeletedListener {
+    OnGalleryItemDeletedListener, OnGalleryItemNavigationListener {
 
   /**
    * Request code for the gallery permissions. This value doesn't have any special meaning.
@@ -43,7 +46,6 @@ public class MainActivity extends BaseActivity implements OnGalleryItemSelectedL
   private String[] permissions = {permission.READ_EXTERNAL_STORAGE,
       permission.WRITE_EXTERNAL_STORAGE};
 
-  private GalleryItem galleryItem;
   private GalleryFragment galleryFragment;
 
   @Override
@@ -86,23 +88,32 @@ public class MainActivity extends BaseActivity implements OnGalleryItemSelectedL
     } else if (fragment instanceof GalleryItemFragment) {
       final GalleryItemFragment galleryItemFragment = (GalleryItemFragment) fragment;
       galleryItemFragment.setOnGalleryItemDeletedListener(this);
+      galleryItemFragment.setOnGalleryItemNavigationListener(this);
     }
   }
 
   @Override
   public void onGalleryItemSelected(GalleryItem galleryItem) {
-    this.galleryItem = galleryItem;
     replaceFragment(GalleryItemFragment.newInstance(galleryItem), true);
   }
 
   @Override
-  public void onGalleryItemDeleted(String filePath) {
-    if (galleryItem.getPath().equals(filePath)) {
-      galleryFragment.onGalleryItemDeleted(galleryItem);
-    }
+  public void onGalleryItemDeleted(GalleryItem galleryItem) {
+    galleryFragment.deleteGalleryItems(Collections.singletonList(galleryItem));
     popBackStack();
   }
 
+  @Nullable
+  @Override
+  public GalleryItem getAdjacentGalleryItem(GalleryItem galleryItem, int offset) {
+    return galleryFragment.getAdjacentGalleryItem(galleryItem, offset);
+  }
+
+  @Override
+  public void onGalleryItemShown(GalleryItem galleryItem) {
+    galleryFragment.onGalleryItemShown(galleryItem);
+  }
+
   private void initializeGalleryFragment() {
     replaceFragment(new GalleryFragment(), false);
   }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.provider.MediaStore;
+import android.util.Log;
+
+/**
+ * Observes the external media store files and notifies the {@link OnMediaStoreChangedListener} on
+ * the given handler thread. Bursts of the change notifications, sent by the media scanner for a
+ * single file, are coalesced into one.
+ */
+public class MediaStoreObserver extends ContentObserver {
+
+  private static final String TAG = MediaStoreObserver.class.getSimpleName();
+  private static final String VOLUME_NAME = "external";
+
+  /**
+   * Time to wait for more change notifications before notifying the listener.
+   */
+  static final long COALESCE_DELAY_MS = 300;
+
+  private final Handler handler;
+  private final OnMediaStoreChangedListener onMediaStoreChangedListener;
+  private final Runnable notifyRunnable = new Runnable() {
+    @Override
+    public void run() {
+      onMediaStoreChangedListener.onMediaStoreChanged();
+    }
+  };
+
+  MediaStoreObserver(Handler handler, OnMediaStoreChangedListener listener) {
+    super(handler);
+    this.handler = handler;
+    this.onMediaStoreChangedListener = listener;
+  }
+
+  /**
+   * Starts observing the media store.
+   */
+  public void register(Context context) {
+    context.getContentResolver()
+        .registerContentObserver(MediaStore.Files.getContentUri(VOLUME_NAME), true, this);
+  }
+
+  /**
+   * Stops observing the media store and drops the pending notification.
+   */
+  public void unregister(Context context) {
+    context.getContentResolver().unregisterContentObserver(this);
+    handler.removeCallbacks(notifyRunnable);
+  }
+
+  @Override
+  public void onChange(boolean selfChange, Uri uri) {
+    Log.d(TAG, "Media store changed " + uri);
+    handler.removeCallbacks(notifyRunnable);
+    handler.postDelayed(notifyRunnable, COALESCE_DELAY_MS);
+  }
+
+  /**
+   * Listener notified when the media store has changed.
+   */
+  interface OnMediaStoreChangedListener {
+
+    void onMediaStoreChanged();
+  }
+}
@@ -16,24 +16,39 @@
 
 package com.example.glass.gallerysample;
 
+import android.graphics.Bitmap;
 import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import com.example.glass.gallerysample.BitmapRequest.OnBitmapLoadedListener;
 import com.example.glass.gallerysample.databinding.GalleryListItemBinding;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * Adapter for the keyboard horizontal {@link RecyclerView}
+ * Adapter for the keyboard horizontal {@link RecyclerView}. Thumbnails are requested when the item
+ * is bound and cancelled when its view is recycled. Items can be selected for the batch operations.
  */
 public class RecyclerViewAdapter extends
     RecyclerView.Adapter<RecyclerViewAdapter.GalleryViewHolder> {
 
+  /**
+   * Default number of the items on each side of the current item, which thumbnails are prefetched.
+   */
+  static final int DEFAULT_PREFETCH_DISTANCE = 3;
+
   private final List<GalleryItem> galleryItems;
+  private final ThumbnailLoader thumbnailLoader;
+  private final Set<Long> selectedIds = new HashSet<>();
+  private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
 
-  RecyclerViewAdapter(List<GalleryItem> galleryItems) {
+  RecyclerViewAdapter(List<GalleryItem> galleryItems, ThumbnailLoader thumbnailLoader) {
     this.galleryItems = galleryItems;
+    this.thumbnailLoader = thumbnailLoader;
   }
 
   @Override
@@ -50,7 +65,14 @@ public class RecyclerViewAdapter extends
 
   @Override
   public void onBindViewHolder(@NonNull GalleryViewHolder holder, int position) {
-    holder.bind(galleryItems.get(position));
+    final GalleryItem galleryItem = galleryItems.get(position);
+    holder.bind(galleryItem, selectedIds.contains(galleryItem.getId()), thumbnailLoader);
+  }
+
+  @Override
+  public void onViewRecycled(@NonNull GalleryViewHolder holder) {
+    super.onViewRecycled(holder);
+    holder.unbind();
   }
 
   @Override
@@ -58,21 +80,129 @@ public class RecyclerViewAdapter extends
     return galleryItems.size();
   }
 
+  /**
+   * Returns the number of the items on each side of the current item, which thumbnails are
+   * prefetched.
+   */
+  public int getPrefetchDistance() {
+    return prefetchDistance;
+  }
+
+  /**
+   * Sets the number of the items on each side of the current item, which thumbnails are prefetched.
+   */
+  public void setPrefetchDistance(int prefetchDistance) {
+    if (prefetchDistance < 0) {
+      throw new IllegalArgumentException("Prefetch distance can't be negative");
+    }
+    this.prefetchDistance = prefetchDistance;
+  }
+
+  /**
+   * Selects the item at the given position or deselects it if it is already selected.
+   */
+  public void toggleSelection(int position) {
+    final long id = galleryItems.get(position).getId();
+    if (!selectedIds.remove(id)) {
+      selectedIds.add(id);
+    }
+    notifyItemChanged(position);
+  }
+
+  /**
+   * Returns true if any item is selected.
+   */
+  public boolean hasSelection() {
+    return !selectedIds.isEmpty();
+  }
+
+  /**
+   * Returns the selected items in the list order. Selected items which are no longer in the list
+   * are forgotten.
+   */
+  public List<GalleryItem> getSelectedItems() {
+    final List<GalleryItem> selectedItems = new ArrayList<>(selectedIds.size());
+    for (GalleryItem galleryItem : galleryItems) {
+      if (selectedIds.contains(galleryItem.getId())) {
+        selectedItems.add(galleryItem);
+      }
+    }
+    selectedIds.clear();
+    for (GalleryItem selectedItem : selectedItems) {
+      selectedIds.add(selectedItem.getId());
+    }
+    return selectedItems;
+  }
+
+  /**
+   * Deselects all of the items.
+   */
+  public void clearSelection() {
+    if (!selectedIds.isEmpty()) {
+      selectedIds.clear();
+      notifyItemRangeChanged(0, galleryItems.size());
+    }
+  }
+
+  /**
+   * Prefetches thumbnails of the items around the given position, nearest ones first.
+   */
+  public void prefetchAround(int position) {
+    final List<GalleryItem> prefetchItems = new ArrayList<>(2 * prefetchDistance);
+    for (int distance = 1; distance <= prefetchDistance; distance++) {
+      if (position + distance < galleryItems.size()) {
+        prefetchItems.add(galleryItems.get(position + distance));
+      }
+      if (position - distance >= 0 && position - distance < galleryItems.size()) {
+        prefetchItems.add(galleryItems.get(position - distance));
+      }
+    }
+    thumbnailLoader.prefetchThumbnails(prefetchItems);
+  }
+
   /**
    * {@link RecyclerView.ViewHolder} class for keyboard, using generic binding.
    */
   static class GalleryViewHolder extends RecyclerView.ViewHolder {
 
     private final GalleryListItemBinding binding;
+    private BitmapRequest thumbnailRequest;
 
     GalleryViewHolder(@NonNull GalleryListItemBinding binding) {
       super(binding.getRoot());
       this.binding = binding;
     }
 
-    void bind(GalleryItem galleryItem) {
+    void bind(GalleryItem galleryItem, boolean selected, ThumbnailLoader thumbnailLoader) {
       binding.setItem(galleryItem);
+      binding.setSelected(selected);
       binding.executePendingBindings();
+
+      cancelThumbnailRequest();
+      final Bitmap cachedThumbnail = thumbnailLoader.getCachedThumbnail(galleryItem);
+      binding.currentKeyImageView.setImageBitmap(cachedThumbnail);
+      if (cachedThumbnail == null) {
+        thumbnailRequest = thumbnailLoader
+            .loadThumbnail(galleryItem, new OnBitmapLoadedListener() {
+              @Override
+              public void onBitmapLoaded(Bitmap thumbnail) {
+                thumbnailRequest = null;
+                binding.currentKeyImageView.setImageBitmap(thumbnail);
+              }
+            });
+      }
+    }
+
+    void unbind() {
+      cancelThumbnailRequest();
+      binding.currentKeyImageView.setImageDrawable(null);
+    }
+
+    private void cancelThumbnailRequest() {
+      if (thumbnailRequest != null) {
+        thumbnailRequest.cancel();
+        thumbnailRequest = null;
+      }
     }
   }
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.BitmapFactory;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.LruCache;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two level cache of the gallery thumbnails. Thumbnails are kept in the in-memory LRU cache bounded
+ * by the bitmaps byte count and compressed into the app cache directory, so they survive the
+ * gallery being reopened and the app process being restarted. Entries are keyed by the media store
+ * id and the date modified, so edited media get new thumbnails.
+ */
+public class ThumbnailCache {
+
+  private static final String TAG = ThumbnailCache.class.getSimpleName();
+  private static final String DISK_CACHE_DIRECTORY = "thumbnails";
+  private static final String DISK_CACHE_FILE_EXTENSION = ".jpg";
+  private static final int MEMORY_CACHE_FRACTION = 8;
+  private static final long MAX_DISK_CACHE_SIZE_BYTES = 32 * 1024 * 1024;
+  private static final int COMPRESS_QUALITY = 85;
+
+  private static ThumbnailCache instance;
+
+  private final LruCache<String, Bitmap> memoryCache;
+  private final File diskCacheDirectory;
+  private final Object diskCacheLock = new Object();
+  private final AtomicInteger memoryHits = new AtomicInteger();
+  private final AtomicInteger diskHits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final AtomicInteger memoryEvictions = new AtomicInteger();
+  private final AtomicInteger diskEvictions = new AtomicInteger();
+  private long diskCacheSizeBytes;
+
+  /**
+   * Returns the {@link ThumbnailCache} shared by the whole app.
+   */
+  public static synchronized ThumbnailCache getInstance(Context context) {
+    if (instance == null) {
+      instance = new ThumbnailCache(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  private ThumbnailCache(Context context) {
+    final int maxMemoryCacheSizeBytes = (int) Math
+        .min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / MEMORY_CACHE_FRACTION);
+    memoryCache = new LruCache<String, Bitmap>(maxMemoryCacheSizeBytes) {
+      @Override
+      protected int sizeOf(String key, Bitmap value) {
+        return value.getByteCount();
+      }
+
+      @Override
+      protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+          Bitmap newValue) {
+        if (evicted) {
+          memoryEvictions.incrementAndGet();
+        }
+      }
+    };
+    diskCacheDirectory = new File(context.getCacheDir(), DISK_CACHE_DIRECTORY);
+    if (!diskCacheDirectory.isDirectory() && !diskCacheDirectory.mkdirs()) {
+      Log.e(TAG, "Can't create disk cache directory " + diskCacheDirectory);
+    }
+    final File[] files = diskCacheDirectory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        diskCacheSizeBytes += file.length();
+      }
+    }
+  }
+
+  /**
+   * Returns the cache key for the given {@link GalleryItem}.
+   */
+  public static String getKey(GalleryItem galleryItem) {
+    return galleryItem.getId() + "_" + galleryItem.getDateModified();
+  }
+
+  /**
+   * Returns thumbnail from the memory cache or null if it is not there. Does not touch the disk, so
+   * it may be called from the main thread.
+   */
+  @Nullable
+  public Bitmap getFromMemory(String key) {
+    final Bitmap bitmap = memoryCache.get(key);
+    if (bitmap != null) {
+      memoryHits.incrementAndGet();
+    }
+    return bitmap;
+  }
+
+  /**
+   * Returns thumbnail from the memory cache or from the disk cache or null if it is in neither of
+   * them. Thumbnail read from the disk is put into the memory cache. Must be called from a
+   * background thread.
+   */
+  @Nullable
+  public Bitmap get(String key) {
+    final Bitmap bitmap = getFromMemory(key);
+    if (bitmap != null) {
+      return bitmap;
+    }
+
+    final File file = getDiskCacheFile(key);
+    final Bitmap diskBitmap;
+    synchronized (diskCacheLock) {
+      diskBitmap = file.isFile() ? BitmapFactory.decodeFile(file.getPath()) : null;
+      if (diskBitmap != null) {
+        // Marks the file as recently used.
+        file.setLastModified(System.currentTimeMillis());
+      }
+    }
+    if (diskBitmap == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    diskHits.incrementAndGet();
+    memoryCache.put(key, diskBitmap);
+    return diskBitmap;
+  }
+
+  /**
+   * Puts the thumbnail into the memory cache and writes it to the disk cache. Must be called from a
+   * background thread.
+   */
+  public void put(String key, Bitmap bitmap) {
+    memoryCache.put(key, bitmap);
+
+    final File file = getDiskCacheFile(key);
+    synchronized (diskCacheLock) {
+      final long previousLength = file.length();
+      try (OutputStream outputStream = new FileOutputStream(file)) {
+        bitmap.compress(CompressFormat.JPEG, COMPRESS_QUALITY, outputStream);
+      } catch (IOException e) {
+        Log.e(TAG, "Can't write thumbnail to the disk cache " + file, e);
+        file.delete();
+        diskCacheSizeBytes -= previousLength;
+        return;
+      }
+      diskCacheSizeBytes += file.length() - previousLength;
+      trimDiskCache();
+    }
+  }
+
+  /**
+   * Returns the number of thumbnails returned from the memory cache.
+   */
+  public int getMemoryHitCount() {
+    return memoryHits.get();
+  }
+
+  /**
+   * Returns the number of thumbnails returned from the disk cache.
+   */
+  public int getDiskHitCount() {
+    return diskHits.get();
+  }
+
+  /**
+   * Returns the number of thumbnails found in neither of the caches.
+   */
+  public int getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of thumbnails evicted from the memory cache.
+   */
+  public int getMemoryEvictionCount() {
+    return memoryEvictions.get();
+  }
+
+  /**
+   * Returns the number of thumbnails evicted from the disk cache.
+   */
+  public int getDiskEvictionCount() {
+    return diskEvictions.get();
+  }
+
+  @Override
+  public String toString() {
+    return "ThumbnailCache{memoryHits=" + memoryHits + ", diskHits=" + diskHits + ", misses="
+        + misses + ", memoryEvictions=" + memoryEvictions + ", diskEvictions=" + diskEvictions
+        + ", memorySizeBytes=" + memoryCache.size() + ", diskSizeBytes=" + diskCacheSizeBytes
+        + "}";
+  }
+
+  private File getDiskCacheFile(String key) {
+    return new File(diskCacheDirectory, key + DISK_CACHE_FILE_EXTENSION);
+  }
+
+  /**
+   * Deletes the least recently used files until the disk cache fits its maximum size.
+   */
+  private void trimDiskCache() {
+    if (diskCacheSizeBytes <= MAX_DISK_CACHE_SIZE_BYTES) {
+      return;
+    }
+    final File[] files = diskCacheDirectory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        return Long.compare(first.lastModified(), second.lastModified());
+      }
+    });
+    for (File file : files) {
+      if (diskCacheSizeBytes <= MAX_DISK_CACHE_SIZE_BYTES) {
+        break;
+      }
+      final long length = file.length();
+      if (file.delete()) {
+        diskCacheSizeBytes -= length;
+        diskEvictions.incrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ThumbnailUtils;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * Decodes image thumbnails without loading the full resolution bitmap into memory. Image bounds are
+ * read first, then the image is subsampled to the smallest power of two size which still covers
+ * the thumbnail. Decoded pixels are written into a bitmap reused by the decoding thread.
+ */
+public class ThumbnailDecoder {
+
+  private static final String TAG = ThumbnailDecoder.class.getSimpleName();
+
+  private final int thumbnailWidth;
+  private final int thumbnailHeight;
+
+  /**
+   * Scratch bitmap reused by the subsequent decodes on the same thread.
+   */
+  private final ThreadLocal<Bitmap> reusableBitmap = new ThreadLocal<>();
+
+  ThumbnailDecoder(int thumbnailWidth, int thumbnailHeight) {
+    this.thumbnailWidth = thumbnailWidth;
+    this.thumbnailHeight = thumbnailHeight;
+  }
+
+  /**
+   * Returns thumbnail of the image stored under the given path or null if the image can not be
+   * decoded.
+   */
+  @Nullable
+  public Bitmap decodeImageThumbnail(String path) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(path, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      Log.w(TAG, "Can't read image bounds " + path);
+      return null;
+    }
+
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+        thumbnailWidth, thumbnailHeight);
+    options.inMutable = true;
+    options.inBitmap = reusableBitmap.get();
+
+    Bitmap decoded;
+    try {
+      decoded = BitmapFactory.decodeFile(path, options);
+    } catch (IllegalArgumentException e) {
+      // Reusable bitmap is too small for this image, decode into a new one.
+      Log.d(TAG, "Can't reuse bitmap for " + path);
+      options.inBitmap = null;
+      decoded = BitmapFactory.decodeFile(path, options);
+    }
+    if (decoded == null) {
+      Log.w(TAG, "Can't decode image " + path);
+      return null;
+    }
+    final Bitmap previous = reusableBitmap.get();
+    if (previous != decoded) {
+      if (previous != null) {
+        previous.recycle();
+      }
+      reusableBitmap.set(decoded);
+    }
+
+    final Bitmap thumbnail = ThumbnailUtils
+        .extractThumbnail(decoded, thumbnailWidth, thumbnailHeight);
+    // Decoded bitmap is reused, so the thumbnail must never share its pixels.
+    return thumbnail == decoded ? decoded.copy(decoded.getConfig(), false) : thumbnail;
+  }
+
+  /**
+   * Returns the largest power of two sample size, which keeps both of the decoded image dimensions
+   * not smaller than the requested ones.
+   */
+  static int calculateInSampleSize(int width, int height, int requestedWidth,
+      int requestedHeight) {
+    int inSampleSize = 1;
+    while (width / (inSampleSize * 2) >= requestedWidth
+        && height / (inSampleSize * 2) >= requestedHeight) {
+      inSampleSize *= 2;
+    }
+    return inSampleSize;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.example.glass.gallerysample.BitmapRequest.OnBitmapLoadedListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads thumbnails of the {@link GalleryItem}s on demand, on bounded pools of threads. Video
+ * thumbnails are extracted on a separate smaller pool, so the long videos don't hold up the image
+ * thumbnails. Thumbnails are taken from the {@link ThumbnailCache} when possible and decoded
+ * otherwise. Loaded thumbnails are delivered on the main thread. Decode time of each thumbnail and
+ * the peak heap usage are logged.
+ */
+public class ThumbnailLoader {
+
+  private static final String TAG = ThumbnailLoader.class.getSimpleName();
+  private static final int MAX_POOL_SIZE = 4;
+  private static final int MAX_VIDEO_POOL_SIZE = 2;
+  private static final int THUMBNAIL_WIDTH_PX = 400;
+  private static final int THUMBNAIL_HEIGHT_PX = 400;
+
+  private final ExecutorService executorService;
+  private final ExecutorService videoExecutorService;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final ThumbnailCache thumbnailCache;
+  private final ThumbnailDecoder thumbnailDecoder =
+      new ThumbnailDecoder(THUMBNAIL_WIDTH_PX, THUMBNAIL_HEIGHT_PX);
+  private final VideoThumbnailExtractor videoThumbnailExtractor =
+      new VideoThumbnailExtractor(THUMBNAIL_WIDTH_PX, THUMBNAIL_HEIGHT_PX);
+  private final List<Future<?>> prefetchFutures = new ArrayList<>();
+  private final AtomicInteger pendingThumbnails = new AtomicInteger();
+  private final AtomicInteger decodedThumbnails = new AtomicInteger();
+  private final AtomicLong totalDecodeTimeMs = new AtomicLong();
+  private final AtomicLong peakHeapBytes = new AtomicLong();
+
+  ThumbnailLoader(Context context) {
+    this.thumbnailCache = ThumbnailCache.getInstance(context);
+    final int processors = Runtime.getRuntime().availableProcessors();
+    executorService = Executors
+        .newFixedThreadPool(Math.max(1, Math.min(MAX_POOL_SIZE, processors)));
+    videoExecutorService = Executors
+        .newFixedThreadPool(Math.max(1, Math.min(MAX_VIDEO_POOL_SIZE, processors / 2)));
+  }
+
+  /**
+   * Returns thumbnail of the given {@link GalleryItem} if it is in the memory cache or null
+   * otherwise.
+   */
+  @Nullable
+  public Bitmap getCachedThumbnail(GalleryItem galleryItem) {
+    return thumbnailCache.getFromMemory(ThumbnailCache.getKey(galleryItem));
+  }
+
+  /**
+   * Loads thumbnail of the given {@link GalleryItem} and passes it to the given listener on the
+   * main thread. Returned {@link BitmapRequest} can be used to cancel the load.
+   */
+  public BitmapRequest loadThumbnail(GalleryItem galleryItem, OnBitmapLoadedListener listener) {
+    final BitmapRequest request = new BitmapRequest(mainHandler, listener);
+    request.setFuture(submit(galleryItem, request));
+    return request;
+  }
+
+  /**
+   * Loads thumbnails of the given {@link GalleryItem}s into the cache. Prefetches which have not
+   * been started yet are cancelled, as they are replaced by the new ones.
+   */
+  public void prefetchThumbnails(List<GalleryItem> galleryItems) {
+    for (Future<?> future : prefetchFutures) {
+      future.cancel(false);
+    }
+    prefetchFutures.clear();
+    for (GalleryItem galleryItem : galleryItems) {
+      if (getCachedThumbnail(galleryItem) == null) {
+        prefetchFutures.add(submit(galleryItem, null));
+      }
+    }
+  }
+
+  /**
+   * Cancels pending thumbnail loads and stops the threads.
+   */
+  public void release() {
+    executorService.shutdownNow();
+    videoExecutorService.shutdownNow();
+    mainHandler.removeCallbacksAndMessages(null);
+  }
+
+  private Future<?> submit(final GalleryItem galleryItem, @Nullable final BitmapRequest request) {
+    if (pendingThumbnails.getAndIncrement() == 0) {
+      peakHeapBytes.set(usedHeapBytes());
+    }
+    final FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+      @Override
+      public void run() {
+        final Bitmap thumbnail = loadThumbnail(galleryItem);
+        if (thumbnail != null && request != null) {
+          request.deliver(thumbnail);
+        }
+      }
+    }, null) {
+      @Override
+      protected void done() {
+        // Called when the task either finishes or is cancelled.
+        onThumbnailFinished();
+      }
+    };
+    if (galleryItem.getType() == GalleryItem.Type.VIDEO) {
+      videoExecutorService.execute(task);
+    } else {
+      executorService.execute(task);
+    }
+    return task;
+  }
+
+  @Nullable
+  private Bitmap loadThumbnail(GalleryItem galleryItem) {
+    final String key = ThumbnailCache.getKey(galleryItem);
+    final Bitmap cachedThumbnail = thumbnailCache.get(key);
+    if (cachedThumbnail != null) {
+      return cachedThumbnail;
+    }
+
+    final long startTime = SystemClock.elapsedRealtime();
+    final Bitmap thumbnail = createThumbnail(galleryItem);
+    final long decodeTimeMs = SystemClock.elapsedRealtime() - startTime;
+    Log.d(TAG, "Thumbnail of " + galleryItem.getName() + " decoded in " + decodeTimeMs + " ms");
+    decodedThumbnails.incrementAndGet();
+    totalDecodeTimeMs.addAndGet(decodeTimeMs);
+    if (thumbnail != null) {
+      thumbnailCache.put(key, thumbnail);
+    }
+    return thumbnail;
+  }
+
+  private void onThumbnailFinished() {
+    final long usedHeapBytes = usedHeapBytes();
+    long peak;
+    do {
+      peak = peakHeapBytes.get();
+    } while (usedHeapBytes > peak && !peakHeapBytes.compareAndSet(peak, usedHeapBytes));
+
+    if (pendingThumbnails.decrementAndGet() == 0) {
+      final int decoded = decodedThumbnails.getAndSet(0);
+      Log.d(TAG, "Thumbnails decoded: " + decoded + ", average decode time: "
+          + totalDecodeTimeMs.getAndSet(0) / Math.max(1, decoded) + " ms, peak heap: "
+          + peakHeapBytes.get() / 1024 + " kB, " + thumbnailCache);
+    }
+  }
+
+  /**
+   * Returns bytes used by the Java and the native heap. Bitmap pixels live on the native heap since
+   * API 26, so the Java heap alone doesn't show the decoded thumbnails.
+   */
+  private static long usedHeapBytes() {
+    final Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+  }
+
+  @Nullable
+  private Bitmap createThumbnail(GalleryItem galleryItem) {
+    switch (galleryItem.getType()) {
+      case IMAGE:
+        // Creates thumbnail from the subsampled bitmap.
+        return thumbnailDecoder.decodeImageThumbnail(galleryItem.getPath());
+      case VIDEO:
+        // Creates thumbnail from the representative frame extracted at the thumbnail size.
+        return videoThumbnailExtractor.extractThumbnail(galleryItem.getPath());
+      default:
+        Log.w(TAG, "Unknown gallery item type " + galleryItem.getType());
+        return null;
+    }
+  }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.graphics.Matrix;
+import android.graphics.SurfaceTexture;
+import android.media.MediaPlayer;
+import android.media.MediaPlayer.OnCompletionListener;
+import android.media.MediaPlayer.OnErrorListener;
+import android.media.MediaPlayer.OnInfoListener;
+import android.media.MediaPlayer.OnPreparedListener;
+import android.media.MediaPlayer.OnVideoSizeChangedListener;
+import android.os.PersistableBundle;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.TextureView.SurfaceTextureListener;
+import java.io.IOException;
+
+/**
+ * Plays gallery videos on a {@link TextureView} with two reused {@link MediaPlayer}s. While one of
+ * them plays, the other one can be prepared for the next video, so swiping to it only swaps the
+ * players. The output {@link Surface} is kept for all of the videos and the playback starts from
+ * the closest sync frame. Startup latency, from the play request to the first rendered frame, and
+ * the number of dropped frames of each video are logged.
+ */
+public class VideoPlaybackEngine implements SurfaceTextureListener {
+
+  private static final String TAG = VideoPlaybackEngine.class.getSimpleName();
+
+  private final TextureView textureView;
+  private final PlaybackListener playbackListener;
+  private final Matrix transform = new Matrix();
+
+  private Player activePlayer;
+  private Player standbyPlayer;
+  private Surface surface;
+  private boolean isStartRequested;
+  private long playRequestTime;
+  private int videoWidth;
+  private int videoHeight;
+
+  /**
+   * Creates {@link VideoPlaybackEngine} rendering to the given {@link TextureView}.
+   */
+  public VideoPlaybackEngine(TextureView textureView, PlaybackListener playbackListener) {
+    this.textureView = textureView;
+    this.playbackListener = playbackListener;
+    activePlayer = new Player();
+    standbyPlayer = new Player();
+    textureView.setSurfaceTextureListener(this);
+    if (textureView.isAvailable()) {
+      onSurfaceTextureAvailable(textureView.getSurfaceTexture(), textureView.getWidth(),
+          textureView.getHeight());
+    }
+  }
+
+  /**
+   * Plays the video stored under the given path from its start. Uses the standby player if it has
+   * been prepared for this video.
+   */
+  public void play(String path) {
+    stop();
+    playRequestTime = SystemClock.elapsedRealtime();
+    if (path.equals(standbyPlayer.path)) {
+      final Player previousPlayer = activePlayer;
+      activePlayer = standbyPlayer;
+      standbyPlayer = previousPlayer;
+      Log.d(TAG, "Playing prepared " + path);
+    } else if (!activePlayer.prepare(path)) {
+      playbackListener.onPlaybackCompleted();
+      return;
+    }
+    standbyPlayer.mediaPlayer.setSurface(null);
+    activePlayer.mediaPlayer.setSurface(surface);
+    isStartRequested = true;
+    startIfReady();
+  }
+
+  /**
+   * Plays the current video again from its start.
+   */
+  public void replay() {
+    if (activePlayer.path != null) {
+      playRequestTime = SystemClock.elapsedRealtime();
+      isStartRequested = true;
+      startIfReady();
+    }
+  }
+
+  /**
+   * Prepares the standby player for the video stored under the given path, unless it is already
+   * playing or prepared.
+   */
+  public void prepareNext(String path) {
+    if (!path.equals(activePlayer.path) && !path.equals(standbyPlayer.path)) {
+      standbyPlayer.prepare(path);
+    }
+  }
+
+  /**
+   * Stops the current video, logging its playback statistics. Players are kept for the next
+   * videos.
+   */
+  public void stop() {
+    isStartRequested = false;
+    if (activePlayer.isPrepared && activePlayer.mediaPlayer.isPlaying()) {
+      activePlayer.mediaPlayer.pause();
+      reportStatistics(activePlayer);
+    }
+  }
+
+  /**
+   * Releases both of the players and the surface.
+   */
+  public void release() {
+    stop();
+    activePlayer.mediaPlayer.release();
+    standbyPlayer.mediaPlayer.release();
+    textureView.setSurfaceTextureListener(null);
+    if (surface != null) {
+      surface.release();
+      surface = null;
+    }
+  }
+
+  @Override
+  public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+    surface = new Surface(surfaceTexture);
+    activePlayer.mediaPlayer.setSurface(surface);
+    updateTransform();
+    startIfReady();
+  }
+
+  @Override
+  public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+    updateTransform();
+  }
+
+  @Override
+  public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+    activePlayer.mediaPlayer.setSurface(null);
+    if (surface != null) {
+      surface.release();
+      surface = null;
+    }
+    return true;
+  }
+
+  @Override
+  public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+  }
+
+  private void startIfReady() {
+    if (!isStartRequested || !activePlayer.isPrepared || surface == null) {
+      return;
+    }
+    isStartRequested = false;
+    final MediaPlayer mediaPlayer = activePlayer.mediaPlayer;
+    if (mediaPlayer.getCurrentPosition() != 0) {
+      mediaPlayer.seekTo(0, MediaPlayer.SEEK_CLOSEST_SYNC);
+    }
+    videoWidth = mediaPlayer.getVideoWidth();
+    videoHeight = mediaPlayer.getVideoHeight();
+    updateTransform();
+    mediaPlayer.start();
+  }
+
+  /**
+   * Scales the video to fit the {@link TextureView}, keeping its aspect ratio.
+   */
+  private void updateTransform() {
+    final int viewWidth = textureView.getWidth();
+    final int viewHeight = textureView.getHeight();
+    if (videoWidth <= 0 || videoHeight <= 0 || viewWidth <= 0 || viewHeight <= 0) {
+      return;
+    }
+    final float scale = Math.min((float) viewWidth / videoWidth,
+        (float) viewHeight / videoHeight);
+    transform.setScale(videoWidth * scale / viewWidth, videoHeight * scale / viewHeight,
+        viewWidth / 2f, viewHeight / 2f);
+    textureView.setTransform(transform);
+  }
+
+  private void reportStatistics(Player player) {
+    final PersistableBundle metrics = player.mediaPlayer.getMetrics();
+    final int frames = metrics.getInt(MediaPlayer.MetricsConstants.FRAMES);
+    final int droppedFrames = metrics.getInt(MediaPlayer.MetricsConstants.FRAMES_DROPPED);
+    Log.d(TAG, "Played " + player.path + ", frames: " + frames + ", dropped: " + droppedFrames);
+  }
+
+  /**
+   * {@link MediaPlayer} with the path of the video it has been prepared for.
+   */
+  private class Player implements OnPreparedListener, OnInfoListener, OnCompletionListener,
+      OnErrorListener, OnVideoSizeChangedListener {
+
+    private final MediaPlayer mediaPlayer = new MediaPlayer();
+    @Nullable
+    private String path;
+    private boolean isPrepared;
+
+    Player() {
+      mediaPlayer.setOnPreparedListener(this);
+      mediaPlayer.setOnInfoListener(this);
+      mediaPlayer.setOnCompletionListener(this);
+      mediaPlayer.setOnErrorListener(this);
+      mediaPlayer.setOnVideoSizeChangedListener(this);
+    }
+
+    /**
+     * Starts preparing the given video asynchronously. Returns false if the video can't be
+     * opened.
+     */
+    boolean prepare(String path) {
+      mediaPlayer.reset();
+      isPrepared = false;
+      this.path = null;
+      try {
+        mediaPlayer.setDataSource(path);
+      } catch (IOException | RuntimeException e) {
+        Log.e(TAG, "Can't open video " + path, e);
+        return false;
+      }
+      this.path = path;
+      mediaPlayer.prepareAsync();
+      return true;
+    }
+
+    @Override
+    public void onPrepared(MediaPlayer mp) {
+      isPrepared = true;
+      if (this == activePlayer) {
+        startIfReady();
+      }
+    }
+
+    @Override
+    public boolean onInfo(MediaPlayer mp, int what, int extra) {
+      if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START && this == activePlayer) {
+        final long startupLatencyMs = SystemClock.elapsedRealtime() - playRequestTime;
+        Log.d(TAG, "Playback of " + path + " started in " + startupLatencyMs + " ms");
+        playbackListener.onPlaybackStarted(startupLatencyMs);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void onCompletion(MediaPlayer mp) {
+      if (this == activePlayer) {
+        reportStatistics(this);
+        playbackListener.onPlaybackCompleted();
+      }
+    }
+
+    @Override
+    public boolean onError(MediaPlayer mp, int what, int extra) {
+      Log.e(TAG, "Playback of " + path + " failed, what: " + what + ", extra: " + extra);
+      // Player is in the error state until it is reset for the next video.
+      isPrepared = false;
+      path = null;
+      if (this == activePlayer) {
+        playbackListener.onPlaybackCompleted();
+      }
+      return true;
+    }
+
+    @Override
+    public void onVideoSizeChanged(MediaPlayer mp, int width, int height) {
+      if (this == activePlayer) {
+        videoWidth = width;
+        videoHeight = height;
+        updateTransform();
+      }
+    }
+  }
+
+  /**
+   * Listener notified about the playback of the videos.
+   */
+  interface PlaybackListener {
+
+    /**
+     * Called when the first frame of the video is rendered, with the time since the play request.
+     */
+    void onPlaybackStarted(long startupLatencyMs);
+
+    /**
+     * Called when the video has been played to its end or has failed.
+     */
+    void onPlaybackCompleted();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.media.ThumbnailUtils;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * Extracts video thumbnails from a representative frame, which is decoded by the
+ * {@link MediaMetadataRetriever} directly at the size covering the thumbnail. The frame is taken
+ * from the sync sample closest to a short time after the start, skipping black intro frames
+ * without decoding the preceding ones. Intermediate frames are recycled as soon as the thumbnail
+ * is cropped.
+ */
+public class VideoThumbnailExtractor {
+
+  private static final String TAG = VideoThumbnailExtractor.class.getSimpleName();
+
+  /**
+   * Part of the video duration after which the representative frame is taken.
+   */
+  private static final int REPRESENTATIVE_FRAME_DIVISOR = 10;
+
+  /**
+   * Maximum time of the representative frame, so it is close to the start of the long videos.
+   */
+  private static final long MAX_REPRESENTATIVE_FRAME_TIME_MS = 5000;
+
+  private static final int ROTATION_90 = 90;
+  private static final int ROTATION_270 = 270;
+
+  private final int thumbnailWidth;
+  private final int thumbnailHeight;
+
+  VideoThumbnailExtractor(int thumbnailWidth, int thumbnailHeight) {
+    this.thumbnailWidth = thumbnailWidth;
+    this.thumbnailHeight = thumbnailHeight;
+  }
+
+  /**
+   * Returns thumbnail of the video stored under the given path or null if no frame can be
+   * extracted.
+   */
+  @Nullable
+  public Bitmap extractThumbnail(String path) {
+    final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+    try {
+      retriever.setDataSource(path);
+      int width = parseInt(retriever.extractMetadata(
+          MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+      int height = parseInt(retriever.extractMetadata(
+          MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+      final int rotation = parseInt(retriever.extractMetadata(
+          MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+      if (rotation == ROTATION_90 || rotation == ROTATION_270) {
+        final int rotatedWidth = height;
+        height = width;
+        width = rotatedWidth;
+      }
+      final long durationMs = parseInt(retriever.extractMetadata(
+          MediaMetadataRetriever.METADATA_KEY_DURATION));
+      final long frameTimeUs = 1000 * Math
+          .min(durationMs / REPRESENTATIVE_FRAME_DIVISOR, MAX_REPRESENTATIVE_FRAME_TIME_MS);
+
+      Bitmap frame = null;
+      if (width > 0 && height > 0) {
+        final float scale = Math.max((float) thumbnailWidth / width,
+            (float) thumbnailHeight / height);
+        frame = retriever.getScaledFrameAtTime(frameTimeUs,
+            MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+            Math.max(thumbnailWidth, Math.round(width * scale)),
+            Math.max(thumbnailHeight, Math.round(height * scale)));
+      }
+      if (frame == null) {
+        // Size is unknown or the scaled frame can't be extracted, fall back to the first frame.
+        frame = retriever.getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+      }
+      if (frame == null) {
+        Log.w(TAG, "Can't extract frame of " + path);
+        return null;
+      }
+      return ThumbnailUtils.extractThumbnail(frame, thumbnailWidth, thumbnailHeight,
+          ThumbnailUtils.OPTIONS_RECYCLE_INPUT);
+    } catch (RuntimeException e) {
+      Log.e(TAG, "Can't read video " + path, e);
+      return null;
+    } finally {
+      retriever.release();
+    }
+  }
+
+  private static int parseInt(@Nullable String value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
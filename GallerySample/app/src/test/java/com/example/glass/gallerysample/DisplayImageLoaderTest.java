@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Rect;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Checks the zoomed in region and the sample size chosen by the {@link DisplayImageLoader}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DisplayImageLoaderTest {
+
+  private static final int DISPLAY_WIDTH = 640;
+  private static final int DISPLAY_HEIGHT = 360;
+  private static final int IMAGE_WIDTH = 4000;
+  private static final int IMAGE_HEIGHT = 3000;
+
+  @Test
+  public void calculateInSampleSize_keepsImageNotSmallerThanDisplay() {
+    // Fitted to the display the image is 480x360. The sample size of 8 decodes it to 500x375.
+    assertEquals(8, DisplayImageLoader
+        .calculateInSampleSize(IMAGE_WIDTH, IMAGE_HEIGHT, DISPLAY_WIDTH, DISPLAY_HEIGHT));
+  }
+
+  @Test
+  public void calculateInSampleSize_imageTwiceTheDisplay() {
+    assertEquals(2, DisplayImageLoader
+        .calculateInSampleSize(2 * DISPLAY_WIDTH, 2 * DISPLAY_HEIGHT, DISPLAY_WIDTH,
+            DISPLAY_HEIGHT));
+  }
+
+  @Test
+  public void calculateInSampleSize_imageSmallerThanDisplay() {
+    assertEquals(1, DisplayImageLoader
+        .calculateInSampleSize(DISPLAY_WIDTH / 2, DISPLAY_HEIGHT / 2, DISPLAY_WIDTH,
+            DISPLAY_HEIGHT));
+  }
+
+  @Test
+  public void calculateRegion_noZoom_returnsWholeImage() {
+    assertEquals(new Rect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT),
+        DisplayImageLoader.calculateRegion(IMAGE_WIDTH, IMAGE_HEIGHT, 1, 0.5f, 0.5f));
+  }
+
+  @Test
+  public void calculateRegion_centered() {
+    assertEquals(new Rect(1000, 750, 3000, 2250),
+        DisplayImageLoader.calculateRegion(IMAGE_WIDTH, IMAGE_HEIGHT, 2, 0.5f, 0.5f));
+  }
+
+  @Test
+  public void calculateRegion_panned() {
+    assertEquals(new Rect(2000, 375, 3000, 1125),
+        DisplayImageLoader.calculateRegion(IMAGE_WIDTH, IMAGE_HEIGHT, 4, 0.625f, 0.25f));
+  }
+
+  @Test
+  public void calculateRegion_keepsRegionInsideImage() {
+    assertEquals(new Rect(0, 0, 1000, 750),
+        DisplayImageLoader.calculateRegion(IMAGE_WIDTH, IMAGE_HEIGHT, 4, 0, 0));
+    assertEquals(new Rect(3000, 2250, 4000, 3000),
+        DisplayImageLoader.calculateRegion(IMAGE_WIDTH, IMAGE_HEIGHT, 4, 1, 1));
+  }
+}
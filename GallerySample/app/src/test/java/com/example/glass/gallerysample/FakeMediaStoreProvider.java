@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.provider.MediaStore.Files.FileColumns;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Media store stand-in serving synthetic image and video rows from an in-memory SQLite table, so
+ * the selections, sort orders and limits of the {@link GalleryItemsProvider} queries behave as on
+ * a device. Like the media store before Android R, it maps only the SQL arguments of the queries
+ * and ignores the {@link ContentResolver#QUERY_ARG_LIMIT} argument, so limits have to be a part of
+ * the sort order. Deletes and updates of the uris with an appended id affect only that row. Every
+ * row points to a small generated file.
+ */
+public class FakeMediaStoreProvider extends ContentProvider {
+
+  private static final String TABLE_NAME = "files";
+  private static final String IMAGE_MIME_TYPE = "image/jpeg";
+  private static final String VIDEO_MIME_TYPE = "video/mp4";
+  private static final byte[] FILE_CONTENT = new byte[64];
+
+  /**
+   * Every n-th generated row is a video.
+   */
+  private static final int VIDEO_INTERVAL = 10;
+
+  /**
+   * Number of the rows generated with the same date added, as in a burst of photos.
+   */
+  private static final int ROWS_PER_SECOND = 3;
+
+  private SQLiteDatabase database;
+
+  /**
+   * Number of the rows returned by the last query.
+   */
+  private volatile int lastQueryRowCount;
+
+  @Override
+  public boolean onCreate() {
+    database = SQLiteDatabase.create(null);
+    database.execSQL("CREATE TABLE " + TABLE_NAME + " ("
+        + FileColumns._ID + " INTEGER PRIMARY KEY, "
+        + FileColumns.DATE_ADDED + " INTEGER, "
+        + FileColumns.DATE_MODIFIED + " INTEGER, "
+        + FileColumns.DATA + " TEXT, "
+        + FileColumns.MEDIA_TYPE + " INTEGER, "
+        + FileColumns.MIME_TYPE + " TEXT, "
+        + FileColumns.TITLE + " TEXT)");
+    database.execSQL("CREATE INDEX date_added_index ON " + TABLE_NAME + " ("
+        + FileColumns.DATE_ADDED + ", " + FileColumns._ID + ")");
+    return true;
+  }
+
+  /**
+   * Generates the given number of the rows and their files in the given directory. Dates added go
+   * back in time from the given one, a few rows per second.
+   */
+  public void generateRows(int count, File directory, long newestDateAdded) throws IOException {
+    final SQLiteStatement statement = database.compileStatement("INSERT INTO " + TABLE_NAME
+        + " VALUES (?, ?, ?, ?, ?, ?, ?)");
+    database.beginTransaction();
+    try {
+      for (int i = 0; i < count; i++) {
+        final boolean isVideo = i % VIDEO_INTERVAL == 0;
+        final String name = "item" + i;
+        final File file = new File(directory, name + (isVideo ? ".mp4" : ".jpg"));
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+          outputStream.write(FILE_CONTENT);
+        }
+        final long dateAdded = newestDateAdded - i / ROWS_PER_SECOND;
+        statement.bindLong(1, i + 1);
+        statement.bindLong(2, dateAdded);
+        statement.bindLong(3, dateAdded);
+        statement.bindString(4, file.getAbsolutePath());
+        statement.bindLong(5,
+            isVideo ? FileColumns.MEDIA_TYPE_VIDEO : FileColumns.MEDIA_TYPE_IMAGE);
+        statement.bindString(6, isVideo ? VIDEO_MIME_TYPE : IMAGE_MIME_TYPE);
+        statement.bindString(7, name);
+        statement.executeInsert();
+      }
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+  }
+
+  /**
+   * Returns the number of the rows returned by the last query.
+   */
+  public int getLastQueryRowCount() {
+    return lastQueryRowCount;
+  }
+
+  /**
+   * Sets the modification date of the row with the given id.
+   */
+  public void setDateModified(long id, long dateModified) {
+    final ContentValues values = new ContentValues();
+    values.put(FileColumns.DATE_MODIFIED, dateModified);
+    database.update(TABLE_NAME, values, FileColumns._ID + " = ?",
+        new String[]{String.valueOf(id)});
+  }
+
+  @Nullable
+  @Override
+  public Cursor query(@NonNull Uri uri, @Nullable String[] projection,
+      @Nullable Bundle queryArgs, @Nullable CancellationSignal cancellationSignal) {
+    if (queryArgs == null) {
+      return query(uri, projection, null, null, null);
+    }
+    return query(uri, projection, queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SELECTION),
+        queryArgs.getStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS),
+        queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER));
+  }
+
+  @Nullable
+  @Override
+  public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+      @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+    final Cursor cursor = database.query(TABLE_NAME, projection, selection, selectionArgs, null,
+        null, sortOrder);
+    lastQueryRowCount = cursor.getCount();
+    return cursor;
+  }
+
+  @Nullable
+  @Override
+  public String getType(@NonNull Uri uri) {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+    throw new UnsupportedOperationException("Rows are generated by the tests");
+  }
+
+  @Override
+  public int delete(@NonNull Uri uri, @Nullable String selection,
+      @Nullable String[] selectionArgs) {
+    return database.delete(TABLE_NAME, getSelection(uri, selection),
+        getSelectionArgs(uri, selectionArgs));
+  }
+
+  @Override
+  public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+      @Nullable String[] selectionArgs) {
+    return database.update(TABLE_NAME, values, getSelection(uri, selection),
+        getSelectionArgs(uri, selectionArgs));
+  }
+
+  /**
+   * Returns the given selection restricted to the row with the id appended to the given uri, if
+   * there is any.
+   */
+  @Nullable
+  private static String getSelection(Uri uri, @Nullable String selection) {
+    return getId(uri) < 0 ? selection
+        : DatabaseUtils.concatenateWhere(FileColumns._ID + " = ?", selection);
+  }
+
+  @Nullable
+  private static String[] getSelectionArgs(Uri uri, @Nullable String[] selectionArgs) {
+    final long id = getId(uri);
+    return id < 0 ? selectionArgs : DatabaseUtils
+        .appendSelectionArgs(new String[]{String.valueOf(id)}, selectionArgs);
+  }
+
+  /**
+   * Returns the id appended to the given uri or -1 if the uri points to the whole table.
+   */
+  private static long getId(Uri uri) {
+    try {
+      return ContentUris.parseId(uri);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
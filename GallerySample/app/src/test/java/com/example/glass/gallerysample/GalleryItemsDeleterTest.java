@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentProvider;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.example.glass.gallerysample.GalleryItemsDeleter.OnDeleteProgressListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Deletes items from the {@link DeletingProvider} with the {@link GalleryItemsDeleter} and checks
+ * which of them are reported as deleted and which have to be restored.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GalleryItemsDeleterTest {
+
+  private static final int BATCH_SIZE = 2;
+  private static final int ITEM_COUNT = 6;
+  private static final long TIMEOUT_MS = 5000;
+  private static final long POLL_INTERVAL_MS = 10;
+
+  private DeletingProvider deletingProvider;
+  private GalleryItemsDeleter galleryItemsDeleter;
+
+  @Before
+  public void setUp() {
+    deletingProvider = Robolectric.buildContentProvider(DeletingProvider.class)
+        .create(MediaStore.AUTHORITY).get();
+    for (long id = 1; id <= ITEM_COUNT; id++) {
+      deletingProvider.ids.add(id);
+    }
+    galleryItemsDeleter = new GalleryItemsDeleter(RuntimeEnvironment.application, BATCH_SIZE);
+  }
+
+  @After
+  public void tearDown() {
+    galleryItemsDeleter.release();
+  }
+
+  @Test
+  public void delete_allItems_reportsProgressPerBatch() throws InterruptedException {
+    final ProgressRecorder progressRecorder = delete(createGalleryItems(1, 2, 3, 4, 5, 6));
+
+    assertEquals(Arrays.asList(2, 4, 6), progressRecorder.processedCounts);
+    assertEquals(createGalleryItems(1, 2, 3, 4, 5, 6), progressRecorder.deletedItems);
+    assertTrue(progressRecorder.failedItems.isEmpty());
+    assertTrue(deletingProvider.ids.isEmpty());
+  }
+
+  @Test
+  public void delete_missingRows_reportsThemFailed() throws InterruptedException {
+    deletingProvider.ids.remove(2L);
+    deletingProvider.ids.remove(5L);
+
+    final ProgressRecorder progressRecorder = delete(createGalleryItems(1, 2, 3, 4, 5, 6));
+
+    assertEquals(createGalleryItems(1, 3, 4, 6), progressRecorder.deletedItems);
+    assertEquals(createGalleryItems(2, 5), progressRecorder.failedItems);
+    assertEquals(Arrays.asList(1, 3, 4), progressRecorder.deletedCounts);
+  }
+
+  @Test
+  public void delete_failedBatch_reportsWholeBatchToRestore() throws InterruptedException {
+    deletingProvider.failingIds.add(4L);
+
+    final ProgressRecorder progressRecorder = delete(createGalleryItems(1, 2, 3, 4, 5, 6));
+
+    // The rows of the failed batch which have been deleted before the failure are reported as
+    // failed too, as the batch result is lost.
+    assertEquals(createGalleryItems(1, 2, 5, 6), progressRecorder.deletedItems);
+    assertEquals(createGalleryItems(3, 4), progressRecorder.failedItems);
+    assertTrue(deletingProvider.ids.contains(4L));
+  }
+
+  @Test
+  public void cancel_completesCurrentBatchAndRestoresTheRest() throws InterruptedException {
+    deletingProvider.blockNextDelete();
+    final ProgressRecorder progressRecorder = new ProgressRecorder();
+    galleryItemsDeleter.delete(createGalleryItems(1, 2, 3, 4, 5, 6), progressRecorder);
+    assertTrue(deletingProvider.deleteStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    galleryItemsDeleter.cancel();
+    deletingProvider.unblockDelete();
+    progressRecorder.awaitFinished();
+
+    assertEquals(createGalleryItems(1, 2), progressRecorder.deletedItems);
+    assertEquals(createGalleryItems(3, 4, 5, 6), progressRecorder.failedItems);
+    assertEquals(new HashSet<>(Arrays.asList(3L, 4L, 5L, 6L)), deletingProvider.ids);
+  }
+
+  @Test
+  public void cancel_doesNotAffectLaterDeletions() throws InterruptedException {
+    galleryItemsDeleter.cancel();
+
+    final ProgressRecorder progressRecorder = delete(createGalleryItems(1, 2, 3));
+
+    assertEquals(createGalleryItems(1, 2, 3), progressRecorder.deletedItems);
+    assertTrue(progressRecorder.failedItems.isEmpty());
+  }
+
+  private ProgressRecorder delete(List<GalleryItem> galleryItems) throws InterruptedException {
+    final ProgressRecorder progressRecorder = new ProgressRecorder();
+    galleryItemsDeleter.delete(galleryItems, progressRecorder);
+    progressRecorder.awaitFinished();
+    return progressRecorder;
+  }
+
+  private static List<GalleryItem> createGalleryItems(long... ids) {
+    final List<GalleryItem> galleryItems = new ArrayList<>(ids.length);
+    for (long id : ids) {
+      galleryItems.add(new GalleryItem(id, id, id, "item" + id, "/sdcard/DCIM/item" + id + ".jpg",
+          GalleryItem.Type.IMAGE));
+    }
+    return galleryItems;
+  }
+
+  /**
+   * Records the progress reported on the main thread.
+   */
+  private static class ProgressRecorder implements OnDeleteProgressListener {
+
+    final List<Integer> deletedCounts = new ArrayList<>();
+    final List<Integer> processedCounts = new ArrayList<>();
+    List<GalleryItem> deletedItems;
+    List<GalleryItem> failedItems;
+
+    @Override
+    public void onDeleteProgress(int deletedCount, int processedCount, int totalCount) {
+      deletedCounts.add(deletedCount);
+      processedCounts.add(processedCount);
+    }
+
+    @Override
+    public void onDeleteFinished(List<GalleryItem> deletedItems, List<GalleryItem> failedItems) {
+      this.deletedItems = deletedItems;
+      this.failedItems = failedItems;
+    }
+
+    /**
+     * Runs the main thread tasks posted by the deleter until it reports the finished deletion.
+     */
+    void awaitFinished() throws InterruptedException {
+      final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (deletedItems == null) {
+        assertTrue("Timed out", System.currentTimeMillis() < deadline);
+        Thread.sleep(POLL_INTERVAL_MS);
+        ShadowLooper.runUiThreadTasks();
+      }
+    }
+  }
+
+  /**
+   * Media store stand-in deleting the rows by the id appended to the uri. Deletion of the rows
+   * with the failing ids throws, like a provider failing in the middle of the batch.
+   */
+  public static class DeletingProvider extends ContentProvider {
+
+    final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+    final Set<Long> failingIds = Collections.synchronizedSet(new HashSet<Long>());
+    final CountDownLatch deleteStarted = new CountDownLatch(1);
+    private volatile CountDownLatch deleteGate;
+
+    /**
+     * Makes the next deletion wait until {@link #unblockDelete()} is called.
+     */
+    void blockNextDelete() {
+      deleteGate = new CountDownLatch(1);
+    }
+
+    void unblockDelete() {
+      deleteGate.countDown();
+    }
+
+    @Override
+    public boolean onCreate() {
+      return true;
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection,
+        @Nullable String[] selectionArgs) {
+      deleteStarted.countDown();
+      final CountDownLatch gate = deleteGate;
+      if (gate != null) {
+        deleteGate = null;
+        try {
+          gate.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      final long id = ContentUris.parseId(uri);
+      if (failingIds.contains(id)) {
+        throw new IllegalStateException("Can't delete " + id);
+      }
+      return ids.remove(id) ? 1 : 0;
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection,
+        @Nullable String selection, @Nullable String[] selectionArgs,
+        @Nullable String sortOrder) {
+      return null;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+      return null;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+      return null;
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values,
+        @Nullable String selection, @Nullable String[] selectionArgs) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.provider.MediaStore;
+import com.example.glass.gallerysample.GalleryItemsProvider.OnTimelineDatesListener;
+import com.example.glass.gallerysample.GalleryItemsProvider.PageRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Loads pages and syncs changes of the gallery items served by the {@link FakeMediaStoreProvider}
+ * through the {@link GalleryItemsProvider}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GalleryItemsProviderTest {
+
+  private static final String HANDLER_THREAD_NAME = "gallery_provider_test_thread";
+  private static final int ITEM_COUNT = 60;
+  private static final int PAGE_SIZE = 20;
+  private static final long NEWEST_DATE_ADDED = 1500000000;
+  private static final long TIMEOUT_MS = 5000;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final HandlerThread handlerThread = new HandlerThread(HANDLER_THREAD_NAME);
+  private final BlockingQueue<List<GalleryItem>> foundPages = new LinkedBlockingQueue<>();
+  private final BlockingQueue<ItemsChange> itemsChanges = new LinkedBlockingQueue<>();
+  private final TimelineDatesRecorder timelineDatesRecorder = new TimelineDatesRecorder();
+  private FakeMediaStoreProvider fakeMediaStoreProvider;
+  private GalleryItemsProvider galleryItemsProvider;
+
+  @Before
+  public void setUp() throws IOException {
+    fakeMediaStoreProvider = Robolectric.buildContentProvider(FakeMediaStoreProvider.class)
+        .create(MediaStore.AUTHORITY).get();
+    fakeMediaStoreProvider.generateRows(ITEM_COUNT, temporaryFolder.getRoot(), NEWEST_DATE_ADDED);
+    handlerThread.start();
+    galleryItemsProvider = new GalleryItemsProvider(RuntimeEnvironment.application,
+        handlerThread, new GalleryItemsListener() {
+      @Override
+      public void onItemsFound(PageRequest pageRequest, List<GalleryItem> galleryItems) {
+        foundPages.add(galleryItems);
+      }
+
+      @Override
+      public void onItemsChanged(List<GalleryItem> addedItems, List<GalleryItem> changedItems,
+          List<GalleryItem> deletedItems) {
+        itemsChanges.add(new ItemsChange(addedItems, changedItems, deletedItems));
+      }
+
+      @Override
+      public void onEmptyList() {
+        foundPages.add(Collections.<GalleryItem>emptyList());
+      }
+
+      @Override
+      public void onPageLoadFailed(PageRequest pageRequest) {
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    handlerThread.quit();
+  }
+
+  @Test
+  public void firstPage_isLimitedAndOrderedNewestFirst() throws InterruptedException {
+    final List<GalleryItem> page = loadFirstPage();
+
+    assertEquals(PAGE_SIZE, page.size());
+    assertEquals(PAGE_SIZE, fakeMediaStoreProvider.getLastQueryRowCount());
+    for (int i = 1; i < page.size(); i++) {
+      assertTrue(GallerySnapshot.NEWEST_FIRST.compare(page.get(i - 1), page.get(i)) < 0);
+    }
+  }
+
+  @Test
+  public void loadChanges_withoutChanges_reportsNothing() throws InterruptedException {
+    final List<GalleryItem> page = loadFirstPage();
+
+    galleryItemsProvider.loadChanges(page.get(0), page, PAGE_SIZE);
+    galleryItemsProvider.loadChanges(page.get(0), page, PAGE_SIZE);
+    awaitIdle();
+
+    assertTrue(itemsChanges.isEmpty());
+  }
+
+  @Test
+  public void loadChanges_reportsModifiedItemOnce() throws InterruptedException {
+    final List<GalleryItem> page = new ArrayList<>(loadFirstPage());
+    galleryItemsProvider.loadChanges(page.get(0), page, PAGE_SIZE);
+    final GalleryItem modifiedItem = page.get(5);
+    fakeMediaStoreProvider.setDateModified(modifiedItem.getId(),
+        modifiedItem.getDateModified() + 100);
+
+    galleryItemsProvider.loadChanges(page.get(0), page, PAGE_SIZE);
+    final ItemsChange itemsChange = awaitItemsChange();
+    assertTrue(itemsChange.addedItems.isEmpty());
+    assertTrue(itemsChange.deletedItems.isEmpty());
+    assertEquals(1, itemsChange.changedItems.size());
+    final GalleryItem changedItem = itemsChange.changedItems.get(0);
+    assertEquals(modifiedItem.getId(), changedItem.getId());
+    assertEquals(modifiedItem.getDateModified() + 100, changedItem.getDateModified());
+
+    // Once the shown item is updated, the same modification is not reported again.
+    page.set(5, changedItem);
+    galleryItemsProvider.loadChanges(page.get(0), page, PAGE_SIZE);
+    awaitIdle();
+    assertTrue(itemsChanges.isEmpty());
+  }
+
+  @Test
+  public void loadChanges_reportsDeletedItem() throws InterruptedException {
+    final List<GalleryItem> page = loadFirstPage();
+    final GalleryItem deletedItem = page.get(3);
+    deleteRow(deletedItem.getId());
+
+    galleryItemsProvider.loadChanges(page.get(0), page, PAGE_SIZE);
+    final ItemsChange itemsChange = awaitItemsChange();
+
+    assertTrue(itemsChange.addedItems.isEmpty());
+    assertTrue(itemsChange.changedItems.isEmpty());
+    assertEquals(Collections.singletonList(deletedItem), itemsChange.deletedItems);
+  }
+
+  @Test
+  public void loadChanges_ignoresChangesOutsideOfShownItems() throws InterruptedException {
+    final List<GalleryItem> page = loadFirstPage();
+    final long shownIdsEnd = ITEM_COUNT;
+    fakeMediaStoreProvider.setDateModified(shownIdsEnd, NEWEST_DATE_ADDED + 100);
+    deleteRow(shownIdsEnd - 1);
+
+    galleryItemsProvider.loadChanges(page.get(0), page, PAGE_SIZE);
+    awaitIdle();
+
+    for (GalleryItem galleryItem : page) {
+      assertTrue(galleryItem.getId() < shownIdsEnd - 1);
+    }
+    assertTrue(itemsChanges.isEmpty());
+  }
+
+  @Test
+  public void loadTimelineDates_withoutDeletions_loadsOnlyNewDates() throws InterruptedException {
+    final TimelineDates allDates = loadTimelineDates(0);
+    assertEquals(0, allDates.afterId);
+    assertEquals(ITEM_COUNT, allDates.dates.length);
+    timelineDatesRecorder.knownItemCount = ITEM_COUNT;
+
+    final TimelineDates newDates = loadTimelineDates(allDates.maxId);
+
+    assertEquals(allDates.maxId, newDates.afterId);
+    assertEquals(0, newDates.dates.length);
+  }
+
+  @Test
+  public void loadTimelineDates_afterDeletion_reloadsAllDates() throws InterruptedException {
+    final TimelineDates allDates = loadTimelineDates(0);
+    timelineDatesRecorder.knownItemCount = ITEM_COUNT;
+    // The oldest item, which is far outside of any loaded page.
+    deleteRow(ITEM_COUNT);
+
+    final TimelineDates reloadedDates = loadTimelineDates(allDates.maxId);
+
+    assertEquals(0, reloadedDates.afterId);
+    assertEquals(ITEM_COUNT - 1, reloadedDates.dates.length);
+  }
+
+  private TimelineDates loadTimelineDates(long afterId) throws InterruptedException {
+    galleryItemsProvider.loadTimelineDates(afterId, timelineDatesRecorder);
+    final TimelineDates timelineDates = timelineDatesRecorder.foundDates
+        .poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull("Timed out waiting for the timeline dates", timelineDates);
+    return timelineDates;
+  }
+
+  private List<GalleryItem> loadFirstPage() throws InterruptedException {
+    galleryItemsProvider.loadGalleryItems(new PageRequest(null, false, PAGE_SIZE));
+    final List<GalleryItem> page = foundPages.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull("Timed out waiting for the page", page);
+    return page;
+  }
+
+  private ItemsChange awaitItemsChange() throws InterruptedException {
+    final ItemsChange itemsChange = itemsChanges.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull("Timed out waiting for the changes", itemsChange);
+    return itemsChange;
+  }
+
+  private void deleteRow(long id) {
+    fakeMediaStoreProvider.delete(MediaStore.Files.getContentUri("external"),
+        MediaStore.Files.FileColumns._ID + " = ?", new String[]{String.valueOf(id)});
+  }
+
+  /**
+   * Waits until all of the tasks posted to the handler thread so far are handled.
+   */
+  private void awaitIdle() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    new Handler(handlerThread.getLooper()).post(new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    });
+    assertTrue("Timed out waiting for the handler thread",
+        latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Changes reported by a single {@link GalleryItemsListener#onItemsChanged(List, List, List)}.
+   */
+  private static class ItemsChange {
+
+    private final List<GalleryItem> addedItems;
+    private final List<GalleryItem> changedItems;
+    private final List<GalleryItem> deletedItems;
+
+    private ItemsChange(List<GalleryItem> addedItems, List<GalleryItem> changedItems,
+        List<GalleryItem> deletedItems) {
+      this.addedItems = addedItems;
+      this.changedItems = changedItems;
+      this.deletedItems = deletedItems;
+    }
+  }
+
+  /**
+   * Dates reported by a single {@link OnTimelineDatesListener#onTimelineDatesFound}.
+   */
+  private static class TimelineDates {
+
+    private final long afterId;
+    private final long[] dates;
+    private final long maxId;
+
+    private TimelineDates(long afterId, long[] dates, long maxId) {
+      this.afterId = afterId;
+      this.dates = dates;
+      this.maxId = maxId;
+    }
+  }
+
+  /**
+   * Records the found timeline dates and reports the item count set by the test as known.
+   */
+  private static class TimelineDatesRecorder implements OnTimelineDatesListener {
+
+    private final BlockingQueue<TimelineDates> foundDates = new LinkedBlockingQueue<>();
+    private volatile int knownItemCount;
+
+    @Override
+    public void onTimelineDatesFound(long afterId, long[] dates, long maxId) {
+      foundDates.add(new TimelineDates(afterId, dates, maxId));
+    }
+
+    @Override
+    public int getKnownItemCount() {
+      return knownItemCount;
+    }
+  }
+}
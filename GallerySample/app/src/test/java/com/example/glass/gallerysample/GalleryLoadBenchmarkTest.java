@@ -0,0 +1,206 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.provider.MediaStore;
+import android.util.Log;
+import com.example.glass.gallerysample.GalleryItemsProvider.PageRequest;
+import com.example.glass.gallerysample.GalleryUpdateBatcher.UpdateListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Loads galleries of 100 to 50,000 synthetic items served by the {@link FakeMediaStoreProvider}
+ * through the same {@link GalleryItemsProvider}, {@link GalleryPager} and
+ * {@link GalleryUpdateBatcher} setup as the {@link GalleryFragment}. Logs the time to the first
+ * item, the time to page through all of the items, the peak heap and the main thread time spent
+ * on applying the items. Ignored by default, as the biggest galleries take a while to load.
+ */
+@Ignore("Benchmark, run manually")
+@RunWith(RobolectricTestRunner.class)
+public class GalleryLoadBenchmarkTest {
+
+  private static final String TAG = GalleryLoadBenchmarkTest.class.getSimpleName();
+  private static final String HANDLER_THREAD_NAME = "gallery_benchmark_thread";
+  private static final long NEWEST_DATE_ADDED = 1500000000;
+  private static final long TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final GalleryModel galleryModel = new GalleryModel();
+  private final Set<Long> loadedIds = new HashSet<>();
+  private final HandlerThread handlerThread = new HandlerThread(HANDLER_THREAD_NAME);
+  private FakeMediaStoreProvider fakeMediaStoreProvider;
+  private GalleryUpdateBatcher galleryUpdateBatcher;
+  private GalleryPager galleryPager;
+  private long peakHeapBytes;
+
+  @Before
+  public void setUp() {
+    fakeMediaStoreProvider = Robolectric.buildContentProvider(FakeMediaStoreProvider.class)
+        .create(MediaStore.AUTHORITY).get();
+    handlerThread.start();
+    galleryUpdateBatcher = new GalleryUpdateBatcher(galleryModel, new UpdateListener() {
+      @Override
+      public void onItemRangeInserted(int positionStart, int itemCount) {
+        for (GalleryItem galleryItem : galleryModel.getItems()
+            .subList(positionStart, positionStart + itemCount)) {
+          loadedIds.add(galleryItem.getId());
+        }
+      }
+
+      @Override
+      public void onItemRangeRemoved(int positionStart, int itemCount) {
+      }
+
+      @Override
+      public void onItemRangeChanged(int positionStart, int itemCount) {
+      }
+    });
+    final GalleryItemsProvider galleryItemsProvider = new GalleryItemsProvider(
+        RuntimeEnvironment.application, handlerThread, new GalleryItemsListener() {
+      @Override
+      public void onItemsFound(PageRequest pageRequest, List<GalleryItem> galleryItems) {
+        galleryPager.onPageLoaded(pageRequest, galleryItems);
+      }
+
+      @Override
+      public void onItemsChanged(List<GalleryItem> addedItems, List<GalleryItem> changedItems,
+          List<GalleryItem> deletedItems) {
+        galleryPager.onItemsChanged(addedItems, changedItems, deletedItems);
+      }
+
+      @Override
+      public void onEmptyList() {
+        galleryPager.onEmptyList();
+        galleryUpdateBatcher.clearItems();
+      }
+
+      @Override
+      public void onPageLoadFailed(PageRequest pageRequest) {
+        galleryPager.onPageLoadFailed(pageRequest);
+      }
+    });
+    galleryPager = new GalleryPager(galleryItemsProvider, galleryUpdateBatcher);
+  }
+
+  @After
+  public void tearDown() {
+    galleryUpdateBatcher.cancelPendingUpdates();
+    handlerThread.quit();
+  }
+
+  @Test
+  public void load100Items() throws IOException, InterruptedException {
+    runBenchmark(100);
+  }
+
+  @Test
+  public void load1000Items() throws IOException, InterruptedException {
+    runBenchmark(1000);
+  }
+
+  @Test
+  public void load10000Items() throws IOException, InterruptedException {
+    runBenchmark(10000);
+  }
+
+  @Test
+  public void load50000Items() throws IOException, InterruptedException {
+    runBenchmark(50000);
+  }
+
+  private void runBenchmark(int itemCount) throws IOException, InterruptedException {
+    fakeMediaStoreProvider.generateRows(itemCount, temporaryFolder.getRoot(), NEWEST_DATE_ADDED);
+    System.gc();
+    peakHeapBytes = usedHeapBytes();
+
+    final long startNanos = System.nanoTime();
+    galleryPager.loadFirstPage();
+    while (galleryModel.getItems().isEmpty()) {
+      pump(startNanos);
+    }
+    final long firstItemNanos = System.nanoTime() - startNanos;
+
+    // Pages through the gallery the way scrolling to the last item of the window does.
+    while (loadedIds.size() < itemCount) {
+      galleryPager.onPositionChanged(galleryUpdateBatcher.getLatestSnapshot().size() - 1);
+      pump(startNanos);
+    }
+    final long allItemsNanos = System.nanoTime() - startNanos;
+    while (!galleryUpdateBatcher.isIdle()) {
+      pump(startNanos);
+    }
+
+    assertEquals(itemCount, loadedIds.size());
+    assertTrue(galleryModel.getItems().size()
+        <= GalleryPager.DEFAULT_PAGE_SIZE * GalleryPager.DEFAULT_MAX_PAGES);
+    Log.d(TAG, "Gallery of " + itemCount + " items: first item after "
+        + TimeUnit.NANOSECONDS.toMillis(firstItemNanos) + " ms, all items after "
+        + TimeUnit.NANOSECONDS.toMillis(allItemsNanos) + " ms, peak heap "
+        + peakHeapBytes / 1024 + " kB, main thread busy "
+        + TimeUnit.NANOSECONDS.toMillis(galleryUpdateBatcher.getMainThreadTimeNanos())
+        + " ms in " + galleryUpdateBatcher.getAppliedFrameCount() + " frames");
+  }
+
+  /**
+   * Waits until the background thread has delivered the requested pages and runs the pending main
+   * thread frames.
+   */
+  private void pump(long startNanos) throws InterruptedException {
+    final long remainingMs = TIMEOUT_MS
+        - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    assertTrue("Gallery load timed out", remainingMs > 0);
+    final CountDownLatch latch = new CountDownLatch(1);
+    new Handler(handlerThread.getLooper()).post(new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    });
+    assertTrue("Gallery load timed out", latch.await(remainingMs, TimeUnit.MILLISECONDS));
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    peakHeapBytes = Math.max(peakHeapBytes, usedHeapBytes());
+  }
+
+  private static long usedHeapBytes() {
+    final Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
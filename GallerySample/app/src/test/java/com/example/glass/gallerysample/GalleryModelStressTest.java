@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.glass.gallerysample.GalleryUpdateBatcher.UpdateListener;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Loads, inserts, replaces and deletes gallery items from several threads at once, while the main
+ * thread publishes the snapshots. Checks that the published model stays ordered, that its lookups
+ * are consistent and that the change notifications describe the published snapshots exactly.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GalleryModelStressTest {
+
+  private static final int PAGES = 200;
+  private static final int PAGE_SIZE = 50;
+  private static final int NEW_ITEMS = 2000;
+  private static final int DELETER_THREADS = 3;
+  private static final int DELETES_PER_THREAD = 2000;
+  private static final int REPLACES = 2000;
+  private static final long RANDOM_SEED = 42;
+  private static final long TIMEOUT_MS = 60000;
+
+  /**
+   * Ids of the loaded pages go down from this value, ids of the new items go up from it.
+   */
+  private static final long FIRST_LOADED_ID = 1000000;
+
+  private final GalleryModel galleryModel = new GalleryModel();
+  private final List<GalleryItem> notifiedItems = new ArrayList<>();
+  private final AtomicInteger addedItems = new AtomicInteger();
+  private final AtomicInteger deletedItems = new AtomicInteger();
+  private final AtomicReference<Throwable> writerFailure = new AtomicReference<>();
+  private GalleryUpdateBatcher galleryUpdateBatcher;
+
+  @Before
+  public void setUp() {
+    galleryUpdateBatcher = new GalleryUpdateBatcher(galleryModel, new UpdateListener() {
+      @Override
+      public void onItemRangeInserted(int positionStart, int itemCount) {
+        notifiedItems.addAll(positionStart,
+            galleryModel.getItems().subList(positionStart, positionStart + itemCount));
+      }
+
+      @Override
+      public void onItemRangeRemoved(int positionStart, int itemCount) {
+        notifiedItems.subList(positionStart, positionStart + itemCount).clear();
+      }
+
+      @Override
+      public void onItemRangeChanged(int positionStart, int itemCount) {
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+          notifiedItems.set(i, galleryModel.getItems().get(i));
+        }
+      }
+    });
+  }
+
+  @Test
+  public void concurrentLoadsAndDeletes_keepModelConsistent() throws InterruptedException {
+    final CountDownLatch writersFinished = new CountDownLatch(3 + DELETER_THREADS);
+    startThread(writersFinished, new Runnable() {
+      @Override
+      public void run() {
+        long id = FIRST_LOADED_ID;
+        for (int page = 0; page < PAGES; page++) {
+          final List<GalleryItem> galleryItems = new ArrayList<>(PAGE_SIZE);
+          for (int i = 0; i < PAGE_SIZE; i++) {
+            galleryItems.add(createGalleryItem(id--, 0));
+          }
+          galleryUpdateBatcher.addItems(galleryItems);
+          addedItems.addAndGet(PAGE_SIZE);
+        }
+      }
+    });
+    startThread(writersFinished, new Runnable() {
+      @Override
+      public void run() {
+        for (long id = FIRST_LOADED_ID + 1; id <= FIRST_LOADED_ID + NEW_ITEMS; id++) {
+          final List<GalleryItem> galleryItems = new ArrayList<>(1);
+          galleryItems.add(createGalleryItem(id, 0));
+          galleryUpdateBatcher.insertItems(0, galleryItems);
+          addedItems.incrementAndGet();
+        }
+      }
+    });
+    startThread(writersFinished, new Runnable() {
+      @Override
+      public void run() {
+        final Random random = new Random(RANDOM_SEED);
+        for (int i = 0; i < REPLACES; i++) {
+          final GallerySnapshot snapshot = galleryUpdateBatcher.getLatestSnapshot();
+          if (!snapshot.isEmpty()) {
+            final GalleryItem galleryItem = snapshot.get(random.nextInt(snapshot.size()));
+            galleryUpdateBatcher.replaceItem(
+                createGalleryItem(galleryItem.getId(), galleryItem.getDateModified() + 1));
+          }
+        }
+      }
+    });
+    for (int thread = 0; thread < DELETER_THREADS; thread++) {
+      final Random random = new Random(RANDOM_SEED + thread);
+      startThread(writersFinished, new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < DELETES_PER_THREAD; i++) {
+            final GallerySnapshot snapshot = galleryUpdateBatcher.getLatestSnapshot();
+            if (!snapshot.isEmpty()
+                && galleryUpdateBatcher.removeItem(snapshot.get(random.nextInt(snapshot.size())))) {
+              deletedItems.incrementAndGet();
+            }
+          }
+        }
+      });
+    }
+
+    final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (writersFinished.getCount() > 0 || !galleryUpdateBatcher.isIdle()) {
+      assertTrue("Timed out", System.currentTimeMillis() < deadline);
+      ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+      assertPublishedSnapshotConsistent();
+      writersFinished.await(1, TimeUnit.MILLISECONDS);
+    }
+    if (writerFailure.get() != null) {
+      throw new AssertionError("Writer thread failed", writerFailure.get());
+    }
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    final GallerySnapshot snapshot = galleryModel.getSnapshot();
+    assertEquals(addedItems.get() - deletedItems.get(), snapshot.size());
+    assertEquals(galleryUpdateBatcher.getLatestSnapshot(), snapshot);
+    assertPublishedSnapshotConsistent();
+  }
+
+  private void assertPublishedSnapshotConsistent() {
+    final GallerySnapshot snapshot = galleryModel.getSnapshot();
+    assertEquals(snapshot.asList(), notifiedItems);
+    final Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < snapshot.size(); i++) {
+      final GalleryItem galleryItem = snapshot.get(i);
+      assertTrue("Duplicate id " + galleryItem.getId(), ids.add(galleryItem.getId()));
+      if (i > 0) {
+        assertTrue(GallerySnapshot.NEWEST_FIRST.compare(snapshot.get(i - 1), galleryItem) < 0);
+      }
+      assertEquals(i, snapshot.indexOf(galleryItem));
+    }
+  }
+
+  /**
+   * Starts a writer thread. The first exception thrown by any of the writers is kept in {@link
+   * #writerFailure} and rethrown by the test once the writers have finished.
+   */
+  private void startThread(final CountDownLatch finished, final Runnable runnable) {
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          runnable.run();
+        } catch (Throwable throwable) {
+          writerFailure.compareAndSet(null, throwable);
+        } finally {
+          finished.countDown();
+        }
+      }
+    }).start();
+  }
+
+  private static GalleryItem createGalleryItem(long id, long dateModified) {
+    return new GalleryItem(id, id, dateModified, "item" + id, "/sdcard/DCIM/item" + id + ".jpg",
+        GalleryItem.Type.IMAGE);
+  }
+}
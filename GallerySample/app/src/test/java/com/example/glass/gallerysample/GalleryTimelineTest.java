@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link GalleryTimeline} updated item by item gives the same answers as the one
+ * built from all of the dates at once.
+ */
+public class GalleryTimelineTest {
+
+  private static final long START_DATE = 1500000000;
+  private static final int OPERATIONS = 5000;
+  private static final long RANDOM_SEED = 7;
+  private static final long DAY_SECONDS = 24 * 60 * 60;
+
+  @Test
+  public void incrementalUpdates_matchFullBuild() {
+    final Random random = new Random(RANDOM_SEED);
+    final GalleryTimeline incrementalTimeline = new GalleryTimeline();
+    final List<Long> dates = new ArrayList<>();
+    long newestDate = START_DATE;
+    for (int i = 0; i < OPERATIONS; i++) {
+      if (!dates.isEmpty() && random.nextInt(4) == 0) {
+        final long date = dates.remove(random.nextInt(dates.size()));
+        assertTrue(incrementalTimeline.remove(date));
+      } else {
+        // Mostly new media, sometimes in bursts of the same second, sometimes late arrivals.
+        final long date;
+        switch (random.nextInt(3)) {
+          case 0:
+            date = newestDate;
+            break;
+          case 1:
+            newestDate += random.nextInt((int) (2 * GalleryTimeline.SESSION_GAP_SECONDS));
+            date = newestDate;
+            break;
+          default:
+            date = START_DATE + (long) (random.nextDouble() * (newestDate - START_DATE));
+        }
+        dates.add(date);
+        incrementalTimeline.add(date);
+      }
+    }
+
+    Collections.sort(dates);
+    final long[] sortedDates = new long[dates.size()];
+    for (int i = 0; i < sortedDates.length; i++) {
+      sortedDates[i] = dates.get(i);
+    }
+    final GalleryTimeline fullTimeline = new GalleryTimeline();
+    fullTimeline.setDates(sortedDates);
+
+    assertEquals(fullTimeline.size(), incrementalTimeline.size());
+    assertEquals(fullTimeline.getSessionCount(), incrementalTimeline.getSessionCount());
+    for (long time = START_DATE - 1; time <= newestDate + 1; time += 97) {
+      assertEquals(fullTimeline.countNewerThan(time), incrementalTimeline.countNewerThan(time));
+      assertEquals(fullTimeline.getSessionStart(time), incrementalTimeline.getSessionStart(time));
+      assertEquals(fullTimeline.findPreviousDay(time), incrementalTimeline.findPreviousDay(time));
+    }
+  }
+
+  @Test
+  public void findPreviousDay_returnsNewestItemOfYesterday() {
+    final GalleryTimeline timeline = new GalleryTimeline();
+    final long today = GalleryTimeline.getDayStart(START_DATE);
+    final long yesterday = today - DAY_SECONDS;
+    timeline.setDates(new long[]{yesterday - DAY_SECONDS, yesterday + 60, yesterday + 120,
+        today + 60});
+
+    assertEquals(yesterday + 120, timeline.findPreviousDay(today + 60));
+    assertEquals(today + 60, timeline.findNextDay(yesterday + 60));
+    assertEquals(-1, timeline.findNextDay(today + 60));
+    assertEquals(1, timeline.countNewerThan(yesterday + 120));
+  }
+
+  @Test
+  public void sessions_areSplitByGaps() {
+    final GalleryTimeline timeline = new GalleryTimeline();
+    final long gap = GalleryTimeline.SESSION_GAP_SECONDS;
+    timeline.add(START_DATE);
+    timeline.add(START_DATE + gap);
+    timeline.add(START_DATE + 3 * gap);
+    assertEquals(2, timeline.getSessionCount());
+    assertEquals(START_DATE + 3 * gap, timeline.getSessionStart(START_DATE + 3 * gap));
+
+    // Item between the sessions joins them.
+    timeline.add(START_DATE + 2 * gap);
+    assertEquals(1, timeline.getSessionCount());
+
+    timeline.remove(START_DATE + 2 * gap);
+    assertEquals(2, timeline.getSessionCount());
+    assertEquals(START_DATE + gap, timeline.findPreviousSession(START_DATE + 3 * gap));
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+import com.example.glass.gallerysample.GalleryUpdateBatcher.UpdateListener;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Loads a large gallery through the {@link GalleryUpdateBatcher}, driving the {@link
+ * android.view.Choreographer} frames one by one on the main {@link ShadowLooper}, and checks the
+ * items applied in each frame. Logs the main thread time spent on applying the items.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GalleryUpdateBatcherTest {
+
+  private static final String TAG = GalleryUpdateBatcherTest.class.getSimpleName();
+  private static final int ITEM_COUNT = 10000;
+  private static final int MAX_ITEMS_PER_FRAME = 500;
+  private static final int MAX_FRAMES = 1000;
+
+  private final GalleryModel galleryModel = new GalleryModel();
+  private final List<int[]> insertedRanges = new ArrayList<>();
+  private GalleryUpdateBatcher galleryUpdateBatcher;
+
+  @Before
+  public void setUp() {
+    galleryUpdateBatcher = new GalleryUpdateBatcher(galleryModel, new UpdateListener() {
+      @Override
+      public void onItemRangeInserted(int positionStart, int itemCount) {
+        insertedRanges.add(new int[]{positionStart, itemCount});
+      }
+
+      @Override
+      public void onItemRangeRemoved(int positionStart, int itemCount) {
+      }
+
+      @Override
+      public void onItemRangeChanged(int positionStart, int itemCount) {
+      }
+    }, MAX_ITEMS_PER_FRAME);
+  }
+
+  @Test
+  public void largeLoad_isAppliedInFrameSizedChunks() throws InterruptedException {
+    final List<GalleryItem> galleryItems = createGalleryItems(ITEM_COUNT);
+    final Thread loaderThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        galleryUpdateBatcher.addItems(galleryItems);
+      }
+    });
+    loaderThread.start();
+    loaderThread.join();
+    assertEquals(0, galleryModel.getItems().size());
+
+    int frames = 0;
+    while (!galleryUpdateBatcher.isIdle() && frames < MAX_FRAMES) {
+      final int sizeBeforeFrame = galleryModel.getItems().size();
+      runFrame();
+      frames++;
+      assertEquals(frames, galleryUpdateBatcher.getAppliedFrameCount());
+      assertEquals(sizeBeforeFrame + MAX_ITEMS_PER_FRAME, galleryModel.getItems().size());
+    }
+
+    assertEquals(ITEM_COUNT / MAX_ITEMS_PER_FRAME, frames);
+    assertEquals(galleryItems, galleryModel.getItems());
+    int expectedPositionStart = 0;
+    for (int[] insertedRange : insertedRanges) {
+      assertEquals(expectedPositionStart, insertedRange[0]);
+      assertTrue(insertedRange[1] <= MAX_ITEMS_PER_FRAME);
+      expectedPositionStart += insertedRange[1];
+    }
+    assertEquals(ITEM_COUNT, expectedPositionStart);
+
+    final long mainThreadTimeNanos = galleryUpdateBatcher.getMainThreadTimeNanos();
+    final long maxFrameTimeNanos = galleryUpdateBatcher.getMaxFrameTimeNanos();
+    Log.d(TAG, "Applied " + ITEM_COUNT + " items in " + frames + " frames, main thread time: "
+        + mainThreadTimeNanos / 1000 + " us, longest frame: " + maxFrameTimeNanos / 1000 + " us");
+    assertTrue(maxFrameTimeNanos > 0);
+    assertTrue(mainThreadTimeNanos >= maxFrameTimeNanos);
+  }
+
+  @Test
+  public void cancelPendingUpdates_dropsUpdatesNotAppliedYet() {
+    galleryUpdateBatcher.addItems(createGalleryItems(ITEM_COUNT));
+    runFrame();
+    assertEquals(MAX_ITEMS_PER_FRAME, galleryModel.getItems().size());
+    assertEquals(1, insertedRanges.size());
+
+    galleryUpdateBatcher.cancelPendingUpdates();
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    assertTrue(galleryUpdateBatcher.isIdle());
+    assertEquals(1, galleryUpdateBatcher.getAppliedFrameCount());
+    assertEquals(1, insertedRanges.size());
+    assertEquals(MAX_ITEMS_PER_FRAME, galleryModel.getItems().size());
+    assertEquals(MAX_ITEMS_PER_FRAME, galleryUpdateBatcher.getLatestSnapshot().size());
+  }
+
+  /**
+   * Runs the next main thread task, which is the pending {@link android.view.Choreographer} frame.
+   */
+  private static void runFrame() {
+    ShadowLooper.getShadowMainLooper().runOneTask();
+  }
+
+  private static List<GalleryItem> createGalleryItems(int count) {
+    final List<GalleryItem> galleryItems = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      // Items are ordered from the newest one, as in the gallery.
+      final long id = count - i;
+      galleryItems.add(new GalleryItem(id, id, id, "item" + id, "/sdcard/DCIM/item" + id + ".jpg",
+          i % 10 == 0 ? GalleryItem.Type.VIDEO : GalleryItem.Type.IMAGE));
+    }
+    return galleryItems;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.gallerysample;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import com.example.glass.gallerysample.MediaStoreObserver.OnMediaStoreChangedListener;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Sends media store change notifications to the {@link MediaStoreObserver} running on the main
+ * {@link ShadowLooper} and checks when the listener is notified.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MediaStoreObserverTest {
+
+  private static final Uri FILES_URI = MediaStore.Files.getContentUri("external");
+
+  private final ContentResolver contentResolver = RuntimeEnvironment.application
+      .getContentResolver();
+  private MediaStoreObserver mediaStoreObserver;
+  private int notificationCount;
+
+  @Before
+  public void setUp() {
+    mediaStoreObserver = new MediaStoreObserver(new Handler(Looper.getMainLooper()),
+        new OnMediaStoreChangedListener() {
+          @Override
+          public void onMediaStoreChanged() {
+            notificationCount++;
+          }
+        });
+    mediaStoreObserver.register(RuntimeEnvironment.application);
+  }
+
+  @After
+  public void tearDown() {
+    mediaStoreObserver.unregister(RuntimeEnvironment.application);
+  }
+
+  @Test
+  public void burstOfChanges_isCoalescedIntoOneNotification() {
+    for (int i = 0; i < 5; i++) {
+      contentResolver.notifyChange(FILES_URI, null);
+    }
+    ShadowLooper.runUiThreadTasks();
+    assertEquals(0, notificationCount);
+
+    ShadowLooper.idleMainLooper(MediaStoreObserver.COALESCE_DELAY_MS - 1, TimeUnit.MILLISECONDS);
+    assertEquals(0, notificationCount);
+    ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+    assertEquals(1, notificationCount);
+  }
+
+  @Test
+  public void changeDuringDelay_postponesNotification() {
+    contentResolver.notifyChange(FILES_URI, null);
+    ShadowLooper.runUiThreadTasks();
+    ShadowLooper.idleMainLooper(MediaStoreObserver.COALESCE_DELAY_MS - 1, TimeUnit.MILLISECONDS);
+
+    contentResolver.notifyChange(FILES_URI, null);
+    ShadowLooper.runUiThreadTasks();
+    ShadowLooper.idleMainLooper(MediaStoreObserver.COALESCE_DELAY_MS - 1, TimeUnit.MILLISECONDS);
+    assertEquals(0, notificationCount);
+
+    ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+    assertEquals(1, notificationCount);
+  }
+
+  @Test
+  public void separateBursts_notifySeparately() {
+    contentResolver.notifyChange(FILES_URI, null);
+    ShadowLooper.runUiThreadTasks();
+    ShadowLooper.idleMainLooper(MediaStoreObserver.COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+
+    contentResolver.notifyChange(FILES_URI, null);
+    ShadowLooper.runUiThreadTasks();
+    ShadowLooper.idleMainLooper(MediaStoreObserver.COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+
+    assertEquals(2, notificationCount);
+  }
+
+  @Test
+  public void unregister_dropsPendingNotification() {
+    contentResolver.notifyChange(FILES_URI, null);
+    ShadowLooper.runUiThreadTasks();
+    mediaStoreObserver.unregister(RuntimeEnvironment.application);
+
+    contentResolver.notifyChange(FILES_URI, null);
+    ShadowLooper.runUiThreadTasks();
+    ShadowLooper.idleMainLooper(MediaStoreObserver.COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+
+    assertEquals(0, notificationCount);
+  }
+}
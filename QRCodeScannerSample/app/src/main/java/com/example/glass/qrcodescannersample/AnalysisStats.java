@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the statistics of the frame analysis and reports them for each interval: analyzed
+ * frames per second, dropped frames, analysis latency and the end-to-end detection latency, from
+ * the arrival of the frame to the delivery of its QR code. With the {@link FramePrefilter}, the
+ * ratio of the skipped frames and the estimated savings of the decoding CPU time are reported as
+ * well. May be used from any thread.
+ */
+public class AnalysisStats {
+
+  /**
+   * Default length of the reported interval.
+   */
+  public static final long DEFAULT_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  private final long reportIntervalNanos;
+  private long intervalStartNanos = -1;
+  private int analyzedFrames;
+  private int droppedFrames;
+  private int detections;
+  private long analysisNanos;
+  private long detectionNanos;
+  private long maxDetectionNanos;
+  private int prefilteredFrames;
+  private int skippedFrames;
+  private long prefilterNanos;
+  private int totalAnalyzedFrames;
+  private long totalAnalysisNanos;
+  private int totalPrefilteredFrames;
+  private int totalSkippedFrames;
+  private long totalPrefilterNanos;
+
+  /**
+   * Creates {@link AnalysisStats} reporting every {@link #DEFAULT_REPORT_INTERVAL_NANOS}.
+   */
+  public AnalysisStats() {
+    this(DEFAULT_REPORT_INTERVAL_NANOS);
+  }
+
+  /**
+   * Creates {@link AnalysisStats} reporting every given number of nanoseconds.
+   */
+  public AnalysisStats(long reportIntervalNanos) {
+    this.reportIntervalNanos = reportIntervalNanos;
+  }
+
+  /**
+   * Counts the frame dropped because all of the workers were busy.
+   */
+  public synchronized void onFrameDropped() {
+    droppedFrames++;
+  }
+
+  /**
+   * Counts the analyzed frame, which took the given time from its arrival.
+   */
+  public synchronized void onFrameAnalyzed(long latencyNanos) {
+    analyzedFrames++;
+    analysisNanos += latencyNanos;
+    totalAnalyzedFrames++;
+    totalAnalysisNanos += latencyNanos;
+  }
+
+  /**
+   * Counts the frame checked by the {@link FramePrefilter} in the given time, and skipped if the
+   * pre-filter rejected it.
+   */
+  public synchronized void onFramePrefiltered(long latencyNanos, boolean skipped) {
+    prefilteredFrames++;
+    prefilterNanos += latencyNanos;
+    totalPrefilteredFrames++;
+    totalPrefilterNanos += latencyNanos;
+    if (skipped) {
+      skippedFrames++;
+      totalSkippedFrames++;
+    }
+  }
+
+  /**
+   * Returns the ratio of the frames skipped by the {@link FramePrefilter} since the creation.
+   */
+  public synchronized float getSkipRatio() {
+    return totalPrefilteredFrames == 0 ? 0 : (float) totalSkippedFrames / totalPrefilteredFrames;
+  }
+
+  /**
+   * Returns the estimated ratio of the CPU time saved by the {@link FramePrefilter} since the
+   * creation, compared to analyzing all of the frames.
+   */
+  public synchronized float getCpuSavings() {
+    return getCpuSavings(totalPrefilteredFrames, totalAnalyzedFrames, totalAnalysisNanos,
+        totalPrefilterNanos);
+  }
+
+  /**
+   * Counts the delivered QR code, which took the given time from the arrival of its frame.
+   */
+  public synchronized void onCodeDetected(long latencyNanos) {
+    detections++;
+    detectionNanos += latencyNanos;
+    maxDetectionNanos = Math.max(maxDetectionNanos, latencyNanos);
+  }
+
+  /**
+   * Returns the report of the interval ending at the given time and starts the next interval, or
+   * null if the interval isn't over yet.
+   */
+  public synchronized String pollReport(long nowNanos) {
+    if (intervalStartNanos < 0) {
+      intervalStartNanos = nowNanos;
+      return null;
+    }
+    final long elapsedNanos = nowNanos - intervalStartNanos;
+    if (elapsedNanos < reportIntervalNanos) {
+      return null;
+    }
+    final String report = String.format(Locale.US,
+        "Analyzed %.1f frames/s, dropped %d, analysis latency %.1f ms, "
+            + "detected %d, detection latency %.1f ms (max %.1f ms), "
+            + "skipped %d of %d frames, saving %.0f%% of CPU time",
+        analyzedFrames * 1e9 / elapsedNanos, droppedFrames, toMillis(analysisNanos, analyzedFrames),
+        detections, toMillis(detectionNanos, detections), maxDetectionNanos / 1e6, skippedFrames,
+        prefilteredFrames,
+        100 * getCpuSavings(prefilteredFrames, analyzedFrames, analysisNanos, prefilterNanos));
+    intervalStartNanos = nowNanos;
+    analyzedFrames = 0;
+    droppedFrames = 0;
+    detections = 0;
+    analysisNanos = 0;
+    detectionNanos = 0;
+    maxDetectionNanos = 0;
+    prefilteredFrames = 0;
+    skippedFrames = 0;
+    prefilterNanos = 0;
+    return report;
+  }
+
+  /**
+   * Estimates the CPU time of analyzing all of the pre-filtered frames from the average analysis
+   * time, and returns the ratio saved by analyzing only the frames passing the pre-filter.
+   */
+  private float getCpuSavings(int prefilteredFrames, int analyzedFrames, long analysisNanos,
+      long prefilterNanos) {
+    final int averageAnalysisFrames = analyzedFrames > 0 ? analyzedFrames : totalAnalyzedFrames;
+    final long averageAnalysisTotalNanos = analyzedFrames > 0 ? analysisNanos : totalAnalysisNanos;
+    if (prefilteredFrames == 0 || averageAnalysisFrames == 0) {
+      return 0;
+    }
+    final double averageAnalysisNanos = (double) averageAnalysisTotalNanos / averageAnalysisFrames;
+    final double allFramesNanos = prefilteredFrames * averageAnalysisNanos;
+    return (float) (1 - (analyzedFrames * averageAnalysisNanos + prefilterNanos) / allFramesNanos);
+  }
+
+  private static double toMillis(long totalNanos, int count) {
+    return count == 0 ? 0 : totalNanos / 1e6 / count;
+  }
+}
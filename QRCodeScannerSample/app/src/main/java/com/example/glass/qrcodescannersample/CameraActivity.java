@@ -24,19 +24,24 @@ import android.os.Bundle;
 import android.util.DisplayMetrics;
 import android.util.Size;
 import android.view.TextureView;
+import android.view.View;
+import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.camera.core.CameraX;
+import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.core.content.ContextCompat;
 
 import com.example.glass.qrcodescannersample.QRCodeImageAnalysis.QrCodeAnalysisCallback;
 import com.example.glass.ui.GlassGestureDetector.Gesture;
 
+import java.util.ArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * Activity responsible for requesting camera permission, starting camera and returning scanned QR
- * code as a result.
+ * code as a result. In the continuous mode the camera stays bound, each new QR code is broadcast
+ * with the {@link #ACTION_QR_CODE_SCANNED} action and all of them are returned on finish.
  */
 public class CameraActivity extends BaseActivity implements QrCodeAnalysisCallback {
 
@@ -45,20 +50,66 @@ public class CameraActivity extends BaseActivity implements QrCodeAnalysisCallba
    */
   public static final String QR_SCAN_RESULT = "SCAN_RESULT";
 
+  /**
+   * Key for the list of the scan results of the continuous mode in an {@link Intent}.
+   */
+  public static final String QR_SCAN_RESULTS = "SCAN_RESULTS";
+
+  /**
+   * Boolean extra of the starting {@link Intent}, requesting the continuous mode.
+   */
+  public static final String EXTRA_CONTINUOUS_SCAN = "continuous_scan";
+
+  /**
+   * Action of the broadcast sent within this application for each new QR code scanned in the
+   * continuous mode. The QR code is under the {@link #QR_SCAN_RESULT} key.
+   */
+  public static final String ACTION_QR_CODE_SCANNED =
+      "com.example.glass.qrcodescannersample.QR_CODE_SCANNED";
+
   /**
    * Request code for the camera permission. This value doesn't have any special meaning.
    */
   private static final int CAMERA_PERMISSIONS_REQUEST_CODE = 105;
 
+  /**
+   * Number of the workers decoding the frames in parallel, leaving one core for the camera and the
+   * UI. Frames are decoded on the analyzer thread if it is one.
+   */
+  private static final int ANALYSIS_WORKER_COUNT = Math.max(1,
+      Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
   /**
    * Single thread executor service for the image analysis purposes.
    */
   private ExecutorService executorService;
+  private QRCodeImageAnalysis qrCodeImageAnalysis;
+
+  /**
+   * Scan pipeline of the image analysis, trying the area under the reticle first.
+   */
+  private ScanConfig scanConfig;
+
+  /**
+   * QR codes scanned in the continuous mode, in the order of the detection.
+   */
+  private final ArrayList<String> scanResults = new ArrayList<>();
+  private TextView scanStatusTextView;
+
+  /**
+   * Whether the result has been set and the activity finished. Accessed on the main thread only,
+   * so the QR codes detected concurrently by the workers return a single result.
+   */
+  private boolean resultDelivered = false;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
     setContentView(R.layout.activity_camera);
+    scanConfig = getIntent().getBooleanExtra(EXTRA_CONTINUOUS_SCAN, false)
+        ? ScanConfig.CONTINUOUS : ScanConfig.DEFAULT;
+    scanStatusTextView = findViewById(R.id.scan_status);
+    setReticleSize();
     executorService = Executors.newSingleThreadExecutor();
 
     if (ContextCompat.checkSelfPermission(this,
@@ -73,13 +124,22 @@ public class CameraActivity extends BaseActivity implements QrCodeAnalysisCallba
   protected void onDestroy() {
     super.onDestroy();
     executorService.shutdown();
+    if (qrCodeImageAnalysis != null) {
+      qrCodeImageAnalysis.release();
+    }
   }
 
   @Override
   public boolean onGesture(Gesture gesture) {
     switch (gesture) {
       case SWIPE_DOWN:
-        finishNoQR();
+        if (scanResults.isEmpty()) {
+          finishNoQR();
+        } else {
+          final Intent intent = new Intent();
+          intent.putStringArrayListExtra(QR_SCAN_RESULTS, scanResults);
+          deliverResult(Activity.RESULT_OK, intent);
+        }
         return true;
       default:
         return false;
@@ -103,11 +163,30 @@ public class CameraActivity extends BaseActivity implements QrCodeAnalysisCallba
   }
 
   @Override
-  public void onQrCodeDetected(String result) {
-    final Intent intent = new Intent();
-    intent.putExtra(QR_SCAN_RESULT, result);
-    setResult(Activity.RESULT_OK, intent);
-    finish();
+  public void onQrCodeDetected(final String result) {
+    if (scanConfig.isContinuous()) {
+      sendBroadcast(new Intent(ACTION_QR_CODE_SCANNED)
+          .setPackage(getPackageName())
+          .putExtra(QR_SCAN_RESULT, result));
+      runOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          scanResults.add(result);
+          scanStatusTextView.setText(
+              getString(R.string.continuous_scan_status, scanResults.size(), result));
+          scanStatusTextView.setVisibility(View.VISIBLE);
+        }
+      });
+      return;
+    }
+    runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        final Intent intent = new Intent();
+        intent.putExtra(QR_SCAN_RESULT, result);
+        deliverResult(Activity.RESULT_OK, intent);
+      }
+    });
   }
 
   private void startCamera() {
@@ -115,14 +194,40 @@ public class CameraActivity extends BaseActivity implements QrCodeAnalysisCallba
     final QRCodePreview qrCodePreview = new QRCodePreview(
         CameraConfigProvider.getPreviewConfig(getDisplaySize()),
         textureView);
-    final QRCodeImageAnalysis qrCodeImageAnalysis = new QRCodeImageAnalysis(
-        CameraConfigProvider.getImageAnalysisConfig(), executorService, this);
+    qrCodeImageAnalysis = new QRCodeImageAnalysis(CameraConfigProvider.getImageAnalysisConfig(),
+        executorService, scanConfig, ANALYSIS_WORKER_COUNT, this);
+    qrCodeImageAnalysis.setFramePrefilter(new FramePrefilter());
 
     CameraX.bindToLifecycle(this, qrCodePreview.getUseCase(), qrCodeImageAnalysis.getUseCase());
   }
 
+  /**
+   * Sizes the reticle to the center crop scanned first by the {@link QRCodeDecoder}.
+   */
+  private void setReticleSize() {
+    final View reticle = findViewById(R.id.reticle);
+    final ConstraintLayout.LayoutParams layoutParams =
+        (ConstraintLayout.LayoutParams) reticle.getLayoutParams();
+    layoutParams.matchConstraintPercentHeight = scanConfig.getCenterCropFraction();
+    reticle.setLayoutParams(layoutParams);
+    reticle.setVisibility(scanConfig.getStages().contains(ScanConfig.Stage.CENTER_CROP)
+        ? View.VISIBLE : View.GONE);
+  }
+
   private void finishNoQR() {
-    setResult(Activity.RESULT_CANCELED);
+    deliverResult(Activity.RESULT_CANCELED, null);
+  }
+
+  /**
+   * Sets the result and finishes the activity, unless a result has already been delivered. Has to
+   * be called on the main thread.
+   */
+  private void deliverResult(int resultCode, Intent data) {
+    if (resultDelivered) {
+      return;
+    }
+    resultDelivered = true;
+    setResult(resultCode, data);
     finish();
   }
 
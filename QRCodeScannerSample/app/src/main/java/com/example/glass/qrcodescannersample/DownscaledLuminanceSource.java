@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import com.google.zxing.LuminanceSource;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link LuminanceSource} downscaling the Y plane {@link ByteBuffer} of the camera frame by an
+ * integer factor, averaging each block of the pixels. Like the {@link PlaneLuminanceSource}, it is
+ * created once for the frame size and reuses its buffers for the following frames.
+ */
+public class DownscaledLuminanceSource extends LuminanceSource {
+
+  private final int factor;
+  private ByteBuffer buffer;
+  private int rowStride;
+  private byte[] planeRow;
+  private int[] sums;
+  private byte[] matrix;
+
+  /**
+   * Creates {@link DownscaledLuminanceSource} for the planes of the given size, downscaled by the
+   * given factor. The remainder of the plane size, which doesn't fill the whole block, is skipped.
+   */
+  public DownscaledLuminanceSource(int planeWidth, int planeHeight, int factor) {
+    super(planeWidth / factor, planeHeight / factor);
+    this.factor = factor;
+  }
+
+  /**
+   * Sets the plane of the next frame. The plane must have the size given to the constructor.
+   */
+  public void setPlane(ByteBuffer buffer, int rowStride) {
+    final int planeWidth = getWidth() * factor;
+    final int planeHeight = getHeight() * factor;
+    if (rowStride < planeWidth
+        || buffer.capacity() < (planeHeight - 1) * rowStride + planeWidth) {
+      throw new IllegalArgumentException("Plane doesn't cover the luminance source");
+    }
+    this.buffer = buffer;
+    this.rowStride = rowStride;
+  }
+
+  /**
+   * Returns true if this source downscales the planes of the given size by the given factor.
+   */
+  public boolean hasArea(int planeWidth, int planeHeight, int factor) {
+    return this.factor == factor && getWidth() == planeWidth / factor
+        && getHeight() == planeHeight / factor;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    if (row == null || row.length < getWidth()) {
+      row = new byte[getWidth()];
+    }
+    downscaleRow(y, row, 0);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    final int width = getWidth();
+    final int height = getHeight();
+    if (matrix == null) {
+      matrix = new byte[width * height];
+    }
+    for (int y = 0; y < height; y++) {
+      downscaleRow(y, matrix, y * width);
+    }
+    return matrix;
+  }
+
+  /**
+   * Averages the blocks of the plane rows making the given row of this source into the target.
+   */
+  private void downscaleRow(int y, byte[] target, int offset) {
+    final int width = getWidth();
+    final int planeWidth = width * factor;
+    if (planeRow == null) {
+      planeRow = new byte[planeWidth];
+      sums = new int[width];
+    }
+    Arrays.fill(sums, 0);
+    for (int i = 0; i < factor; i++) {
+      buffer.position((y * factor + i) * rowStride);
+      buffer.get(planeRow, 0, planeWidth);
+      for (int x = 0, planeX = 0; x < width; x++) {
+        for (int j = 0; j < factor; j++, planeX++) {
+          sums[x] += planeRow[planeX] & 0xFF;
+        }
+      }
+    }
+    final int area = factor * factor;
+    for (int x = 0; x < width; x++) {
+      target[offset + x] = (byte) (sums[x] / area);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cheap pre-filter of the camera frames, deciding on the Y plane whether the frame is worth the
+ * full decoding. The frame is skipped if it didn't change since the last decoded frame, if it is
+ * blurry compared to the recent frames, or if none of its sampled rows crosses anything like the
+ * finder pattern of a QR code. The difference and the sharpness are measured on a subsampled grid.
+ *
+ * <p>A static frame is decoded again after a while, sooner if the last decoding didn't find any
+ * QR code, as the exposure or focus may have settled since. A frame passing the pre-filter becomes
+ * the reference of the static frames only once {@link #onFrameSubmitted()} confirms that it is
+ * actually decoded, so a frame dropped by busy workers doesn't suppress the following ones. Must be
+ * called from a single thread, except for the {@link #onDecoded(boolean)}.
+ */
+public class FramePrefilter {
+
+  /**
+   * Distance of the samples of the grid measuring the difference and the sharpness.
+   */
+  private static final int GRID_STEP = 8;
+
+  /**
+   * Distance of the rows searched for the finder pattern.
+   */
+  private static final int FINDER_ROW_STEP = 4;
+
+  /**
+   * Mean absolute difference of the grid samples from the last decoded frame, above which the
+   * frame is considered changed.
+   */
+  private static final int MOTION_THRESHOLD = 4;
+
+  /**
+   * Fraction of the average sharpness of the recent frames, below which the frame is blurry.
+   */
+  private static final float BLUR_RATIO = 0.5F;
+
+  /**
+   * Weight of the current frame in the average sharpness of the recent frames.
+   */
+  private static final float SHARPNESS_WEIGHT = 0.1F;
+
+  /**
+   * Minimal difference of the darkest and the lightest pixel of the row searched for the finder
+   * pattern.
+   */
+  private static final int MIN_ROW_CONTRAST = 32;
+
+  private static final long MAX_STATIC_SKIP_AFTER_FAILURE_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(500);
+  private static final long MAX_STATIC_SKIP_AFTER_SUCCESS_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+  private final int[] stateCount = new int[5];
+  private byte[] row;
+  private byte[] samples;
+  private byte[] referenceSamples;
+  private float averageSharpness = -1;
+  private long lastDecodeNanos;
+  private boolean framePending;
+  private long pendingFrameNanos;
+  private volatile boolean lastDecodeSucceeded;
+  private int staticFrames;
+  private int blurryFrames;
+  private int noFinderFrames;
+
+  /**
+   * Returns true if the given Y plane of the frame, which arrived at the given {@link
+   * System#nanoTime()}, should be decoded. Call {@link #onFrameSubmitted()} if the frame is then
+   * decoded.
+   */
+  public boolean shouldDecode(ByteBuffer plane, int width, int height, int rowStride,
+      long nowNanos) {
+    framePending = false;
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    final int gridWidth = (width - 1) / GRID_STEP;
+    final int gridHeight = (height + GRID_STEP - 1) / GRID_STEP;
+    if (samples == null || samples.length != gridWidth * gridHeight) {
+      samples = new byte[gridWidth * gridHeight];
+      referenceSamples = null;
+    }
+
+    long differenceSum = 0;
+    long sharpnessSum = 0;
+    for (int gridY = 0, i = 0; gridY < gridHeight; gridY++) {
+      readRow(plane, gridY * GRID_STEP, width, rowStride);
+      for (int gridX = 0; gridX < gridWidth; gridX++, i++) {
+        final int x = gridX * GRID_STEP;
+        final int pixel = row[x] & 0xFF;
+        sharpnessSum += Math.abs((row[x + 1] & 0xFF) - pixel);
+        samples[i] = row[x];
+        if (referenceSamples != null) {
+          differenceSum += Math.abs((referenceSamples[i] & 0xFF) - pixel);
+        }
+      }
+    }
+    final float sharpness = (float) sharpnessSum / samples.length;
+    final boolean blurry = averageSharpness >= 0 && sharpness < BLUR_RATIO * averageSharpness;
+    averageSharpness = averageSharpness < 0 ? sharpness
+        : averageSharpness + SHARPNESS_WEIGHT * (sharpness - averageSharpness);
+
+    final long maxStaticSkipNanos = lastDecodeSucceeded ? MAX_STATIC_SKIP_AFTER_SUCCESS_NANOS
+        : MAX_STATIC_SKIP_AFTER_FAILURE_NANOS;
+    if (referenceSamples != null && differenceSum <= (long) MOTION_THRESHOLD * samples.length
+        && nowNanos - lastDecodeNanos < maxStaticSkipNanos) {
+      staticFrames++;
+      return false;
+    }
+    if (blurry) {
+      blurryFrames++;
+      return false;
+    }
+    if (!hasFinderPattern(plane, width, height, rowStride)) {
+      noFinderFrames++;
+      return false;
+    }
+    framePending = true;
+    pendingFrameNanos = nowNanos;
+    return true;
+  }
+
+  /**
+   * Makes the last frame which passed the {@link #shouldDecode(ByteBuffer, int, int, int, long)}
+   * the reference of the static frames. Has to be called before the next frame is checked, and
+   * only if the frame is decoded, not dropped.
+   */
+  public void onFrameSubmitted() {
+    if (!framePending) {
+      return;
+    }
+    framePending = false;
+    final byte[] previousReferenceSamples = referenceSamples;
+    referenceSamples = samples;
+    samples = previousReferenceSamples != null ? previousReferenceSamples
+        : new byte[referenceSamples.length];
+    lastDecodeNanos = pendingFrameNanos;
+  }
+
+  /**
+   * Notifies about the result of decoding the last frame which passed the pre-filter. May be
+   * called from any thread.
+   */
+  public void onDecoded(boolean found) {
+    lastDecodeSucceeded = found;
+  }
+
+  /**
+   * Returns the number of the frames skipped since the last decoded frame didn't change.
+   */
+  public int getStaticFrames() {
+    return staticFrames;
+  }
+
+  /**
+   * Returns the number of the frames skipped as blurry.
+   */
+  public int getBlurryFrames() {
+    return blurryFrames;
+  }
+
+  /**
+   * Returns the number of the frames skipped without any finder pattern found.
+   */
+  public int getNoFinderFrames() {
+    return noFinderFrames;
+  }
+
+  private void readRow(ByteBuffer plane, int y, int width, int rowStride) {
+    plane.position(y * rowStride);
+    plane.get(row, 0, width);
+  }
+
+  /**
+   * Returns true if any of the sampled rows crosses the 1:1:3:1:1 dark and light runs of the
+   * finder pattern, thresholded in the middle of the contrast of the row.
+   */
+  private boolean hasFinderPattern(ByteBuffer plane, int width, int height, int rowStride) {
+    for (int y = FINDER_ROW_STEP / 2; y < height; y += FINDER_ROW_STEP) {
+      readRow(plane, y, width, rowStride);
+      int min = 0xFF;
+      int max = 0;
+      for (int x = 0; x < width; x++) {
+        final int pixel = row[x] & 0xFF;
+        min = Math.min(min, pixel);
+        max = Math.max(max, pixel);
+      }
+      if (max - min >= MIN_ROW_CONTRAST && rowHasFinderPattern(width, (min + max) / 2)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Follows the run counting of the finder pattern search of the ZXing library over the row.
+   * Even states count the dark runs and odd states count the light runs.
+   */
+  private boolean rowHasFinderPattern(int width, int threshold) {
+    int state = 0;
+    for (int i = 0; i < stateCount.length; i++) {
+      stateCount[i] = 0;
+    }
+    for (int x = 0; x < width; x++) {
+      if ((row[x] & 0xFF) < threshold) {
+        if ((state & 1) == 1) {
+          state++;
+        }
+        stateCount[state]++;
+      } else if ((state & 1) == 1) {
+        stateCount[state]++;
+      } else if (state == 4) {
+        if (isFinderPatternRatio()) {
+          return true;
+        }
+        stateCount[0] = stateCount[2];
+        stateCount[1] = stateCount[3];
+        stateCount[2] = stateCount[4];
+        stateCount[3] = 1;
+        stateCount[4] = 0;
+        state = 3;
+      } else {
+        state++;
+        stateCount[state]++;
+      }
+    }
+    return state == 4 && isFinderPatternRatio();
+  }
+
+  private boolean isFinderPatternRatio() {
+    int total = 0;
+    for (int count : stateCount) {
+      if (count == 0) {
+        return false;
+      }
+      total += count;
+    }
+    if (total < 7) {
+      return false;
+    }
+    final float moduleSize = total / 7F;
+    final float maxVariance = moduleSize / 2;
+    return Math.abs(moduleSize - stateCount[0]) < maxVariance
+        && Math.abs(moduleSize - stateCount[1]) < maxVariance
+        && Math.abs(3 * moduleSize - stateCount[2]) < 3 * maxVariance
+        && Math.abs(moduleSize - stateCount[3]) < maxVariance
+        && Math.abs(moduleSize - stateCount[4]) < maxVariance;
+  }
+}
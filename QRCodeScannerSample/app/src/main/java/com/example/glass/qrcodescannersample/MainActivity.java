@@ -19,11 +19,13 @@ package com.example.glass.qrcodescannersample;
 import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.View;
 import android.widget.TextView;
 import androidx.annotation.Nullable;
 
 import com.example.glass.ui.GlassGestureDetector.Gesture;
+import java.util.ArrayList;
 
 /**
  * This activity scans a QR code and shows the result.
@@ -43,14 +45,19 @@ public class MainActivity extends BaseActivity {
   }
 
   /**
-   * Shows the detected {@link String} if the QR code was successfully read.
+   * Shows the detected {@link String} if the QR code was successfully read, or all of the detected
+   * strings of the continuous mode.
    */
   @Override
   protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
     super.onActivityResult(requestCode, resultCode, data);
     if (requestCode == REQUEST_CODE && resultCode == Activity.RESULT_OK) {
       if (data != null) {
-        final String qrData = data.getStringExtra(CameraActivity.QR_SCAN_RESULT);
+        final ArrayList<String> qrDataList =
+            data.getStringArrayListExtra(CameraActivity.QR_SCAN_RESULTS);
+        final String qrData = qrDataList != null
+            ? TextUtils.join("\n", qrDataList)
+            : data.getStringExtra(CameraActivity.QR_SCAN_RESULT);
         resultLabel.setVisibility(View.VISIBLE);
         scanResult.setVisibility(View.VISIBLE);
         scanResult.setText(qrData);
@@ -60,7 +67,8 @@ public class MainActivity extends BaseActivity {
 
   /**
    * Hides previously shown QR code string and starts scanning QR Code on {@link Gesture#TAP}
-   * gesture. Finishes application on {@link Gesture#SWIPE_DOWN} gesture.
+   * gesture, or scanning QR codes continuously on {@link Gesture#TAP_AND_HOLD} gesture. Finishes
+   * application on {@link Gesture#SWIPE_DOWN} gesture.
    */
   @Override
   public boolean onGesture(Gesture gesture) {
@@ -70,6 +78,12 @@ public class MainActivity extends BaseActivity {
         resultLabel.setVisibility(View.GONE);
         scanResult.setVisibility(View.GONE);
         return true;
+      case TAP_AND_HOLD:
+        startActivityForResult(new Intent(this, CameraActivity.class)
+            .putExtra(CameraActivity.EXTRA_CONTINUOUS_SCAN, true), REQUEST_CODE);
+        resultLabel.setVisibility(View.GONE);
+        scanResult.setVisibility(View.GONE);
+        return true;
       case SWIPE_DOWN:
         finish();
         return true;
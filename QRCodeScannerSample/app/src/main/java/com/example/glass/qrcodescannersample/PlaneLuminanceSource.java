@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import com.google.zxing.LuminanceSource;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link LuminanceSource} reading the luminance straight from the Y plane {@link ByteBuffer} of
+ * the camera frame, honoring its row stride. The source is created once for the frame size and
+ * reused for the following frames, so no memory is allocated per frame. The whole matrix, which
+ * the binarizer asks for, is copied into an array reused as well.
+ */
+public class PlaneLuminanceSource extends LuminanceSource {
+
+  private final int left;
+  private final int top;
+  private ByteBuffer buffer;
+  private int rowStride;
+  private byte[] matrix;
+
+  /**
+   * Creates {@link PlaneLuminanceSource} of the given size, without any plane set yet.
+   */
+  public PlaneLuminanceSource(int width, int height) {
+    this(width, height, 0, 0);
+  }
+
+  /**
+   * Creates {@link PlaneLuminanceSource} of the given size, reading the area starting at the given
+   * left and top offsets of the plane.
+   */
+  public PlaneLuminanceSource(int width, int height, int left, int top) {
+    super(width, height);
+    this.left = left;
+    this.top = top;
+  }
+
+  /**
+   * Sets the plane of the next frame. The plane must cover the area of this source.
+   */
+  public void setPlane(ByteBuffer buffer, int rowStride) {
+    if (rowStride < left + getWidth()
+        || buffer.capacity() < (top + getHeight() - 1) * rowStride + left + getWidth()) {
+      throw new IllegalArgumentException("Plane doesn't cover the luminance source");
+    }
+    this.buffer = buffer;
+    this.rowStride = rowStride;
+  }
+
+  /**
+   * Returns true if this source has the given size and reads the area of the plane starting at
+   * the given offsets.
+   */
+  public boolean hasArea(int width, int height, int left, int top) {
+    return getWidth() == width && getHeight() == height && this.left == left && this.top == top;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    final int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    buffer.position((top + y) * rowStride + left);
+    buffer.get(row, 0, width);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    final int width = getWidth();
+    final int height = getHeight();
+    if (matrix == null) {
+      matrix = new byte[width * height];
+    }
+    if (left == 0 && rowStride == width) {
+      // Rows are not padded, the matrix is a single block of the plane.
+      buffer.position(top * rowStride);
+      buffer.get(matrix, 0, width * height);
+      return matrix;
+    }
+    for (int y = 0; y < height; y++) {
+      buffer.position((top + y) * rowStride + left);
+      buffer.get(matrix, y * width, width);
+    }
+    return matrix;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    final PlaneLuminanceSource croppedSource = new PlaneLuminanceSource(width, height,
+        this.left + left, this.top + top);
+    croppedSource.setPlane(buffer, rowStride);
+    return croppedSource;
+  }
+}
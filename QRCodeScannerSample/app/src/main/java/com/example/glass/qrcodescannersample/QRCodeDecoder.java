@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import androidx.annotation.Nullable;
+import com.example.glass.qrcodescannersample.ScanConfig.Stage;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+import com.google.zxing.qrcode.QRCodeReader;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decoding context reusing the {@link QRCodeReader}, the luminance sources and the buffers of the
+ * {@link ReusableHybridBinarizer} across the frames. Decoding a frame of the same size as the
+ * previous one allocates only a few small objects. The context is not thread safe, each thread
+ * decoding the frames should use its own one.
+ *
+ * <p>The frame is scanned in the stages of the {@link ScanConfig}, until one of them decodes the
+ * QR code. Points of the {@link Result} are relative to the area scanned by that stage.
+ */
+public class QRCodeDecoder {
+
+  private final QRCodeReader reader = new QRCodeReader();
+  private final QRCodeMultiReader multiReader = new QRCodeMultiReader();
+  private final ScanConfig scanConfig;
+  private PlaneLuminanceSource centerCropSource;
+  private ReusableHybridBinarizer centerCropBinarizer;
+  private DownscaledLuminanceSource downscaledSource;
+  private ReusableHybridBinarizer downscaledBinarizer;
+  private PlaneLuminanceSource fullFrameSource;
+  private ReusableHybridBinarizer fullFrameBinarizer;
+  private Stage decodedStage;
+
+  /**
+   * Creates {@link QRCodeDecoder} with the {@link ScanConfig#DEFAULT} scan pipeline.
+   */
+  public QRCodeDecoder() {
+    this(ScanConfig.DEFAULT);
+  }
+
+  /**
+   * Creates {@link QRCodeDecoder} with the given scan pipeline.
+   */
+  public QRCodeDecoder(ScanConfig scanConfig) {
+    this.scanConfig = scanConfig;
+  }
+
+  /**
+   * Decodes the QR code from the given Y plane of the frame. Throws the exception of the last stage
+   * if none of the stages decodes the QR code.
+   */
+  public Result decode(ByteBuffer plane, int width, int height, int rowStride)
+      throws NotFoundException, ChecksumException, FormatException {
+    decodedStage = null;
+    final List<Stage> stages = scanConfig.getStages();
+    for (int i = 0; i < stages.size(); i++) {
+      final Stage stage = stages.get(i);
+      final Binarizer binarizer = getBinarizer(stage, plane, width, height, rowStride);
+      try {
+        final Result result = reader.decode(new BinaryBitmap(binarizer));
+        decodedStage = stage;
+        return result;
+      } catch (NotFoundException | ChecksumException | FormatException e) {
+        if (i == stages.size() - 1) {
+          throw e;
+        }
+      } finally {
+        reader.reset();
+      }
+    }
+    throw NotFoundException.getNotFoundInstance();
+  }
+
+  /**
+   * Decodes all of the QR codes from the given Y plane of the frame. Returns the QR codes found by
+   * the first stage which finds any, or throws {@link NotFoundException} if none of them does.
+   */
+  public Result[] decodeMultiple(ByteBuffer plane, int width, int height, int rowStride)
+      throws NotFoundException {
+    decodedStage = null;
+    for (Stage stage : scanConfig.getStages()) {
+      final Binarizer binarizer = getBinarizer(stage, plane, width, height, rowStride);
+      try {
+        final Result[] results = multiReader.decodeMultiple(new BinaryBitmap(binarizer));
+        if (results.length > 0) {
+          decodedStage = stage;
+          return results;
+        }
+      } catch (NotFoundException e) {
+        // Tries the next stage.
+      } finally {
+        multiReader.reset();
+      }
+    }
+    throw NotFoundException.getNotFoundInstance();
+  }
+
+  /**
+   * Returns the stage which decoded the QR code of the last frame, or null if it wasn't decoded.
+   */
+  @Nullable
+  public Stage getDecodedStage() {
+    return decodedStage;
+  }
+
+  /**
+   * Returns the binarizer of the given stage, reading the given plane.
+   */
+  private Binarizer getBinarizer(Stage stage, ByteBuffer plane, int width, int height,
+      int rowStride) {
+    switch (stage) {
+      case CENTER_CROP:
+        final int size = Math.round(Math.min(width, height) * scanConfig.getCenterCropFraction());
+        final int left = (width - size) / 2;
+        final int top = (height - size) / 2;
+        if (centerCropSource == null || !centerCropSource.hasArea(size, size, left, top)) {
+          centerCropSource = new PlaneLuminanceSource(size, size, left, top);
+          centerCropBinarizer = new ReusableHybridBinarizer(centerCropSource);
+        }
+        centerCropSource.setPlane(plane, rowStride);
+        return centerCropBinarizer;
+      case DOWNSCALED:
+        final int factor = scanConfig.getDownscaleFactor();
+        if (downscaledSource == null || !downscaledSource.hasArea(width, height, factor)) {
+          downscaledSource = new DownscaledLuminanceSource(width, height, factor);
+          downscaledBinarizer = new ReusableHybridBinarizer(downscaledSource);
+        }
+        downscaledSource.setPlane(plane, rowStride);
+        return downscaledBinarizer;
+      case FULL_FRAME:
+        if (fullFrameSource == null || !fullFrameSource.hasArea(width, height, 0, 0)) {
+          fullFrameSource = new PlaneLuminanceSource(width, height);
+          fullFrameBinarizer = new ReusableHybridBinarizer(fullFrameSource);
+        }
+        fullFrameSource.setPlane(plane, rowStride);
+        return fullFrameBinarizer;
+      default:
+        throw new IllegalArgumentException("Unknown scan stage: " + stage);
+    }
+  }
+}
@@ -17,41 +17,78 @@
 package com.example.glass.qrcodescannersample;
 
 import android.util.Log;
+import androidx.annotation.Nullable;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageAnalysis.Analyzer;
 import androidx.camera.core.ImageAnalysisConfig;
 import androidx.camera.core.ImageProxy;
+import androidx.camera.core.ImageProxy.PlaneProxy;
 import androidx.camera.core.UseCase;
-import com.google.zxing.BinaryBitmap;
+import com.example.glass.qrcodescannersample.QRCodeWorkerPool.OnQrCodeDecodedListener;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
-import com.google.zxing.PlanarYUVLuminanceSource;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
-import com.google.zxing.qrcode.QRCodeReader;
-import java.nio.ByteBuffer;
+import java.util.Locale;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Builds and provides {@link ImageAnalysis} object to bind the camera with.
+ * Builds and provides {@link ImageAnalysis} object to bind the camera with. The frames are decoded
+ * on the analyzer thread, or by the {@link QRCodeWorkerPool} in the parallel mode.
  */
-public class QRCodeImageAnalysis implements Analyzer {
+public class QRCodeImageAnalysis implements Analyzer, OnQrCodeDecodedListener {
 
   private static final String TAG = QRCodeImageAnalysis.class.getSimpleName();
   private final ImageAnalysisConfig imageAnalysisConfig;
   private final Executor executor;
+  private final ScanConfig scanConfig;
   private final QrCodeAnalysisCallback qrCodeAnalysisCallback;
+  private final AnalysisStats analysisStats = new AnalysisStats();
 
   /**
-   * Creates {@link QRCodeImageAnalysis} object with {@link ImageAnalysisConfig} and {@link
-   * QrCodeAnalysisCallback} callback.
+   * Pool of the workers decoding the frames in the parallel mode, null in the single thread mode.
+   */
+  @Nullable
+  private final QRCodeWorkerPool workerPool;
+
+  /**
+   * Recently reported QR codes in the continuous mode on the analyzer thread, null otherwise.
+   */
+  @Nullable
+  private final RecentCodes recentCodes;
+
+  @Nullable
+  private FramePrefilter framePrefilter;
+
+  /**
+   * Decoding context of each of the threads analyzing the frames.
+   */
+  private final ThreadLocal<QRCodeDecoder> decoders = new ThreadLocal<QRCodeDecoder>() {
+    @Override
+    protected QRCodeDecoder initialValue() {
+      return new QRCodeDecoder(scanConfig);
+    }
+  };
+
+  /**
+   * Creates {@link QRCodeImageAnalysis} object with {@link ImageAnalysisConfig}, {@link ScanConfig}
+   * of the scan pipeline and {@link QrCodeAnalysisCallback} callback. The frames are decoded in
+   * parallel if the given number of the workers is greater than one. In the continuous mode of
+   * the {@link ScanConfig}, the callback is notified about each new QR code of the frames.
    */
   public QRCodeImageAnalysis(ImageAnalysisConfig imageAnalysisConfig, Executor executor,
-      QrCodeAnalysisCallback qrCodeAnalysisCallback) {
+      ScanConfig scanConfig, int workerCount, QrCodeAnalysisCallback qrCodeAnalysisCallback) {
     this.imageAnalysisConfig = imageAnalysisConfig;
     this.executor = executor;
+    this.scanConfig = scanConfig;
     this.qrCodeAnalysisCallback = qrCodeAnalysisCallback;
+    workerPool = workerCount > 1
+        ? new QRCodeWorkerPool(workerCount, scanConfig, analysisStats, this)
+        : null;
+    recentCodes = workerPool == null && scanConfig.isContinuous()
+        ? new RecentCodes(TimeUnit.MILLISECONDS.toNanos(scanConfig.getDuplicateWindowMillis()))
+        : null;
   }
 
   /**
@@ -64,23 +101,124 @@ public class QRCodeImageAnalysis implements Analyzer {
   }
 
   /**
-   * Performs an analysis of the image, searching for the QR code, using the ZXing library.
+   * Sets the {@link FramePrefilter} skipping the frames which are not worth decoding, or null to
+   * decode all of the frames. Must be called before the use case is bound.
+   */
+  public void setFramePrefilter(@Nullable FramePrefilter framePrefilter) {
+    this.framePrefilter = framePrefilter;
+  }
+
+  /**
+   * Returns the statistics of the analysis, including the ratio of the skipped frames and the
+   * estimated CPU savings of the {@link FramePrefilter}.
+   */
+  public AnalysisStats getAnalysisStats() {
+    return analysisStats;
+  }
+
+  /**
+   * Performs an analysis of the image, searching for the QR code, using the ZXing library. The
+   * luminance is read straight from the Y plane of the image by the {@link QRCodeDecoder} of the
+   * current thread, or the plane is handed over to an idle worker in the parallel mode. Frames
+   * rejected by the {@link FramePrefilter} are skipped, and frames dropped by the busy workers are
+   * not used as its reference.
    */
   @Override
   public void analyze(ImageProxy image, int rotationDegrees) {
-    final ByteBuffer buffer = image.getPlanes()[0].getBuffer();
-    final byte[] imageBytes = new byte[buffer.remaining()];
-    buffer.get(imageBytes);
-    final int width = image.getWidth();
-    final int height = image.getHeight();
-    final PlanarYUVLuminanceSource source =
-        new PlanarYUVLuminanceSource(imageBytes, width, height, 0, 0, width, height, false);
-    final BinaryBitmap zxingBinaryBitmap = new BinaryBitmap(new HybridBinarizer(source));
-    try {
-      final Result decodedBarcode = new QRCodeReader().decode(zxingBinaryBitmap);
-      qrCodeAnalysisCallback.onQrCodeDetected(decodedBarcode.getText());
-    } catch (NotFoundException | ChecksumException | FormatException e) {
-      Log.e(TAG, "QR Code decoding error", e);
+    final long arrivalNanos = System.nanoTime();
+    final PlaneProxy plane = image.getPlanes()[0];
+    if (framePrefilter != null) {
+      final boolean shouldDecode = framePrefilter.shouldDecode(plane.getBuffer(),
+          image.getWidth(), image.getHeight(), plane.getRowStride(), arrivalNanos);
+      analysisStats.onFramePrefiltered(System.nanoTime() - arrivalNanos, !shouldDecode);
+      if (!shouldDecode) {
+        pollReport();
+        return;
+      }
+    }
+    if (workerPool != null) {
+      if (workerPool.submit(plane.getBuffer(), image.getWidth(), image.getHeight(),
+          plane.getRowStride(), arrivalNanos)) {
+        onFrameSubmitted();
+      }
+    } else if (recentCodes != null) {
+      onFrameSubmitted();
+      try {
+        final Result[] decodedBarcodes = decoders.get().decodeMultiple(plane.getBuffer(),
+            image.getWidth(), image.getHeight(), plane.getRowStride());
+        analysisStats.onFrameAnalyzed(System.nanoTime() - arrivalNanos);
+        onFrameDecoded(true);
+        for (Result decodedBarcode : decodedBarcodes) {
+          if (recentCodes.add(decodedBarcode.getText(), System.nanoTime())) {
+            analysisStats.onCodeDetected(System.nanoTime() - arrivalNanos);
+            qrCodeAnalysisCallback.onQrCodeDetected(decodedBarcode.getText());
+          }
+        }
+      } catch (NotFoundException e) {
+        // Most of the frames don't contain any QR code in the continuous mode.
+        analysisStats.onFrameAnalyzed(System.nanoTime() - arrivalNanos);
+        onFrameDecoded(false);
+      }
+    } else {
+      onFrameSubmitted();
+      try {
+        final Result decodedBarcode = decoders.get().decode(plane.getBuffer(), image.getWidth(),
+            image.getHeight(), plane.getRowStride());
+        final long latencyNanos = System.nanoTime() - arrivalNanos;
+        analysisStats.onFrameAnalyzed(latencyNanos);
+        analysisStats.onCodeDetected(latencyNanos);
+        onFrameDecoded(true);
+        qrCodeAnalysisCallback.onQrCodeDetected(decodedBarcode.getText());
+      } catch (NotFoundException | ChecksumException | FormatException e) {
+        analysisStats.onFrameAnalyzed(System.nanoTime() - arrivalNanos);
+        onFrameDecoded(false);
+        Log.e(TAG, "QR Code decoding error", e);
+      }
+    }
+    pollReport();
+  }
+
+  @Override
+  public void onQrCodeDecoded(String text) {
+    qrCodeAnalysisCallback.onQrCodeDetected(text);
+  }
+
+  /**
+   * Notifies the {@link FramePrefilter} that the frame which passed it is decoded, not dropped.
+   */
+  private void onFrameSubmitted() {
+    if (framePrefilter != null) {
+      framePrefilter.onFrameSubmitted();
+    }
+  }
+
+  @Override
+  public void onFrameDecoded(boolean found) {
+    if (framePrefilter != null) {
+      framePrefilter.onDecoded(found);
+    }
+  }
+
+  /**
+   * Stops the workers of the parallel mode and logs the savings of the {@link FramePrefilter}.
+   */
+  public void release() {
+    if (workerPool != null) {
+      workerPool.release();
+    }
+    if (framePrefilter != null) {
+      Log.i(TAG, String.format(Locale.US, "Skipped %.0f%% of frames (%d static, %d blurry, "
+              + "%d without finder pattern), saving %.0f%% of CPU time",
+          100 * analysisStats.getSkipRatio(), framePrefilter.getStaticFrames(),
+          framePrefilter.getBlurryFrames(), framePrefilter.getNoFinderFrames(),
+          100 * analysisStats.getCpuSavings()));
+    }
+  }
+
+  private void pollReport() {
+    final String report = analysisStats.pollReport(System.nanoTime());
+    if (report != null) {
+      Log.i(TAG, report);
     }
   }
 
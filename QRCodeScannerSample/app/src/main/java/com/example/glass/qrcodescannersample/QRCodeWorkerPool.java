@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import androidx.annotation.Nullable;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the frames in parallel on a small pool of the workers, each of them with its own {@link
+ * QRCodeDecoder}. The frame is copied into the buffer of an idle worker, so the camera can reuse
+ * its image right away, and dropped if all of the workers are busy.
+ *
+ * <p>Workers finish the frames out of order, so the QR code of a frame older than the last
+ * delivered one is ignored, as well as the same QR code decoded from the frames which were in
+ * flight when it was delivered. In the continuous mode of the {@link ScanConfig}, all of the QR
+ * codes of the frames are delivered, unless the {@link RecentCodes} saw them within the window.
+ */
+public class QRCodeWorkerPool {
+
+  private final BlockingQueue<Worker> idleWorkers;
+  private final ExecutorService executorService;
+  private final AnalysisStats analysisStats;
+  private final OnQrCodeDecodedListener onQrCodeDecodedListener;
+  @Nullable
+  private final RecentCodes recentCodes;
+  private long nextSequence;
+  private long lastDeliveredSequence = -1;
+  private long duplicatesEndSequence;
+  private String lastDeliveredText;
+
+  /**
+   * Creates {@link QRCodeWorkerPool} with the given number of the workers decoding with the given
+   * {@link ScanConfig}.
+   */
+  public QRCodeWorkerPool(int workerCount, ScanConfig scanConfig, AnalysisStats analysisStats,
+      OnQrCodeDecodedListener onQrCodeDecodedListener) {
+    this.analysisStats = analysisStats;
+    this.onQrCodeDecodedListener = onQrCodeDecodedListener;
+    recentCodes = scanConfig.isContinuous()
+        ? new RecentCodes(TimeUnit.MILLISECONDS.toNanos(scanConfig.getDuplicateWindowMillis()))
+        : null;
+    idleWorkers = new ArrayBlockingQueue<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      idleWorkers.add(new Worker(scanConfig));
+    }
+    executorService = Executors.newFixedThreadPool(workerCount);
+  }
+
+  /**
+   * Hands the given Y plane of the frame, which arrived at the given {@link System#nanoTime()},
+   * over to an idle worker. Returns false if the frame is dropped because all of the workers are
+   * busy or the pool has been released. Must be called from a single thread.
+   */
+  public boolean submit(ByteBuffer plane, int width, int height, int rowStride,
+      long arrivalNanos) {
+    final Worker worker = idleWorkers.poll();
+    if (worker == null) {
+      analysisStats.onFrameDropped();
+      return false;
+    }
+    synchronized (this) {
+      // Checked under the lock of the release(), so the executor can't reject the worker.
+      if (executorService.isShutdown()) {
+        idleWorkers.add(worker);
+        return false;
+      }
+      worker.setFrame(plane, width, height, rowStride, nextSequence++, arrivalNanos);
+      executorService.execute(worker);
+    }
+    return true;
+  }
+
+  /**
+   * Stops the workers. Frames which are being decoded are finished, but their QR codes are not
+   * delivered anymore.
+   */
+  public synchronized void release() {
+    executorService.shutdown();
+  }
+
+  /**
+   * Delivers the QR codes decoded from the frame of the given sequence number, unless they are out
+   * of order or duplicates.
+   */
+  private synchronized void deliver(Result[] results, long sequence, long arrivalNanos) {
+    if (executorService.isShutdown()) {
+      return;
+    }
+    if (recentCodes != null) {
+      for (Result result : results) {
+        if (recentCodes.add(result.getText(), System.nanoTime())) {
+          notifyDecoded(result.getText(), arrivalNanos);
+        }
+      }
+      return;
+    }
+    final String text = results[0].getText();
+    if (sequence < lastDeliveredSequence
+        || (text.equals(lastDeliveredText) && sequence < duplicatesEndSequence)) {
+      return;
+    }
+    lastDeliveredSequence = sequence;
+    lastDeliveredText = text;
+    duplicatesEndSequence = nextSequence;
+    notifyDecoded(text, arrivalNanos);
+  }
+
+  private void notifyDecoded(String text, long arrivalNanos) {
+    analysisStats.onCodeDetected(System.nanoTime() - arrivalNanos);
+    onQrCodeDecodedListener.onQrCodeDecoded(text);
+  }
+
+  /**
+   * Worker decoding a copy of the frame with its own {@link QRCodeDecoder}.
+   */
+  private class Worker implements Runnable {
+
+    private final QRCodeDecoder decoder;
+    private ByteBuffer frame;
+    private int width;
+    private int height;
+    private int rowStride;
+    private long sequence;
+    private long arrivalNanos;
+
+    Worker(ScanConfig scanConfig) {
+      decoder = new QRCodeDecoder(scanConfig);
+    }
+
+    /**
+     * Copies the given plane into the buffer of this worker, reused if it is large enough.
+     */
+    void setFrame(ByteBuffer plane, int width, int height, int rowStride, long sequence,
+        long arrivalNanos) {
+      final ByteBuffer source = plane.duplicate();
+      source.clear();
+      if (frame == null || frame.capacity() < source.remaining()) {
+        frame = ByteBuffer.allocate(source.remaining());
+      }
+      frame.clear();
+      frame.put(source);
+      this.width = width;
+      this.height = height;
+      this.rowStride = rowStride;
+      this.sequence = sequence;
+      this.arrivalNanos = arrivalNanos;
+    }
+
+    @Override
+    public void run() {
+      try {
+        Result[] results = null;
+        try {
+          results = recentCodes != null
+              ? decoder.decodeMultiple(frame, width, height, rowStride)
+              : new Result[]{decoder.decode(frame, width, height, rowStride)};
+        } catch (NotFoundException | ChecksumException | FormatException e) {
+          // Most of the frames don't contain any QR code.
+        }
+        final long latencyNanos = System.nanoTime() - arrivalNanos;
+        onQrCodeDecodedListener.onFrameDecoded(results != null);
+        if (results != null) {
+          deliver(results, sequence, arrivalNanos);
+        }
+        analysisStats.onFrameAnalyzed(latencyNanos);
+      } finally {
+        idleWorkers.add(this);
+      }
+    }
+  }
+
+  /**
+   * Listener notified on the worker threads about the decoded frames, and one at a time about
+   * their new QR codes.
+   */
+  interface OnQrCodeDecodedListener {
+
+    void onQrCodeDecoded(String text);
+
+    void onFrameDecoded(boolean found);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Time-windowed set of the recently seen QR codes, suppressing the duplicates in the continuous
+ * scanning. The window of a code restarts each time it is seen, so a code kept in the view is
+ * reported once, and again only after it was out of the view for the whole window. May be used
+ * from any thread.
+ */
+public class RecentCodes {
+
+  private final long windowNanos;
+
+  /**
+   * Time the codes were seen the last time, ordered from the least recently seen one.
+   */
+  private final Map<String, Long> lastSeenNanos = new LinkedHashMap<>(16, 0.75F, true);
+
+  /**
+   * Creates {@link RecentCodes} with the given window.
+   */
+  public RecentCodes(long windowNanos) {
+    this.windowNanos = windowNanos;
+  }
+
+  /**
+   * Records the given code seen at the given {@link System#nanoTime()}. Returns true if it wasn't
+   * seen within the window, so it is a new result.
+   */
+  public synchronized boolean add(String text, long nowNanos) {
+    final Iterator<Long> iterator = lastSeenNanos.values().iterator();
+    while (iterator.hasNext() && nowNanos - iterator.next() > windowNanos) {
+      iterator.remove();
+    }
+    return lastSeenNanos.put(text, nowNanos) == null;
+  }
+
+  /**
+   * Returns the number of the codes seen within the window.
+   */
+  public synchronized int size() {
+    return lastSeenNanos.size();
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Google LLC
+ * Copyright 2009 ZXing authors
+ *
+ * Derived from com.google.zxing.common.HybridBinarizer of the ZXing project
+ * (https://github.com/zxing/zxing), modified to reuse the black points and the bit matrix.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * Binarizer producing the same black matrix as the {@link HybridBinarizer}, but keeping the black
+ * points and the {@link BitMatrix} between the calls. It is meant to be created once for a reused
+ * {@link LuminanceSource}, so binarizing the following frames doesn't allocate memory. Every call
+ * of the {@link #getBlackMatrix()} binarizes the current content of the source again into the same
+ * {@link BitMatrix}, which is valid only until the next call. The binarization follows the
+ * {@link HybridBinarizer} of ZXing step by step.
+ */
+public class ReusableHybridBinarizer extends GlobalHistogramBinarizer {
+
+  private static final int BLOCK_SIZE_POWER = 3;
+  private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER;
+  private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;
+  private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+  private static final int MIN_DYNAMIC_RANGE = 24;
+
+  private int[][] blackPoints;
+  private BitMatrix matrix;
+
+  /**
+   * Creates {@link ReusableHybridBinarizer} for the given {@link LuminanceSource}.
+   */
+  public ReusableHybridBinarizer(LuminanceSource source) {
+    super(source);
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    final LuminanceSource source = getLuminanceSource();
+    final int width = source.getWidth();
+    final int height = source.getHeight();
+    if (width < MINIMUM_DIMENSION || height < MINIMUM_DIMENSION) {
+      // The image is too small, fall back to the global histogram approach.
+      return super.getBlackMatrix();
+    }
+    final byte[] luminances = source.getMatrix();
+    int subWidth = width >> BLOCK_SIZE_POWER;
+    if ((width & BLOCK_SIZE_MASK) != 0) {
+      subWidth++;
+    }
+    int subHeight = height >> BLOCK_SIZE_POWER;
+    if ((height & BLOCK_SIZE_MASK) != 0) {
+      subHeight++;
+    }
+    if (matrix == null) {
+      blackPoints = new int[subHeight][subWidth];
+      matrix = new BitMatrix(width, height);
+    } else {
+      matrix.clear();
+    }
+    calculateBlackPoints(luminances, subWidth, subHeight, width, height, blackPoints);
+    calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints, matrix);
+    return matrix;
+  }
+
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return new ReusableHybridBinarizer(source);
+  }
+
+  /**
+   * Thresholds each block of the image with the average black point of the 5x5 grid of the blocks
+   * around it. Fractional blocks at the edges use the last pixels of the row or column.
+   */
+  private static void calculateThresholdForBlock(byte[] luminances, int subWidth, int subHeight,
+      int width, int height, int[][] blackPoints, BitMatrix matrix) {
+    final int maxYOffset = height - BLOCK_SIZE;
+    final int maxXOffset = width - BLOCK_SIZE;
+    for (int y = 0; y < subHeight; y++) {
+      final int yOffset = Math.min(y << BLOCK_SIZE_POWER, maxYOffset);
+      final int top = cap(y, 2, subHeight - 3);
+      for (int x = 0; x < subWidth; x++) {
+        final int xOffset = Math.min(x << BLOCK_SIZE_POWER, maxXOffset);
+        final int left = cap(x, 2, subWidth - 3);
+        int sum = 0;
+        for (int z = -2; z <= 2; z++) {
+          final int[] blackRow = blackPoints[top + z];
+          sum += blackRow[left - 2] + blackRow[left - 1] + blackRow[left] + blackRow[left + 1]
+              + blackRow[left + 2];
+        }
+        thresholdBlock(luminances, xOffset, yOffset, sum / 25, width, matrix);
+      }
+    }
+  }
+
+  private static int cap(int value, int min, int max) {
+    return value < min ? min : value > max ? max : value;
+  }
+
+  private static void thresholdBlock(byte[] luminances, int xOffset, int yOffset, int threshold,
+      int stride, BitMatrix matrix) {
+    for (int y = 0, offset = yOffset * stride + xOffset; y < BLOCK_SIZE; y++, offset += stride) {
+      for (int x = 0; x < BLOCK_SIZE; x++) {
+        // Pixels equal to the threshold are black, so black pixels stay black at threshold 0.
+        if ((luminances[offset + x] & 0xFF) <= threshold) {
+          matrix.set(xOffset + x, yOffset + y);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculates the black point of each block of the image into the given array.
+   */
+  private static void calculateBlackPoints(byte[] luminances, int subWidth, int subHeight,
+      int width, int height, int[][] blackPoints) {
+    final int maxYOffset = height - BLOCK_SIZE;
+    final int maxXOffset = width - BLOCK_SIZE;
+    for (int y = 0; y < subHeight; y++) {
+      final int yOffset = Math.min(y << BLOCK_SIZE_POWER, maxYOffset);
+      for (int x = 0; x < subWidth; x++) {
+        final int xOffset = Math.min(x << BLOCK_SIZE_POWER, maxXOffset);
+        int sum = 0;
+        int min = 0xFF;
+        int max = 0;
+        for (int yy = 0, offset = yOffset * width + xOffset; yy < BLOCK_SIZE;
+            yy++, offset += width) {
+          for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+            final int pixel = luminances[offset + xx] & 0xFF;
+            sum += pixel;
+            if (pixel < min) {
+              min = pixel;
+            }
+            if (pixel > max) {
+              max = pixel;
+            }
+          }
+          if (max - min > MIN_DYNAMIC_RANGE) {
+            // The contrast is found, sum the rest of the block without the min and max tests.
+            for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+              for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                sum += luminances[offset + xx] & 0xFF;
+              }
+            }
+          }
+        }
+
+        int average = sum >> (BLOCK_SIZE_POWER * 2);
+        if (max - min <= MIN_DYNAMIC_RANGE) {
+          // Low contrast block is assumed to be the light background, unless its neighbours,
+          // which are already calculated, suggest a darker black point.
+          average = min / 2;
+          if (y > 0 && x > 0) {
+            final int averageNeighborBlackPoint = (blackPoints[y - 1][x]
+                + (2 * blackPoints[y][x - 1]) + blackPoints[y - 1][x - 1]) / 4;
+            if (min < averageNeighborBlackPoint) {
+              average = averageNeighborBlackPoint;
+            }
+          }
+        }
+        blackPoints[y][x] = average;
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configuration of the scan pipeline of the {@link QRCodeDecoder}. The decoder tries the stages in
+ * the given order and stops at the first one which decodes the QR code, so the cheap stages should
+ * go first. In the continuous mode all of the QR codes of the frame are decoded and the duplicates
+ * seen within the window are suppressed by the {@link RecentCodes}.
+ */
+public class ScanConfig {
+
+  /**
+   * Stage of the scan pipeline.
+   */
+  public enum Stage {
+    /**
+     * Square area in the center of the frame, matching the reticle shown over the viewfinder.
+     */
+    CENTER_CROP,
+    /**
+     * Whole frame downscaled by the downscale factor.
+     */
+    DOWNSCALED,
+    /**
+     * Whole frame at the full resolution.
+     */
+    FULL_FRAME
+  }
+
+  /**
+   * Default size of the center crop, as a fraction of the shorter side of the frame.
+   */
+  public static final float DEFAULT_CENTER_CROP_FRACTION = 0.6F;
+
+  /**
+   * Default factor by which the frame is downscaled in each dimension.
+   */
+  public static final int DEFAULT_DOWNSCALE_FACTOR = 2;
+
+  /**
+   * Default window within which the same QR code is reported once in the continuous mode.
+   */
+  public static final long DEFAULT_DUPLICATE_WINDOW_MILLIS = 3000;
+
+  /**
+   * Tries the center crop first, then the downscaled frame and the full resolution frame at last.
+   */
+  public static final ScanConfig DEFAULT = new ScanConfig(
+      Arrays.asList(Stage.CENTER_CROP, Stage.DOWNSCALED, Stage.FULL_FRAME),
+      DEFAULT_CENTER_CROP_FRACTION, DEFAULT_DOWNSCALE_FACTOR);
+
+  /**
+   * Decodes only the full resolution frame.
+   */
+  public static final ScanConfig FULL_FRAME_ONLY = new ScanConfig(
+      Collections.singletonList(Stage.FULL_FRAME), DEFAULT_CENTER_CROP_FRACTION,
+      DEFAULT_DOWNSCALE_FACTOR);
+
+  /**
+   * Scans all of the QR codes of the frame continuously, with the stages of the {@link #DEFAULT}.
+   */
+  public static final ScanConfig CONTINUOUS = new ScanConfig(DEFAULT.getStages(),
+      DEFAULT_CENTER_CROP_FRACTION, DEFAULT_DOWNSCALE_FACTOR, DEFAULT_DUPLICATE_WINDOW_MILLIS);
+
+  private final List<Stage> stages;
+  private final float centerCropFraction;
+  private final int downscaleFactor;
+  private final long duplicateWindowMillis;
+
+  /**
+   * Creates {@link ScanConfig} trying the given stages in order, until a single QR code is decoded.
+   * The center crop fraction must be in the (0, 1] range and the downscale factor must be at
+   * least 2.
+   */
+  public ScanConfig(List<Stage> stages, float centerCropFraction, int downscaleFactor) {
+    this(stages, centerCropFraction, downscaleFactor, 0);
+  }
+
+  /**
+   * Creates {@link ScanConfig} of the continuous mode if the given duplicate window is positive.
+   */
+  public ScanConfig(List<Stage> stages, float centerCropFraction, int downscaleFactor,
+      long duplicateWindowMillis) {
+    if (stages.isEmpty()) {
+      throw new IllegalArgumentException("Scan pipeline needs at least one stage");
+    }
+    if (centerCropFraction <= 0 || centerCropFraction > 1) {
+      throw new IllegalArgumentException("Invalid center crop fraction: " + centerCropFraction);
+    }
+    if (downscaleFactor < 2) {
+      throw new IllegalArgumentException("Invalid downscale factor: " + downscaleFactor);
+    }
+    if (duplicateWindowMillis < 0) {
+      throw new IllegalArgumentException("Invalid duplicate window: " + duplicateWindowMillis);
+    }
+    this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+    this.centerCropFraction = centerCropFraction;
+    this.downscaleFactor = downscaleFactor;
+    this.duplicateWindowMillis = duplicateWindowMillis;
+  }
+
+  /**
+   * Returns the stages of the pipeline in the order they are tried.
+   */
+  public List<Stage> getStages() {
+    return stages;
+  }
+
+  /**
+   * Returns the size of the center crop, as a fraction of the shorter side of the frame.
+   */
+  public float getCenterCropFraction() {
+    return centerCropFraction;
+  }
+
+  /**
+   * Returns the factor by which the frame is downscaled in each dimension.
+   */
+  public int getDownscaleFactor() {
+    return downscaleFactor;
+  }
+
+  /**
+   * Returns true if all of the QR codes of the frame are decoded and the duplicates are suppressed.
+   */
+  public boolean isContinuous() {
+    return duplicateWindowMillis > 0;
+  }
+
+  /**
+   * Returns the window within which the same QR code is reported once in the continuous mode.
+   */
+  public long getDuplicateWindowMillis() {
+    return duplicateWindowMillis;
+  }
+}
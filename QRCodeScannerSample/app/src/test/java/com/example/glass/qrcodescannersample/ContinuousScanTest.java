@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.glass.qrcodescannersample.QRCodeWorkerPool.OnQrCodeDecodedListener;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Tests decoding multiple QR codes of the frame and suppressing the duplicates with the {@link
+ * RecentCodes} in the continuous mode of the {@link ScanConfig}.
+ */
+public class ContinuousScanTest {
+
+  private static final List<String> TEXTS = Arrays.asList("Shelf A-12", "Shelf B-07");
+  private static final int CODE_SIZE = 200;
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(3);
+  private static final long TIMEOUT_SECONDS = 10;
+
+  @Test
+  public void decodeMultiple_findsAllCodes() throws ReaderException {
+    final QRCodeDecoder decoder = new QRCodeDecoder(ScanConfig.CONTINUOUS);
+    final ByteBuffer plane = TestFrames.createMultiCodeFrame(TEXTS, CODE_SIZE,
+        TestFrames.PADDED_ROW_STRIDE);
+
+    final Result[] results = decoder.decodeMultiple(plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+        TestFrames.PADDED_ROW_STRIDE);
+    final Set<String> texts = new HashSet<>();
+    for (Result result : results) {
+      texts.add(result.getText());
+    }
+    assertEquals(new HashSet<>(TEXTS), texts);
+  }
+
+  @Test
+  public void recentCodes_suppressesDuplicatesWithinWindow() {
+    final RecentCodes recentCodes = new RecentCodes(WINDOW_NANOS);
+
+    assertTrue(recentCodes.add("A", 0));
+    assertTrue(recentCodes.add("B", 0));
+    assertFalse(recentCodes.add("A", WINDOW_NANOS / 2));
+    // Seen again, so its window restarted.
+    assertFalse(recentCodes.add("A", WINDOW_NANOS + 1));
+    assertTrue(recentCodes.add("B", WINDOW_NANOS + 1));
+    assertTrue(recentCodes.add("A", 3 * WINDOW_NANOS));
+    assertEquals(1, recentCodes.size());
+  }
+
+  @Test
+  public void workerPool_deliversEachCodeOnce() throws InterruptedException {
+    final List<String> results = new CopyOnWriteArrayList<>();
+    final int frames = 6;
+    final CountDownLatch analyzedLatch = new CountDownLatch(frames);
+    final AnalysisStats analysisStats = new AnalysisStats() {
+      @Override
+      public synchronized void onFrameAnalyzed(long latencyNanos) {
+        super.onFrameAnalyzed(latencyNanos);
+        analyzedLatch.countDown();
+      }
+    };
+    final QRCodeWorkerPool workerPool = new QRCodeWorkerPool(2, ScanConfig.CONTINUOUS,
+        analysisStats, new OnQrCodeDecodedListener() {
+          @Override
+          public void onQrCodeDecoded(String text) {
+            results.add(text);
+          }
+
+          @Override
+          public void onFrameDecoded(boolean found) {
+          }
+        });
+    final ByteBuffer plane = TestFrames.createMultiCodeFrame(TEXTS, CODE_SIZE, TestFrames.WIDTH);
+
+    for (int i = 0; i < frames; ) {
+      if (workerPool.submit(plane, TestFrames.WIDTH, TestFrames.HEIGHT, TestFrames.WIDTH,
+          System.nanoTime())) {
+        i++;
+      } else {
+        Thread.sleep(1);
+      }
+    }
+    assertTrue(analyzedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    workerPool.release();
+
+    assertEquals(TEXTS.size(), results.size());
+    assertEquals(new HashSet<>(TEXTS), new HashSet<>(results));
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.glass.qrcodescannersample.TestFrames.Frame;
+import com.google.zxing.ReaderException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Tests the {@link FramePrefilter} and compares decoding all of the frames of a simulated scanning
+ * session with decoding only the frames passing the pre-filter. Checks that the pre-filter skips
+ * each kind of the frames not worth decoding, and logs the skip ratio and the CPU savings of the
+ * {@link AnalysisStats}.
+ */
+public class FramePrefilterBenchmarkTest {
+
+  private static final Logger LOGGER = Logger.getLogger(
+      FramePrefilterBenchmarkTest.class.getSimpleName());
+
+  private static final String TEXT = "https://www.example.com/glass";
+  private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 30;
+  private static final int BLUR_RADIUS = 6;
+  private static final int ROUNDS = 5;
+
+  @Test
+  public void shouldDecode_skipsStaticFrame() {
+    final FramePrefilter framePrefilter = new FramePrefilter();
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+
+    assertTrue(shouldDecode(framePrefilter, plane, 0));
+    framePrefilter.onDecoded(false);
+    assertFalse(shouldDecode(framePrefilter, plane, 1));
+    assertEquals(1, framePrefilter.getStaticFrames());
+  }
+
+  @Test
+  public void shouldDecode_decodesStaticFrameAgainAfterWhile() {
+    final FramePrefilter framePrefilter = new FramePrefilter();
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+
+    assertTrue(shouldDecode(framePrefilter, plane, 0));
+    framePrefilter.onDecoded(false);
+    assertTrue(shouldDecode(framePrefilter, plane, 30));
+  }
+
+  @Test
+  public void shouldDecode_decodesStaticFrameAfterDroppedFrame() {
+    final FramePrefilter framePrefilter = new FramePrefilter();
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+
+    assertTrue(framePrefilter.shouldDecode(plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+        TestFrames.WIDTH, 0));
+    assertTrue(shouldDecode(framePrefilter, plane, 1));
+    framePrefilter.onDecoded(false);
+    assertFalse(shouldDecode(framePrefilter, plane, 2));
+  }
+
+  @Test
+  public void shouldDecode_skipsFrameWithoutFinderPattern() {
+    final FramePrefilter framePrefilter = new FramePrefilter();
+
+    assertFalse(shouldDecode(framePrefilter, TestFrames.createBackgroundFrame(TestFrames.WIDTH, 0),
+        0));
+    assertEquals(1, framePrefilter.getNoFinderFrames());
+  }
+
+  @Test
+  public void shouldDecode_skipsBlurryFrame() {
+    final FramePrefilter framePrefilter = new FramePrefilter();
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+    final ByteBuffer blurredPlane = TestFrames.createBlurredFrame(
+        TestFrames.createFrame(TEXT, 200, 300, 100, TestFrames.WIDTH, 1), TestFrames.WIDTH,
+        BLUR_RADIUS);
+
+    assertTrue(shouldDecode(framePrefilter, plane, 0));
+    assertFalse(shouldDecode(framePrefilter, blurredPlane, 1));
+    assertEquals(1, framePrefilter.getBlurryFrames());
+  }
+
+  @Test
+  public void shouldDecode_passesStandardSet() {
+    for (Frame frame : TestFrames.createStandardSet()) {
+      final FramePrefilter framePrefilter = new FramePrefilter();
+      assertTrue(frame.text, framePrefilter.shouldDecode(frame.plane, TestFrames.WIDTH,
+          TestFrames.HEIGHT, frame.rowStride, 0));
+    }
+  }
+
+  @Test
+  public void benchmark() {
+    final List<Frame> session = createSession();
+    final Set<String> allTexts = run("without pre-filter", session, null);
+    final Set<String> prefilteredTexts = run("with pre-filter", session, new FramePrefilter());
+    assertEquals(allTexts, prefilteredTexts);
+  }
+
+  /**
+   * Returns the frames of a simulated scanning session: looking at a wall, turning the head,
+   * holding still over a QR code and moving over the standard set of the QR codes.
+   */
+  private static List<Frame> createSession() {
+    final List<Frame> session = new ArrayList<>();
+    final Frame wall = new Frame(null, TestFrames.createBackgroundFrame(TestFrames.WIDTH, 0),
+        TestFrames.WIDTH);
+    for (int i = 0; i < 90; i++) {
+      session.add(wall);
+    }
+    for (int i = 0; i < 30; i++) {
+      session.add(new Frame(null, TestFrames.createBackgroundFrame(TestFrames.WIDTH, i + 1),
+          TestFrames.WIDTH));
+    }
+    for (int i = 0; i < 15; i++) {
+      session.add(new Frame(null, TestFrames.createBlurredFrame(
+          TestFrames.createFrame(TEXT, 200, 20 * i, 100, TestFrames.WIDTH, i), TestFrames.WIDTH,
+          BLUR_RADIUS), TestFrames.WIDTH));
+    }
+    final Frame code = new Frame(TEXT, TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH),
+        TestFrames.WIDTH);
+    for (int i = 0; i < 90; i++) {
+      session.add(code);
+    }
+    for (Frame frame : TestFrames.createStandardSet()) {
+      for (int i = 0; i < 5; i++) {
+        session.add(frame);
+      }
+    }
+    return session;
+  }
+
+  /**
+   * Decodes the frames of the session the given number of rounds, skipping the frames rejected by
+   * the given pre-filter if it isn't null. Returns the decoded texts.
+   */
+  private static Set<String> run(String name, List<Frame> session,
+      FramePrefilter framePrefilter) {
+    final AnalysisStats analysisStats = new AnalysisStats();
+    final QRCodeDecoder decoder = new QRCodeDecoder(ScanConfig.DEFAULT);
+    final Set<String> texts = new HashSet<>();
+    long cpuNanos = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      for (int i = 0; i < session.size(); i++) {
+        final Frame frame = session.get(i);
+        final long startNanos = System.nanoTime();
+        final long frameNanos = (round * session.size() + i) * FRAME_NANOS;
+        if (framePrefilter != null) {
+          final boolean shouldDecode = framePrefilter.shouldDecode(frame.plane, TestFrames.WIDTH,
+              TestFrames.HEIGHT, frame.rowStride, frameNanos);
+          analysisStats.onFramePrefiltered(System.nanoTime() - startNanos, !shouldDecode);
+          if (!shouldDecode) {
+            cpuNanos += System.nanoTime() - startNanos;
+            continue;
+          }
+          framePrefilter.onFrameSubmitted();
+        }
+        boolean found = false;
+        try {
+          texts.add(decoder.decode(frame.plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+              frame.rowStride).getText());
+          found = true;
+        } catch (ReaderException e) {
+          // Most of the frames of the session don't contain any QR code.
+        }
+        analysisStats.onFrameAnalyzed(System.nanoTime() - startNanos);
+        if (framePrefilter != null) {
+          framePrefilter.onDecoded(found);
+        }
+        cpuNanos += System.nanoTime() - startNanos;
+      }
+    }
+    final int frames = ROUNDS * session.size();
+    if (framePrefilter == null) {
+      LOGGER.info(String.format("%s: %.2f ms per frame", name, cpuNanos / 1e6 / frames));
+    } else {
+      final String message = String.format("%s: %.2f ms per frame, skipped %.0f%% of %d frames "
+              + "(%d static, %d blurry, %d without finder pattern), estimated CPU savings %.0f%%",
+          name, cpuNanos / 1e6 / frames, 100 * analysisStats.getSkipRatio(), frames,
+          framePrefilter.getStaticFrames(), framePrefilter.getBlurryFrames(),
+          framePrefilter.getNoFinderFrames(), 100 * analysisStats.getCpuSavings());
+      LOGGER.info(message);
+      assertTrue(message, framePrefilter.getStaticFrames() > 0);
+      assertTrue(message, framePrefilter.getBlurryFrames() > 0);
+      assertTrue(message, framePrefilter.getNoFinderFrames() > 0);
+    }
+    return texts;
+  }
+
+  /**
+   * Checks the frame with the pre-filter, and submits it for decoding if it passes.
+   */
+  private static boolean shouldDecode(FramePrefilter framePrefilter, ByteBuffer plane,
+      int frame) {
+    final boolean shouldDecode = framePrefilter.shouldDecode(plane, TestFrames.WIDTH,
+        TestFrames.HEIGHT, TestFrames.WIDTH, frame * FRAME_NANOS);
+    if (shouldDecode) {
+      framePrefilter.onFrameSubmitted();
+    }
+    return shouldDecode;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Compares the {@link PlaneLuminanceSource} with copying the Y plane into a new array for the
+ * {@link PlanarYUVLuminanceSource} on every frame. Measures frames per second, allocated memory per
+ * frame and the number of the garbage collections of both of them, logs them and checks that the
+ * plane source allocates less memory per frame.
+ */
+public class LuminanceSourceBenchmarkTest {
+
+  private static final Logger LOGGER = Logger.getLogger(
+      LuminanceSourceBenchmarkTest.class.getSimpleName());
+
+  private static final String TEXT = "https://www.example.com/glass";
+  private static final int WARM_UP_FRAMES = 50;
+  private static final int FRAMES = 500;
+
+  @Test
+  public void planeSource_decodesPaddedFrame() throws ReaderException {
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.PADDED_ROW_STRIDE);
+    final PlaneLuminanceSource source = new PlaneLuminanceSource(TestFrames.WIDTH,
+        TestFrames.HEIGHT);
+    source.setPlane(plane, TestFrames.PADDED_ROW_STRIDE);
+
+    assertEquals(TEXT, decode(source).getText());
+  }
+
+  @Test
+  public void planeSource_matchesCopiedSource() {
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.PADDED_ROW_STRIDE);
+    final PlaneLuminanceSource source = new PlaneLuminanceSource(TestFrames.WIDTH,
+        TestFrames.HEIGHT);
+    source.setPlane(plane, TestFrames.PADDED_ROW_STRIDE);
+    final byte[] bytes = new byte[plane.capacity()];
+    plane.position(0);
+    plane.get(bytes);
+    final PlanarYUVLuminanceSource copiedSource = new PlanarYUVLuminanceSource(bytes,
+        TestFrames.PADDED_ROW_STRIDE, TestFrames.HEIGHT, 0, 0, TestFrames.WIDTH,
+        TestFrames.HEIGHT, false);
+
+    final byte[] matrix = source.getMatrix();
+    final byte[] copiedMatrix = copiedSource.getMatrix();
+    assertEquals(copiedMatrix.length, matrix.length);
+    for (int i = 0; i < matrix.length; i++) {
+      assertEquals(copiedMatrix[i], matrix[i]);
+    }
+    final byte[] row = source.getRow(TestFrames.HEIGHT / 2, null);
+    final byte[] copiedRow = copiedSource.getRow(TestFrames.HEIGHT / 2, null);
+    for (int i = 0; i < TestFrames.WIDTH; i++) {
+      assertEquals(copiedRow[i], row[i]);
+    }
+  }
+
+  @Test
+  public void benchmark() {
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+    final PlaneLuminanceSource planeSource = new PlaneLuminanceSource(TestFrames.WIDTH,
+        TestFrames.HEIGHT);
+
+    run("copied plane", WARM_UP_FRAMES, plane, null);
+    run("plane source", WARM_UP_FRAMES, plane, planeSource);
+    final Measurement copiedResult = run("copied plane", FRAMES, plane, null);
+    final Measurement planeResult = run("plane source", FRAMES, plane, planeSource);
+    LOGGER.info(copiedResult.toString());
+    LOGGER.info(planeResult.toString());
+    if (copiedResult.allocatedBytesPerFrame > 0) {
+      assertTrue(planeResult + " vs " + copiedResult,
+          planeResult.allocatedBytesPerFrame < copiedResult.allocatedBytesPerFrame);
+    }
+  }
+
+  /**
+   * Extracts the luminance of the given number of the frames and decodes them. Copies the plane
+   * into a new array for each frame if the given plane source is null.
+   */
+  private static Measurement run(String name, int frames, ByteBuffer plane,
+      PlaneLuminanceSource planeSource) {
+    final long gcCountBefore = getGcCount();
+    final long allocatedBytesBefore = getAllocatedBytes();
+    final long startTime = System.nanoTime();
+    int decoded = 0;
+    for (int i = 0; i < frames; i++) {
+      final LuminanceSource source;
+      if (planeSource == null) {
+        plane.position(0);
+        final byte[] bytes = new byte[plane.remaining()];
+        plane.get(bytes);
+        source = new PlanarYUVLuminanceSource(bytes, TestFrames.WIDTH, TestFrames.HEIGHT, 0, 0,
+            TestFrames.WIDTH, TestFrames.HEIGHT, false);
+      } else {
+        planeSource.setPlane(plane, TestFrames.WIDTH);
+        source = planeSource;
+      }
+      try {
+        decode(source);
+        decoded++;
+      } catch (ReaderException e) {
+        // Counted as not decoded.
+      }
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    assertEquals(frames, decoded);
+    final long allocatedBytesPerFrame = (getAllocatedBytes() - allocatedBytesBefore) / frames;
+    return new Measurement(String.format("%s: %.1f frames/s, %d KB allocated per frame, "
+            + "%d garbage collections in %d frames", name, frames / seconds,
+        allocatedBytesPerFrame / 1024, getGcCount() - gcCountBefore, frames),
+        allocatedBytesPerFrame);
+  }
+
+  private static Result decode(LuminanceSource source) throws ReaderException {
+    return new QRCodeReader().decode(new BinaryBitmap(new HybridBinarizer(source)));
+  }
+
+  private static long getGcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean garbageCollector : ManagementFactory
+        .getGarbageCollectorMXBeans()) {
+      count += Math.max(0, garbageCollector.getCollectionCount());
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread, or 0 if the JVM doesn't measure
+   * it.
+   */
+  private static long getAllocatedBytes() {
+    final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadBean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  /**
+   * Result of a benchmark run, described by its {@link #toString()}.
+   */
+  private static final class Measurement {
+
+    private final String description;
+    private final long allocatedBytesPerFrame;
+
+    Measurement(String description, long allocatedBytesPerFrame) {
+      this.description = description;
+      this.allocatedBytesPerFrame = allocatedBytesPerFrame;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.glass.qrcodescannersample.TestFrames.Frame;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Compares the reused {@link QRCodeDecoder} with creating the reader and the binarizer for every
+ * frame of the standard set of the {@link TestFrames}. Measures frames per second, allocated memory
+ * per frame and the number of the garbage collections of both of them, logs them and checks that
+ * the reused decoder allocates less than a tenth of the memory per frame.
+ */
+public class QRCodeDecoderBenchmarkTest {
+
+  private static final Logger LOGGER = Logger.getLogger(
+      QRCodeDecoderBenchmarkTest.class.getSimpleName());
+
+  private static final int WARM_UP_ROUNDS = 20;
+  private static final int ROUNDS = 200;
+  private static final int MIN_ALLOCATION_RATIO = 10;
+
+  @Test
+  public void reusableBinarizer_matchesHybridBinarizer() throws ReaderException {
+    final PlaneLuminanceSource source = new PlaneLuminanceSource(TestFrames.WIDTH,
+        TestFrames.HEIGHT);
+    final ReusableHybridBinarizer reusableBinarizer = new ReusableHybridBinarizer(source);
+    for (Frame frame : TestFrames.createStandardSet()) {
+      source.setPlane(frame.plane, frame.rowStride);
+      final BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+      assertEquals(expected, reusableBinarizer.getBlackMatrix());
+    }
+  }
+
+  @Test
+  public void decoder_decodesStandardSet() throws ReaderException {
+    final QRCodeDecoder decoder = new QRCodeDecoder(ScanConfig.FULL_FRAME_ONLY);
+    for (Frame frame : TestFrames.createStandardSet()) {
+      final Result result = decoder.decode(frame.plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+          frame.rowStride);
+      assertEquals(frame.text, result.getText());
+    }
+  }
+
+  @Test
+  public void benchmark() {
+    final List<Frame> frames = TestFrames.createStandardSet();
+    final QRCodeDecoder decoder = new QRCodeDecoder(ScanConfig.FULL_FRAME_ONLY);
+
+    run("new reader per frame", WARM_UP_ROUNDS, frames, null);
+    run("decoding context", WARM_UP_ROUNDS, frames, decoder);
+    final Measurement newReaderResult = run("new reader per frame", ROUNDS, frames, null);
+    final Measurement decoderResult = run("decoding context", ROUNDS, frames, decoder);
+    LOGGER.info(newReaderResult.toString());
+    LOGGER.info(decoderResult.toString());
+    if (newReaderResult.allocatedBytesPerFrame > 0) {
+      assertTrue(decoderResult + " vs " + newReaderResult,
+          decoderResult.allocatedBytesPerFrame * MIN_ALLOCATION_RATIO
+              < newReaderResult.allocatedBytesPerFrame);
+    }
+  }
+
+  /**
+   * Decodes all of the frames the given number of rounds. Creates the source, the binarizer and
+   * the reader for each frame if the given decoder is null.
+   */
+  private static Measurement run(String name, int rounds, List<Frame> frames,
+      QRCodeDecoder decoder) {
+    final long gcCountBefore = getGcCount();
+    final long allocatedBytesBefore = getAllocatedBytes();
+    final long startTime = System.nanoTime();
+    int decoded = 0;
+    for (int i = 0; i < rounds; i++) {
+      for (Frame frame : frames) {
+        try {
+          final Result result;
+          if (decoder == null) {
+            final PlaneLuminanceSource source = new PlaneLuminanceSource(TestFrames.WIDTH,
+                TestFrames.HEIGHT);
+            source.setPlane(frame.plane, frame.rowStride);
+            result = new QRCodeReader().decode(new BinaryBitmap(new HybridBinarizer(source)));
+          } else {
+            result = decoder.decode(frame.plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+                frame.rowStride);
+          }
+          if (frame.text.equals(result.getText())) {
+            decoded++;
+          }
+        } catch (ReaderException e) {
+          // Counted as not decoded.
+        }
+      }
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final int total = rounds * frames.size();
+    assertEquals(total, decoded);
+    final long allocatedBytesPerFrame = (getAllocatedBytes() - allocatedBytesBefore) / total;
+    return new Measurement(String.format("%s: %.1f frames/s, %d KB allocated per frame, "
+            + "%d garbage collections in %d frames", name, total / seconds,
+        allocatedBytesPerFrame / 1024, getGcCount() - gcCountBefore, total),
+        allocatedBytesPerFrame);
+  }
+
+  private static long getGcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean garbageCollector : ManagementFactory
+        .getGarbageCollectorMXBeans()) {
+      count += Math.max(0, garbageCollector.getCollectionCount());
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread, or 0 if the JVM doesn't measure
+   * it.
+   */
+  private static long getAllocatedBytes() {
+    final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadBean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  /**
+   * Result of a benchmark run, described by its {@link #toString()}.
+   */
+  private static final class Measurement {
+
+    private final String description;
+    private final long allocatedBytesPerFrame;
+
+    Measurement(String description, long allocatedBytesPerFrame) {
+      this.description = description;
+      this.allocatedBytesPerFrame = allocatedBytesPerFrame;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.glass.qrcodescannersample.QRCodeWorkerPool.OnQrCodeDecodedListener;
+import com.example.glass.qrcodescannersample.TestFrames.Frame;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Tests dropping the frames and de-duplicating the results of the {@link QRCodeWorkerPool}. The
+ * ignored benchmark decodes the standard set of the {@link TestFrames} with different numbers of
+ * the workers, and reports the statistics if any of the frames isn't decoded.
+ */
+public class QRCodeWorkerPoolTest {
+
+  private static final String TEXT = "https://www.example.com/glass";
+  private static final long TIMEOUT_SECONDS = 10;
+  private static final long BENCHMARK_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+  @Test
+  public void submit_dropsFrameWhenWorkersAreBusy() throws InterruptedException {
+    final CountDownLatch decodedLatch = new CountDownLatch(1);
+    final CountDownLatch releaseLatch = new CountDownLatch(1);
+    final AnalysisStats analysisStats = new AnalysisStats();
+    final QRCodeWorkerPool workerPool = new QRCodeWorkerPool(1, ScanConfig.DEFAULT,
+        analysisStats, new OnQrCodeDecodedListener() {
+          @Override
+          public void onQrCodeDecoded(String text) {
+            decodedLatch.countDown();
+            try {
+              releaseLatch.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+
+          @Override
+          public void onFrameDecoded(boolean found) {
+          }
+        });
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+
+    assertTrue(submit(workerPool, plane));
+    assertTrue(decodedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertFalse(submit(workerPool, plane));
+    releaseLatch.countDown();
+    workerPool.release();
+  }
+
+  @Test
+  public void submit_afterRelease_dropsFrame() {
+    final QRCodeWorkerPool workerPool = new QRCodeWorkerPool(1, ScanConfig.DEFAULT,
+        new AnalysisStats(), new OnQrCodeDecodedListener() {
+          @Override
+          public void onQrCodeDecoded(String text) {
+          }
+
+          @Override
+          public void onFrameDecoded(boolean found) {
+          }
+        });
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+
+    workerPool.release();
+
+    assertFalse(submit(workerPool, plane));
+    // The worker is idle again, so the next frame isn't dropped as busy but rejected as well.
+    assertFalse(submit(workerPool, plane));
+  }
+
+  @Test
+  public void deliver_ignoresDuplicatesOfConcurrentFrames() throws InterruptedException {
+    final List<String> results = new CopyOnWriteArrayList<>();
+    final int workerCount = 3;
+    final CountDownLatch analyzedLatch = new CountDownLatch(workerCount);
+    final AnalysisStats analysisStats = new AnalysisStats() {
+      @Override
+      public synchronized void onFrameAnalyzed(long latencyNanos) {
+        super.onFrameAnalyzed(latencyNanos);
+        analyzedLatch.countDown();
+      }
+    };
+    final QRCodeWorkerPool workerPool = new QRCodeWorkerPool(workerCount,
+        ScanConfig.DEFAULT, analysisStats, new OnQrCodeDecodedListener() {
+          @Override
+          public void onQrCodeDecoded(String text) {
+            results.add(text);
+          }
+
+          @Override
+          public void onFrameDecoded(boolean found) {
+          }
+        });
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+
+    // Delivering is synchronized on the pool, so it waits until all of the frames are in flight.
+    synchronized (workerPool) {
+      for (int i = 0; i < workerCount; i++) {
+        assertTrue(submit(workerPool, plane));
+      }
+    }
+    assertTrue(analyzedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    workerPool.release();
+
+    assertEquals(1, results.size());
+    assertEquals(TEXT, results.get(0));
+  }
+
+  @Ignore("Benchmark, run manually")
+  @Test
+  public void benchmark() throws InterruptedException {
+    final List<Frame> frames = TestFrames.createStandardSet();
+    final int maxWorkerCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+    for (int workerCount = 1; workerCount <= maxWorkerCount; workerCount *= 2) {
+      run(workerCount, frames);
+    }
+  }
+
+  /**
+   * Submits the frames as fast as possible, dropping them when the workers are busy, and checks
+   * that all of the analyzed frames are decoded. The report of the {@link AnalysisStats} is the
+   * failure message.
+   */
+  private static void run(int workerCount, List<Frame> frames) throws InterruptedException {
+    final AtomicInteger decodedFrames = new AtomicInteger();
+    final AtomicInteger missedFrames = new AtomicInteger();
+    final AnalysisStats analysisStats = new AnalysisStats(BENCHMARK_NANOS);
+    final QRCodeWorkerPool workerPool = new QRCodeWorkerPool(workerCount, ScanConfig.DEFAULT,
+        analysisStats, new OnQrCodeDecodedListener() {
+          @Override
+          public void onQrCodeDecoded(String text) {
+          }
+
+          @Override
+          public void onFrameDecoded(boolean found) {
+            (found ? decodedFrames : missedFrames).incrementAndGet();
+          }
+        });
+    final long startTime = System.nanoTime();
+    analysisStats.pollReport(startTime);
+    String report = null;
+    for (int i = 0; report == null; i++) {
+      final Frame frame = frames.get(i % frames.size());
+      if (!workerPool.submit(frame.plane, TestFrames.WIDTH, TestFrames.HEIGHT, frame.rowStride,
+          System.nanoTime())) {
+        Thread.sleep(1);
+      }
+      report = analysisStats.pollReport(System.nanoTime());
+    }
+    workerPool.release();
+
+    final String message = workerCount + " workers: " + report;
+    assertTrue(message, decodedFrames.get() > 0);
+    assertEquals(message, 0, missedFrames.get());
+  }
+
+  private static boolean submit(QRCodeWorkerPool workerPool, ByteBuffer plane) {
+    return workerPool.submit(plane, TestFrames.WIDTH, TestFrames.HEIGHT, TestFrames.WIDTH,
+        System.nanoTime());
+  }
+}
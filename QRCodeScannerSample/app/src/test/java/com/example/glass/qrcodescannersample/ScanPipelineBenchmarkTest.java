@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.glass.qrcodescannersample.ScanConfig.Stage;
+import com.example.glass.qrcodescannersample.TestFrames.Frame;
+import com.google.zxing.ReaderException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Compares the {@link ScanConfig#DEFAULT} scan pipeline with decoding only the full resolution
+ * frame. Measures frames per second of the centered QR codes, which is the common case, and of the
+ * standard set of the {@link TestFrames}, with the number of the frames decoded by each stage, logs
+ * them and checks that the pipeline decodes the centered QR codes in the center crop.
+ */
+public class ScanPipelineBenchmarkTest {
+
+  private static final Logger LOGGER = Logger.getLogger(
+      ScanPipelineBenchmarkTest.class.getSimpleName());
+
+  private static final String TEXT = "https://www.example.com/glass";
+  private static final int WARM_UP_ROUNDS = 20;
+  private static final int ROUNDS = 200;
+
+  @Test
+  public void defaultPipeline_decodesCenteredCodeInCenterCrop() throws ReaderException {
+    final QRCodeDecoder decoder = new QRCodeDecoder(ScanConfig.DEFAULT);
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.PADDED_ROW_STRIDE);
+
+    assertEquals(TEXT, decoder.decode(plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+        TestFrames.PADDED_ROW_STRIDE).getText());
+    assertEquals(Stage.CENTER_CROP, decoder.getDecodedStage());
+  }
+
+  @Test
+  public void defaultPipeline_decodesStandardSet() throws ReaderException {
+    final QRCodeDecoder decoder = new QRCodeDecoder(ScanConfig.DEFAULT);
+    for (Frame frame : TestFrames.createStandardSet()) {
+      assertEquals(frame.text, decoder.decode(frame.plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+          frame.rowStride).getText());
+    }
+  }
+
+  @Test
+  public void downscaledPipeline_decodesLargeCode() throws ReaderException {
+    final QRCodeDecoder decoder = new QRCodeDecoder(new ScanConfig(
+        Arrays.asList(Stage.DOWNSCALED), ScanConfig.DEFAULT_CENTER_CROP_FRACTION, 2));
+    final ByteBuffer plane = TestFrames.createCenteredFrame(TEXT, TestFrames.WIDTH);
+
+    assertEquals(TEXT, decoder.decode(plane, TestFrames.WIDTH, TestFrames.HEIGHT,
+        TestFrames.WIDTH).getText());
+    assertEquals(Stage.DOWNSCALED, decoder.getDecodedStage());
+  }
+
+  @Test(expected = ReaderException.class)
+  public void centerCropPipeline_missesCodeInCorner() throws ReaderException {
+    final QRCodeDecoder decoder = new QRCodeDecoder(new ScanConfig(
+        Arrays.asList(Stage.CENTER_CROP), ScanConfig.DEFAULT_CENTER_CROP_FRACTION, 2));
+    final ByteBuffer plane = TestFrames.createFrame(TEXT, 128, 0, 0, TestFrames.WIDTH, 0);
+
+    decoder.decode(plane, TestFrames.WIDTH, TestFrames.HEIGHT, TestFrames.WIDTH);
+  }
+
+  @Test
+  public void benchmark() {
+    final List<Frame> centeredFrames = Arrays.asList(
+        new Frame(TEXT, TestFrames.HEIGHT / 2, (TestFrames.WIDTH - TestFrames.HEIGHT / 2) / 2,
+            TestFrames.HEIGHT / 4, TestFrames.WIDTH, 0));
+    final List<Frame> standardFrames = TestFrames.createStandardSet();
+    final QRCodeDecoder fullFrameDecoder = new QRCodeDecoder(ScanConfig.FULL_FRAME_ONLY);
+    final QRCodeDecoder pipelineDecoder = new QRCodeDecoder(ScanConfig.DEFAULT);
+
+    run("full frame, centered", WARM_UP_ROUNDS, centeredFrames, fullFrameDecoder);
+    run("pipeline, centered", WARM_UP_ROUNDS, centeredFrames, pipelineDecoder);
+    final Measurement fullFrameCentered = run("full frame, centered", ROUNDS, centeredFrames,
+        fullFrameDecoder);
+    final Measurement pipelineCentered = run("pipeline, centered", ROUNDS, centeredFrames,
+        pipelineDecoder);
+    final Measurement fullFrameStandard = run("full frame, standard set", ROUNDS, standardFrames,
+        fullFrameDecoder);
+    final Measurement pipelineStandard = run("pipeline, standard set", ROUNDS, standardFrames,
+        pipelineDecoder);
+
+    final String results = fullFrameCentered + "\n" + pipelineCentered + "\n"
+        + fullFrameStandard + "\n" + pipelineStandard;
+    LOGGER.info(results);
+    assertEquals(results, Collections.singleton(Stage.CENTER_CROP),
+        pipelineCentered.stageCounts.keySet());
+    assertEquals(results, Collections.singleton(Stage.FULL_FRAME),
+        fullFrameStandard.stageCounts.keySet());
+    assertEquals(results, EnumSet.allOf(Stage.class), pipelineStandard.stageCounts.keySet());
+  }
+
+  /**
+   * Decodes all of the frames the given number of rounds with the given decoder.
+   */
+  private static Measurement run(String name, int rounds, List<Frame> frames,
+      QRCodeDecoder decoder) {
+    final Map<Stage, Integer> stageCounts = new EnumMap<>(Stage.class);
+    final long startTime = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      for (Frame frame : frames) {
+        try {
+          decoder.decode(frame.plane, TestFrames.WIDTH, TestFrames.HEIGHT, frame.rowStride);
+          final Integer count = stageCounts.get(decoder.getDecodedStage());
+          stageCounts.put(decoder.getDecodedStage(), count == null ? 1 : count + 1);
+        } catch (ReaderException e) {
+          // Counted as not decoded.
+        }
+      }
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final int total = rounds * frames.size();
+    int decoded = 0;
+    for (int count : stageCounts.values()) {
+      decoded += count;
+    }
+    assertEquals(total, decoded);
+    return new Measurement(String.format("%s: %.1f frames/s, decoded by stage %s", name,
+        total / seconds, stageCounts), stageCounts);
+  }
+
+  /**
+   * Result of a benchmark run, described by its {@link #toString()}.
+   */
+  private static final class Measurement {
+
+    private final String description;
+    private final Map<Stage, Integer> stageCounts;
+
+    Measurement(String description, Map<Stage, Integer> stageCounts) {
+      this.description = description;
+      this.stageCounts = stageCounts;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.glass.qrcodescannersample;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic camera frames with a QR code, as Y planes in direct {@link ByteBuffer}s like
+ * the ones delivered by the camera.
+ */
+final class TestFrames {
+
+  static final int WIDTH = 640;
+  static final int HEIGHT = 480;
+
+  /**
+   * Row stride of the padded frames, as used by many camera drivers.
+   */
+  static final int PADDED_ROW_STRIDE = 704;
+
+  private static final byte WHITE = (byte) 220;
+  private static final byte BLACK = (byte) 30;
+  private static final byte PADDING = (byte) 128;
+  private static final int NOISE = 16;
+
+  private TestFrames() {
+  }
+
+  /**
+   * Returns the Y plane of a frame with the QR code of the given text and size placed at the given
+   * position, over a noisy background.
+   */
+  static ByteBuffer createFrame(String text, int codeSize, int codeLeft, int codeTop,
+      int rowStride, long seed) {
+    final BitMatrix code;
+    try {
+      code = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, codeSize, codeSize);
+    } catch (WriterException e) {
+      throw new IllegalStateException(e);
+    }
+    final Random random = new Random(seed);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < rowStride; x++) {
+        final byte value;
+        if (x >= WIDTH) {
+          value = PADDING;
+        } else if (x >= codeLeft && x < codeLeft + code.getWidth() && y >= codeTop
+            && y < codeTop + code.getHeight()) {
+          value = code.get(x - codeLeft, y - codeTop) ? BLACK : WHITE;
+        } else {
+          value = (byte) (WHITE - random.nextInt(NOISE) - NOISE);
+        }
+        buffer.put(y * rowStride + x, value);
+      }
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns the Y plane of a frame with the QR codes of the given texts of the given size placed
+   * side by side in the middle row.
+   */
+  static ByteBuffer createMultiCodeFrame(List<String> texts, int codeSize, int rowStride) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+    final int gap = (WIDTH - texts.size() * codeSize) / (texts.size() + 1);
+    final int codeTop = (HEIGHT - codeSize) / 2;
+    for (int i = 0; i < texts.size(); i++) {
+      final ByteBuffer codeFrame = createFrame(texts.get(i), codeSize,
+          gap + i * (codeSize + gap), codeTop, rowStride, i);
+      final int left = i * WIDTH / texts.size();
+      final int right = (i + 1) * WIDTH / texts.size();
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = left; x < (i == texts.size() - 1 ? rowStride : right); x++) {
+          buffer.put(y * rowStride + x, codeFrame.get(y * rowStride + x));
+        }
+      }
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns the Y plane of a frame with the noisy background only.
+   */
+  static ByteBuffer createBackgroundFrame(int rowStride, long seed) {
+    final Random random = new Random(seed);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < rowStride; x++) {
+        buffer.put(y * rowStride + x,
+            x >= WIDTH ? PADDING : (byte) (WHITE - random.nextInt(NOISE) - NOISE));
+      }
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns a copy of the given Y plane blurred horizontally with a box of the given radius, like
+   * a frame taken while turning the head.
+   */
+  static ByteBuffer createBlurredFrame(ByteBuffer plane, int rowStride, int radius) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < rowStride; x++) {
+        if (x >= WIDTH) {
+          buffer.put(y * rowStride + x, PADDING);
+          continue;
+        }
+        int sum = 0;
+        int count = 0;
+        for (int i = Math.max(0, x - radius); i <= Math.min(WIDTH - 1, x + radius); i++) {
+          sum += plane.get(y * rowStride + i) & 0xFF;
+          count++;
+        }
+        buffer.put(y * rowStride + x, (byte) (sum / count));
+      }
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns the Y plane of a frame with the QR code of the given text in the middle.
+   */
+  static ByteBuffer createCenteredFrame(String text, int rowStride) {
+    final int codeSize = HEIGHT / 2;
+    return createFrame(text, codeSize, (WIDTH - codeSize) / 2, (HEIGHT - codeSize) / 2,
+        rowStride, 0);
+  }
+
+  /**
+   * Returns the standard set of the frames used by the benchmarks. The frames differ in the size
+   * and position of the QR code, the length of the text and the row stride.
+   */
+  static List<Frame> createStandardSet() {
+    final String longText = "https://www.example.com/glass/enterprise/samples?device=glass"
+        + "&sample=qr-code-scanner&session=0123456789abcdef0123456789abcdef";
+    final List<Frame> frames = new ArrayList<>();
+    frames.add(new Frame("https://www.example.com/glass", 240, 200, 120, WIDTH, 1));
+    frames.add(new Frame("https://www.example.com/glass", 240, 200, 120, PADDED_ROW_STRIDE, 2));
+    frames.add(new Frame("GLASS", 96, 420, 190, WIDTH, 3));
+    frames.add(new Frame("Top left corner", 128, 24, 24, PADDED_ROW_STRIDE, 4));
+    frames.add(new Frame("Bottom right corner", 160, 456, 296, WIDTH, 5));
+    frames.add(new Frame(longText, 320, 160, 80, PADDED_ROW_STRIDE, 6));
+    return frames;
+  }
+
+  /**
+   * Synthetic frame with the text of its QR code.
+   */
+  static final class Frame {
+
+    final String text;
+    final ByteBuffer plane;
+    final int rowStride;
+
+    Frame(String text, int codeSize, int codeLeft, int codeTop, int rowStride, long seed) {
+      this(text, createFrame(text, codeSize, codeLeft, codeTop, rowStride, seed), rowStride);
+    }
+
+    /**
+     * Creates {@link Frame} of the given plane, with null text if it doesn't contain any QR code.
+     */
+    Frame(String text, ByteBuffer plane, int rowStride) {
+      this.text = text;
+      this.plane = plane;
+      this.rowStride = rowStride;
+    }
+  }
+}